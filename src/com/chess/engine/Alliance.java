@@ -1,5 +1,6 @@
 package com.chess.engine;
 
+import com.chess.engine.board.BoardUtils;
 import com.chess.engine.player.BlackPlayer;
 import com.chess.engine.player.Player;
 import com.chess.engine.player.WhitePlayer;
@@ -21,6 +22,11 @@ public enum Alliance {
             return false;
         }
 
+        @Override
+        public boolean isPawnPromotionSquare(final int position) {
+            return BoardUtils.FIRST_ROW[position];
+        }
+
         @Override
         public Player choosePlayer(final WhitePlayer whitePlayer,
                                    final BlackPlayer blackPlayer) {
@@ -42,6 +48,11 @@ public enum Alliance {
             return true;
         }
 
+        @Override
+        public boolean isPawnPromotionSquare(final int position) {
+            return BoardUtils.EIGHTH_ROW[position];
+        }
+
         @Override
         public Player choosePlayer(final WhitePlayer whitePlayer,
                                    final BlackPlayer blackPlayer) {
@@ -52,6 +63,7 @@ public enum Alliance {
     public abstract int getDirection();
     public abstract boolean isWhite();
     public abstract boolean isBlack();
+    public abstract boolean isPawnPromotionSquare(int position);
 
     public abstract Player choosePlayer(WhitePlayer whitePlayer, BlackPlayer blackPlayer);
 }
@@ -1,10 +1,272 @@
 package com.chess.engine;
 
+import com.chess.engine.analysis.AnalysisCache;
+import com.chess.engine.analysis.AnalysisRequest;
+import com.chess.engine.analysis.AnalysisResult;
+import com.chess.engine.analysis.BatchAnalyzer;
 import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.journal.GameJournal;
+import com.chess.engine.notation.CoordinateNotation;
+import com.chess.engine.notation.FenParser;
+import com.chess.engine.player.ai.AlphaBeta;
+import com.chess.engine.player.ai.Benchmark;
+import com.chess.engine.player.ai.EvaluationFeatures;
+import com.chess.engine.player.ai.MateSolver;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.engine.player.ai.TranspositionTable;
+import com.chess.engine.server.GameServer;
+import com.chess.engine.tablebase.TablebaseGenerator;
+import com.chess.engine.tablebase.Tablebases;
+import com.chess.engine.telemetry.EngineTelemetry;
+import com.chess.engine.tournament.MatchGame;
+import com.chess.engine.tournament.Sprt;
+import com.chess.engine.tournament.Tournament;
+import com.chess.engine.tuning.FeatureExtractor;
+import com.chess.engine.tuning.FeaturePipeline;
+import com.chess.engine.tuning.SelfPlayGenerator;
+import com.chess.engine.tuning.TexelTuner;
+import com.chess.engine.tuning.TrainingSet;
+import com.chess.engine.uci.UciEngine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class JChess {
-    public static void main(String[] args) {
-        Board board = Board.createStandardBoard();
-        System.out.println(board);
+
+    private static final int MATE_HASH_SIZE = 64;
+    private static final long DEFAULT_MATE_NODES = 1000000;
+    private static final long DEFAULT_SPRT_GAMES = 100000;
+    private static final int SPRT_HASH_SIZE = 4;
+    private static final int SPRT_REPORT_INTERVAL = 100;
+    private static final int TUNE_REPORT_INTERVAL = 50;
+
+    //no arguments: UCI on stdin/stdout
+    //server [port] [engine threads] [move time in ms] [journal directory] [tablebase directory]: the multi-game server
+    //tablebase <directory> <material>...: generates endgame tables (KQvKR) and the tables they depend on
+    //mate <moves> [max nodes]: reads FENs from stdin, prints each with "mate N <moves>", "none" or "unknown"
+    //bench [depth] [max nodes per position]: searches a fixed set of positions, prints nodes, nodes/second and a signature
+    //analyze <depth> [threads] [move time in ms, -1 for none] [cache file]: analyzes FENs from stdin, prints
+    //"<line> bestmove <move> score ..." as they finish, positions the cache file holds deep enough are not searched
+    //sprt <candidate depth> <baseline depth> [max games] [threads] [seed]: plays the two depths against each other from
+    //the opening FENs on stdin, with random plies once the book is used up, until an SPRT with elo0 0, elo1 5 and
+    //5% error rates decides
+    //tune <iterations> <threads> <file>...: tunes the evaluation weights on EPD/FEN lines labeled with game results
+    //or on self-play .bin files
+    //selfplay <directory> <positions> [depth] [threads] [seed]: writes self-play training records, one file per thread
+    //features <output> <threads> <file>...: writes the feature rows of self-play .bin files into one mappable file
+    //Every mode publishes its counters over JMX, JFR events are there for any recording (-XX:StartFlightRecording)
+    public static void main(String[] args) throws IOException, InterruptedException {
+        EngineTelemetry.register();
+        if (args.length > 0 && args[0].equals("server")) {
+            final int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+            final int engineThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            final long moveTime = args.length > 3 ? Long.parseLong(args[3]) : GameServer.DEFAULT_MOVE_TIME;
+            final GameJournal journal = args.length > 4 ? GameJournal.open(Paths.get(args[4])) : null;
+            final Tablebases tablebases = args.length > 5 ? Tablebases.open(Paths.get(args[5])) : null;
+            try (final GameServer server = new GameServer(port, engineThreads, moveTime, journal, tablebases)) {
+                server.run();
+            }
+            return;
+        }
+        if (args.length > 2 && args[0].equals("tablebase")) {
+            final Tablebases tablebases = new TablebaseGenerator().generate(Paths.get(args[1]), Arrays.copyOfRange(args, 2, args.length));
+            System.out.println(tablebases.size() + " tables in " + args[1]);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("bench")) {
+            Benchmark.run(args.length > 1 ? Integer.parseInt(args[1]) : Benchmark.DEFAULT_DEPTH,
+                          args.length > 2 ? Long.parseLong(args[2]) : Long.MAX_VALUE, System.out);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("analyze")) {
+            analyze(Integer.parseInt(args[1]),
+                    args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors(),
+                    args.length > 3 ? Long.parseLong(args[3]) : AnalysisRequest.NO_TIME_LIMIT,
+                    args.length > 4 ? Paths.get(args[4]) : null);
+            return;
+        }
+        if (args.length > 2 && args[0].equals("sprt")) {
+            runSprt(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                    args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SPRT_GAMES,
+                    args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors(),
+                    args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime());
+            return;
+        }
+        if (args.length > 3 && args[0].equals("tune")) {
+            final List<Path> files = new ArrayList<>();
+            for (int i = 3; i < args.length; i++) {
+                files.add(Paths.get(args[i]));
+            }
+            tune(Integer.parseInt(args[1]), Integer.parseInt(args[2]), files);
+            return;
+        }
+        if (args.length > 2 && args[0].equals("selfplay")) {
+            new SelfPlayGenerator(Paths.get(args[1]),
+                                  args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors(),
+                                  args.length > 3 ? Integer.parseInt(args[3]) : SelfPlayGenerator.DEFAULT_DEPTH,
+                                  args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime())
+                    .generate(Long.parseLong(args[2]), System.out);
+            return;
+        }
+        if (args.length > 3 && args[0].equals("features")) {
+            final List<Path> files = new ArrayList<>();
+            for (int i = 3; i < args.length; i++) {
+                files.add(Paths.get(args[i]));
+            }
+            extractFeatures(Paths.get(args[1]), Integer.parseInt(args[2]), files);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("mate")) {
+            solveMates(Integer.parseInt(args[1]), args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_MATE_NODES);
+            return;
+        }
+        new UciEngine(System.in, System.out).run();
+    }
+
+    private static void analyze(final int depth,
+                                final int numThreads,
+                                final long moveTime,
+                                final Path cacheFile) throws IOException, InterruptedException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+        final Iterator<String> lines = reader.lines().iterator();
+        //numbered by input line, the results come back in completion order
+        final Iterator<AnalysisRequest> requests = new Iterator<AnalysisRequest>() {
+            private long lineNumber;
+
+            @Override
+            public boolean hasNext() {
+                return lines.hasNext();
+            }
+
+            @Override
+            public AnalysisRequest next() {
+                final String fen = lines.next().trim();
+                final long id = ++this.lineNumber;
+                return moveTime != AnalysisRequest.NO_TIME_LIMIT ?
+                        AnalysisRequest.forTime(id, fen, moveTime) : AnalysisRequest.forDepth(id, fen, depth);
+            }
+        };
+        try (final BatchAnalyzer analyzer = new BatchAnalyzer(numThreads, 1024, BatchAnalyzer.DEFAULT_HASH_SIZE);
+             final AnalysisCache cache = cacheFile != null ? AnalysisCache.open(cacheFile) : null) {
+            analyzer.setCache(cache);
+            analyzer.analyze(requests, JChess::printAnalysis);
+        }
+    }
+
+    private static void printAnalysis(final AnalysisResult result) {
+        final StringBuilder builder = new StringBuilder(128).append(result.getRequest().getId()).append('\t');
+        if (result.isFailed()) {
+            builder.append("error ").append(result.getError());
+        } else {
+            CoordinateNotation.write(result.getBestMove(), builder.append("bestmove "));
+            if (result.isMateScore()) {
+                builder.append(" score mate ").append(AlphaBeta.movesToMate(result.getScore()));
+            } else {
+                builder.append(" score cp ").append(result.getScore());
+            }
+            builder.append(" depth ").append(result.getDepth()).append(" nodes ").append(result.getNodes()).append(" pv");
+            for (final Move move : result.getPrincipalVariation()) {
+                CoordinateNotation.write(move, builder.append(' '));
+            }
+        }
+        System.out.println(builder);
+    }
+
+    private static void runSprt(final int candidateDepth,
+                                final int baselineDepth,
+                                final long maxGames,
+                                final int numThreads,
+                                final long seed) throws IOException, InterruptedException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+        final FenParser fenParser = new FenParser();
+        final List<Board> openings = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+                openings.add(fenParser.parse(line.trim()));
+            }
+        }
+        final Tournament tournament = new Tournament(
+                () -> new AlphaBeta(new StandardBoardEvaluator(), new TranspositionTable(SPRT_HASH_SIZE), candidateDepth),
+                () -> new AlphaBeta(new StandardBoardEvaluator(), new TranspositionTable(SPRT_HASH_SIZE), baselineDepth),
+                openings, new Sprt(Tournament.DEFAULT_ELO0, Tournament.DEFAULT_ELO1, Tournament.DEFAULT_ERROR_RATE,
+                Tournament.DEFAULT_ERROR_RATE), numThreads, maxGames, MatchGame.DEFAULT_MAX_PLIES, seed);
+        final Sprt.Decision decision = tournament.run(System.out, SPRT_REPORT_INTERVAL);
+        System.out.println(decision == Sprt.Decision.ACCEPT_H1 ? "H1 accepted" :
+                           decision == Sprt.Decision.ACCEPT_H0 ? "H0 accepted" : "no decision after " + tournament.getGames() + " games");
+    }
+
+    private static void tune(final int iterations,
+                             final int numThreads,
+                             final List<Path> files) throws IOException {
+        final long startTime = System.nanoTime();
+        final TrainingSet trainingSet = TrainingSet.load(files, numThreads);
+        System.out.println("loaded " + trainingSet.size() + " positions, skipped " + trainingSet.getSkipped() + " lines in " +
+                           TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms");
+        try (final TexelTuner tuner = new TexelTuner(trainingSet, numThreads)) {
+            final double[] initialWeights = TexelTuner.toDouble(EvaluationFeatures.getDefaultWeights());
+            final double k = tuner.findScalingConstant(initialWeights);
+            System.out.println(String.format("k %.4f loss %.7f", k, tuner.loss(initialWeights, k)));
+            final int[] weights = TexelTuner.round(tuner.tune(initialWeights, k, iterations,
+                    TexelTuner.DEFAULT_LEARNING_RATE, System.out, TUNE_REPORT_INTERVAL));
+            for (int i = 0; i < weights.length; i++) {
+                System.out.println(EvaluationFeatures.getName(i) + " " + weights[i]);
+            }
+        }
+    }
+
+    private static void extractFeatures(final Path output,
+                                        final int numThreads,
+                                        final List<Path> files) throws IOException {
+        final long startTime = System.nanoTime();
+        try (final FeaturePipeline pipeline = new FeaturePipeline(numThreads)) {
+            final long count = pipeline.run(files, output);
+            System.out.println("wrote " + count + " rows of " + FeatureExtractor.FEATURE_SIZE + " bytes in " +
+                               TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms");
+        }
+    }
+
+    private static void solveMates(final int maxMoves,
+                                   final long maxNodes) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+        final FenParser fenParser = new FenParser();
+        final MateSolver solver = new MateSolver(MATE_HASH_SIZE);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final String fen = line.trim();
+            if (fen.isEmpty()) {
+                continue;
+            }
+            final StringBuilder builder = new StringBuilder(fen).append('\t');
+            final Board board;
+            try {
+                board = fenParser.parse(fen);
+            } catch (final RuntimeException e) {
+                System.out.println(builder.append("error ").append(e.getMessage()));
+                continue;
+            }
+            final int moves = solver.findMate(board, maxMoves, maxNodes);
+            if (moves == MateSolver.UNKNOWN) {
+                builder.append("unknown");
+            } else if (moves == MateSolver.NO_MATE) {
+                builder.append("none");
+            } else {
+                builder.append("mate ").append(moves);
+                for (final Move move : solver.getMateLine()) {
+                    CoordinateNotation.write(move, builder.append(' '));
+                }
+            }
+            System.out.println(builder);
+        }
     }
 }
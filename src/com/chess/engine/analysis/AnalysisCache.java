@@ -0,0 +1,284 @@
+package com.chess.engine.analysis;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.MoveTransition;
+import com.google.common.collect.ImmutableList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+//Finished analyses kept on disk by position, so a position analyzed yesterday, or by another engine process on
+//the same host, is answered without a search. The file is a header and 64 byte slots, mapped into memory:
+//key (8), sequence (4), score (4), depth (1), referenced (1), pv length (1), clock hand (1), best move (2), pv (42).
+//Slots are grouped in buckets of BUCKET_SIZE by key. A key is kept once, the deeper result wins. A new key takes
+//an empty slot or evicts by CLOCK: the hand of the bucket sweeps its slots, gives every slot that was hit since the
+//last sweep a second chance and takes the first one that wasn't.
+//
+//Several processes can map the file at the same time. Every slot is a seqlock: a writer claims it by moving the
+//sequence to an odd number with a compare and set, and releases it at the next even number. Readers retry while the
+//sequence is odd or has changed under them, and a writer that finds a slot claimed just drops its result.
+//Every process holds a shared lock on the file, the first one to open it alone releases slots left claimed by a
+//process that died in the middle of a write. Open a file at most once per process.
+public class AnalysisCache implements Closeable {
+
+    public static final int DEFAULT_SIZE_MB = 64;
+    public static final int SLOT_SIZE = 64;
+    public static final int MAX_PV_LENGTH = 21;
+
+    private static final long MAGIC = 0x4A43414348453031L; //JCACHE01
+    private static final int HEADER_SIZE = SLOT_SIZE;
+    private static final int NUM_SLOTS_OFFSET = 8;
+    private static final int BUCKET_SIZE = 8;
+    private static final int MAX_SLOTS = 1 << 24;
+    private static final int MAX_READ_RETRIES = 8;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int SCORE_OFFSET = 12;
+    private static final int DEPTH_OFFSET = 16;
+    private static final int REFERENCED_OFFSET = 17;
+    private static final int PV_LENGTH_OFFSET = 18;
+    //only used in the first slot of a bucket, a hint that needs no lock
+    private static final int HAND_OFFSET = 19;
+    private static final int BEST_MOVE_OFFSET = 20;
+    private static final int PV_OFFSET = 22;
+    private static final VarHandle SEQUENCE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final MappedByteBuffer buffer;
+    private final int bucketMask;
+
+    //ctor
+    private AnalysisCache(final FileChannel channel,
+                          final FileLock lock,
+                          final MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.lock = lock;
+        this.buffer = buffer;
+        this.bucketMask = buffer.getInt(NUM_SLOTS_OFFSET) / BUCKET_SIZE - 1;
+    }
+
+    public static AnalysisCache open(final Path path) throws IOException {
+        return open(path, DEFAULT_SIZE_MB);
+    }
+
+    //megabytes only sizes a new file, an existing one keeps the size it was made with
+    public static AnalysisCache open(final Path path,
+                                     final int megabytes) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            final FileLock exclusive;
+            try {
+                exclusive = channel.tryLock();
+            } catch (final OverlappingFileLockException e) {
+                throw new RuntimeException("The analysis cache " + path + " is already open in this process");
+            }
+            if (exclusive != null) {
+                try {
+                    prepare(channel, megabytes);
+                } finally {
+                    exclusive.release();
+                }
+            }
+            //another process may be creating the file, the shared lock waits until it is done
+            final FileLock shared = channel.lock(0, Long.MAX_VALUE, true);
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            buffer.order(ByteOrder.nativeOrder());
+            if (channel.size() < HEADER_SIZE || buffer.getLong(0) != MAGIC ||
+                    channel.size() != HEADER_SIZE + (long) buffer.getInt(NUM_SLOTS_OFFSET) * SLOT_SIZE) {
+                shared.release();
+                throw new RuntimeException("Not an analysis cache: " + path);
+            }
+            return new AnalysisCache(channel, shared, buffer);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    //with the file to ourselves: creates it if it is empty, else releases the slots a dead writer left claimed
+    private static void prepare(final FileChannel channel,
+                                final int megabytes) throws IOException {
+        if (channel.size() == 0) {
+            final long wanted = Math.max(BUCKET_SIZE, (long) megabytes * 1024 * 1024 / SLOT_SIZE);
+            final int numSlots = (int) Long.highestOneBit(Math.min(wanted, MAX_SLOTS));
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) numSlots * SLOT_SIZE);
+            buffer.order(ByteOrder.nativeOrder());
+            buffer.putInt(NUM_SLOTS_OFFSET, numSlots);
+            //the magic goes last, a file without it is never used
+            buffer.force();
+            buffer.putLong(0, MAGIC);
+            buffer.force();
+            return;
+        }
+        if (channel.size() < HEADER_SIZE) {
+            return;
+        }
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        buffer.order(ByteOrder.nativeOrder());
+        for (int offset = HEADER_SIZE; offset + SLOT_SIZE <= buffer.capacity(); offset += SLOT_SIZE) {
+            final int sequence = buffer.getInt(offset + SEQUENCE_OFFSET);
+            if ((sequence & 1) != 0) {
+                buffer.putLong(offset, 0);
+                buffer.putInt(offset + SEQUENCE_OFFSET, sequence + 1);
+            }
+        }
+    }
+
+    public int size() {
+        return this.bucketMask * BUCKET_SIZE + BUCKET_SIZE;
+    }
+
+    //The cached analysis of the board if it went at least as deep as the request asks for, else null.
+    //The result has no nodes and took no search time.
+    public AnalysisResult probe(final AnalysisRequest request,
+                                final Board board) {
+        final long key = board.getZobristKey();
+        final int bucket = bucketOffset(key);
+        for (int offset = bucket; offset < bucket + BUCKET_SIZE * SLOT_SIZE; offset += SLOT_SIZE) {
+            if (this.buffer.getLong(offset) != key) {
+                continue;
+            }
+            for (int retry = 0; retry < MAX_READ_RETRIES; retry++) {
+                final int sequence = (int) SEQUENCE.getAcquire(this.buffer, offset + SEQUENCE_OFFSET);
+                if ((sequence & 1) != 0) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                final long storedKey = this.buffer.getLong(offset);
+                final int score = this.buffer.getInt(offset + SCORE_OFFSET);
+                final int depth = this.buffer.get(offset + DEPTH_OFFSET);
+                final int bestMove = this.buffer.getShort(offset + BEST_MOVE_OFFSET) & 0xFFFF;
+                final int[] pv = new int[Math.min(this.buffer.get(offset + PV_LENGTH_OFFSET), MAX_PV_LENGTH)];
+                for (int i = 0; i < pv.length; i++) {
+                    pv[i] = this.buffer.getShort(offset + PV_OFFSET + 2 * i) & 0xFFFF;
+                }
+                VarHandle.acquireFence();
+                if ((int) SEQUENCE.getVolatile(this.buffer, offset + SEQUENCE_OFFSET) != sequence) {
+                    continue;
+                }
+                if (storedKey != key || depth < request.getDepth()) {
+                    return null;
+                }
+                if (this.buffer.get(offset + REFERENCED_OFFSET) == 0) {
+                    this.buffer.put(offset + REFERENCED_OFFSET, (byte) 1);
+                }
+                return decode(request, board, score, depth, bestMove, pv);
+            }
+            return null;
+        }
+        return null;
+    }
+
+    //keeps a finished analysis of the board, unless the cache holds a deeper one or another writer has the slot
+    public void store(final Board board,
+                      final AnalysisResult result) {
+        if (result.isFailed() || result.getBestMove() == Move.NULL_MOVE) {
+            return;
+        }
+        final long key = board.getZobristKey();
+        final int offset = findSlot(key, result.getDepth());
+        if (offset == -1) {
+            return;
+        }
+        final int sequence = (int) SEQUENCE.getVolatile(this.buffer, offset + SEQUENCE_OFFSET);
+        if ((sequence & 1) != 0 || !SEQUENCE.compareAndSet(this.buffer, offset + SEQUENCE_OFFSET, sequence, sequence + 1)) {
+            return;
+        }
+        final List<Move> pv = result.getPrincipalVariation();
+        final int pvLength = Math.min(pv.size(), MAX_PV_LENGTH);
+        this.buffer.putLong(offset, key);
+        this.buffer.putInt(offset + SCORE_OFFSET, result.getScore());
+        this.buffer.put(offset + DEPTH_OFFSET, (byte) Math.min(result.getDepth(), Byte.MAX_VALUE));
+        this.buffer.put(offset + REFERENCED_OFFSET, (byte) 0);
+        this.buffer.put(offset + PV_LENGTH_OFFSET, (byte) pvLength);
+        this.buffer.putShort(offset + BEST_MOVE_OFFSET, (short) Move.MoveFactory.encodeMove(result.getBestMove()));
+        for (int i = 0; i < pvLength; i++) {
+            this.buffer.putShort(offset + PV_OFFSET + 2 * i, (short) Move.MoveFactory.encodeMove(pv.get(i)));
+        }
+        SEQUENCE.setRelease(this.buffer, offset + SEQUENCE_OFFSET, sequence + 2);
+    }
+
+    //the slot of the key if it holds a shallower result, else the CLOCK victim of the bucket, -1 to keep what is there
+    private int findSlot(final long key,
+                         final int depth) {
+        final int bucket = bucketOffset(key);
+        for (int offset = bucket; offset < bucket + BUCKET_SIZE * SLOT_SIZE; offset += SLOT_SIZE) {
+            if (this.buffer.getLong(offset) == key) {
+                return this.buffer.get(offset + DEPTH_OFFSET) <= depth ? offset : -1;
+            }
+        }
+        int hand = this.buffer.get(bucket + HAND_OFFSET) & (BUCKET_SIZE - 1);
+        //two rounds at most: the first clears every referenced bit it passes
+        for (int step = 0; step < 2 * BUCKET_SIZE; step++) {
+            final int offset = bucket + hand * SLOT_SIZE;
+            hand = (hand + 1) & (BUCKET_SIZE - 1);
+            if ((int) SEQUENCE.getVolatile(this.buffer, offset + SEQUENCE_OFFSET) == 0 ||
+                    this.buffer.get(offset + REFERENCED_OFFSET) == 0) {
+                this.buffer.put(bucket + HAND_OFFSET, (byte) hand);
+                return offset;
+            }
+            this.buffer.put(offset + REFERENCED_OFFSET, (byte) 0);
+        }
+        return -1;
+    }
+
+    private int bucketOffset(final long key) {
+        return HEADER_SIZE + (int) ((key ^ (key >>> 32)) & this.bucketMask) * BUCKET_SIZE * SLOT_SIZE;
+    }
+
+    //null if a move doesn't fit the board, which only happens when two positions share a key
+    private static AnalysisResult decode(final AnalysisRequest request,
+                                         final Board board,
+                                         final int score,
+                                         final int depth,
+                                         final int encodedBestMove,
+                                         final int[] encodedPv) {
+        final Move bestMove = Move.MoveFactory.createMove(board, encodedBestMove);
+        if (bestMove == Move.NULL_MOVE || !board.currentPlayer().makeMove(bestMove).getMoveStatus().isDone()) {
+            return null;
+        }
+        final ImmutableList.Builder<Move> pv = ImmutableList.builder();
+        Board current = board;
+        for (final int encodedMove : encodedPv) {
+            final Move move = Move.MoveFactory.createMove(current, encodedMove);
+            if (move == Move.NULL_MOVE) {
+                break;
+            }
+            final MoveTransition transition = current.currentPlayer().makeMove(move);
+            if (!transition.getMoveStatus().isDone()) {
+                break;
+            }
+            pv.add(move);
+            current = transition.getTransitionBoard();
+        }
+        return new AnalysisResult(request, bestMove, score, depth, 0, 0, pv.build(), null);
+    }
+
+    //writes the slots back to the file, other processes see them in memory before that
+    public void flush() {
+        this.buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            this.lock.release();
+        } finally {
+            this.channel.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.chess.engine.analysis;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.ai.AlphaBeta;
+
+//One position for BatchAnalyzer with its limits. A FEN is parsed on the worker that picks it up.
+public final class AnalysisRequest {
+
+    public static final long NO_TIME_LIMIT = -1;
+
+    private final long id;
+    private final String fen;
+    private final Board board;
+    private final int depth;
+    private final long moveTimeMillis;
+    private final long maxNodes;
+
+    //ctor
+    private AnalysisRequest(final long id,
+                            final String fen,
+                            final Board board,
+                            final int depth,
+                            final long moveTimeMillis,
+                            final long maxNodes) {
+        this.id = id;
+        this.fen = fen;
+        this.board = board;
+        this.depth = depth;
+        this.moveTimeMillis = moveTimeMillis;
+        this.maxNodes = maxNodes;
+    }
+
+    public static AnalysisRequest forDepth(final long id,
+                                           final String fen,
+                                           final int depth) {
+        return new AnalysisRequest(id, fen, null, depth, NO_TIME_LIMIT, Long.MAX_VALUE);
+    }
+
+    public static AnalysisRequest forDepth(final long id,
+                                           final Board board,
+                                           final int depth) {
+        return new AnalysisRequest(id, null, board, depth, NO_TIME_LIMIT, Long.MAX_VALUE);
+    }
+
+    public static AnalysisRequest forTime(final long id,
+                                          final String fen,
+                                          final long moveTimeMillis) {
+        return new AnalysisRequest(id, fen, null, AlphaBeta.MAX_DEPTH, moveTimeMillis, Long.MAX_VALUE);
+    }
+
+    public static AnalysisRequest forTime(final long id,
+                                          final Board board,
+                                          final long moveTimeMillis) {
+        return new AnalysisRequest(id, null, board, AlphaBeta.MAX_DEPTH, moveTimeMillis, Long.MAX_VALUE);
+    }
+
+    //the same request, also stopped after maxNodes
+    public AnalysisRequest withMaxNodes(final long maxNodes) {
+        return new AnalysisRequest(this.id, this.fen, this.board, this.depth, this.moveTimeMillis, maxNodes);
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    //null for requests made from a Board
+    public String getFen() {
+        return this.fen;
+    }
+
+    //null for requests made from a FEN
+    public Board getBoard() {
+        return this.board;
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public long getMoveTimeMillis() {
+        return this.moveTimeMillis;
+    }
+
+    public long getMaxNodes() {
+        return this.maxNodes;
+    }
+}
@@ -0,0 +1,89 @@
+package com.chess.engine.analysis;
+
+import com.chess.engine.board.Move;
+import com.chess.engine.player.ai.AlphaBeta;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+//What BatchAnalyzer found for one request. A request that could not be analyzed, a bad FEN for one,
+//has an error and no move.
+public final class AnalysisResult {
+
+    private final AnalysisRequest request;
+    private final Move bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+    private final List<Move> principalVariation;
+    private final String error;
+
+    //ctor
+    AnalysisResult(final AnalysisRequest request,
+                   final Move bestMove,
+                   final int score,
+                   final int depth,
+                   final long nodes,
+                   final long elapsedNanos,
+                   final List<Move> principalVariation,
+                   final String error) {
+        this.request = request;
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.principalVariation = principalVariation;
+        this.error = error;
+    }
+
+    static AnalysisResult failed(final AnalysisRequest request,
+                                 final String error) {
+        return new AnalysisResult(request, Move.NULL_MOVE, 0, 0, 0, 0, ImmutableList.of(), error);
+    }
+
+    public AnalysisRequest getRequest() {
+        return this.request;
+    }
+
+    //NULL_MOVE if the side to move has no legal move or the request failed
+    public Move getBestMove() {
+        return this.bestMove;
+    }
+
+    //centipawns or a mate score, from the point of view of the side to move
+    public int getScore() {
+        return this.score;
+    }
+
+    public boolean isMateScore() {
+        return AlphaBeta.isMateScore(this.score);
+    }
+
+    //the last depth searched completely
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    public List<Move> getPrincipalVariation() {
+        return this.principalVariation;
+    }
+
+    public boolean isFailed() {
+        return this.error != null;
+    }
+
+    //null unless the request failed
+    public String getError() {
+        return this.error;
+    }
+}
@@ -0,0 +1,395 @@
+package com.chess.engine.analysis;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.notation.FenParser;
+import com.chess.engine.player.ai.AlphaBeta;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.engine.player.ai.TimeManager;
+import com.chess.engine.player.ai.TranspositionTable;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Runs interactive requests, someone waiting on a live position, next to bulk requests on the same workers.
+//Interactive requests always go first. A bulk search runs undisturbed for at least a time slice. When an
+//interactive request finds no idle worker left, the bulk search that has been running the longest is stopped:
+//at once through its stop flag, which the search polls at every node, or, while still inside its slice, through
+//its deadline at the end of the slice.
+//A stopped bulk request goes back to the front of its queue with its search and transposition table, so when it
+//resumes the iterations it already finished come straight out of the table.
+//Bulk searches are taken from a pool of at most one per worker and go back when their request is done, so a new
+//table is only allocated while preempted requests hold on to theirs.
+//Latencies from submit() to the result are kept per priority.
+public class AnalysisScheduler implements Closeable {
+
+    public static final int DEFAULT_SLICE_MILLIS = 20;
+
+    private final int hashSize;
+    private final long sliceNanos;
+    private final ExecutorService workers;
+    private final Map<Priority, Deque<Job>> queues;
+    private final Map<Priority, LatencyHistogram> latencies;
+    private final Job[] running;
+    private final Deque<AlphaBeta> bulkSearches;
+    private final ReentrantLock lock;
+    private final Condition jobQueued;
+    private final AtomicLong preemptions;
+    private boolean closed;
+
+    //ctor
+    public AnalysisScheduler(final int numWorkers,
+                             final int hashSize,
+                             final int sliceMillis) {
+        if (numWorkers < 1 || sliceMillis < 1) {
+            throw new RuntimeException("Need at least one worker and a time slice of a millisecond!");
+        }
+        this.hashSize = hashSize;
+        this.sliceNanos = TimeUnit.MILLISECONDS.toNanos(sliceMillis);
+        this.queues = new EnumMap<>(Priority.class);
+        this.latencies = new EnumMap<>(Priority.class);
+        for (final Priority priority : Priority.values()) {
+            this.queues.put(priority, new ArrayDeque<>());
+            this.latencies.put(priority, new LatencyHistogram());
+        }
+        this.running = new Job[numWorkers];
+        this.bulkSearches = new ArrayDeque<>(numWorkers);
+        this.lock = new ReentrantLock();
+        this.jobQueued = this.lock.newCondition();
+        this.preemptions = new AtomicLong();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(numWorkers, runnable -> {
+            final Thread thread = new Thread(runnable, "scheduler-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < numWorkers; i++) {
+            final int worker = i;
+            this.workers.execute(() -> runWorker(worker));
+        }
+    }
+
+    public AnalysisScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), BatchAnalyzer.DEFAULT_HASH_SIZE, DEFAULT_SLICE_MILLIS);
+    }
+
+    //The result completes on a worker. The move time of a bulk request counts the time it actually searched,
+    //not the time it spent preempted.
+    public CompletableFuture<AnalysisResult> submit(final AnalysisRequest request,
+                                                    final Priority priority) {
+        final Job job = new Job(request, priority);
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                throw new RuntimeException("The scheduler is closed!");
+            }
+            this.queues.get(priority).addLast(job);
+            if (priority == Priority.INTERACTIVE && this.queues.get(priority).size() > idleWorkers()) {
+                preemptBulkJob();
+            }
+            this.jobQueued.signal();
+        } finally {
+            this.lock.unlock();
+        }
+        return job.result;
+    }
+
+    //the latency of the given percentile (0-100) in nanoseconds, from submit() to the result
+    public long getLatencyPercentile(final Priority priority,
+                                     final double percentile) {
+        return this.latencies.get(priority).getPercentile(percentile);
+    }
+
+    public long getCompleted(final Priority priority) {
+        return this.latencies.get(priority).getCount();
+    }
+
+    //the number of times a bulk search was stopped to make room for an interactive one
+    public long getPreemptions() {
+        return this.preemptions.get();
+    }
+
+    public String getLatencyReport() {
+        final StringBuilder builder = new StringBuilder();
+        for (final Priority priority : Priority.values()) {
+            final LatencyHistogram histogram = this.latencies.get(priority);
+            builder.append(String.format("%-11s completed %7d  p50 %8.1f ms  p90 %8.1f ms  p99 %8.1f ms  max %8.1f ms%n",
+                    priority.name().toLowerCase(), histogram.getCount(), millis(histogram.getPercentile(50)),
+                    millis(histogram.getPercentile(90)), millis(histogram.getPercentile(99)),
+                    millis(histogram.getPercentile(100))));
+        }
+        builder.append("preemptions ").append(this.preemptions.get());
+        return builder.toString();
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1e6;
+    }
+
+    //stops the workers and fails every request that has no result yet
+    @Override
+    public void close() {
+        this.lock.lock();
+        try {
+            this.closed = true;
+            for (final Deque<Job> queue : this.queues.values()) {
+                for (final Job job : queue) {
+                    job.result.completeExceptionally(new RuntimeException("The scheduler was closed!"));
+                }
+                queue.clear();
+            }
+            for (final Job job : this.running) {
+                if (job != null) {
+                    job.search().stop();
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        this.workers.shutdownNow();
+    }
+
+    //under the lock
+    private int idleWorkers() {
+        int idle = 0;
+        for (final Job job : this.running) {
+            if (job == null) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    //Under the lock, preempts the bulk search that has been running the longest: at once if it has had its slice,
+    //else its deadline is brought forward to the end of the slice.
+    private void preemptBulkJob() {
+        Job oldest = null;
+        for (final Job job : this.running) {
+            if (job != null && job.priority == Priority.BULK && !job.preempted &&
+                    (oldest == null || job.sliceStart - oldest.sliceStart < 0)) {
+                oldest = job;
+            }
+        }
+        if (oldest == null) {
+            return;
+        }
+        oldest.preempted = true;
+        final long sliceEnd = oldest.sliceStart + this.sliceNanos;
+        if (System.nanoTime() - sliceEnd >= 0) {
+            oldest.search().stop();
+        } else if (oldest.deadline == AlphaBeta.NO_DEADLINE || sliceEnd - oldest.deadline < 0) {
+            oldest.search().setDeadline(sliceEnd);
+        }
+    }
+
+    //under the lock, null once the scheduler is closed
+    private Job nextJob() throws InterruptedException {
+        while (!this.closed) {
+            for (final Priority priority : Priority.values()) {
+                final Job job = this.queues.get(priority).pollFirst();
+                if (job != null) {
+                    return job;
+                }
+            }
+            this.jobQueued.await();
+        }
+        return null;
+    }
+
+    private void runWorker(final int worker) {
+        final AlphaBeta interactiveSearch =
+                new AlphaBeta(new StandardBoardEvaluator(), new TranspositionTable(this.hashSize), AlphaBeta.MAX_DEPTH);
+        final FenParser fenParser = new FenParser();
+        try {
+            while (true) {
+                final Job job;
+                this.lock.lock();
+                try {
+                    job = nextJob();
+                    if (job == null) {
+                        return;
+                    }
+                    if (job.board == null) {
+                        job.board = parse(job, fenParser);
+                        if (job.board == null) {
+                            continue;
+                        }
+                    }
+                    if (job.priority == Priority.BULK && job.bulkSearch == null) {
+                        final AlphaBeta pooled = this.bulkSearches.pollFirst();
+                        job.bulkSearch = pooled != null ? pooled : new AlphaBeta(new StandardBoardEvaluator(),
+                                new TranspositionTable(this.hashSize), AlphaBeta.MAX_DEPTH);
+                    } else if (job.priority == Priority.INTERACTIVE) {
+                        job.interactiveSearch = interactiveSearch;
+                    }
+                    job.search().clearStop();
+                    job.preempted = false;
+                    job.sliceStart = System.nanoTime();
+                    if (job.priority == Priority.BULK) {
+                        //set up under the lock, a preemption may bring the deadline forward as soon as the job runs
+                        job.deadline = job.remainingNanos != Long.MAX_VALUE ?
+                                job.sliceStart + job.remainingNanos : AlphaBeta.NO_DEADLINE;
+                        job.bulkSearch.setTimeManager(null);
+                        job.bulkSearch.setDeadline(job.deadline);
+                    }
+                    this.running[worker] = job;
+                } finally {
+                    this.lock.unlock();
+                }
+                try {
+                    if (job.priority == Priority.INTERACTIVE) {
+                        runInteractive(job);
+                    } else {
+                        runBulk(job);
+                    }
+                } catch (final RuntimeException e) {
+                    finish(job, AnalysisResult.failed(job.request, String.valueOf(e.getMessage())));
+                } finally {
+                    this.lock.lock();
+                    try {
+                        this.running[worker] = null;
+                    } finally {
+                        this.lock.unlock();
+                    }
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Board parse(final Job job,
+                        final FenParser fenParser) {
+        if (job.request.getBoard() != null) {
+            return job.request.getBoard();
+        }
+        try {
+            return fenParser.parse(job.request.getFen());
+        } catch (final RuntimeException e) {
+            finish(job, AnalysisResult.failed(job.request, e.getMessage()));
+            return null;
+        }
+    }
+
+    private void runInteractive(final Job job) {
+        final AlphaBeta search = job.interactiveSearch;
+        final TimeManager timeManager = job.request.getMoveTimeMillis() != AnalysisRequest.NO_TIME_LIMIT ?
+                TimeManager.forMoveTime(job.request.getMoveTimeMillis(), 0) : null;
+        if (timeManager != null) {
+            timeManager.start();
+        }
+        search.setTimeManager(timeManager);
+        search.setDeadline(timeManager != null ? timeManager.getHardDeadline() : AlphaBeta.NO_DEADLINE);
+        final Move bestMove = search.search(job.board, job.request.getDepth(), job.request.getMaxNodes());
+        finish(job, new AnalysisResult(job.request, bestMove, search.getScore(), search.getCompletedDepth(),
+                search.getNodes(), System.nanoTime() - job.sliceStart, search.getPrincipalVariation(), null));
+    }
+
+    //searches until the request is done or preempted, a preempted request goes back to the front of the queue
+    private void runBulk(final Job job) {
+        final AlphaBeta search = job.bulkSearch;
+        final long startTime = System.nanoTime();
+        //a restart, but every iteration finished before a preemption is answered by the table
+        final Move bestMove = search.search(job.board, job.request.getDepth(), job.request.getMaxNodes() - job.nodes);
+        job.searchNanos += System.nanoTime() - startTime;
+        job.nodes += search.getNodes();
+        if (search.getCompletedDepth() > job.completedDepth || job.bestMove == null) {
+            job.bestMove = bestMove;
+            job.score = search.getScore();
+            job.completedDepth = search.getCompletedDepth();
+            job.principalVariation = search.getPrincipalVariation();
+        }
+        this.lock.lock();
+        try {
+            if (search.wasAborted() && job.preempted && !this.closed) {
+                if (job.deadline != AlphaBeta.NO_DEADLINE) {
+                    //the time spent waiting doesn't count against the move time
+                    job.deadline = AlphaBeta.NO_DEADLINE;
+                    job.remainingNanos -= System.nanoTime() - startTime;
+                }
+                if (job.remainingNanos > 0 && job.nodes < job.request.getMaxNodes()) {
+                    this.preemptions.incrementAndGet();
+                    this.queues.get(Priority.BULK).addFirst(job);
+                    this.jobQueued.signal();
+                    return;
+                }
+            }
+            //the table keeps what it learned, its entries are keyed by position
+            if (this.bulkSearches.size() < this.running.length) {
+                this.bulkSearches.addFirst(search);
+            }
+            job.bulkSearch = null;
+        } finally {
+            this.lock.unlock();
+        }
+        if (this.closed) {
+            job.result.completeExceptionally(new RuntimeException("The scheduler was closed!"));
+            return;
+        }
+        finish(job, new AnalysisResult(job.request, job.bestMove, job.score, job.completedDepth, job.nodes,
+                job.searchNanos, job.principalVariation, null));
+    }
+
+    private void finish(final Job job,
+                        final AnalysisResult result) {
+        this.latencies.get(job.priority).record(System.nanoTime() - job.submitTime);
+        job.result.complete(result);
+    }
+
+    public enum Priority {
+        //in the order they are served
+        INTERACTIVE,
+        BULK
+    }
+
+    private static final class Job {
+
+        private final AnalysisRequest request;
+        private final Priority priority;
+        private final long submitTime;
+        private final CompletableFuture<AnalysisResult> result;
+        private Board board;
+        //a bulk request keeps its own search between slices, an interactive one borrows its worker's
+        private AlphaBeta bulkSearch;
+        private AlphaBeta interactiveSearch;
+        private boolean preempted;
+        private long sliceStart;
+        //the move time a bulk request has left and, while it runs, the deadline that follows from it
+        private long remainingNanos;
+        private long deadline;
+        private long searchNanos;
+        private long nodes;
+        private Move bestMove;
+        private int score;
+        private int completedDepth;
+        private List<Move> principalVariation;
+
+        //ctor
+        private Job(final AnalysisRequest request,
+                    final Priority priority) {
+            this.request = request;
+            this.priority = priority;
+            this.submitTime = System.nanoTime();
+            this.result = new CompletableFuture<>();
+            this.remainingNanos = request.getMoveTimeMillis() != AnalysisRequest.NO_TIME_LIMIT ?
+                    TimeUnit.MILLISECONDS.toNanos(request.getMoveTimeMillis()) : Long.MAX_VALUE;
+            this.deadline = AlphaBeta.NO_DEADLINE;
+        }
+
+        private AlphaBeta search() {
+            return this.priority == Priority.BULK ? this.bulkSearch : this.interactiveSearch;
+        }
+    }
+}
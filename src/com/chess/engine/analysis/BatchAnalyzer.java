@@ -0,0 +1,210 @@
+package com.chess.engine.analysis;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.notation.FenParser;
+import com.chess.engine.player.ai.AlphaBeta;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.engine.player.ai.TimeManager;
+import com.chess.engine.player.ai.TranspositionTable;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Analyzes a stream of positions on a fixed pool of workers and hands out the results as they complete.
+//Requests are pulled from the iterator on the calling thread into a bounded queue, so a reader that is faster
+//than the workers blocks instead of pulling the whole input into memory. A slow consumer of the results blocks the
+//workers in turn: the callback runs on them, and the publisher's submit() waits for its subscribers' demand.
+//Every pool thread keeps its search, transposition table included, and its FEN parser for all the requests it ever
+//analyzes. The table is not cleared between requests, stale entries of other positions never match.
+//With an AnalysisCache set, a position the cache holds deep enough is answered from it and every
+//analysis that ran its course is stored there.
+public class BatchAnalyzer implements Closeable {
+
+    public static final int DEFAULT_HASH_SIZE = 16;
+
+    //tells a worker that the input is exhausted
+    private static final AnalysisRequest END_OF_REQUESTS = AnalysisRequest.forDepth(-1, "", 0);
+    private static final int PUBLISHER_BUFFER_SIZE = 256;
+
+    private final int numWorkers;
+    private final int queueCapacity;
+    private final ExecutorService workers;
+    //runs the subscribers of publish()
+    private final ExecutorService delivery;
+    private final ThreadLocal<AlphaBeta> searches;
+    private final ThreadLocal<FenParser> fenParsers;
+    private volatile AnalysisCache cache;
+
+    //ctor
+    public BatchAnalyzer(final int numWorkers,
+                         final int queueCapacity,
+                         final int hashSize) {
+        if (numWorkers < 1 || queueCapacity < 1) {
+            throw new RuntimeException("Need at least one worker and one queue slot!");
+        }
+        this.numWorkers = numWorkers;
+        this.queueCapacity = queueCapacity;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(numWorkers, runnable -> {
+            final Thread thread = new Thread(runnable, "analysis-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.delivery = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "analysis-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.searches = ThreadLocal.withInitial(() ->
+                new AlphaBeta(new StandardBoardEvaluator(), new TranspositionTable(hashSize), AlphaBeta.MAX_DEPTH));
+        this.fenParsers = ThreadLocal.withInitial(FenParser::new);
+    }
+
+    public BatchAnalyzer() {
+        this(Runtime.getRuntime().availableProcessors(), 1024, DEFAULT_HASH_SIZE);
+    }
+
+    //null to search every request
+    public void setCache(final AnalysisCache cache) {
+        this.cache = cache;
+    }
+
+    //Blocks until every request is analyzed and returns their number. The callback is called on the workers,
+    //by several at the same time, in the order the results complete. If it throws, the rest of the requests
+    //are drained without being analyzed and the first exception is thrown from here.
+    public long analyze(final Iterator<? extends AnalysisRequest> requests,
+                        final AnalysisCallback callback) throws InterruptedException {
+        final BlockingQueue<AnalysisRequest> queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        final AtomicBoolean failed = new AtomicBoolean();
+        final List<Future<Long>> results = new ArrayList<>(this.numWorkers);
+        for (int i = 0; i < this.numWorkers; i++) {
+            results.add(this.workers.submit(() -> analyzeQueue(queue, callback, failed)));
+        }
+        try {
+            while (requests.hasNext() && !failed.get()) {
+                queue.put(requests.next());
+            }
+        } finally {
+            for (int i = 0; i < this.numWorkers; i++) {
+                queue.put(END_OF_REQUESTS);
+            }
+        }
+        long analyzed = 0;
+        try {
+            for (final Future<Long> result : results) {
+                analyzed += result.get();
+            }
+        } catch (final ExecutionException e) {
+            throw new RuntimeException("Analysis callback failed", e.getCause());
+        }
+        return analyzed;
+    }
+
+    //A publisher that analyzes the requests once it has its first subscriber and completes after the last result.
+    //Results are held back while a subscriber has no demand, which in turn holds back the workers and the reader.
+    public Flow.Publisher<AnalysisResult> publish(final Iterator<? extends AnalysisRequest> requests) {
+        final SubmissionPublisher<AnalysisResult> publisher = new SubmissionPublisher<>(this.delivery, PUBLISHER_BUFFER_SIZE);
+        final AtomicBoolean started = new AtomicBoolean();
+        return subscriber -> {
+            publisher.subscribe(subscriber);
+            if (started.compareAndSet(false, true)) {
+                final Thread reader = new Thread(() -> {
+                    try {
+                        analyze(requests, publisher::submit);
+                        publisher.close();
+                    } catch (final InterruptedException e) {
+                        publisher.closeExceptionally(e);
+                    } catch (final RuntimeException e) {
+                        publisher.closeExceptionally(e.getCause() != null ? e.getCause() : e);
+                    }
+                }, "analysis-reader");
+                reader.setDaemon(true);
+                reader.start();
+            }
+        };
+    }
+
+    private long analyzeQueue(final BlockingQueue<AnalysisRequest> queue,
+                              final AnalysisCallback callback,
+                              final AtomicBoolean failed) throws InterruptedException {
+        long analyzed = 0;
+        RuntimeException failure = null;
+        AnalysisRequest request;
+        while ((request = queue.take()) != END_OF_REQUESTS) {
+            if (failed.get()) {
+                continue; //keep draining so the reader never blocks on a full queue
+            }
+            try {
+                callback.resultReady(analyze(request));
+                analyzed++;
+            } catch (final RuntimeException e) {
+                failed.set(true);
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return analyzed;
+    }
+
+    //on a worker, with its own search
+    private AnalysisResult analyze(final AnalysisRequest request) {
+        final Board board;
+        try {
+            board = request.getBoard() != null ? request.getBoard() : this.fenParsers.get().parse(request.getFen());
+        } catch (final RuntimeException e) {
+            return AnalysisResult.failed(request, e.getMessage());
+        }
+        final AnalysisCache cache = this.cache;
+        if (cache != null) {
+            final AnalysisResult cached = cache.probe(request, board);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final AlphaBeta search = this.searches.get();
+        final TimeManager timeManager = request.getMoveTimeMillis() != AnalysisRequest.NO_TIME_LIMIT ?
+                TimeManager.forMoveTime(request.getMoveTimeMillis(), 0) : null;
+        if (timeManager != null) {
+            timeManager.start();
+        }
+        search.setTimeManager(timeManager);
+        search.setDeadline(timeManager != null ? timeManager.getHardDeadline() : AlphaBeta.NO_DEADLINE);
+        search.clearStop();
+        final long startTime = System.nanoTime();
+        final Move bestMove = search.search(board, request.getDepth(), request.getMaxNodes());
+        final AnalysisResult result = new AnalysisResult(request, bestMove, search.getScore(), search.getCompletedDepth(),
+                search.getNodes(), System.nanoTime() - startTime, search.getPrincipalVariation(), null);
+        if (cache != null && !search.wasAborted()) {
+            cache.store(board, result);
+        }
+        return result;
+    }
+
+    //stops the workers, a running analyze() doesn't return after this
+    @Override
+    public void close() {
+        this.workers.shutdownNow();
+        this.delivery.shutdownNow();
+    }
+
+    //called on the worker threads, from several at the same time
+    public interface AnalysisCallback {
+
+        void resultReady(AnalysisResult result);
+    }
+}
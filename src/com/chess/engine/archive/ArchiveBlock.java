@@ -0,0 +1,20 @@
+package com.chess.engine.archive;
+
+import java.nio.ByteBuffer;
+
+//The coded bytes of one block and the archive wide number of its first game.
+final class ArchiveBlock {
+
+    final ByteBuffer bytes;
+    final int numGames;
+    final long firstGame;
+
+    //ctor
+    ArchiveBlock(final ByteBuffer bytes,
+                 final int numGames,
+                 final long firstGame) {
+        this.bytes = bytes;
+        this.numGames = numGames;
+        this.firstGame = firstGame;
+    }
+}
@@ -0,0 +1,42 @@
+package com.chess.engine.archive;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+import java.util.List;
+
+public final class ArchivedGame {
+
+    private final Board startBoard;
+    private final List<Move> moves;
+    private final Board finalBoard;
+    private final String result;
+
+    //ctor
+    ArchivedGame(final Board startBoard,
+                 final List<Move> moves,
+                 final Board finalBoard,
+                 final String result) {
+        this.startBoard = startBoard;
+        this.moves = moves;
+        this.finalBoard = finalBoard;
+        this.result = result;
+    }
+
+    public Board getStartBoard() {
+        return this.startBoard;
+    }
+
+    public List<Move> getMoves() {
+        return this.moves;
+    }
+
+    public Board getFinalBoard() {
+        return this.finalBoard;
+    }
+
+    //1-0, 0-1, 1/2-1/2 or *
+    public String getResult() {
+        return this.result;
+    }
+}
@@ -0,0 +1,73 @@
+package com.chess.engine.archive;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.notation.PositionCodec;
+import com.google.common.collect.ImmutableList;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+//Decodes the games of one archive block. Blocks decode on their own, so every thread can run its own decoder.
+final class BlockDecoder {
+
+    private static final Board STANDARD_BOARD = Board.createStandardBoard();
+
+    private final RangeDecoder decoder;
+    private final MoveArchiveModel model;
+    private final MoveRanking ranking;
+    private final ByteBuffer position;
+
+    //ctor
+    BlockDecoder() {
+        this.decoder = new RangeDecoder();
+        this.model = new MoveArchiveModel();
+        this.ranking = new MoveRanking();
+        this.position = ByteBuffer.allocate(PositionCodec.ENCODED_SIZE);
+    }
+
+    void reset(final ByteBuffer block) {
+        this.decoder.reset(block);
+        this.model.reset();
+    }
+
+    //positions, if not null, sees the start board and the board after every move
+    ArchivedGame decodeGame(final Consumer<Board> positions) {
+        final boolean customStart = this.decoder.decodeBit(this.model.startFlags, 0) != 0;
+        final String result = MoveArchiveModel.RESULTS[(int) this.decoder.decodeDirectBits(MoveArchiveModel.RESULT_BITS)];
+        final Board startBoard;
+        if (customStart) {
+            this.position.clear();
+            for (int i = 0; i < PositionCodec.ENCODED_SIZE; i += 8) {
+                this.position.putLong(i, this.decoder.decodeDirectBits(64));
+            }
+            startBoard = PositionCodec.decode(this.position, 0);
+        } else {
+            startBoard = STANDARD_BOARD;
+        }
+        int numMoves = this.decoder.decodeBitTree(this.model.moveCounts, MoveArchiveModel.MOVE_COUNT_BITS);
+        if (numMoves == MoveArchiveModel.MOVE_COUNT_ESCAPE) {
+            numMoves = (int) this.decoder.decodeDirectBits(MoveArchiveModel.LONG_MOVE_COUNT_BITS);
+        }
+        if (positions != null) {
+            positions.accept(startBoard);
+        }
+        final ImmutableList.Builder<Move> moves = ImmutableList.builderWithExpectedSize(numMoves);
+        Board board = startBoard;
+        for (int i = 0; i < numMoves; i++) {
+            this.ranking.rank(board);
+            final int index = this.decoder.decodeBitTree(this.model.moveIndexes, MoveArchiveModel.MOVE_INDEX_BITS);
+            if (index >= this.ranking.size()) {
+                throw new RuntimeException("Corrupt move archive: move index " + index + " of " + this.ranking.size());
+            }
+            final Move move = this.ranking.get(index);
+            moves.add(move);
+            //the moves were checked when they were written, execute() skips the legality test
+            board = move.execute();
+            if (positions != null) {
+                positions.accept(board);
+            }
+        }
+        return new ArchivedGame(startBoard, moves.build(), board, result);
+    }
+}
@@ -0,0 +1,95 @@
+package com.chess.engine.archive;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.pieces.Piece;
+
+//The material on the board as one number: a 4 bit count for every piece type but the king,
+//queens first, white in the upper 20 bits and black in the lower 20.
+//Signatures that share white's material are one range of numbers, which is what makes "KRPv" a prefix query.
+public final class MaterialSignature {
+
+    private static final String PIECES = "QRBNP";
+    private static final int COUNT_BITS = 4;
+    private static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+    static final int SIDE_BITS = PIECES.length() * COUNT_BITS;
+
+    private MaterialSignature() {
+        throw new RuntimeException("You cannot instantiate me!");
+    }
+
+    public static long of(final Board board) {
+        return ((long) sideSignature(board.getWhitePieces()) << SIDE_BITS) | sideSignature(board.getBlackPieces());
+    }
+
+    private static int sideSignature(final Iterable<Piece> pieces) {
+        int signature = 0;
+        for (final Piece piece : pieces) {
+            final int index = PIECES.indexOf(piece.getPieceType().toString().charAt(0));
+            if (index == -1) {
+                continue; //the king
+            }
+            final int shift = (PIECES.length() - 1 - index) * COUNT_BITS;
+            if (((signature >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                signature += 1 << shift;
+            }
+        }
+        return signature;
+    }
+
+    //KRPvKR: white's pieces, 'v', black's pieces, each side starting with its king.
+    //Returns the first signature and one past the last one that match: a single signature,
+    //or all of them with the given white material if nothing follows the 'v'.
+    public static long[] parseRange(final CharSequence pattern) {
+        int v = -1;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == 'v') {
+                v = i;
+                break;
+            }
+        }
+        if (v == -1) {
+            throw new RuntimeException("Material signature needs a 'v' between the sides: " + pattern);
+        }
+        final long white = parseSide(pattern, 0, v);
+        if (v == pattern.length() - 1) {
+            return new long[]{white << SIDE_BITS, (white + 1) << SIDE_BITS};
+        }
+        final long signature = (white << SIDE_BITS) | parseSide(pattern, v + 1, pattern.length());
+        return new long[]{signature, signature + 1};
+    }
+
+    private static long parseSide(final CharSequence pattern,
+                                  final int start,
+                                  final int end) {
+        if (start == end || Character.toUpperCase(pattern.charAt(start)) != 'K') {
+            throw new RuntimeException("Each side of a material signature starts with its king: " + pattern);
+        }
+        int signature = 0;
+        for (int i = start + 1; i < end; i++) {
+            final int index = PIECES.indexOf(Character.toUpperCase(pattern.charAt(i)));
+            if (index == -1) {
+                throw new RuntimeException("Unexpected piece '" + pattern.charAt(i) + "' in material signature " + pattern);
+            }
+            signature += 1 << ((PIECES.length() - 1 - index) * COUNT_BITS);
+        }
+        return signature;
+    }
+
+    public static String toString(final long signature) {
+        final StringBuilder builder = new StringBuilder("K");
+        appendSide((int) (signature >>> SIDE_BITS), builder);
+        builder.append("vK");
+        appendSide((int) (signature & ((1 << SIDE_BITS) - 1)), builder);
+        return builder.toString();
+    }
+
+    private static void appendSide(final int signature,
+                                   final StringBuilder builder) {
+        for (int index = 0; index < PIECES.length(); index++) {
+            final int count = (signature >>> ((PIECES.length() - 1 - index) * COUNT_BITS)) & MAX_COUNT;
+            for (int i = 0; i < count; i++) {
+                builder.append(PIECES.charAt(index));
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.chess.engine.archive;
+
+import java.util.Arrays;
+
+//The adaptive probabilities of a block, shared by the writer and the reader so both see the same model.
+//A block starts with a fresh model, so blocks decode on their own.
+final class MoveArchiveModel {
+
+    static final int MAGIC = 0x4A434D41; //JCMA
+    static final int BLOCK_HEADER_SIZE = 8;
+    static final int MOVE_INDEX_BITS = 8;
+    static final int MOVE_COUNT_BITS = 10;
+    static final int MOVE_COUNT_ESCAPE = (1 << MOVE_COUNT_BITS) - 1;
+    static final int LONG_MOVE_COUNT_BITS = 16;
+    static final int RESULT_BITS = 2;
+    static final String[] RESULTS = {"*", "1-0", "0-1", "1/2-1/2"};
+
+    final short[] moveIndexes;
+    final short[] moveCounts;
+    final short[] startFlags;
+
+    //ctor
+    MoveArchiveModel() {
+        this.moveIndexes = RangeEncoder.newModel(1 << MOVE_INDEX_BITS);
+        this.moveCounts = RangeEncoder.newModel(1 << MOVE_COUNT_BITS);
+        this.startFlags = RangeEncoder.newModel(1);
+    }
+
+    void reset() {
+        Arrays.fill(this.moveIndexes, RangeEncoder.INITIAL_PROBABILITY);
+        Arrays.fill(this.moveCounts, RangeEncoder.INITIAL_PROBABILITY);
+        Arrays.fill(this.startFlags, RangeEncoder.INITIAL_PROBABILITY);
+    }
+
+    static int resultCode(final String result) {
+        for (int i = 1; i < RESULTS.length; i++) {
+            if (RESULTS[i].equals(result)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
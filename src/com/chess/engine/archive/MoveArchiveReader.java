@@ -0,0 +1,87 @@
+package com.chess.engine.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Reads the games of a MoveArchiveWriter file in order. Decoding replays every game through the move generator,
+//a move index is turned back into a move by ranking the moves of the position again.
+//Not thread safe.
+public class MoveArchiveReader implements Closeable {
+
+    private final ReadableByteChannel channel;
+    private final BlockDecoder blockDecoder;
+    private final ByteBuffer header;
+    private int gamesLeftInBlock;
+    private long gamesRead;
+
+    //ctor
+    public MoveArchiveReader(final ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.blockDecoder = new BlockDecoder();
+        this.header = ByteBuffer.allocate(MoveArchiveModel.BLOCK_HEADER_SIZE);
+        this.header.limit(4);
+        if (!readFully(this.header) || this.header.getInt(0) != MoveArchiveModel.MAGIC) {
+            throw new RuntimeException("Not a move archive");
+        }
+    }
+
+    public static MoveArchiveReader open(final Path path) throws IOException {
+        return new MoveArchiveReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    //null at the end of the archive
+    public ArchivedGame nextGame() throws IOException {
+        if (this.gamesLeftInBlock == 0) {
+            final ArchiveBlock block = readBlock();
+            if (block == null) {
+                return null;
+            }
+            this.blockDecoder.reset(block.bytes);
+            this.gamesLeftInBlock = block.numGames;
+        }
+        this.gamesLeftInBlock--;
+        return this.blockDecoder.decodeGame(null);
+    }
+
+    //the next block as it is stored, for decoding elsewhere, null at the end of the archive
+    ArchiveBlock readBlock() throws IOException {
+        this.header.clear();
+        if (!readFully(this.header)) {
+            return null;
+        }
+        final int length = this.header.getInt(0);
+        final int numGames = this.header.getInt(4);
+        final ByteBuffer bytes = ByteBuffer.allocate(length);
+        if (!readFully(bytes)) {
+            throw new RuntimeException("Truncated move archive");
+        }
+        bytes.flip();
+        final ArchiveBlock block = new ArchiveBlock(bytes, numGames, this.gamesRead);
+        this.gamesRead += numGames;
+        return block;
+    }
+
+    //false if the channel ended before anything was read
+    private boolean readFully(final ByteBuffer buffer) throws IOException {
+        final int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer) < 0) {
+                if (buffer.position() == start) {
+                    return false;
+                }
+                throw new RuntimeException("Truncated move archive");
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -0,0 +1,145 @@
+package com.chess.engine.archive;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.notation.PositionCodec;
+import com.chess.engine.player.MoveTransition;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+//Writes games as a compressed move stream, about half a byte to a byte per move.
+//Every move is stored as its index in the MoveRanking of the position it was played in,
+//range coded with a model that adapts to the games of the block.
+//
+//file:  magic (4), blocks
+//block: length of the coded bytes (4), number of games (4), coded bytes
+//game:  custom start flag, result (2 bits), [the start position as PositionCodec bytes],
+//       number of moves, move indexes
+public class MoveArchiveWriter implements Closeable {
+
+    public static final int DEFAULT_GAMES_PER_BLOCK = 4096;
+
+    private static final long STANDARD_START_KEY = Board.createStandardBoard().getZobristKey();
+
+    private final WritableByteChannel channel;
+    private final int gamesPerBlock;
+    private final RangeEncoder encoder;
+    private final MoveArchiveModel model;
+    private final MoveRanking ranking;
+    private final ByteBuffer header;
+    private final ByteBuffer position;
+    private int gamesInBlock;
+    private long gamesWritten;
+    private long movesWritten;
+    private long bytesWritten;
+
+    //ctor
+    public MoveArchiveWriter(final WritableByteChannel channel,
+                             final int gamesPerBlock) throws IOException {
+        this.channel = channel;
+        this.gamesPerBlock = gamesPerBlock;
+        this.encoder = new RangeEncoder();
+        this.model = new MoveArchiveModel();
+        this.ranking = new MoveRanking();
+        this.header = ByteBuffer.allocate(MoveArchiveModel.BLOCK_HEADER_SIZE);
+        this.position = ByteBuffer.allocate(PositionCodec.ENCODED_SIZE);
+        this.header.putInt(MoveArchiveModel.MAGIC).flip();
+        writeFully(this.header);
+    }
+
+    public static MoveArchiveWriter open(final Path path) throws IOException {
+        return new MoveArchiveWriter(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), DEFAULT_GAMES_PER_BLOCK);
+    }
+
+    //the moves must be legal, one after the other, from the start board
+    public void writeGame(final Board startBoard,
+                          final List<Move> moves,
+                          final String result) throws IOException {
+        final boolean customStart = startBoard.getZobristKey() != STANDARD_START_KEY;
+        this.encoder.encodeBit(this.model.startFlags, 0, customStart ? 1 : 0);
+        this.encoder.encodeDirectBits(MoveArchiveModel.resultCode(result), MoveArchiveModel.RESULT_BITS);
+        if (customStart) {
+            this.position.clear();
+            PositionCodec.encode(startBoard, this.position);
+            for (int i = 0; i < PositionCodec.ENCODED_SIZE; i += 8) {
+                this.encoder.encodeDirectBits(this.position.getLong(i), 64);
+            }
+        }
+        final int numMoves = moves.size();
+        if (numMoves < MoveArchiveModel.MOVE_COUNT_ESCAPE) {
+            this.encoder.encodeBitTree(this.model.moveCounts, MoveArchiveModel.MOVE_COUNT_BITS, numMoves);
+        } else {
+            this.encoder.encodeBitTree(this.model.moveCounts, MoveArchiveModel.MOVE_COUNT_BITS, MoveArchiveModel.MOVE_COUNT_ESCAPE);
+            this.encoder.encodeDirectBits(numMoves, MoveArchiveModel.LONG_MOVE_COUNT_BITS);
+        }
+        Board board = startBoard;
+        for (final Move move : moves) {
+            this.ranking.rank(board);
+            final int index = this.ranking.indexOf(move);
+            if (index == -1) {
+                throw new RuntimeException("Move " + Move.MoveFactory.encodeMove(move) + " can't be played in " + board);
+            }
+            this.encoder.encodeBitTree(this.model.moveIndexes, MoveArchiveModel.MOVE_INDEX_BITS, index);
+            final MoveTransition transition = board.currentPlayer().makeMove(this.ranking.get(index));
+            if (!transition.getMoveStatus().isDone()) {
+                throw new RuntimeException("Illegal move " + Move.MoveFactory.encodeMove(move) + " in " + board);
+            }
+            board = transition.getTransitionBoard();
+        }
+        this.movesWritten += numMoves;
+        this.gamesWritten++;
+        if (++this.gamesInBlock == this.gamesPerBlock) {
+            flushBlock();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (this.gamesInBlock == 0) {
+            return;
+        }
+        this.encoder.finish();
+        this.header.clear();
+        this.header.putInt(this.encoder.size()).putInt(this.gamesInBlock).flip();
+        writeFully(this.header);
+        writeFully(ByteBuffer.wrap(this.encoder.getBytes(), 0, this.encoder.size()));
+        this.encoder.reset();
+        this.model.reset();
+        this.gamesInBlock = 0;
+    }
+
+    private void writeFully(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            this.bytesWritten += this.channel.write(buffer);
+        }
+    }
+
+    public long getGamesWritten() {
+        return this.gamesWritten;
+    }
+
+    public long getMovesWritten() {
+        return this.movesWritten;
+    }
+
+    //bytes that reached the channel, the open block not included
+    public long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+        } finally {
+            this.channel.close();
+        }
+    }
+}
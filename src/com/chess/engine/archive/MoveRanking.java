@@ -0,0 +1,84 @@
+package com.chess.engine.archive;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+
+//Puts the moves of the side to move in a fixed order, likely moves first, so that move indexes are small numbers.
+//The order only depends on the position: a score from the move itself, ties broken by the move encoding,
+//never the order the move generator happens to produce them in. Reused for every position, one per thread.
+final class MoveRanking {
+
+    private static final int MAX_MOVES = 256;
+
+    //distance to the middle of the board, 0 in the centre up to 6 in a corner
+    private static final int[] CENTRE_DISTANCE = new int[BoardUtils.NUM_TILES];
+
+    static {
+        for (int i = 0; i < BoardUtils.NUM_TILES; i++) {
+            final int row = i / BoardUtils.NUM_TILES_PER_ROW;
+            final int column = i % BoardUtils.NUM_TILES_PER_ROW;
+            CENTRE_DISTANCE[i] = Math.max(3 - row, row - 4) + Math.max(3 - column, column - 4);
+        }
+    }
+
+    private final Move[] moves;
+    private final long[] keys;
+    private int size;
+
+    //ctor
+    MoveRanking() {
+        this.moves = new Move[MAX_MOVES];
+        this.keys = new long[MAX_MOVES];
+    }
+
+    void rank(final Board board) {
+        this.size = 0;
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            final int code = Move.MoveFactory.encodeMove(move);
+            final long key = ((long) score(move) << 16) | (0xFFFF - code);
+            //insertion sort, highest key first, the lists are short
+            int i = this.size++;
+            while (i > 0 && this.keys[i - 1] < key) {
+                this.keys[i] = this.keys[i - 1];
+                this.moves[i] = this.moves[i - 1];
+                i--;
+            }
+            this.keys[i] = key;
+            this.moves[i] = move;
+        }
+    }
+
+    private static int score(final Move move) {
+        if (move.isAttack()) {
+            return 2000 + move.getAttackedPiece().getPieceValue() / 10 - move.getMovedPiece().getPieceValue() / 100;
+        }
+        if (move instanceof Move.PawnPromotion) {
+            return 1500 + ((Move.PawnPromotion) move).getPromotedPiece().getPieceValue() / 100;
+        }
+        if (move instanceof Move.CastleMove) {
+            return 1200;
+        }
+        //quiet moves towards the centre first
+        return 1000 + CENTRE_DISTANCE[move.getCurrentCoordinate()] - CENTRE_DISTANCE[move.getDestinationCoordinate()];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    Move get(final int index) {
+        return this.moves[index];
+    }
+
+    //-1 if the side to move has no such move
+    int indexOf(final Move move) {
+        final int code = Move.MoveFactory.encodeMove(move);
+        for (int i = 0; i < this.size; i++) {
+            if ((0xFFFF - (int) (this.keys[i] & 0xFFFF)) == code) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,113 @@
+package com.chess.engine.archive;
+
+import com.chess.engine.board.Board;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.chess.engine.archive.PositionIndexBuilder.*;
+
+//Finds the games of an archive that reach a position, or a material balance, from the files PositionIndexBuilder writes.
+//Games are numbered in archive order from 0. Everything is mapped and read with absolute reads,
+//one index can be queried from any number of threads.
+public class PositionIndex {
+
+    private final PostingLists positions;
+    private final PostingLists materials;
+    private final ByteBuffer results;
+
+    //ctor
+    private PositionIndex(final PostingLists positions,
+                          final PostingLists materials,
+                          final ByteBuffer results) {
+        this.positions = positions;
+        this.materials = materials;
+        this.results = results;
+    }
+
+    public static PositionIndex open(final Path indexDirectory) throws IOException {
+        try (final FileChannel channel = FileChannel.open(indexDirectory.resolve(RESULTS), StandardOpenOption.READ)) {
+            return new PositionIndex(PostingLists.open(indexDirectory.resolve(POSITION_KEYS), indexDirectory.resolve(POSITION_POSTINGS)),
+                    PostingLists.open(indexDirectory.resolve(MATERIAL_KEYS), indexDirectory.resolve(MATERIAL_POSTINGS)),
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getNumGames() {
+        return this.results.capacity();
+    }
+
+    public long getNumPositions() {
+        return this.positions.size();
+    }
+
+    //sorted numbers of the games that reach the board
+    public int[] findGames(final Board board) {
+        return this.positions.find(board.getZobristKey());
+    }
+
+    //KRPvKR for exactly that material, KRPv for any black material against white's KRP
+    public int[] findGamesByMaterial(final String signature) {
+        final long[] range = MaterialSignature.parseRange(signature);
+        return this.materials.findRange(range[0], range[1]);
+    }
+
+    //"1-0", "0-1", "1/2-1/2" or "*"
+    public String getResult(final int game) {
+        return MoveArchiveModel.RESULTS[this.results.get(game)];
+    }
+
+    public ResultStatistics getStatistics(final int[] games) {
+        final int[] counts = new int[MoveArchiveModel.RESULTS.length];
+        for (final int game : games) {
+            counts[this.results.get(game)]++;
+        }
+        return new ResultStatistics(counts[1], counts[2], counts[3], counts[0]);
+    }
+
+    public static final class ResultStatistics {
+
+        private final int whiteWins;
+        private final int blackWins;
+        private final int draws;
+        private final int unfinished;
+
+        ResultStatistics(final int whiteWins,
+                         final int blackWins,
+                         final int draws,
+                         final int unfinished) {
+            this.whiteWins = whiteWins;
+            this.blackWins = blackWins;
+            this.draws = draws;
+            this.unfinished = unfinished;
+        }
+
+        public int getWhiteWins() {
+            return this.whiteWins;
+        }
+
+        public int getBlackWins() {
+            return this.blackWins;
+        }
+
+        public int getDraws() {
+            return this.draws;
+        }
+
+        public int getUnfinished() {
+            return this.unfinished;
+        }
+
+        public int getGames() {
+            return this.whiteWins + this.blackWins + this.draws + this.unfinished;
+        }
+
+        @Override
+        public String toString() {
+            return "+" + this.whiteWins + " -" + this.blackWins + " =" + this.draws + " *" + this.unfinished;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.chess.engine.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Builds the files of a PositionIndex from a move archive.
+//The calling thread reads blocks as they are stored and a pool of workers decodes and replays them,
+//each worker collects (position key, game) pairs and spills them as sorted runs whenever its buffer is full.
+//The runs are merged into posting lists at the end, the same is done for the material signatures.
+public class PositionIndexBuilder {
+
+    static final String POSITION_KEYS = "positions.keys";
+    static final String POSITION_POSTINGS = "positions.postings";
+    static final String MATERIAL_KEYS = "material.keys";
+    static final String MATERIAL_POSTINGS = "material.postings";
+    static final String RESULTS = "games.results";
+
+    //tells a worker that the archive is exhausted
+    private static final ArchiveBlock END_OF_BLOCKS = new ArchiveBlock(ByteBuffer.allocate(0), 0, 0);
+
+    private final int numWorkers;
+    private final int pairsPerRun;
+
+    //ctor
+    public PositionIndexBuilder(final int numWorkers,
+                                final int pairsPerRun) {
+        if (numWorkers < 1 || pairsPerRun < 1) {
+            throw new RuntimeException("Need at least one worker and room for one pair per run!");
+        }
+        this.numWorkers = numWorkers;
+        this.pairsPerRun = pairsPerRun;
+    }
+
+    public PositionIndexBuilder() {
+        this(Runtime.getRuntime().availableProcessors(), 1 << 22);
+    }
+
+    //the results of the games of one block
+    private static final class BlockResults {
+
+        private final long firstGame;
+        private final byte[] results;
+
+        BlockResults(final long firstGame,
+                     final byte[] results) {
+            this.firstGame = firstGame;
+            this.results = results;
+        }
+    }
+
+    //what one worker leaves for the merge
+    private static final class WorkerOutput {
+
+        private final List<Path> positionRuns;
+        private final List<Path> materialRuns;
+        private final List<BlockResults> results;
+
+        WorkerOutput(final List<Path> positionRuns,
+                     final List<Path> materialRuns,
+                     final List<BlockResults> results) {
+            this.positionRuns = positionRuns;
+            this.materialRuns = materialRuns;
+            this.results = results;
+        }
+    }
+
+    //returns the number of games indexed
+    public long build(final Path archive,
+                      final Path indexDirectory) throws IOException, InterruptedException {
+        Files.createDirectories(indexDirectory);
+        final Path runDirectory = Files.createTempDirectory(indexDirectory, "runs");
+        final BlockingQueue<ArchiveBlock> queue = new ArrayBlockingQueue<>(this.numWorkers * 2);
+        final ExecutorService workers = Executors.newFixedThreadPool(this.numWorkers);
+        final List<WorkerOutput> outputs = new ArrayList<>(this.numWorkers);
+        final AtomicBoolean failed = new AtomicBoolean();
+        long numGames = 0;
+        try {
+            final List<Future<WorkerOutput>> futures = new ArrayList<>(this.numWorkers);
+            for (int i = 0; i < this.numWorkers; i++) {
+                futures.add(workers.submit(() -> indexBlocks(queue, runDirectory, failed)));
+            }
+            try (final MoveArchiveReader reader = MoveArchiveReader.open(archive)) {
+                ArchiveBlock block;
+                while (!failed.get() && (block = reader.readBlock()) != null) {
+                    if (block.firstGame + block.numGames > Integer.MAX_VALUE) {
+                        throw new RuntimeException("A position index holds at most " + Integer.MAX_VALUE + " games");
+                    }
+                    queue.put(block);
+                    numGames += block.numGames;
+                }
+            } finally {
+                for (int i = 0; i < this.numWorkers; i++) {
+                    queue.put(END_OF_BLOCKS);
+                }
+            }
+            for (final Future<WorkerOutput> future : futures) {
+                outputs.add(future.get());
+            }
+        } catch (final ExecutionException e) {
+            throw new RuntimeException("Position index worker failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        final List<Path> positionRuns = new ArrayList<>();
+        final List<Path> materialRuns = new ArrayList<>();
+        final byte[] results = new byte[(int) numGames];
+        for (final WorkerOutput output : outputs) {
+            positionRuns.addAll(output.positionRuns);
+            materialRuns.addAll(output.materialRuns);
+            for (final BlockResults blockResults : output.results) {
+                System.arraycopy(blockResults.results, 0, results, (int) blockResults.firstGame, blockResults.results.length);
+            }
+        }
+        PostingListWriter.merge(positionRuns, indexDirectory.resolve(POSITION_KEYS), indexDirectory.resolve(POSITION_POSTINGS));
+        PostingListWriter.merge(materialRuns, indexDirectory.resolve(MATERIAL_KEYS), indexDirectory.resolve(MATERIAL_POSTINGS));
+        try (final FileChannel channel = FileChannel.open(indexDirectory.resolve(RESULTS), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(results);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        for (final Path run : positionRuns) {
+            Files.delete(run);
+        }
+        for (final Path run : materialRuns) {
+            Files.delete(run);
+        }
+        Files.delete(runDirectory);
+        return numGames;
+    }
+
+    //a worker that fails keeps taking blocks until its END_OF_BLOCKS, so the reader never blocks on a full queue
+    private WorkerOutput indexBlocks(final BlockingQueue<ArchiveBlock> queue,
+                                     final Path runDirectory,
+                                     final AtomicBoolean failed) throws IOException, InterruptedException {
+        final BlockDecoder decoder = new BlockDecoder();
+        final PostingRuns positionRuns = new PostingRuns(runDirectory, "positions", this.pairsPerRun);
+        final PostingRuns materialRuns = new PostingRuns(runDirectory, "material", this.pairsPerRun);
+        final List<BlockResults> results = new ArrayList<>();
+        final GameKeys positions = new GameKeys();
+        final GameKeys materials = new GameKeys();
+        Exception failure = null;
+        ArchiveBlock block;
+        while ((block = queue.take()) != END_OF_BLOCKS) {
+            if (failed.get()) {
+                continue;
+            }
+            try {
+                decoder.reset(block.bytes);
+                final byte[] blockResults = new byte[block.numGames];
+                for (int i = 0; i < block.numGames; i++) {
+                    final int game = (int) (block.firstGame + i);
+                    positions.clear();
+                    materials.clear();
+                    final ArchivedGame archivedGame = decoder.decodeGame(board -> {
+                        positions.add(board.getZobristKey());
+                        materials.add(MaterialSignature.of(board));
+                    });
+                    positions.addTo(positionRuns, game);
+                    materials.addTo(materialRuns, game);
+                    blockResults[i] = (byte) MoveArchiveModel.resultCode(archivedGame.getResult());
+                }
+                results.add(new BlockResults(block.firstGame, blockResults));
+            } catch (final IOException | RuntimeException e) {
+                failed.set(true);
+                failure = e;
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+        return new WorkerOutput(positionRuns.finish(), materialRuns.finish(), results);
+    }
+
+    //the keys one game reaches, a game counts once per key however often it gets there
+    private static final class GameKeys {
+
+        private long[] keys = new long[256];
+        private int size;
+
+        void clear() {
+            this.size = 0;
+        }
+
+        void add(final long key) {
+            if (this.size == this.keys.length) {
+                this.keys = Arrays.copyOf(this.keys, this.size * 2);
+            }
+            this.keys[this.size++] = key;
+        }
+
+        void addTo(final PostingRuns runs,
+                   final int game) throws IOException {
+            Arrays.sort(this.keys, 0, this.size);
+            for (int i = 0; i < this.size; i++) {
+                if (i == 0 || this.keys[i] != this.keys[i - 1]) {
+                    runs.add(this.keys[i], game);
+                }
+            }
+        }
+    }
+}
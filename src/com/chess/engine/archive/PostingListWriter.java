@@ -0,0 +1,121 @@
+package com.chess.engine.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+//Merges the sorted runs of all workers into the two files PostingLists maps:
+//a key file of 16 byte entries, key (8) and offset of its list in the posting file (8),
+//and the posting file, every list a sequence of varint coded gaps between increasing game numbers.
+final class PostingListWriter {
+
+    static final int KEY_ENTRY_SIZE = 16;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private PostingListWriter() {
+        throw new RuntimeException("You cannot instantiate me!");
+    }
+
+    //the head of one run during the merge
+    private static final class RunCursor {
+
+        private final MappedByteBuffer run;
+        private long key;
+        private int game;
+
+        RunCursor(final MappedByteBuffer run) {
+            this.run = run;
+        }
+
+        boolean advance() {
+            if (!this.run.hasRemaining()) {
+                return false;
+            }
+            this.key = this.run.getLong();
+            this.game = this.run.getInt();
+            return true;
+        }
+    }
+
+    //returns the number of distinct keys
+    static long merge(final List<Path> runs,
+                      final Path keyFile,
+                      final Path postingFile) throws IOException {
+        final PriorityQueue<RunCursor> heads = new PriorityQueue<>(Math.max(1, runs.size()),
+                Comparator.<RunCursor, Long>comparing(cursor -> cursor.key, Long::compareUnsigned)
+                        .thenComparingInt(cursor -> cursor.game));
+        for (final Path run : runs) {
+            try (final FileChannel channel = FileChannel.open(run, StandardOpenOption.READ)) {
+                //a run holds at most one worker's buffer, far below the 2 GiB a single mapping allows
+                final RunCursor cursor = new RunCursor(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                if (cursor.advance()) {
+                    heads.add(cursor);
+                }
+            }
+        }
+        final ByteBuffer keyBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        final ByteBuffer postingBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        long numKeys = 0;
+        long postingOffset = 0;
+        try (final FileChannel keys = open(keyFile);
+             final FileChannel postings = open(postingFile)) {
+            long currentKey = 0;
+            int previousGame = 0;
+            while (!heads.isEmpty()) {
+                final RunCursor head = heads.poll();
+                if (numKeys == 0 || head.key != currentKey) {
+                    if (keyBuffer.remaining() < KEY_ENTRY_SIZE) {
+                        flush(keys, keyBuffer);
+                    }
+                    keyBuffer.putLong(head.key).putLong(postingOffset);
+                    currentKey = head.key;
+                    previousGame = 0;
+                    numKeys++;
+                }
+                if (postingBuffer.remaining() < 5) {
+                    flush(postings, postingBuffer);
+                }
+                postingOffset += putVarInt(postingBuffer, head.game - previousGame);
+                previousGame = head.game;
+                if (head.advance()) {
+                    heads.add(head);
+                }
+            }
+            flush(keys, keyBuffer);
+            flush(postings, postingBuffer);
+        }
+        return numKeys;
+    }
+
+    private static int putVarInt(final ByteBuffer buffer,
+                                 int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+            length++;
+        }
+        buffer.put((byte) value);
+        return length;
+    }
+
+    private static FileChannel open(final Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private static void flush(final FileChannel channel,
+                              final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
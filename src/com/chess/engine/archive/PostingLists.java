@@ -0,0 +1,151 @@
+package com.chess.engine.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static com.chess.engine.archive.PostingListWriter.KEY_ENTRY_SIZE;
+
+//Read side of the files PostingListWriter merges. Both files are mapped in pieces of 1 GiB,
+//all reads are absolute so one instance serves every thread.
+final class PostingLists {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    private final ByteBuffer[] keySegments;
+    private final ByteBuffer[] postingSegments;
+    private final long numKeys;
+    private final long postingSize;
+
+    //ctor
+    private PostingLists(final ByteBuffer[] keySegments,
+                         final ByteBuffer[] postingSegments,
+                         final long numKeys,
+                         final long postingSize) {
+        this.keySegments = keySegments;
+        this.postingSegments = postingSegments;
+        this.numKeys = numKeys;
+        this.postingSize = postingSize;
+    }
+
+    static PostingLists open(final Path keyFile,
+                             final Path postingFile) throws IOException {
+        try (final FileChannel keys = FileChannel.open(keyFile, StandardOpenOption.READ);
+             final FileChannel postings = FileChannel.open(postingFile, StandardOpenOption.READ)) {
+            return new PostingLists(map(keys), map(postings), keys.size() / KEY_ENTRY_SIZE, postings.size());
+        }
+    }
+
+    //key entries never straddle two segments, the segment size is a multiple of the entry size
+    private static ByteBuffer[] map(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            final long start = i * SEGMENT_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+        }
+        return segments;
+    }
+
+    long size() {
+        return this.numKeys;
+    }
+
+    long getKey(final long index) {
+        final long position = index * KEY_ENTRY_SIZE;
+        return this.keySegments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    private long getPostingOffset(final long index) {
+        if (index == this.numKeys) {
+            return this.postingSize;
+        }
+        final long position = index * KEY_ENTRY_SIZE + 8;
+        return this.keySegments[(int) (position >>> SEGMENT_SHIFT)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    //index of the first key that is not smaller than key, unsigned
+    long lowerBound(final long key) {
+        long low = 0;
+        long high = this.numKeys;
+        while (low < high) {
+            final long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(getKey(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    //the sorted games of the key, an empty array if the key is not in the index
+    int[] find(final long key) {
+        final long index = lowerBound(key);
+        if (index == this.numKeys || getKey(index) != key) {
+            return new int[0];
+        }
+        return appendGames(index, index + 1, new int[16], 0);
+    }
+
+    //the sorted games of every key in [fromKey, toKey), unsigned
+    int[] findRange(final long fromKey,
+                    final long toKey) {
+        final long first = lowerBound(fromKey);
+        final long last = lowerBound(toKey);
+        if (first >= last) {
+            return new int[0];
+        }
+        final int[] games = appendGames(first, last, new int[16], 0);
+        //one game reaches many keys of a range, each key's list is sorted but their union is not
+        Arrays.sort(games);
+        int distinct = 0;
+        for (int i = 0; i < games.length; i++) {
+            if (i == 0 || games[i] != games[i - 1]) {
+                games[distinct++] = games[i];
+            }
+        }
+        return Arrays.copyOf(games, distinct);
+    }
+
+    private int[] appendGames(final long firstIndex,
+                              final long lastIndex,
+                              int[] games,
+                              int size) {
+        long position = getPostingOffset(firstIndex);
+        final long end = getPostingOffset(lastIndex);
+        int game = 0;
+        long nextListStart = getPostingOffset(firstIndex + 1);
+        long index = firstIndex;
+        while (position < end) {
+            if (position == nextListStart) {
+                //the gaps start over with every key
+                game = 0;
+                index++;
+                nextListStart = getPostingOffset(index + 1);
+            }
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = getPostingByte(position++);
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            game += gap;
+            if (size == games.length) {
+                games = Arrays.copyOf(games, size * 2);
+            }
+            games[size++] = game;
+        }
+        return Arrays.copyOf(games, size);
+    }
+
+    private byte getPostingByte(final long position) {
+        return this.postingSegments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & (SEGMENT_SIZE - 1)));
+    }
+}
@@ -0,0 +1,118 @@
+package com.chess.engine.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Collects (key, game) pairs of one worker and spills them as sorted runs of 12 byte records: key (8), game (4).
+//Games reach a worker in increasing order, so a stable sort by key leaves every key's games sorted too.
+//The sort is a least significant byte first radix sort over the unsigned keys.
+final class PostingRuns {
+
+    static final int RECORD_SIZE = 12;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final String prefix;
+    private long[] keys;
+    private int[] games;
+    private long[] sortedKeys;
+    private int[] sortedGames;
+    private final int[] counts;
+    private final List<Path> runs;
+    private int size;
+
+    //ctor
+    PostingRuns(final Path directory,
+                final String prefix,
+                final int capacity) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.keys = new long[capacity];
+        this.games = new int[capacity];
+        this.sortedKeys = new long[capacity];
+        this.sortedGames = new int[capacity];
+        this.counts = new int[256];
+        this.runs = new ArrayList<>();
+    }
+
+    void add(final long key,
+             final int game) throws IOException {
+        if (this.size == this.keys.length) {
+            spill();
+        }
+        this.keys[this.size] = key;
+        this.games[this.size] = game;
+        this.size++;
+    }
+
+    //spills what is left and returns all runs
+    List<Path> finish() throws IOException {
+        spill();
+        return this.runs;
+    }
+
+    private void spill() throws IOException {
+        if (this.size == 0) {
+            return;
+        }
+        sort();
+        final Path run = Files.createTempFile(this.directory, this.prefix, ".run");
+        try (final FileChannel channel = FileChannel.open(run, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE / RECORD_SIZE * RECORD_SIZE);
+            for (int i = 0; i < this.size; i++) {
+                if (!buffer.hasRemaining()) {
+                    write(channel, buffer);
+                }
+                buffer.putLong(this.keys[i]).putInt(this.games[i]);
+            }
+            write(channel, buffer);
+        }
+        this.runs.add(run);
+        this.size = 0;
+    }
+
+    private static void write(final FileChannel channel,
+                              final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void sort() {
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            Arrays.fill(this.counts, 0);
+            for (int i = 0; i < this.size; i++) {
+                this.counts[(int) (this.keys[i] >>> shift) & 0xFF]++;
+            }
+            if (this.counts[(int) (this.keys[0] >>> shift) & 0xFF] == this.size) {
+                continue; //every key has the same byte here
+            }
+            int total = 0;
+            for (int b = 0; b < 256; b++) {
+                final int count = this.counts[b];
+                this.counts[b] = total;
+                total += count;
+            }
+            for (int i = 0; i < this.size; i++) {
+                final int target = this.counts[(int) (this.keys[i] >>> shift) & 0xFF]++;
+                this.sortedKeys[target] = this.keys[i];
+                this.sortedGames[target] = this.games[i];
+            }
+            final long[] keys = this.keys;
+            this.keys = this.sortedKeys;
+            this.sortedKeys = keys;
+            final int[] games = this.games;
+            this.games = this.sortedGames;
+            this.sortedGames = games;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.chess.engine.archive;
+
+import java.nio.ByteBuffer;
+
+//Decoding side of RangeEncoder, reads a block from a ByteBuffer.
+class RangeDecoder {
+
+    private ByteBuffer buffer;
+    private int range;
+    private int code;
+
+    void reset(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.range = -1;
+        this.code = 0;
+        for (int i = 0; i < 5; i++) {
+            this.code = (this.code << 8) | nextByte();
+        }
+    }
+
+    private int nextByte() {
+        //the encoder's final flush makes sure a valid block never reads past its end
+        return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : 0;
+    }
+
+    int decodeBit(final short[] probabilities,
+                  final int index) {
+        final int probability = probabilities[index];
+        final int bound = (this.range >>> RangeEncoder.PROBABILITY_BITS) * probability;
+        final int bit;
+        if ((this.code ^ 0x80000000) < (bound ^ 0x80000000)) {
+            this.range = bound;
+            probabilities[index] = (short) (probability + (((1 << RangeEncoder.PROBABILITY_BITS) - probability) >>> RangeEncoder.MOVE_BITS));
+            bit = 0;
+        } else {
+            this.code -= bound;
+            this.range -= bound;
+            probabilities[index] = (short) (probability - (probability >>> RangeEncoder.MOVE_BITS));
+            bit = 1;
+        }
+        while ((this.range & 0xFF000000) == 0) {
+            this.code = (this.code << 8) | nextByte();
+            this.range <<= 8;
+        }
+        return bit;
+    }
+
+    int decodeBitTree(final short[] probabilities,
+                      final int numBits) {
+        int node = 1;
+        for (int i = 0; i < numBits; i++) {
+            node = (node << 1) | decodeBit(probabilities, node);
+        }
+        return node - (1 << numBits);
+    }
+
+    long decodeDirectBits(final int numBits) {
+        long result = 0;
+        for (int i = 0; i < numBits; i++) {
+            this.range >>>= 1;
+            final int t = (this.code - this.range) >>> 31;
+            this.code -= this.range & (t - 1);
+            result = (result << 1) | (1 - t);
+            while ((this.range & 0xFF000000) == 0) {
+                this.code = (this.code << 8) | nextByte();
+                this.range <<= 8;
+            }
+        }
+        return result;
+    }
+}
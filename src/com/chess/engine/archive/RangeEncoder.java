@@ -0,0 +1,120 @@
+package com.chess.engine.archive;
+
+import java.util.Arrays;
+
+//Binary adaptive range coder, the one of LZMA: 11 bit probabilities that move 1/32 towards every coded bit.
+//Output goes to a growing byte array that is reused from block to block.
+class RangeEncoder {
+
+    static final int PROBABILITY_BITS = 11;
+    static final short INITIAL_PROBABILITY = 1 << (PROBABILITY_BITS - 1);
+    static final int MOVE_BITS = 5;
+
+    private byte[] bytes;
+    private int size;
+    private long low;
+    private int range;
+    private int cache;
+    private long cacheSize;
+
+    //ctor
+    RangeEncoder() {
+        this.bytes = new byte[1 << 16];
+        reset();
+    }
+
+    void reset() {
+        this.size = 0;
+        this.low = 0;
+        this.range = -1;
+        this.cache = 0;
+        this.cacheSize = 1;
+    }
+
+    byte[] getBytes() {
+        return this.bytes;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    void encodeBit(final short[] probabilities,
+                   final int index,
+                   final int bit) {
+        final int probability = probabilities[index];
+        final int bound = (this.range >>> PROBABILITY_BITS) * probability;
+        if (bit == 0) {
+            this.range = bound;
+            probabilities[index] = (short) (probability + (((1 << PROBABILITY_BITS) - probability) >>> MOVE_BITS));
+        } else {
+            this.low += bound & 0xFFFFFFFFL;
+            this.range -= bound;
+            probabilities[index] = (short) (probability - (probability >>> MOVE_BITS));
+        }
+        while ((this.range & 0xFF000000) == 0) {
+            this.range <<= 8;
+            shiftLow();
+        }
+    }
+
+    //numBits bits of value, most significant first, through a binary tree of 2^numBits probabilities
+    void encodeBitTree(final short[] probabilities,
+                       final int numBits,
+                       final int value) {
+        int node = 1;
+        for (int i = numBits - 1; i >= 0; i--) {
+            final int bit = (value >>> i) & 1;
+            encodeBit(probabilities, node, bit);
+            node = (node << 1) | bit;
+        }
+    }
+
+    //bits with probability one half, no model
+    void encodeDirectBits(final long value,
+                          final int numBits) {
+        for (int i = numBits - 1; i >= 0; i--) {
+            this.range >>>= 1;
+            if (((value >>> i) & 1) != 0) {
+                this.low += this.range & 0xFFFFFFFFL;
+            }
+            while ((this.range & 0xFF000000) == 0) {
+                this.range <<= 8;
+                shiftLow();
+            }
+        }
+    }
+
+    void finish() {
+        for (int i = 0; i < 5; i++) {
+            shiftLow();
+        }
+    }
+
+    private void shiftLow() {
+        final int carry = (int) (this.low >>> 32);
+        if (carry != 0 || this.low < 0xFF000000L) {
+            int temp = this.cache;
+            do {
+                write(temp + carry);
+                temp = 0xFF;
+            } while (--this.cacheSize != 0);
+            this.cache = (int) (this.low >>> 24) & 0xFF;
+        }
+        this.cacheSize++;
+        this.low = (this.low & 0x00FFFFFFL) << 8;
+    }
+
+    private void write(final int b) {
+        if (this.size == this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+        }
+        this.bytes[this.size++] = (byte) b;
+    }
+
+    static short[] newModel(final int size) {
+        final short[] probabilities = new short[size];
+        Arrays.fill(probabilities, INITIAL_PROBABILITY);
+        return probabilities;
+    }
+}
@@ -5,10 +5,15 @@ import com.chess.engine.pieces.*;
 import com.chess.engine.player.BlackPlayer;
 import com.chess.engine.player.Player;
 import com.chess.engine.player.WhitePlayer;
+import com.chess.engine.telemetry.BoardConstructionEvent;
+import com.chess.engine.telemetry.EngineTelemetry;
+import com.chess.engine.telemetry.MoveGenerationEvent;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Board {
     //Chess board 8*8
@@ -28,19 +33,34 @@ public class Board {
     private final WhitePlayer whitePlayer;
     private final BlackPlayer blackPlayer;
     private final Player currentPlayer;
+    private final Pawn enPassantPawn;
+    private final long zobristKey;
 
     //ctor
     private Board(final Builder builder) {
+        //JFR events cost nothing until a recording enables them, shouldCommit() is false and the event never escapes
+        final BoardConstructionEvent event = new BoardConstructionEvent();
+        event.begin();
         this.gameBoard = createGameBoard(builder);
         this.whitePieces = calculateActivePieces(this.gameBoard, Alliance.WHITE);
         this.blackPieces = calculateActivePieces(this.gameBoard, Alliance.BLACK);
+        this.enPassantPawn = builder.enPassantPawn;
 
         final Collection<Move> whiteStandardLegalMoves = calculateLegalMoves(this.whitePieces);
         final Collection<Move> blackStandardLegalMoves = calculateLegalMoves(this.blackPieces);
 
-        this.whitePlayer = new WhitePlayer(this, whiteStandardLegalMoves, blackStandardLegalMoves);
-        this.blackPlayer = new BlackPlayer(this, whiteStandardLegalMoves, blackStandardLegalMoves);
+        this.whitePlayer = new WhitePlayer(this, whiteStandardLegalMoves);
+        this.blackPlayer = new BlackPlayer(this, blackStandardLegalMoves);
         this.currentPlayer = builder.nextMoveMaker.choosePlayer(this.whitePlayer, this.blackPlayer);
+        this.zobristKey = ZobristHashing.calculateKey(this.whitePieces, this.blackPieces, builder.nextMoveMaker,
+                                                      getCastlingRights(), this.enPassantPawn);
+        EngineTelemetry.boardBuilt();
+        if (event.shouldCommit()) {
+            event.pieces = this.whitePieces.size() + this.blackPieces.size();
+            event.whiteMoves = whiteStandardLegalMoves.size();
+            event.blackMoves = blackStandardLegalMoves.size();
+            event.commit();
+        }
     }
 
     @Override
@@ -69,6 +89,46 @@ public class Board {
         return this.currentPlayer;
     }
 
+    public Pawn getEnPassantPawn() {
+        return this.enPassantPawn;
+    }
+
+    //a right stays as long as the king and that rook are unmoved on their start tiles
+    public int getCastlingRights() {
+        int castlingRights = 0;
+        if (isUnmoved(BoardUtils.WHITE_KING_START, Alliance.WHITE, Piece.PieceType.KING)) {
+            if (isUnmoved(BoardUtils.WHITE_KING_SIDE_ROOK_START, Alliance.WHITE, Piece.PieceType.ROOK)) {
+                castlingRights |= BoardUtils.WHITE_KING_SIDE_CASTLE;
+            }
+            if (isUnmoved(BoardUtils.WHITE_QUEEN_SIDE_ROOK_START, Alliance.WHITE, Piece.PieceType.ROOK)) {
+                castlingRights |= BoardUtils.WHITE_QUEEN_SIDE_CASTLE;
+            }
+        }
+        if (isUnmoved(BoardUtils.BLACK_KING_START, Alliance.BLACK, Piece.PieceType.KING)) {
+            if (isUnmoved(BoardUtils.BLACK_KING_SIDE_ROOK_START, Alliance.BLACK, Piece.PieceType.ROOK)) {
+                castlingRights |= BoardUtils.BLACK_KING_SIDE_CASTLE;
+            }
+            if (isUnmoved(BoardUtils.BLACK_QUEEN_SIDE_ROOK_START, Alliance.BLACK, Piece.PieceType.ROOK)) {
+                castlingRights |= BoardUtils.BLACK_QUEEN_SIDE_CASTLE;
+            }
+        }
+        return castlingRights;
+    }
+
+    private boolean isUnmoved(final int coordinate,
+                              final Alliance alliance,
+                              final Piece.PieceType pieceType) {
+        final Piece piece = this.gameBoard.get(coordinate).getPiece();
+        return piece != null &&
+               piece.getPieceType() == pieceType &&
+               piece.getPieceAlliance() == alliance &&
+               piece.isFirstMove();
+    }
+
+    public long getZobristKey() {
+        return this.zobristKey;
+    }
+
     public Collection<Piece> getWhitePieces() {
         return this.whitePieces;
     }
@@ -80,7 +140,15 @@ public class Board {
     private Collection<Move> calculateLegalMoves(final Collection<Piece> pieces) {
         final List<Move> legalMoves = new ArrayList<>();
         for (final Piece piece : pieces) {
-            legalMoves.addAll(piece.calculateLegalMoves(this));
+            final MoveGenerationEvent event = new MoveGenerationEvent();
+            event.begin();
+            final Collection<Move> pieceMoves = piece.calculateLegalMoves(this);
+            if (event.shouldCommit()) {
+                event.pieceType = piece.getPieceType().name();
+                event.moves = pieceMoves.size();
+                event.commit();
+            }
+            legalMoves.addAll(pieceMoves);
         }
         return ImmutableList.copyOf(legalMoves);
     }
@@ -158,12 +226,22 @@ public class Board {
         return Iterables.unmodifiableIterable(Iterables.concat(this.whitePlayer.getLegalMoves(), this.blackPlayer.getLegalMoves()));
     }
 
+    //Every board one to depth legal moves away, once per path to it, a board before the boards below it.
+    //Lazy, the tree is walked as the stream is consumed; .parallel() hands whole subtrees to the common pool.
+    public Stream<Board> successors(final int depth) {
+        if (depth < 0) {
+            throw new RuntimeException("Depth cannot be negative!");
+        }
+        return StreamSupport.stream(new SuccessorSpliterator(this, depth), false);
+    }
+
 
     //BUILDER
     public static class Builder {
 
         Map<Integer, Piece> boardConfig;
         Alliance nextMoveMaker;
+        Pawn enPassantPawn;
 
         public Builder() {
             this.boardConfig = new HashMap<>();
@@ -179,6 +257,12 @@ public class Board {
             return this;
         }
 
+        //the pawn that just made a two square jump and can be taken en passant
+        public Builder setEnPassantPawn(final Pawn enPassantPawn) {
+            this.enPassantPawn = enPassantPawn;
+            return this;
+        }
+
         public Board build() {
             return new Board(this);
         }
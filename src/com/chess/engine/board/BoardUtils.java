@@ -6,13 +6,27 @@ public class BoardUtils {
     public static final boolean[] SECOND_COLUMN = initColumn(1);
     public static final boolean[] SEVENTH_COLUMN = initColumn(6);
     public static final boolean[] EIGHTH_COLUMN = initColumn(7);
-    //TODO more work here!!
+    public static final boolean[] FIRST_ROW = initRow(0);
     public static final boolean[] SECOND_ROW = initRow(8);
     public static final boolean[] SEVENTH_ROW = initRow(48);
+    public static final boolean[] EIGHTH_ROW = initRow(56);
 
     public static final int NUM_TILES = 64;
     public static final int NUM_TILES_PER_ROW = 8;
 
+    //castling rights as a bit set, in the order FEN and Polyglot list them
+    public static final int WHITE_KING_SIDE_CASTLE = 1;
+    public static final int WHITE_QUEEN_SIDE_CASTLE = 2;
+    public static final int BLACK_KING_SIDE_CASTLE = 4;
+    public static final int BLACK_QUEEN_SIDE_CASTLE = 8;
+
+    public static final int WHITE_KING_START = 60; //e1
+    public static final int WHITE_KING_SIDE_ROOK_START = 63; //h1
+    public static final int WHITE_QUEEN_SIDE_ROOK_START = 56; //a1
+    public static final int BLACK_KING_START = 4; //e8
+    public static final int BLACK_KING_SIDE_ROOK_START = 7; //h8
+    public static final int BLACK_QUEEN_SIDE_ROOK_START = 0; //a8
+
     private BoardUtils() {
         throw new RuntimeException("You cannot instantiate me!");
     }
@@ -38,4 +52,21 @@ public class BoardUtils {
     public static boolean isValidTileCoordinate(final int coordinate) {
         return coordinate >= 0 && coordinate < NUM_TILES;
     }
+
+    //tile 0 is a8 and tile 63 is h1
+    public static char getFileCharacter(final int coordinate) {
+        return (char) ('a' + coordinate % NUM_TILES_PER_ROW);
+    }
+
+    public static char getRankCharacter(final int coordinate) {
+        return (char) ('8' - coordinate / NUM_TILES_PER_ROW);
+    }
+
+    //-1 if the characters don't name a tile
+    public static int getCoordinate(final char file, final char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            return -1;
+        }
+        return ('8' - rank) * NUM_TILES_PER_ROW + (file - 'a');
+    }
 }
@@ -1,6 +1,8 @@
 package com.chess.engine.board;
 
+import com.chess.engine.pieces.Pawn;
 import com.chess.engine.pieces.Piece;
+import com.chess.engine.pieces.Rook;
 
 import static com.chess.engine.board.Board.*;
 
@@ -32,10 +34,17 @@ public abstract class Move {
         return this.movedPiece;
     }
 
+    public boolean isAttack() {
+        return false;
+    }
+
+    public Piece getAttackedPiece() {
+        return null;
+    }
+
     public Board execute() {
         final Builder builder = new Builder();
         for (final Piece piece : this.board.currentPlayer().getActivePieces()) {
-            //TODO hashcode and equals for pieces
             if (!this.movedPiece.equals(piece)) {
                 builder.setPiece(piece);
             }
@@ -69,10 +78,15 @@ public abstract class Move {
             this.attackedPiece = attackedPiece;
         }
 
-        //TODO a
+        //the moved piece is set last in execute(), so it replaces the attacked piece
         @Override
-        public Board execute() {
-            return null;
+        public boolean isAttack() {
+            return true;
+        }
+
+        @Override
+        public Piece getAttackedPiece() {
+            return this.attackedPiece;
         }
     }
 
@@ -103,6 +117,67 @@ public abstract class Move {
             super(board, movedPiece, destinationCoordinate, attackedPiece);
         }
 
+        //the attacked pawn is not on the destination tile, so it has to be left out explicitly
+        @Override
+        public Board execute() {
+            final Builder builder = new Builder();
+            for (final Piece piece : this.board.currentPlayer().getActivePieces()) {
+                if (!this.movedPiece.equals(piece)) {
+                    builder.setPiece(piece);
+                }
+            }
+            for (final Piece piece : this.board.currentPlayer().getOpponent().getActivePieces()) {
+                if (!piece.equals(this.getAttackedPiece())) {
+                    builder.setPiece(piece);
+                }
+            }
+            builder.setPiece(this.movedPiece.movePiece(this));
+            builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+            return builder.build();
+        }
+    }
+
+    public static final class PawnPromotion extends Move {
+
+        final Move decoratedMove;
+        final Piece promotedPiece;
+
+        public PawnPromotion(final Move decoratedMove,
+                             final Piece promotedPiece) {
+            super(decoratedMove.board, decoratedMove.movedPiece, decoratedMove.destinationCoordinate);
+            this.decoratedMove = decoratedMove;
+            this.promotedPiece = promotedPiece;
+        }
+
+        public Piece getPromotedPiece() {
+            return this.promotedPiece;
+        }
+
+        @Override
+        public boolean isAttack() {
+            return this.decoratedMove.isAttack();
+        }
+
+        @Override
+        public Piece getAttackedPiece() {
+            return this.decoratedMove.getAttackedPiece();
+        }
+
+        @Override
+        public Board execute() {
+            final Builder builder = new Builder();
+            for (final Piece piece : this.board.currentPlayer().getActivePieces()) {
+                if (!this.movedPiece.equals(piece)) {
+                    builder.setPiece(piece);
+                }
+            }
+            for (final Piece piece : this.board.currentPlayer().getOpponent().getActivePieces()) {
+                builder.setPiece(piece);
+            }
+            builder.setPiece(this.promotedPiece);
+            builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+            return builder.build();
+        }
     }
 
     public static final class PawnJump extends Move {
@@ -112,22 +187,74 @@ public abstract class Move {
             super(board, movedPiece, destinationCoordinate);
         }
 
+        //the jumped pawn can be taken en passant on the next move only
+        @Override
+        public Board execute() {
+            final Builder builder = new Builder();
+            for (final Piece piece : this.board.currentPlayer().getActivePieces()) {
+                if (!this.movedPiece.equals(piece)) {
+                    builder.setPiece(piece);
+                }
+            }
+            for (final Piece piece : this.board.currentPlayer().getOpponent().getActivePieces()) {
+                builder.setPiece(piece);
+            }
+            final Pawn movedPawn = (Pawn) this.movedPiece.movePiece(this);
+            builder.setPiece(movedPawn);
+            builder.setEnPassantPawn(movedPawn);
+            builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+            return builder.build();
+        }
     }
 
-    static abstract class CastleMove extends Move {
+    public static abstract class CastleMove extends Move {
+
+        final Rook castleRook;
+        final int castleRookStart;
+        final int castleRookDestination;
+
         public CastleMove(final Board board,
                           final Piece movedPiece,
-                          final int destinationCoordinate) {
+                          final int destinationCoordinate,
+                          final Rook castleRook,
+                          final int castleRookStart,
+                          final int castleRookDestination) {
             super(board, movedPiece, destinationCoordinate);
+            this.castleRook = castleRook;
+            this.castleRookStart = castleRookStart;
+            this.castleRookDestination = castleRookDestination;
+        }
+
+        public Rook getCastleRook() {
+            return this.castleRook;
         }
 
+        @Override
+        public Board execute() {
+            final Builder builder = new Builder();
+            for (final Piece piece : this.board.currentPlayer().getActivePieces()) {
+                if (!this.movedPiece.equals(piece) && !this.castleRook.equals(piece)) {
+                    builder.setPiece(piece);
+                }
+            }
+            for (final Piece piece : this.board.currentPlayer().getOpponent().getActivePieces()) {
+                builder.setPiece(piece);
+            }
+            builder.setPiece(this.movedPiece.movePiece(this));
+            builder.setPiece(new Rook(this.castleRook.getPieceAlliance(), this.castleRookDestination, false));
+            builder.setMoveMaker(this.board.currentPlayer().getOpponent().getAlliance());
+            return builder.build();
+        }
     }
 
     public static final class KingSideCastleMove extends CastleMove {
         public KingSideCastleMove(final Board board,
                                   final Piece movedPiece,
-                                  final int destinationCoordinate) {
-            super(board, movedPiece, destinationCoordinate);
+                                  final int destinationCoordinate,
+                                  final Rook castleRook,
+                                  final int castleRookStart,
+                                  final int castleRookDestination) {
+            super(board, movedPiece, destinationCoordinate, castleRook, castleRookStart, castleRookDestination);
         }
 
     }
@@ -135,8 +262,11 @@ public abstract class Move {
     public static final class QueenSideCastleMove extends CastleMove {
         public QueenSideCastleMove(final Board board,
                                    final Piece movedPiece,
-                                   final int destinationCoordinate) {
-            super(board, movedPiece, destinationCoordinate);
+                                   final int destinationCoordinate,
+                                   final Rook castleRook,
+                                   final int castleRookStart,
+                                   final int castleRookDestination) {
+            super(board, movedPiece, destinationCoordinate, castleRook, castleRookStart, castleRookDestination);
         }
 
     }
@@ -146,6 +276,11 @@ public abstract class Move {
             super(null, null, -1);
         }
 
+        @Override
+        public int getCurrentCoordinate() {
+            return -1;
+        }
+
         @Override
         public Board execute() {
             throw new RuntimeException("Cannot excecute the null move!!");
@@ -169,5 +304,32 @@ public abstract class Move {
             }
             return NULL_MOVE;
         }
+
+        //from (6 bits) | to (6 bits) << 6 | promoted piece type ordinal + 1 (3 bits) << 12, 0 for the null move.
+        //Castling is encoded as the king's move.
+        public static int encodeMove(final Move move) {
+            if (move == NULL_MOVE) {
+                return 0;
+            }
+            int encodedMove = move.getCurrentCoordinate() | (move.getDestinationCoordinate() << 6);
+            if (move instanceof PawnPromotion) {
+                encodedMove |= (((PawnPromotion) move).getPromotedPiece().getPieceType().ordinal() + 1) << 12;
+            }
+            return encodedMove;
+        }
+
+        //the matching move of the side to move, NULL_MOVE if there is none
+        public static Move createMove(final Board board,
+                                      final int encodedMove) {
+            if (encodedMove == 0) {
+                return NULL_MOVE;
+            }
+            for (final Move move : board.currentPlayer().getLegalMoves()) {
+                if (encodeMove(move) == encodedMove) {
+                    return move;
+                }
+            }
+            return NULL_MOVE;
+        }
     }
 }
@@ -0,0 +1,122 @@
+package com.chess.engine.board;
+
+import com.chess.engine.player.MoveTransition;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+//Walks the game tree depth first and hands out every board reached by a legal move, each board before the boards
+//below it. Only the path to the current board is held, one frame per ply with the moves still to try there,
+//so no level of the tree is ever built as a whole.
+//A split takes half the untried moves of the shallowest frame that has two or more, so the pieces given away
+//are whole subtrees, as large as there are, and the walks share nothing.
+final class SuccessorSpliterator implements Spliterator<Board> {
+
+    //a guess at the legal moves of a position, only used for the size estimate
+    private static final int BRANCHING_FACTOR = 30;
+
+    //frame 0 is the top of the tree
+    private final List<Frame> frames;
+
+    //ctor
+    SuccessorSpliterator(final Board board,
+                         final int depth) {
+        this.frames = new ArrayList<>();
+        if (depth > 0) {
+            final List<Move> moves = ImmutableList.copyOf(board.currentPlayer().getLegalMoves());
+            this.frames.add(new Frame(board, moves, 0, moves.size(), depth));
+        }
+    }
+
+    private SuccessorSpliterator(final Frame frame) {
+        this.frames = new ArrayList<>();
+        this.frames.add(frame);
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super Board> action) {
+        while (!this.frames.isEmpty()) {
+            final Frame frame = this.frames.get(this.frames.size() - 1);
+            if (frame.next == frame.end) {
+                this.frames.remove(this.frames.size() - 1);
+                continue;
+            }
+            final MoveTransition transition = frame.board.currentPlayer().makeMove(frame.moves.get(frame.next++));
+            if (!transition.getMoveStatus().isDone()) {
+                continue;
+            }
+            final Board successor = transition.getTransitionBoard();
+            if (frame.depth > 1) {
+                final List<Move> moves = ImmutableList.copyOf(successor.currentPlayer().getLegalMoves());
+                this.frames.add(new Frame(successor, moves, 0, moves.size(), frame.depth - 1));
+            }
+            action.accept(successor);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<Board> trySplit() {
+        for (final Frame frame : this.frames) {
+            final int untried = frame.end - frame.next;
+            if (untried > 1) {
+                final int middle = frame.next + untried / 2;
+                final Spliterator<Board> prefix = new SuccessorSpliterator(
+                        new Frame(frame.board, frame.moves, frame.next, middle, frame.depth));
+                frame.next = middle;
+                return prefix;
+            }
+        }
+        return null;
+    }
+
+    //the untried moves of every frame times a guess at the size of the tree below each
+    @Override
+    public long estimateSize() {
+        long size = 0;
+        for (final Frame frame : this.frames) {
+            long subtree = 1;
+            for (int ply = 1; ply < frame.depth && subtree < Long.MAX_VALUE / BRANCHING_FACTOR; ply++) {
+                subtree = subtree * BRANCHING_FACTOR + 1;
+            }
+            final long untried = frame.end - frame.next;
+            if (untried > 0 && subtree > (Long.MAX_VALUE - size) / untried) {
+                return Long.MAX_VALUE;
+            }
+            size += untried * subtree;
+        }
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL | IMMUTABLE;
+    }
+
+    //a board, its moves from next to end still to try, and the plies left below it
+    private static final class Frame {
+
+        private final Board board;
+        private final List<Move> moves;
+        private final int end;
+        private final int depth;
+        private int next;
+
+        //ctor
+        private Frame(final Board board,
+                      final List<Move> moves,
+                      final int next,
+                      final int end,
+                      final int depth) {
+            this.board = board;
+            this.moves = moves;
+            this.next = next;
+            this.end = end;
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.chess.engine.board;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.pieces.Pawn;
+import com.chess.engine.pieces.Piece;
+
+import java.util.Collection;
+import java.util.SplittableRandom;
+
+public class ZobristHashing {
+
+    //fixed seed, keys have to be the same on every run and on every machine
+    private static final long SEED = 0x6A43686573734CL;
+
+    private static final int NUM_PIECE_TYPES = Piece.PieceType.values().length;
+    private static final int NUM_PIECE_KINDS = NUM_PIECE_TYPES * Alliance.values().length;
+
+    private static final long[][] PIECE_KEYS = initPieceKeys();
+    private static final long BLACK_TO_MOVE_KEY = new SplittableRandom(SEED ^ 0x5DEECE66DL).nextLong();
+    private static final long[] CASTLING_KEYS = initKeys(SEED ^ 0xCA57L, 16);
+    private static final long[] EN_PASSANT_FILE_KEYS = initKeys(SEED ^ 0xE9L, BoardUtils.NUM_TILES_PER_ROW);
+
+    private ZobristHashing() {
+        throw new RuntimeException("You cannot instantiate me!");
+    }
+
+    private static long[][] initPieceKeys() {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final long[][] keys = new long[NUM_PIECE_KINDS][BoardUtils.NUM_TILES];
+        for (int kind = 0; kind < NUM_PIECE_KINDS; kind++) {
+            for (int tile = 0; tile < BoardUtils.NUM_TILES; tile++) {
+                keys[kind][tile] = random.nextLong();
+            }
+        }
+        return keys;
+    }
+
+    private static long[] initKeys(final long seed,
+                                   final int length) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final long[] keys = new long[length];
+        for (int i = 0; i < length; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+
+    //PAWN..KING for white, then PAWN..KING for black
+    private static int pieceKind(final Piece piece) {
+        return piece.getPieceAlliance().ordinal() * NUM_PIECE_TYPES + piece.getPieceType().ordinal();
+    }
+
+    public static long pieceKey(final Piece piece) {
+        return PIECE_KEYS[pieceKind(piece)][piece.getPiecePosition()];
+    }
+
+    public static long sideToMoveKey(final Alliance alliance) {
+        return alliance.isBlack() ? BLACK_TO_MOVE_KEY : 0L;
+    }
+
+    //one key per combination of the four castling rights, 0 for none
+    public static long castlingKey(final int castlingRights) {
+        return castlingRights == 0 ? 0L : CASTLING_KEYS[castlingRights];
+    }
+
+    public static long enPassantKey(final Pawn enPassantPawn) {
+        return enPassantPawn == null ? 0L : EN_PASSANT_FILE_KEYS[enPassantPawn.getPiecePosition() % BoardUtils.NUM_TILES_PER_ROW];
+    }
+
+    static long calculateKey(final Collection<Piece> whitePieces,
+                             final Collection<Piece> blackPieces,
+                             final Alliance nextMoveMaker,
+                             final int castlingRights,
+                             final Pawn enPassantPawn) {
+        long key = sideToMoveKey(nextMoveMaker) ^ castlingKey(castlingRights) ^ enPassantKey(enPassantPawn);
+        for (final Piece piece : whitePieces) {
+            key ^= pieceKey(piece);
+        }
+        for (final Piece piece : blackPieces) {
+            key ^= pieceKey(piece);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,213 @@
+package com.chess.engine.book;
+
+import java.nio.ByteBuffer;
+
+//Open addressing hash table from (position key, move) to win/draw/loss counts, kept outside of the heap
+//in direct buffers so hundreds of millions of entries cost the garbage collector nothing.
+//Entries are 24 bytes, the same layout as a record of the opening tree file:
+//key (8), move (2), used flag (2), wins (4), draws (4), losses (4).
+//Not thread safe, every replay thread fills its own table.
+class MoveStatsTable {
+
+    static final int ENTRY_SIZE = 24;
+    static final int KEY_OFFSET = 0;
+    static final int MOVE_OFFSET = 8;
+    static final int USED_OFFSET = 10;
+    static final int WINS_OFFSET = 12;
+    static final int DRAWS_OFFSET = 16;
+    static final int LOSSES_OFFSET = 20;
+
+    //a direct buffer holds at most 2 GiB, 2^26 entries are 1.5 GiB
+    private static final int MAX_SEGMENT_SHIFT = 26;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    private ByteBuffer[] segments;
+    private int segmentShift;
+    private long capacity;
+    private long size;
+    private boolean sorted;
+
+    //ctor
+    MoveStatsTable(final long initialCapacity) {
+        allocate(Long.highestOneBit(Math.max(initialCapacity, 1024) - 1) << 1);
+    }
+
+    private void allocate(final long capacity) {
+        this.capacity = capacity;
+        this.segmentShift = Math.min(Long.numberOfTrailingZeros(capacity), MAX_SEGMENT_SHIFT);
+        final int numSegments = (int) (capacity >>> this.segmentShift);
+        this.segments = new ByteBuffer[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            //direct buffers start zeroed, so every slot starts unused
+            this.segments[i] = ByteBuffer.allocateDirect((1 << this.segmentShift) * ENTRY_SIZE);
+        }
+        this.size = 0;
+    }
+
+    long size() {
+        return this.size;
+    }
+
+    private ByteBuffer segment(final long index) {
+        return this.segments[(int) (index >>> this.segmentShift)];
+    }
+
+    private int offset(final long index) {
+        return (int) (index & ((1L << this.segmentShift) - 1)) * ENTRY_SIZE;
+    }
+
+    private static long hash(final long key,
+                             final int move) {
+        long h = key ^ (move * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    void add(final long key,
+             final int move,
+             final int wins,
+             final int draws,
+             final int losses) {
+        if (this.sorted) {
+            throw new RuntimeException("The table was sorted and can't be added to anymore!");
+        }
+        if (this.size + 1 > this.capacity * MAX_LOAD_FACTOR) {
+            grow();
+        }
+        final long mask = this.capacity - 1;
+        long index = hash(key, move) & mask;
+        while (true) {
+            final ByteBuffer segment = segment(index);
+            final int offset = offset(index);
+            if (segment.getShort(offset + USED_OFFSET) == 0) {
+                segment.putLong(offset + KEY_OFFSET, key);
+                segment.putShort(offset + MOVE_OFFSET, (short) move);
+                segment.putShort(offset + USED_OFFSET, (short) 1);
+                segment.putInt(offset + WINS_OFFSET, wins);
+                segment.putInt(offset + DRAWS_OFFSET, draws);
+                segment.putInt(offset + LOSSES_OFFSET, losses);
+                this.size++;
+                return;
+            }
+            if (segment.getLong(offset + KEY_OFFSET) == key && (segment.getShort(offset + MOVE_OFFSET) & 0xFFFF) == move) {
+                segment.putInt(offset + WINS_OFFSET, segment.getInt(offset + WINS_OFFSET) + wins);
+                segment.putInt(offset + DRAWS_OFFSET, segment.getInt(offset + DRAWS_OFFSET) + draws);
+                segment.putInt(offset + LOSSES_OFFSET, segment.getInt(offset + LOSSES_OFFSET) + losses);
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        final ByteBuffer[] oldSegments = this.segments;
+        final int oldShift = this.segmentShift;
+        final long oldCapacity = this.capacity;
+        allocate(oldCapacity << 1);
+        for (long i = 0; i < oldCapacity; i++) {
+            final ByteBuffer segment = oldSegments[(int) (i >>> oldShift)];
+            final int offset = (int) (i & ((1L << oldShift) - 1)) * ENTRY_SIZE;
+            if (segment.getShort(offset + USED_OFFSET) != 0) {
+                add(segment.getLong(offset + KEY_OFFSET),
+                    segment.getShort(offset + MOVE_OFFSET) & 0xFFFF,
+                    segment.getInt(offset + WINS_OFFSET),
+                    segment.getInt(offset + DRAWS_OFFSET),
+                    segment.getInt(offset + LOSSES_OFFSET));
+            }
+        }
+    }
+
+    //packs the used entries to the front and sorts them by unsigned key, then move.
+    //Afterwards entries [0, size) can be read in order, but the table is no longer a hash table.
+    void sort() {
+        long packed = 0;
+        for (long i = 0; i < this.capacity; i++) {
+            if (segment(i).getShort(offset(i) + USED_OFFSET) != 0) {
+                if (i != packed) {
+                    copy(i, packed);
+                }
+                packed++;
+            }
+        }
+        //heapsort, in place and without recursion, the table may be far larger than any heap array
+        for (long i = this.size / 2 - 1; i >= 0; i--) {
+            siftDown(i, this.size);
+        }
+        for (long end = this.size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        this.sorted = true;
+    }
+
+    private void siftDown(long root,
+                          final long end) {
+        while (true) {
+            long child = 2 * root + 1;
+            if (child >= end) {
+                return;
+            }
+            if (child + 1 < end && compare(child + 1, child) > 0) {
+                child++;
+            }
+            if (compare(root, child) >= 0) {
+                return;
+            }
+            swap(root, child);
+            root = child;
+        }
+    }
+
+    private int compare(final long first,
+                        final long second) {
+        final int byKey = Long.compareUnsigned(getKey(first), getKey(second));
+        return byKey != 0 ? byKey : Integer.compare(getMove(first), getMove(second));
+    }
+
+    private void copy(final long from,
+                      final long to) {
+        final ByteBuffer source = segment(from);
+        final ByteBuffer target = segment(to);
+        final int sourceOffset = offset(from);
+        final int targetOffset = offset(to);
+        target.putLong(targetOffset, source.getLong(sourceOffset));
+        target.putLong(targetOffset + 8, source.getLong(sourceOffset + 8));
+        target.putLong(targetOffset + 16, source.getLong(sourceOffset + 16));
+        source.putShort(sourceOffset + USED_OFFSET, (short) 0);
+    }
+
+    private void swap(final long first,
+                      final long second) {
+        final ByteBuffer a = segment(first);
+        final ByteBuffer b = segment(second);
+        final int aOffset = offset(first);
+        final int bOffset = offset(second);
+        for (int i = 0; i < ENTRY_SIZE; i += 8) {
+            final long value = a.getLong(aOffset + i);
+            a.putLong(aOffset + i, b.getLong(bOffset + i));
+            b.putLong(bOffset + i, value);
+        }
+    }
+
+    long getKey(final long index) {
+        return segment(index).getLong(offset(index) + KEY_OFFSET);
+    }
+
+    int getMove(final long index) {
+        return segment(index).getShort(offset(index) + MOVE_OFFSET) & 0xFFFF;
+    }
+
+    int getWins(final long index) {
+        return segment(index).getInt(offset(index) + WINS_OFFSET);
+    }
+
+    int getDraws(final long index) {
+        return segment(index).getInt(offset(index) + DRAWS_OFFSET);
+    }
+
+    int getLosses(final long index) {
+        return segment(index).getInt(offset(index) + LOSSES_OFFSET);
+    }
+}
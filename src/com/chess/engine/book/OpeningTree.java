@@ -0,0 +1,108 @@
+package com.chess.engine.book;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ToLongFunction;
+
+import static com.chess.engine.book.MoveStatsTable.*;
+
+//Read side of the file written by OpeningTreeBuilder: 24 byte records sorted by position key, then move.
+//Large trees are mapped in several pieces, reads are absolute so the tree can be shared by all threads.
+public class OpeningTree {
+
+    private static final int SEGMENT_SHIFT = 26;
+
+    private final ByteBuffer[] segments;
+    private final long numEntries;
+    private final ToLongFunction<Board> positionKey;
+
+    //ctor
+    private OpeningTree(final ByteBuffer[] segments,
+                        final long numEntries,
+                        final ToLongFunction<Board> positionKey) {
+        this.segments = segments;
+        this.numEntries = numEntries;
+        this.positionKey = positionKey;
+    }
+
+    public static OpeningTree open(final Path path) throws IOException {
+        return open(path, Board::getZobristKey);
+    }
+
+    //positionKey has to be the one the tree was built with
+    public static OpeningTree open(final Path path,
+                                   final ToLongFunction<Board> positionKey) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long numEntries = channel.size() / ENTRY_SIZE;
+            final long entriesPerSegment = 1L << SEGMENT_SHIFT;
+            final ByteBuffer[] segments = new ByteBuffer[(int) ((numEntries + entriesPerSegment - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                final long start = i * entriesPerSegment;
+                final long length = Math.min(entriesPerSegment, numEntries - start) * ENTRY_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start * ENTRY_SIZE, length);
+            }
+            return new OpeningTree(segments, numEntries, positionKey);
+        }
+    }
+
+    public long size() {
+        return this.numEntries;
+    }
+
+    private ByteBuffer segment(final long index) {
+        return this.segments[(int) (index >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(final long index) {
+        return (int) (index & ((1L << SEGMENT_SHIFT) - 1)) * ENTRY_SIZE;
+    }
+
+    //index of the first record of the position, or -1 if the position is not in the tree.
+    //The records of a position follow each other, walk them while getKey(index) == getKey(first)
+    public long find(final Board board) {
+        final long key = this.positionKey.applyAsLong(board);
+        long low = 0;
+        long high = this.numEntries;
+        while (low < high) {
+            final long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(getKey(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < this.numEntries && getKey(low) == key ? low : -1;
+    }
+
+    public long getKey(final long index) {
+        return segment(index).getLong(offset(index) + KEY_OFFSET);
+    }
+
+    public Move getMove(final Board board,
+                        final long index) {
+        return PolyglotBook.decodeMove(board, segment(index).getShort(offset(index) + MOVE_OFFSET) & 0xFFFF);
+    }
+
+    //from the point of view of the side that played the move
+    public int getWins(final long index) {
+        return segment(index).getInt(offset(index) + WINS_OFFSET);
+    }
+
+    public int getDraws(final long index) {
+        return segment(index).getInt(offset(index) + DRAWS_OFFSET);
+    }
+
+    public int getLosses(final long index) {
+        return segment(index).getInt(offset(index) + LOSSES_OFFSET);
+    }
+
+    public long getGameCount(final long index) {
+        return (long) getWins(index) + getDraws(index) + getLosses(index);
+    }
+}
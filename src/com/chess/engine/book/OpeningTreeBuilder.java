@@ -0,0 +1,173 @@
+package com.chess.engine.book;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.notation.ParallelPgnReplayer;
+import com.chess.engine.notation.PgnGame;
+import com.chess.engine.notation.PgnGameHandler;
+import com.chess.engine.notation.PgnReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+//Builds an opening tree from a corpus of games: for every position of the first plies and every move played there,
+//how often the side that played it won, drew and lost.
+//The games are replayed on ParallelPgnReplayer workers and every worker aggregates into its own off-heap shard.
+//write() sorts the shards in parallel and merges them into one sorted file that OpeningTree maps.
+public class OpeningTreeBuilder implements PgnGameHandler {
+
+    private static final int DEFAULT_MAX_PLY = 30;
+    private static final long INITIAL_SHARD_CAPACITY = 1 << 20;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final int maxPly;
+    private final ToLongFunction<Board> positionKey;
+    private final List<MoveStatsTable> shards;
+    private final ThreadLocal<MoveStatsTable> shard;
+    private final LongAdder gamesAdded;
+
+    //ctor
+    public OpeningTreeBuilder(final int maxPly,
+                              final ToLongFunction<Board> positionKey) {
+        this.maxPly = maxPly;
+        this.positionKey = positionKey;
+        this.shards = new CopyOnWriteArrayList<>();
+        this.shard = ThreadLocal.withInitial(() -> {
+            final MoveStatsTable table = new MoveStatsTable(INITIAL_SHARD_CAPACITY);
+            this.shards.add(table);
+            return table;
+        });
+        this.gamesAdded = new LongAdder();
+    }
+
+    //keyed by the engine's own Zobrist keys
+    public OpeningTreeBuilder() {
+        this(DEFAULT_MAX_PLY, Board::getZobristKey);
+    }
+
+    public long getGamesAdded() {
+        return this.gamesAdded.sum();
+    }
+
+    public long build(final PgnReader reader,
+                      final ParallelPgnReplayer replayer) throws IOException, InterruptedException {
+        return replayer.replay(reader, this);
+    }
+
+    @Override
+    public void handleMove(final PgnGame game,
+                           final int ply,
+                           final Board board,
+                           final Move move) {
+        if (ply >= this.maxPly) {
+            return;
+        }
+        final String result = game.getResult();
+        final boolean moverIsWhite = board.currentPlayer().getAlliance().isWhite();
+        final int wins;
+        final int draws;
+        final int losses;
+        if ("1-0".equals(result)) {
+            wins = moverIsWhite ? 1 : 0;
+            draws = 0;
+            losses = moverIsWhite ? 0 : 1;
+        } else if ("0-1".equals(result)) {
+            wins = moverIsWhite ? 0 : 1;
+            draws = 0;
+            losses = moverIsWhite ? 1 : 0;
+        } else if ("1/2-1/2".equals(result)) {
+            wins = 0;
+            draws = 1;
+            losses = 0;
+        } else {
+            return; //unfinished games say nothing about a move
+        }
+        this.shard.get().add(this.positionKey.applyAsLong(board), PolyglotBook.encodeMove(move), wins, draws, losses);
+    }
+
+    @Override
+    public void handleGame(final PgnGame game,
+                           final Board finalBoard) {
+        this.gamesAdded.increment();
+    }
+
+    //returns the number of records written, the builder can't take more games afterwards
+    public long write(final Path path) throws IOException {
+        final MoveStatsTable[] tables = this.shards.toArray(new MoveStatsTable[0]);
+        Arrays.stream(tables).parallel().forEach(MoveStatsTable::sort);
+        final long[] cursors = new long[tables.length];
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        long written = 0;
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (true) {
+                //the shards are few (one per thread), a linear scan for the smallest head is enough
+                int smallest = -1;
+                for (int i = 0; i < tables.length; i++) {
+                    if (cursors[i] < tables[i].size() &&
+                            (smallest == -1 || compare(tables[i], cursors[i], tables[smallest], cursors[smallest]) < 0)) {
+                        smallest = i;
+                    }
+                }
+                if (smallest == -1) {
+                    break;
+                }
+                final long key = tables[smallest].getKey(cursors[smallest]);
+                final int move = tables[smallest].getMove(cursors[smallest]);
+                long wins = 0;
+                long draws = 0;
+                long losses = 0;
+                for (int i = 0; i < tables.length; i++) {
+                    final long cursor = cursors[i];
+                    if (cursor < tables[i].size() && tables[i].getKey(cursor) == key && tables[i].getMove(cursor) == move) {
+                        wins += tables[i].getWins(cursor);
+                        draws += tables[i].getDraws(cursor);
+                        losses += tables[i].getLosses(cursor);
+                        cursors[i]++;
+                    }
+                }
+                if (buffer.remaining() < MoveStatsTable.ENTRY_SIZE) {
+                    flush(channel, buffer);
+                }
+                buffer.putLong(key);
+                buffer.putShort((short) move);
+                buffer.putShort((short) 0);
+                buffer.putInt(saturatedInt(wins));
+                buffer.putInt(saturatedInt(draws));
+                buffer.putInt(saturatedInt(losses));
+                written++;
+            }
+            flush(channel, buffer);
+        }
+        return written;
+    }
+
+    private static int compare(final MoveStatsTable first,
+                               final long firstIndex,
+                               final MoveStatsTable second,
+                               final long secondIndex) {
+        final int byKey = Long.compareUnsigned(first.getKey(firstIndex), second.getKey(secondIndex));
+        return byKey != 0 ? byKey : Integer.compare(first.getMove(firstIndex), second.getMove(secondIndex));
+    }
+
+    private static int saturatedInt(final long value) {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    private static void flush(final FileChannel channel,
+                              final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
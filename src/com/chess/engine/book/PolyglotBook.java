@@ -0,0 +1,186 @@
+package com.chess.engine.book;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.pieces.Piece;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+//An opening book in the Polyglot .bin format, memory mapped.
+//Entries are 16 big endian bytes sorted by key: key (8), move (2), weight (2), learn (4).
+//The book is only ever read with absolute gets, so any number of threads can probe it at once without locking.
+public class PolyglotBook {
+
+    private static final int ENTRY_SIZE = 16;
+    private static final int MOVE_OFFSET = 8;
+    private static final int WEIGHT_OFFSET = 10;
+
+    private final ByteBuffer entries;
+    private final int numEntries;
+    private final PolyglotKeys keys;
+
+    //ctor
+    private PolyglotBook(final ByteBuffer entries,
+                         final PolyglotKeys keys) {
+        this.entries = entries;
+        this.numEntries = entries.capacity() / ENTRY_SIZE;
+        this.keys = keys;
+    }
+
+    public static PolyglotBook open(final Path path) throws IOException {
+        return open(path, new PolyglotKeys());
+    }
+
+    public static PolyglotBook open(final Path path,
+                                    final PolyglotKeys keys) throws IOException {
+        //the mapping stays valid after the channel is closed
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new RuntimeException("Polyglot book is too large to map: " + path);
+            }
+            return new PolyglotBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), keys);
+        }
+    }
+
+    public int size() {
+        return this.numEntries;
+    }
+
+    public PolyglotKeys getKeys() {
+        return this.keys;
+    }
+
+    public int countEntries(final Board board) {
+        final long key = this.keys.computeKey(board);
+        int count = 0;
+        for (int i = lowerBound(key); i < this.numEntries && entryKey(i) == key; i++) {
+            count++;
+        }
+        return count;
+    }
+
+    //a book move picked with probability proportional to its weight, NULL_MOVE once out of book
+    public Move probe(final Board board) {
+        return probe(board, ThreadLocalRandom.current());
+    }
+
+    public Move probe(final Board board,
+                      final Random random) {
+        final long key = this.keys.computeKey(board);
+        final int first = lowerBound(key);
+        long totalWeight = 0;
+        int end = first;
+        for (; end < this.numEntries && entryKey(end) == key; end++) {
+            totalWeight += entryWeight(end);
+        }
+        if (totalWeight == 0) {
+            return Move.NULL_MOVE;
+        }
+        long pick = (long) (random.nextDouble() * totalWeight);
+        for (int i = first; i < end; i++) {
+            pick -= entryWeight(i);
+            if (pick < 0) {
+                return decodeMove(board, entryMove(i));
+            }
+        }
+        return decodeMove(board, entryMove(end - 1));
+    }
+
+    public Move getBestMove(final Board board) {
+        final long key = this.keys.computeKey(board);
+        int best = -1;
+        for (int i = lowerBound(key); i < this.numEntries && entryKey(i) == key; i++) {
+            if (best == -1 || entryWeight(i) > entryWeight(best)) {
+                best = i;
+            }
+        }
+        return best == -1 ? Move.NULL_MOVE : decodeMove(board, entryMove(best));
+    }
+
+    private long entryKey(final int index) {
+        return this.entries.getLong(index * ENTRY_SIZE);
+    }
+
+    private int entryMove(final int index) {
+        return this.entries.getShort(index * ENTRY_SIZE + MOVE_OFFSET) & 0xFFFF;
+    }
+
+    private int entryWeight(final int index) {
+        return this.entries.getShort(index * ENTRY_SIZE + WEIGHT_OFFSET) & 0xFFFF;
+    }
+
+    //first entry whose key is not below the given one, keys are sorted as unsigned numbers
+    private int lowerBound(final long key) {
+        int low = 0;
+        int high = this.numEntries;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(entryKey(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    //bits 0-5 to square, 6-11 from square, 12-14 promotion piece (1 knight, 2 bishop, 3 rook, 4 queen).
+    //Castling is written as the king taking its own rook: e1h1, e1a1, e8h8, e8a8.
+    static Move decodeMove(final Board board,
+                           final int polyglotMove) {
+        final int to = boardCoordinate(polyglotMove & 0x3F);
+        final int from = boardCoordinate((polyglotMove >>> 6) & 0x3F);
+        final int promotion = (polyglotMove >>> 12) & 0x7;
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            if (move.getCurrentCoordinate() != from) {
+                continue;
+            }
+            if (move instanceof Move.CastleMove) {
+                if (((Move.CastleMove) move).getCastleRook().getPiecePosition() == to) {
+                    return move;
+                }
+            } else if (move.getDestinationCoordinate() == to) {
+                if (move instanceof Move.PawnPromotion) {
+                    if (promotionCode(((Move.PawnPromotion) move).getPromotedPiece().getPieceType()) == promotion) {
+                        return move;
+                    }
+                } else if (promotion == 0) {
+                    return move;
+                }
+            }
+        }
+        return Move.NULL_MOVE;
+    }
+
+    static int encodeMove(final Move move) {
+        final int to = move instanceof Move.CastleMove ?
+                       ((Move.CastleMove) move).getCastleRook().getPiecePosition() :
+                       move.getDestinationCoordinate();
+        int encoded = PolyglotKeys.polyglotSquare(to) | (PolyglotKeys.polyglotSquare(move.getCurrentCoordinate()) << 6);
+        if (move instanceof Move.PawnPromotion) {
+            encoded |= promotionCode(((Move.PawnPromotion) move).getPromotedPiece().getPieceType()) << 12;
+        }
+        return encoded;
+    }
+
+    private static int promotionCode(final Piece.PieceType pieceType) {
+        switch (pieceType) {
+            case KNIGHT: return 1;
+            case BISHOP: return 2;
+            case ROOK: return 3;
+            case QUEEN: return 4;
+            default: return 0;
+        }
+    }
+
+    //polyglot squares are the board coordinates mirrored over the middle row, so the mapping is its own inverse
+    private static int boardCoordinate(final int polyglotSquare) {
+        return PolyglotKeys.polyglotSquare(polyglotSquare);
+    }
+}
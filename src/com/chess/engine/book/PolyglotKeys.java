@@ -0,0 +1,152 @@
+package com.chess.engine.book;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Tile;
+import com.chess.engine.pieces.Pawn;
+import com.chess.engine.pieces.Piece;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//Polyglot position keys. They are Zobrist keys over the fixed Random64 table published with the
+//Polyglot book format, so keys computed here match every .bin book in the wild.
+//The table is read from its published form (for instance the Random64 array of Polyglot's book.c),
+//by default from RANDOM64_RESOURCE next to this class, and checked against the documented key of the start position.
+public final class PolyglotKeys {
+
+    public static final int NUM_RANDOMS = 781;
+
+    private static final int CASTLE_OFFSET = 768;
+    private static final int EN_PASSANT_OFFSET = 772;
+    private static final int TURN_OFFSET = 780;
+    private static final long START_POSITION_KEY = 0x463B96181691FC9CL;
+    private static final String RANDOM64_RESOURCE = "polyglot-random64.txt";
+
+    private final long[] random64;
+
+    //ctor
+    public PolyglotKeys() {
+        this(standardRandom64());
+    }
+
+    public PolyglotKeys(final long[] random64) {
+        if (random64.length != NUM_RANDOMS) {
+            throw new RuntimeException("The Polyglot table has " + NUM_RANDOMS + " keys, got " + random64.length);
+        }
+        this.random64 = random64.clone();
+        if (computeKey(Board.createStandardBoard()) != START_POSITION_KEY) {
+            throw new RuntimeException("Not the Polyglot Random64 table, the start position key doesn't match!");
+        }
+    }
+
+    //reads the first 781 hexadecimal literals (0x...) of the file, whatever surrounds them
+    public static PolyglotKeys load(final Path path) throws IOException {
+        return new PolyglotKeys(parse(new String(Files.readAllBytes(path), StandardCharsets.US_ASCII), path.toString()));
+    }
+
+    private static long[] standardRandom64() {
+        if (Random64.RANDOM64 == null) {
+            throw new RuntimeException("The Polyglot Random64 table " + RANDOM64_RESOURCE + " isn't on the class path!");
+        }
+        return Random64.RANDOM64;
+    }
+
+    private static long[] parse(final String text,
+                                final String source) {
+        final long[] random64 = new long[NUM_RANDOMS];
+        int count = 0;
+        int i = text.indexOf("0x");
+        while (i != -1 && count < NUM_RANDOMS) {
+            long value = 0;
+            int digits = 0;
+            int j = i + 2;
+            for (; j < text.length() && Character.digit(text.charAt(j), 16) != -1; j++) {
+                value = (value << 4) | Character.digit(text.charAt(j), 16);
+                digits++;
+            }
+            if (digits == 16) {
+                random64[count++] = value;
+            }
+            i = text.indexOf("0x", j);
+        }
+        if (count != NUM_RANDOMS) {
+            throw new RuntimeException("Expected " + NUM_RANDOMS + " 64 bit keys in " + source + ", found " + count);
+        }
+        return random64;
+    }
+
+    //the standard table, read the first time a PolyglotKeys is made without one, null if it isn't there
+    private static final class Random64 {
+
+        private static final long[] RANDOM64 = read();
+
+        private static long[] read() {
+            try (final InputStream in = PolyglotKeys.class.getResourceAsStream(RANDOM64_RESOURCE)) {
+                if (in == null) {
+                    return null;
+                }
+                return parse(new String(in.readAllBytes(), StandardCharsets.US_ASCII), RANDOM64_RESOURCE);
+            } catch (final IOException e) {
+                throw new RuntimeException("Failed to read the Polyglot Random64 table " + RANDOM64_RESOURCE, e);
+            }
+        }
+    }
+
+    //black pawn 0, white pawn 1, black knight 2 ... white king 11, PieceType is in the same order
+    private static int pieceKind(final Piece piece) {
+        return 2 * piece.getPieceType().ordinal() + (piece.getPieceAlliance().isWhite() ? 1 : 0);
+    }
+
+    //Polyglot counts rows from rank 1, the board counts tiles from a8
+    static int polyglotSquare(final int coordinate) {
+        final int row = BoardUtils.NUM_TILES_PER_ROW - 1 - coordinate / BoardUtils.NUM_TILES_PER_ROW;
+        return row * BoardUtils.NUM_TILES_PER_ROW + coordinate % BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    public long computeKey(final Board board) {
+        long key = 0L;
+        for (final Piece piece : board.getWhitePieces()) {
+            key ^= this.random64[64 * pieceKind(piece) + polyglotSquare(piece.getPiecePosition())];
+        }
+        for (final Piece piece : board.getBlackPieces()) {
+            key ^= this.random64[64 * pieceKind(piece) + polyglotSquare(piece.getPiecePosition())];
+        }
+        final int castlingRights = board.getCastlingRights();
+        for (int i = 0; i < 4; i++) {
+            if ((castlingRights & (1 << i)) != 0) {
+                key ^= this.random64[CASTLE_OFFSET + i];
+            }
+        }
+        if (isEnPassantCapturable(board)) {
+            key ^= this.random64[EN_PASSANT_OFFSET + board.getEnPassantPawn().getPiecePosition() % BoardUtils.NUM_TILES_PER_ROW];
+        }
+        if (board.currentPlayer().getAlliance().isWhite()) {
+            key ^= this.random64[TURN_OFFSET];
+        }
+        return key;
+    }
+
+    //Polyglot only hashes the en passant file if a pawn of the side to move stands next to the jumped pawn
+    private static boolean isEnPassantCapturable(final Board board) {
+        final Pawn enPassantPawn = board.getEnPassantPawn();
+        if (enPassantPawn == null) {
+            return false;
+        }
+        final int position = enPassantPawn.getPiecePosition();
+        return (!BoardUtils.FIRST_COLUMN[position] && isCapturingPawn(board, position - 1, enPassantPawn)) ||
+               (!BoardUtils.EIGHTH_COLUMN[position] && isCapturingPawn(board, position + 1, enPassantPawn));
+    }
+
+    private static boolean isCapturingPawn(final Board board,
+                                           final int coordinate,
+                                           final Pawn enPassantPawn) {
+        final Tile tile = board.getTile(coordinate);
+        return tile.isTileOccupied() &&
+               tile.getPiece().getPieceType() == Piece.PieceType.PAWN &&
+               tile.getPiece().getPieceAlliance() != enPassantPawn.getPieceAlliance();
+    }
+}
@@ -0,0 +1,142 @@
+package com.chess.engine.game;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.MoveTransition;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+public class Game {
+
+    //only keys since the last irreversible move can repeat, and the fifty-move rule
+    //keeps that window short, so a small ring of keys is enough
+    private static final int KEY_RING_SIZE = 256; //must be a power of two
+    private static final int KEY_RING_MASK = KEY_RING_SIZE - 1;
+    private static final int FIFTY_MOVE_RULE_PLIES = 100;
+    private static final int THREEFOLD_REPETITION_COUNT = 3;
+
+    private final long[] keyRing;
+    private final Deque<UndoEntry> undoStack;
+    private Board currentBoard;
+    private int ply;
+    private int halfmoveClock;
+
+    //ctor
+    public Game(final Board startBoard) {
+        this(startBoard, 0);
+    }
+
+    public Game(final Board startBoard,
+                final int halfmoveClock) {
+        this.keyRing = new long[KEY_RING_SIZE];
+        this.undoStack = new ArrayDeque<>();
+        this.currentBoard = startBoard;
+        this.ply = 0;
+        this.halfmoveClock = halfmoveClock;
+        this.keyRing[0] = startBoard.getZobristKey();
+    }
+
+    public static Game createStandardGame() {
+        return new Game(Board.createStandardBoard());
+    }
+
+    public Board getCurrentBoard() {
+        return this.currentBoard;
+    }
+
+    public int getPly() {
+        return this.ply;
+    }
+
+    public int getHalfmoveClock() {
+        return this.halfmoveClock;
+    }
+
+    //plays the move for the side to move, the game is left untouched unless the move is done
+    public MoveTransition makeMove(final Move move) {
+        final MoveTransition transition = this.currentBoard.currentPlayer().makeMove(move);
+        if (transition.getMoveStatus().isDone()) {
+            final int slot = (this.ply + 1) & KEY_RING_MASK;
+            this.undoStack.push(new UndoEntry(this.currentBoard, this.halfmoveClock, this.keyRing[slot]));
+            this.currentBoard = transition.getTransitionBoard();
+            this.halfmoveClock = isIrreversible(move) ? 0 : this.halfmoveClock + 1;
+            this.ply++;
+            this.keyRing[slot] = this.currentBoard.getZobristKey();
+        }
+        return transition;
+    }
+
+    public boolean canUndoMove() {
+        return !this.undoStack.isEmpty();
+    }
+
+    public Board undoMove() {
+        if (this.undoStack.isEmpty()) {
+            throw new RuntimeException("There is no move to undo!");
+        }
+        final UndoEntry entry = this.undoStack.pop();
+        //give the slot back the key of the older ply it replaced, so long games undo exactly
+        this.keyRing[this.ply & KEY_RING_MASK] = entry.overwrittenKey;
+        this.currentBoard = entry.board;
+        this.halfmoveClock = entry.halfmoveClock;
+        this.ply--;
+        return this.currentBoard;
+    }
+
+    //captures and pawn moves can never be taken back, so no earlier position can come again
+    public static boolean isIrreversible(final Move move) {
+        return move.isAttack() || move.getMovedPiece().getPieceType() == Piece.PieceType.PAWN;
+    }
+
+    //number of times the current position occurred, the current occurrence included
+    public int repetitionCount() {
+        final long currentKey = this.keyRing[this.ply & KEY_RING_MASK];
+        final int searchDepth = Math.min(Math.min(this.halfmoveClock, this.ply), KEY_RING_SIZE - 1);
+        int count = 1;
+        //same side to move only, so step back two plies at a time
+        for (int back = 2; back <= searchDepth; back += 2) {
+            if (this.keyRing[(this.ply - back) & KEY_RING_MASK] == currentKey) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isRepetition() {
+        return repetitionCount() > 1;
+    }
+
+    public boolean isThreefoldRepetition() {
+        return repetitionCount() >= THREEFOLD_REPETITION_COUNT;
+    }
+
+    public boolean isFiftyMoveRule() {
+        return this.halfmoveClock >= FIFTY_MOVE_RULE_PLIES;
+    }
+
+    public boolean isDraw() {
+        return this.currentBoard.currentPlayer().isInStaleMate() ||
+               isFiftyMoveRule() ||
+               isThreefoldRepetition();
+    }
+
+    public boolean isOver() {
+        return this.currentBoard.currentPlayer().isInCheckMate() || isDraw();
+    }
+
+    private static final class UndoEntry {
+        private final Board board;
+        private final int halfmoveClock;
+        private final long overwrittenKey;
+
+        private UndoEntry(final Board board,
+                          final int halfmoveClock,
+                          final long overwrittenKey) {
+            this.board = board;
+            this.halfmoveClock = halfmoveClock;
+            this.overwrittenKey = overwrittenKey;
+        }
+    }
+}
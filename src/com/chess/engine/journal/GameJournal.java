@@ -0,0 +1,419 @@
+package com.chess.engine.journal;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Append-only journal of game events in memory mapped segment files, so games survive a restart without a database.
+//Records are 16 bytes: game id (8), clock (4), move (2), check (1), type (1).
+//The type byte is written last and segments start zeroed, so a record that was never finished reads as empty.
+//
+//Appending is a put into mapped memory under a short lock: the writer takes the next slot, maps a new segment
+//first if the slot starts one, writes and publishes. A segment that can't be mapped fails that append and
+//leaves the journal as it was, no slot is ever left reserved and unpublished for the writers behind it.
+//A flusher thread forces the written range to disk every flush interval, one force for every record written
+//since the last one (group commit). awaitDurable() waits for that when a caller needs it, append never does.
+public class GameJournal implements Closeable {
+
+    public static final int RECORD_SIZE = 16;
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    public static final long DEFAULT_FLUSH_INTERVAL_MICROS = 1000;
+
+    private static final byte START = 1;
+    private static final byte MOVE = 2;
+    private static final byte END = 3;
+    private static final int CLOCK_OFFSET = 8;
+    private static final int MOVE_OFFSET = 12;
+    private static final int CHECK_OFFSET = 14;
+    private static final int TYPE_OFFSET = 15;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ReentrantLock segmentLock;
+    private volatile MappedByteBuffer[] segments;
+    private final ReentrantLock appendLock;
+    private final AtomicLong published;
+    private final AtomicLong nextGameId;
+    private final ReentrantLock durableLock;
+    private final Condition durableAdvanced;
+    private volatile long durable;
+    private volatile boolean closed;
+    private final Thread flusher;
+    private final long recoveredEnd;
+
+    //ctor
+    private GameJournal(final Path directory,
+                        final int segmentSize,
+                        final long flushIntervalMicros) throws IOException {
+        if (segmentSize <= 0 || segmentSize % RECORD_SIZE != 0) {
+            throw new RuntimeException("Segment size must be a positive multiple of " + RECORD_SIZE);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.segmentLock = new ReentrantLock();
+        this.segments = mapExistingSegments();
+        this.recoveredEnd = findEnd();
+        this.appendLock = new ReentrantLock();
+        this.published = new AtomicLong(this.recoveredEnd);
+        this.durable = this.recoveredEnd;
+        this.nextGameId = new AtomicLong(maxGameId() + 1);
+        this.durableLock = new ReentrantLock();
+        this.durableAdvanced = this.durableLock.newCondition();
+        this.flusher = new Thread(() -> flushLoop(flushIntervalMicros), "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public static GameJournal open(final Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_FLUSH_INTERVAL_MICROS);
+    }
+
+    public static GameJournal open(final Path directory,
+                                   final int segmentSize,
+                                   final long flushIntervalMicros) throws IOException {
+        return new GameJournal(directory, segmentSize, flushIntervalMicros);
+    }
+
+    //ids are never reused, not even across restarts
+    public long newGameId() {
+        return this.nextGameId.getAndIncrement();
+    }
+
+    //a game from the standard position, playerAlliance is whatever side the owner wants back on recovery
+    public long startGame(final long gameId,
+                          final Alliance playerAlliance,
+                          final int clock) {
+        return append(gameId, clock, playerAlliance.ordinal(), START);
+    }
+
+    public long appendMove(final long gameId,
+                           final Move move,
+                           final int clock) {
+        return append(gameId, clock, Move.MoveFactory.encodeMove(move), MOVE);
+    }
+
+    //the game is left out of recovery
+    public long endGame(final long gameId) {
+        return append(gameId, 0, 0, END);
+    }
+
+    //returns the journal position after the record, for awaitDurable()
+    private long append(final long gameId,
+                        final int clock,
+                        final int move,
+                        final byte type) {
+        if (this.closed) {
+            throw new RuntimeException("The journal is closed!");
+        }
+        //a lock rather than synchronized, a virtual thread waiting for it gives its carrier back
+        this.appendLock.lock();
+        try {
+            final long position = this.published.get();
+            //throws before anything is written if the segment can't be mapped
+            final MappedByteBuffer segment = segment((int) (position / this.segmentSize));
+            final int offset = (int) (position % this.segmentSize);
+            segment.putLong(offset, gameId);
+            segment.putInt(offset + CLOCK_OFFSET, clock);
+            segment.putShort(offset + MOVE_OFFSET, (short) move);
+            segment.put(offset + CHECK_OFFSET, check(gameId, clock, move, type));
+            segment.put(offset + TYPE_OFFSET, type);
+            this.published.set(position + RECORD_SIZE);
+            return position + RECORD_SIZE;
+        } finally {
+            this.appendLock.unlock();
+        }
+    }
+
+    private static byte check(final long gameId,
+                              final int clock,
+                              final int move,
+                              final byte type) {
+        long h = gameId * 0x9E3779B97F4A7C15L ^ clock * 0xC2B2AE3D27D4EB4FL ^ ((move & 0xFFFFL) << 8 | type);
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (byte) (h >>> 56);
+    }
+
+    //waits until the record ending at position has been forced to disk
+    public void awaitDurable(final long position) throws InterruptedException {
+        if (this.durable >= position) {
+            return;
+        }
+        this.durableLock.lock();
+        try {
+            while (this.durable < position) {
+                this.durableAdvanced.await();
+            }
+        } finally {
+            this.durableLock.unlock();
+        }
+    }
+
+    private void flushLoop(final long flushIntervalMicros) {
+        while (!this.closed) {
+            flush();
+            try {
+                TimeUnit.MICROSECONDS.sleep(flushIntervalMicros);
+            } catch (final InterruptedException e) {
+                break;
+            }
+        }
+        flush();
+    }
+
+    private void flush() {
+        final long end = this.published.get();
+        long start = this.durable;
+        if (start == end) {
+            return;
+        }
+        while (start < end) {
+            final int segmentIndex = (int) (start / this.segmentSize);
+            final int offset = (int) (start % this.segmentSize);
+            final int length = (int) Math.min(end - start, this.segmentSize - offset);
+            segment(segmentIndex).force(offset, length);
+            start += length;
+        }
+        this.durableLock.lock();
+        try {
+            this.durable = end;
+            this.durableAdvanced.signalAll();
+        } finally {
+            this.durableLock.unlock();
+        }
+    }
+
+    private MappedByteBuffer segment(final int index) {
+        final MappedByteBuffer[] current = this.segments;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        //a new segment every segmentSize bytes, rare enough for a lock
+        this.segmentLock.lock();
+        try {
+            MappedByteBuffer[] grown = this.segments;
+            if (index >= grown.length) {
+                grown = Arrays.copyOf(grown, Math.max(index + 1, grown.length * 2));
+            }
+            if (grown[index] == null) {
+                grown[index] = mapSegment(index);
+            }
+            this.segments = grown;
+            return grown[index];
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not create journal segment " + index, e);
+        } finally {
+            this.segmentLock.unlock();
+        }
+    }
+
+    private Path segmentPath(final int index) {
+        return this.directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer mapSegment(final int index) throws IOException {
+        try (final FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //mapping past the end grows the file, the new bytes are zero
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+        }
+    }
+
+    private MappedByteBuffer[] mapExistingSegments() throws IOException {
+        int count = 0;
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (final Path ignored : files) {
+                count++;
+            }
+        }
+        final MappedByteBuffer[] existing = new MappedByteBuffer[Math.max(count, 1)];
+        for (int i = 0; i < count; i++) {
+            if (!Files.exists(segmentPath(i))) {
+                throw new RuntimeException("Journal segment " + i + " is missing in " + this.directory);
+            }
+            existing[i] = mapSegment(i);
+        }
+        return existing;
+    }
+
+    private int numSegments() {
+        int count = 0;
+        for (final MappedByteBuffer segment : this.segments) {
+            if (segment != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //just past the last record that was started, in the last segment that was written to
+    private long findEnd() {
+        for (int index = numSegments() - 1; index >= 0; index--) {
+            final MappedByteBuffer segment = this.segments[index];
+            for (int offset = this.segmentSize - RECORD_SIZE; offset >= 0; offset -= RECORD_SIZE) {
+                if (segment.getLong(offset) != 0 || segment.getLong(offset + 8) != 0) {
+                    return (long) index * this.segmentSize + offset + RECORD_SIZE;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private long maxGameId() {
+        long max = 0;
+        for (long position = 0; position < this.recoveredEnd; position += RECORD_SIZE) {
+            final MappedByteBuffer segment = this.segments[(int) (position / this.segmentSize)];
+            final int offset = (int) (position % this.segmentSize);
+            if (segment.get(offset + TYPE_OFFSET) != 0) {
+                max = Math.max(max, segment.getLong(offset));
+            }
+        }
+        return max;
+    }
+
+    //Rebuilds every game that was started and not ended before the journal was opened.
+    //Each worker scans the whole journal but only replays the games that hash to it, so the records of a game
+    //stay in order and no worker shares a game. Moves were legal when they were journaled, so they are
+    //replayed straight through Move.execute() without the legality check.
+    public Map<Long, RecoveredGame> recover(final int numWorkers) throws InterruptedException {
+        final ExecutorService workers = Executors.newFixedThreadPool(numWorkers);
+        try {
+            final List<Future<Map<Long, RecoveredGame>>> shards = new ArrayList<>();
+            for (int i = 0; i < numWorkers; i++) {
+                final int worker = i;
+                shards.add(workers.submit(() -> recoverShard(worker, numWorkers)));
+            }
+            final Map<Long, RecoveredGame> games = new ConcurrentHashMap<>();
+            for (final Future<Map<Long, RecoveredGame>> shard : shards) {
+                games.putAll(shard.get());
+            }
+            return games;
+        } catch (final ExecutionException e) {
+            throw new RuntimeException("Journal recovery failed", e.getCause());
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private Map<Long, RecoveredGame> recoverShard(final int worker,
+                                                  final int numWorkers) {
+        final Map<Long, RecoveredGame> games = new HashMap<>();
+        final Board standardBoard = Board.createStandardBoard();
+        for (long position = 0; position < this.recoveredEnd; position += RECORD_SIZE) {
+            final MappedByteBuffer segment = this.segments[(int) (position / this.segmentSize)];
+            final int offset = (int) (position % this.segmentSize);
+            final byte type = segment.get(offset + TYPE_OFFSET);
+            if (type == 0) {
+                continue; //reserved but never written before the crash
+            }
+            final long gameId = segment.getLong(offset);
+            if (Math.floorMod(Long.hashCode(gameId), numWorkers) != worker) {
+                continue;
+            }
+            final int clock = segment.getInt(offset + CLOCK_OFFSET);
+            final int move = segment.getShort(offset + MOVE_OFFSET) & 0xFFFF;
+            if (segment.get(offset + CHECK_OFFSET) != check(gameId, clock, move, type)) {
+                continue; //torn by a power loss
+            }
+            if (type == START) {
+                games.put(gameId, new RecoveredGame(gameId, standardBoard, Alliance.values()[move], clock, 0));
+            } else if (type == END) {
+                games.remove(gameId);
+            } else if (type == MOVE) {
+                final RecoveredGame game = games.get(gameId);
+                if (game == null) {
+                    continue; //its start record was lost
+                }
+                final Move replayed = Move.MoveFactory.createMove(game.board, move);
+                if (replayed == Move.NULL_MOVE) {
+                    throw new RuntimeException("Journaled move " + move + " does not fit game " + gameId);
+                }
+                games.put(gameId, new RecoveredGame(gameId, replayed.execute(), game.playerAlliance, clock, game.ply + 1));
+            }
+        }
+        return games;
+    }
+
+    public long size() {
+        return this.published.get() / RECORD_SIZE;
+    }
+
+    //forces everything appended so far and stops the flusher, appending afterwards fails
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.flusher.interrupt();
+        try {
+            this.flusher.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public static final class RecoveredGame {
+        private final long gameId;
+        private final Board board;
+        private final Alliance playerAlliance;
+        private final int clock;
+        private final int ply;
+
+        private RecoveredGame(final long gameId,
+                              final Board board,
+                              final Alliance playerAlliance,
+                              final int clock,
+                              final int ply) {
+            this.gameId = gameId;
+            this.board = board;
+            this.playerAlliance = playerAlliance;
+            this.clock = clock;
+            this.ply = ply;
+        }
+
+        public long getGameId() {
+            return this.gameId;
+        }
+
+        public Board getBoard() {
+            return this.board;
+        }
+
+        public Alliance getPlayerAlliance() {
+            return this.playerAlliance;
+        }
+
+        //clock of the last record of the game
+        public int getClock() {
+            return this.clock;
+        }
+
+        public int getPly() {
+            return this.ply;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.chess.engine.notation;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.pieces.Piece;
+
+//Long algebraic moves as UCI speaks them: from tile, to tile and a lower case promotion piece (e2e4, e7e8q).
+//Castling is written as the king's move (e1g1), the null move as 0000.
+public class CoordinateNotation {
+
+    private CoordinateNotation() {
+        throw new RuntimeException("You cannot instantiate me!");
+    }
+
+    public static String toString(final Move move) {
+        return write(move, new StringBuilder(5)).toString();
+    }
+
+    public static StringBuilder write(final Move move,
+                                      final StringBuilder builder) {
+        if (move == Move.NULL_MOVE) {
+            return builder.append("0000");
+        }
+        final int from = move.getCurrentCoordinate();
+        final int to = move.getDestinationCoordinate();
+        builder.append(BoardUtils.getFileCharacter(from)).append(BoardUtils.getRankCharacter(from));
+        builder.append(BoardUtils.getFileCharacter(to)).append(BoardUtils.getRankCharacter(to));
+        if (move instanceof Move.PawnPromotion) {
+            builder.append(Character.toLowerCase(((Move.PawnPromotion) move).getPromotedPiece().getPieceType().toString().charAt(0)));
+        }
+        return builder;
+    }
+
+    public static Move parse(final Board board,
+                             final CharSequence move) {
+        return parse(board, move, 0, move.length());
+    }
+
+    //NULL_MOVE if the side to move has no such move
+    public static Move parse(final Board board,
+                             final CharSequence move,
+                             final int start,
+                             final int end) {
+        final int length = end - start;
+        if (length != 4 && length != 5) {
+            throw new RuntimeException("Not a coordinate move: " + move.subSequence(start, end));
+        }
+        final int from = BoardUtils.getCoordinate(move.charAt(start), move.charAt(start + 1));
+        final int to = BoardUtils.getCoordinate(move.charAt(start + 2), move.charAt(start + 3));
+        if (from == -1 || to == -1) {
+            throw new RuntimeException("Not a coordinate move: " + move.subSequence(start, end));
+        }
+        final char promotion = length == 5 ? Character.toUpperCase(move.charAt(start + 4)) : 0;
+        for (final Move candidate : board.currentPlayer().getLegalMoves()) {
+            if (candidate.getCurrentCoordinate() != from || candidate.getDestinationCoordinate() != to) {
+                continue;
+            }
+            if (candidate instanceof Move.PawnPromotion) {
+                final Piece promotedPiece = ((Move.PawnPromotion) candidate).getPromotedPiece();
+                if (promotedPiece.getPieceType().toString().charAt(0) == promotion) {
+                    return candidate;
+                }
+            } else if (promotion == 0) {
+                return candidate;
+            }
+        }
+        return Move.NULL_MOVE;
+    }
+}
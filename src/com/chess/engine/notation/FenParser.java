@@ -0,0 +1,288 @@
+package com.chess.engine.notation;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.pieces.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+//Reads Forsyth-Edwards Notation straight into a Board.Builder.
+//The parser walks the input by index, it never splits, copies or substrings it,
+//so a single instance can be reused for millions of positions (one per thread, it keeps state).
+//
+//rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1
+//placement          side castling en-passant halfmove-clock fullmove-number
+//The two counters are optional, EPD style records often leave them out.
+public class FenParser {
+
+    private final char[] placement;
+    private CharSequence chars;
+    private ByteBuffer bytes;
+    private int index;
+    private int end;
+    private int halfmoveClock;
+    private int fullmoveNumber;
+
+    //ctor
+    public FenParser() {
+        this.placement = new char[BoardUtils.NUM_TILES];
+    }
+
+    public Board parse(final CharSequence fen) {
+        return parse(fen, 0, fen.length());
+    }
+
+    public Board parse(final CharSequence fen,
+                       final int start,
+                       final int end) {
+        this.chars = fen;
+        this.bytes = null;
+        return parse(start, end);
+    }
+
+    //absolute indexes, the position and limit of the buffer are not touched
+    public Board parse(final ByteBuffer buffer,
+                       final int start,
+                       final int end) {
+        this.chars = null;
+        this.bytes = buffer;
+        return parse(start, end);
+    }
+
+    //counters of the last parsed position
+    public int getHalfmoveClock() {
+        return this.halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return this.fullmoveNumber;
+    }
+
+    private Board parse(final int start,
+                        final int end) {
+        this.index = start;
+        this.end = end;
+        try {
+            final Board.Builder builder = new Board.Builder();
+            readPlacement();
+            skipSeparator();
+            final Alliance nextMoveMaker = readSideToMove();
+            skipSeparator();
+            final int castlingRights = readCastlingRights();
+            skipSeparator();
+            final int enPassantTarget = readEnPassantTarget();
+            this.halfmoveClock = 0;
+            this.fullmoveNumber = 1;
+            if (skipWhitespace()) {
+                this.halfmoveClock = readNumber();
+                if (skipWhitespace()) {
+                    this.fullmoveNumber = readNumber();
+                }
+            }
+            for (int i = 0; i < BoardUtils.NUM_TILES; i++) {
+                if (this.placement[i] != 0) {
+                    builder.setPiece(createPiece(this.placement[i], i, castlingRights));
+                }
+            }
+            if (enPassantTarget != -1) {
+                builder.setEnPassantPawn(createEnPassantPawn(enPassantTarget, nextMoveMaker.isWhite() ? Alliance.BLACK : Alliance.WHITE));
+            }
+            builder.setMoveMaker(nextMoveMaker);
+            return builder.build();
+        } finally {
+            Arrays.fill(this.placement, (char) 0);
+            this.chars = null;
+            this.bytes = null;
+        }
+    }
+
+    private char charAt(final int i) {
+        return this.chars != null ? this.chars.charAt(i) : (char) (this.bytes.get(i) & 0xFF);
+    }
+
+    private char next() {
+        if (this.index >= this.end) {
+            throw error("Unexpected end of FEN");
+        }
+        return charAt(this.index++);
+    }
+
+    private RuntimeException error(final String message) {
+        return new RuntimeException(message + " at index " + this.index + ": " + subSequence());
+    }
+
+    //only used to report errors
+    private String subSequence() {
+        final StringBuilder builder = new StringBuilder();
+        final int start = this.index - Math.min(this.index, 80);
+        for (int i = start; i < this.end && i < start + 160; i++) {
+            builder.append(charAt(i));
+        }
+        return builder.toString();
+    }
+
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    //true if something other than whitespace follows
+    private boolean skipWhitespace() {
+        while (this.index < this.end && isWhitespace(charAt(this.index))) {
+            this.index++;
+        }
+        return this.index < this.end;
+    }
+
+    private void skipSeparator() {
+        if (this.index >= this.end || !isWhitespace(charAt(this.index)) || !skipWhitespace()) {
+            throw error("Missing FEN field");
+        }
+    }
+
+    private void readPlacement() {
+        int tile = 0;
+        while (this.index < this.end && !isWhitespace(charAt(this.index))) {
+            final char c = next();
+            if (c == '/') {
+                if (tile == 0 || tile % BoardUtils.NUM_TILES_PER_ROW != 0) {
+                    throw error("Misplaced rank separator");
+                }
+            } else if (c >= '1' && c <= '8') {
+                tile += c - '0';
+            } else if (isPieceCharacter(c)) {
+                if (tile >= BoardUtils.NUM_TILES) {
+                    throw error("Too many tiles");
+                }
+                this.placement[tile++] = c;
+            } else {
+                throw error("Unexpected character '" + c + "' in piece placement");
+            }
+            if (tile > BoardUtils.NUM_TILES) {
+                throw error("Too many tiles");
+            }
+        }
+        if (tile != BoardUtils.NUM_TILES) {
+            throw error("Piece placement must cover 64 tiles");
+        }
+    }
+
+    private static boolean isPieceCharacter(final char c) {
+        switch (c) {
+            case 'P': case 'N': case 'B': case 'R': case 'Q': case 'K':
+            case 'p': case 'n': case 'b': case 'r': case 'q': case 'k':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private Alliance readSideToMove() {
+        final char c = next();
+        if (c == 'w') {
+            return Alliance.WHITE;
+        } else if (c == 'b') {
+            return Alliance.BLACK;
+        }
+        throw error("Side to move must be 'w' or 'b'");
+    }
+
+    private int readCastlingRights() {
+        if (charAt(this.index) == '-') {
+            this.index++;
+            return 0;
+        }
+        int castlingRights = 0;
+        while (this.index < this.end && !isWhitespace(charAt(this.index))) {
+            final char c = next();
+            switch (c) {
+                case 'K': castlingRights |= BoardUtils.WHITE_KING_SIDE_CASTLE; break;
+                case 'Q': castlingRights |= BoardUtils.WHITE_QUEEN_SIDE_CASTLE; break;
+                case 'k': castlingRights |= BoardUtils.BLACK_KING_SIDE_CASTLE; break;
+                case 'q': castlingRights |= BoardUtils.BLACK_QUEEN_SIDE_CASTLE; break;
+                default: throw error("Unexpected castling right '" + c + "'");
+            }
+        }
+        return castlingRights;
+    }
+
+    private int readEnPassantTarget() {
+        final char file = next();
+        if (file == '-') {
+            return -1;
+        }
+        final int coordinate = BoardUtils.getCoordinate(file, next());
+        if (coordinate == -1) {
+            throw error("Invalid en passant tile");
+        }
+        return coordinate;
+    }
+
+    private int readNumber() {
+        int number = 0;
+        int digits = 0;
+        while (this.index < this.end && !isWhitespace(charAt(this.index))) {
+            final char c = next();
+            if (c < '0' || c > '9' || ++digits > 9) {
+                throw error("Invalid move counter");
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private Pawn createEnPassantPawn(final int enPassantTarget,
+                                     final Alliance pawnAlliance) {
+        //the pawn stands one tile past the tile it jumped over
+        final int pawnCoordinate = enPassantTarget + pawnAlliance.getDirection() * BoardUtils.NUM_TILES_PER_ROW;
+        final char expected = pawnAlliance.isWhite() ? 'P' : 'p';
+        if (!BoardUtils.isValidTileCoordinate(pawnCoordinate) || this.placement[pawnCoordinate] != expected) {
+            throw error("No pawn can be taken en passant on the given tile");
+        }
+        return new Pawn(pawnAlliance, pawnCoordinate, false);
+    }
+
+    //castling rights live on the king and rooks as their first move flag
+    static Piece createPiece(final char symbol,
+                             final int coordinate,
+                             final int castlingRights) {
+        final Alliance alliance = Character.isUpperCase(symbol) ? Alliance.WHITE : Alliance.BLACK;
+        switch (Character.toUpperCase(symbol)) {
+            case 'P':
+                return new Pawn(alliance, coordinate, alliance.isWhite() ? BoardUtils.SEVENTH_ROW[coordinate] :
+                                                                            BoardUtils.SECOND_ROW[coordinate]);
+            case 'N':
+                return new Knight(alliance, coordinate);
+            case 'B':
+                return new Bishop(alliance, coordinate);
+            case 'Q':
+                return new Queen(alliance, coordinate);
+            case 'R':
+                return new Rook(alliance, coordinate, isRookFirstMove(alliance, coordinate, castlingRights));
+            case 'K':
+                return new King(alliance, coordinate, isKingFirstMove(alliance, coordinate, castlingRights));
+            default:
+                throw new RuntimeException("Should not reach here! Not a piece: " + symbol);
+        }
+    }
+
+    private static boolean isKingFirstMove(final Alliance alliance,
+                                           final int coordinate,
+                                           final int castlingRights) {
+        return alliance.isWhite() ?
+               coordinate == BoardUtils.WHITE_KING_START && (castlingRights & (BoardUtils.WHITE_KING_SIDE_CASTLE | BoardUtils.WHITE_QUEEN_SIDE_CASTLE)) != 0 :
+               coordinate == BoardUtils.BLACK_KING_START && (castlingRights & (BoardUtils.BLACK_KING_SIDE_CASTLE | BoardUtils.BLACK_QUEEN_SIDE_CASTLE)) != 0;
+    }
+
+    private static boolean isRookFirstMove(final Alliance alliance,
+                                           final int coordinate,
+                                           final int castlingRights) {
+        if (alliance.isWhite()) {
+            return (coordinate == BoardUtils.WHITE_KING_SIDE_ROOK_START && (castlingRights & BoardUtils.WHITE_KING_SIDE_CASTLE) != 0) ||
+                   (coordinate == BoardUtils.WHITE_QUEEN_SIDE_ROOK_START && (castlingRights & BoardUtils.WHITE_QUEEN_SIDE_CASTLE) != 0);
+        }
+        return (coordinate == BoardUtils.BLACK_KING_SIDE_ROOK_START && (castlingRights & BoardUtils.BLACK_KING_SIDE_CASTLE) != 0) ||
+               (coordinate == BoardUtils.BLACK_QUEEN_SIDE_ROOK_START && (castlingRights & BoardUtils.BLACK_QUEEN_SIDE_CASTLE) != 0);
+    }
+}
@@ -0,0 +1,104 @@
+package com.chess.engine.notation;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Tile;
+import com.chess.engine.pieces.Pawn;
+import com.chess.engine.pieces.Piece;
+
+//Writes Forsyth-Edwards Notation into a StringBuilder owned by the caller,
+//so a whole file of positions can be written with one reused builder.
+public class FenWriter {
+
+    private FenWriter() {
+        throw new RuntimeException("You cannot instantiate me!");
+    }
+
+    public static String createFEN(final Board board) {
+        return write(board, new StringBuilder(90)).toString();
+    }
+
+    public static StringBuilder write(final Board board,
+                                      final StringBuilder builder) {
+        return write(board, 0, 1, builder);
+    }
+
+    public static StringBuilder write(final Board board,
+                                      final int halfmoveClock,
+                                      final int fullmoveNumber,
+                                      final StringBuilder builder) {
+        writePlacement(board, builder);
+        builder.append(' ').append(board.currentPlayer().getAlliance().isWhite() ? 'w' : 'b');
+        builder.append(' ');
+        writeCastlingRights(board, builder);
+        builder.append(' ');
+        writeEnPassantTarget(board, builder);
+        builder.append(' ').append(halfmoveClock);
+        builder.append(' ').append(fullmoveNumber);
+        return builder;
+    }
+
+    private static void writePlacement(final Board board,
+                                       final StringBuilder builder) {
+        int emptyTiles = 0;
+        for (int i = 0; i < BoardUtils.NUM_TILES; i++) {
+            final Tile tile = board.getTile(i);
+            if (tile.isTileOccupied()) {
+                if (emptyTiles != 0) {
+                    builder.append((char) ('0' + emptyTiles));
+                    emptyTiles = 0;
+                }
+                builder.append(pieceCharacter(tile.getPiece()));
+            } else {
+                emptyTiles++;
+            }
+            if ((i + 1) % BoardUtils.NUM_TILES_PER_ROW == 0) {
+                if (emptyTiles != 0) {
+                    builder.append((char) ('0' + emptyTiles));
+                    emptyTiles = 0;
+                }
+                if (i != BoardUtils.NUM_TILES - 1) {
+                    builder.append('/');
+                }
+            }
+        }
+    }
+
+    static char pieceCharacter(final Piece piece) {
+        final char symbol = piece.getPieceType().toString().charAt(0);
+        return piece.getPieceAlliance().isBlack() ? Character.toLowerCase(symbol) : symbol;
+    }
+
+    private static void writeCastlingRights(final Board board,
+                                            final StringBuilder builder) {
+        final int castlingRights = board.getCastlingRights();
+        if (castlingRights == 0) {
+            builder.append('-');
+            return;
+        }
+        if ((castlingRights & BoardUtils.WHITE_KING_SIDE_CASTLE) != 0) {
+            builder.append('K');
+        }
+        if ((castlingRights & BoardUtils.WHITE_QUEEN_SIDE_CASTLE) != 0) {
+            builder.append('Q');
+        }
+        if ((castlingRights & BoardUtils.BLACK_KING_SIDE_CASTLE) != 0) {
+            builder.append('k');
+        }
+        if ((castlingRights & BoardUtils.BLACK_QUEEN_SIDE_CASTLE) != 0) {
+            builder.append('q');
+        }
+    }
+
+    private static void writeEnPassantTarget(final Board board,
+                                             final StringBuilder builder) {
+        final Pawn enPassantPawn = board.getEnPassantPawn();
+        if (enPassantPawn == null) {
+            builder.append('-');
+            return;
+        }
+        final int target = enPassantPawn.getPiecePosition() -
+                           enPassantPawn.getPieceAlliance().getDirection() * BoardUtils.NUM_TILES_PER_ROW;
+        builder.append(BoardUtils.getFileCharacter(target)).append(BoardUtils.getRankCharacter(target));
+    }
+}
@@ -0,0 +1,99 @@
+package com.chess.engine.notation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Reads games on the calling thread and replays them on a fixed pool of workers.
+//The queue between them is bounded, so a reader that is faster than the workers blocks
+//instead of pulling the whole file into memory.
+public class ParallelPgnReplayer {
+
+    //tells a worker that the input is exhausted
+    private static final PgnGame END_OF_GAMES = new PgnGame(Collections.emptyMap(), new byte[0], new int[1], "*");
+
+    private final int numWorkers;
+    private final int queueCapacity;
+
+    //ctor
+    public ParallelPgnReplayer(final int numWorkers,
+                               final int queueCapacity) {
+        if (numWorkers < 1 || queueCapacity < 1) {
+            throw new RuntimeException("Need at least one worker and one queue slot!");
+        }
+        this.numWorkers = numWorkers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public ParallelPgnReplayer() {
+        this(Runtime.getRuntime().availableProcessors(), 1024);
+    }
+
+    //returns the number of games replayed without error
+    public long replay(final PgnReader reader,
+                       final PgnGameHandler handler) throws IOException, InterruptedException {
+        final BlockingQueue<PgnGame> queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        final ExecutorService workers = Executors.newFixedThreadPool(this.numWorkers);
+        final AtomicBoolean failed = new AtomicBoolean();
+        try {
+            final List<Future<Long>> results = new ArrayList<>(this.numWorkers);
+            for (int i = 0; i < this.numWorkers; i++) {
+                results.add(workers.submit(() -> replayQueue(queue, handler, failed)));
+            }
+            try {
+                PgnGame game;
+                while (!failed.get() && (game = reader.nextGame()) != null) {
+                    queue.put(game);
+                }
+            } finally {
+                for (int i = 0; i < this.numWorkers; i++) {
+                    queue.put(END_OF_GAMES);
+                }
+            }
+            long replayed = 0;
+            for (final Future<Long> result : results) {
+                replayed += result.get();
+            }
+            return replayed;
+        } catch (final ExecutionException e) {
+            throw new RuntimeException("PGN replay worker failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    //a worker that fails keeps taking games until its END_OF_GAMES, so the reader never blocks on a full queue
+    private static long replayQueue(final BlockingQueue<PgnGame> queue,
+                                    final PgnGameHandler handler,
+                                    final AtomicBoolean failed) throws InterruptedException {
+        final PgnReplayer replayer = new PgnReplayer();
+        long replayed = 0;
+        RuntimeException failure = null;
+        PgnGame game;
+        while ((game = queue.take()) != END_OF_GAMES) {
+            if (failed.get()) {
+                continue;
+            }
+            try {
+                if (replayer.replay(game, handler) != null) {
+                    replayed++;
+                }
+            } catch (final RuntimeException e) {
+                failed.set(true);
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return replayed;
+    }
+}
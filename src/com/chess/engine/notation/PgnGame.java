@@ -0,0 +1,66 @@
+package com.chess.engine.notation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+//One game as read from a PGN file: the tag pairs and the main line.
+//The SAN moves are stored back to back in a single byte[], move i is [getMoveStart(i), getMoveEnd(i)).
+public class PgnGame {
+
+    private final Map<String, String> tags;
+    private final byte[] moveText;
+    private final int[] moveOffsets;
+    private final String result;
+
+    //ctor
+    PgnGame(final Map<String, String> tags,
+            final byte[] moveText,
+            final int[] moveOffsets,
+            final String result) {
+        this.tags = Collections.unmodifiableMap(tags);
+        this.moveText = moveText;
+        this.moveOffsets = moveOffsets;
+        this.result = result;
+    }
+
+    public Map<String, String> getTags() {
+        return this.tags;
+    }
+
+    public String getTag(final String name) {
+        return this.tags.get(name);
+    }
+
+    //"1-0", "0-1", "1/2-1/2" or "*"
+    public String getResult() {
+        return this.result;
+    }
+
+    public int getMoveCount() {
+        return this.moveOffsets.length - 1;
+    }
+
+    public byte[] getMoveText() {
+        return this.moveText;
+    }
+
+    public int getMoveStart(final int ply) {
+        return this.moveOffsets[ply];
+    }
+
+    public int getMoveEnd(final int ply) {
+        return this.moveOffsets[ply + 1];
+    }
+
+    //allocates, meant for messages and debugging
+    public String getMove(final int ply) {
+        return new String(this.moveText, getMoveStart(ply), getMoveEnd(ply) - getMoveStart(ply), StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+        return this.tags.getOrDefault("White", "?") + " - " + this.tags.getOrDefault("Black", "?") +
+               " " + this.result + " (" + getMoveCount() + " plies)";
+    }
+}
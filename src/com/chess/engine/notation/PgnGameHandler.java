@@ -0,0 +1,23 @@
+package com.chess.engine.notation;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+
+//Receives replayed games. With ParallelPgnReplayer the methods are called from several worker threads at once,
+//implementations have to be thread safe.
+public interface PgnGameHandler {
+
+    //board is the position before the move
+    default void handleMove(final PgnGame game,
+                            final int ply,
+                            final Board board,
+                            final Move move) {
+    }
+
+    void handleGame(PgnGame game, Board finalBoard);
+
+    default void handleError(final PgnGame game,
+                             final int ply,
+                             final RuntimeException error) {
+    }
+}
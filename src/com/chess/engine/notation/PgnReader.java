@@ -0,0 +1,284 @@
+package com.chess.engine.notation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Streams games out of a PGN file of any size through a fixed direct buffer.
+//Move numbers, comments, variations and NAGs are skipped, the SAN tokens of the main line
+//are copied into one growing scratch array, so the only allocations per game are the game itself and its tags.
+public class PgnReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int END_OF_INPUT = -1;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] tagScratch;
+    private byte[] moveText;
+    private int moveTextLength;
+    private int[] moveOffsets;
+    private int moveCount;
+
+    //ctor
+    public PgnReader(final ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.buffer.flip();
+        this.tagScratch = new byte[4096];
+        this.moveText = new byte[2048];
+        this.moveOffsets = new int[512];
+    }
+
+    public static PgnReader open(final Path path) throws IOException {
+        return new PgnReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    //null once the input is exhausted
+    public PgnGame nextGame() throws IOException {
+        final Map<String, String> tags = new LinkedHashMap<>();
+        this.moveTextLength = 0;
+        this.moveCount = 0;
+        String result = null;
+        boolean inMoveText = false;
+        while (result == null) {
+            final int c = peek();
+            if (c == END_OF_INPUT) {
+                break;
+            } else if (isWhitespace(c) || c == ')' || c == '}' || c >= 0x80) {
+                read(); //non ASCII outside of tags and comments is a byte order mark or garbage
+            } else if (c == '[') {
+                if (inMoveText) {
+                    break; //the next game starts although this one had no result
+                }
+                readTag(tags);
+            } else if (c == ';' || c == '%') {
+                skipLine();
+            } else if (c == '{') {
+                skipComment();
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == '$') {
+                read();
+                while (isDigit(peek())) {
+                    read();
+                }
+            } else {
+                inMoveText = true;
+                result = readToken();
+            }
+        }
+        if (tags.isEmpty() && this.moveCount == 0 && result == null) {
+            return null;
+        }
+        if (result == null) {
+            result = tags.getOrDefault("Result", "*");
+        }
+        final int[] offsets = Arrays.copyOf(this.moveOffsets, this.moveCount + 1);
+        return new PgnGame(tags, Arrays.copyOf(this.moveText, this.moveTextLength), offsets, result);
+    }
+
+    private int peek() throws IOException {
+        if (!this.buffer.hasRemaining() && !fill()) {
+            return END_OF_INPUT;
+        }
+        return this.buffer.get(this.buffer.position()) & 0xFF;
+    }
+
+    private int read() throws IOException {
+        if (!this.buffer.hasRemaining() && !fill()) {
+            return END_OF_INPUT;
+        }
+        return this.buffer.get() & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        this.buffer.clear();
+        int read;
+        do {
+            read = this.channel.read(this.buffer);
+        } while (read == 0);
+        this.buffer.flip();
+        return read > 0;
+    }
+
+    private static boolean isWhitespace(final int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f';
+    }
+
+    private static boolean isDigit(final int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isDelimiter(final int c) {
+        return c == END_OF_INPUT || isWhitespace(c) || c == '{' || c == '}' || c == '(' || c == ')' ||
+               c == '[' || c == ']' || c == ';' || c == '$';
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != '\n' && c != END_OF_INPUT);
+    }
+
+    private void skipComment() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != '}' && c != END_OF_INPUT);
+    }
+
+    //variations nest and may hold comments with parentheses in them
+    private void skipVariation() throws IOException {
+        int depth = 0;
+        int c;
+        do {
+            c = read();
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                skipComment();
+            } else if (c == ';') {
+                skipLine();
+            }
+        } while (depth > 0 && c != END_OF_INPUT);
+    }
+
+    //[Name "Value"]
+    private void readTag(final Map<String, String> tags) throws IOException {
+        read();
+        int length = 0;
+        int c = read();
+        while (isWhitespace(c)) {
+            c = read();
+        }
+        while (c != END_OF_INPUT && c != '"' && c != ']' && !isWhitespace(c)) {
+            length = appendTagByte(length, c);
+            c = read();
+        }
+        final String name = new String(this.tagScratch, 0, length, StandardCharsets.US_ASCII);
+        while (c != END_OF_INPUT && c != '"' && c != ']') {
+            c = read();
+        }
+        length = 0;
+        if (c == '"') {
+            c = read();
+            while (c != END_OF_INPUT && c != '"') {
+                if (c == '\\') {
+                    c = read();
+                }
+                length = appendTagByte(length, c);
+                c = read();
+            }
+            while (c != END_OF_INPUT && c != ']') {
+                c = read();
+            }
+        }
+        tags.put(name, new String(this.tagScratch, 0, length, StandardCharsets.UTF_8));
+    }
+
+    //overlong tags are cut
+    private int appendTagByte(final int length,
+                              final int c) {
+        if (length < this.tagScratch.length && c != END_OF_INPUT) {
+            this.tagScratch[length] = (byte) c;
+            return length + 1;
+        }
+        return length;
+    }
+
+    //copies the token into the move text, keeps it if it is a move and returns the result if it ends the game
+    private String readToken() throws IOException {
+        final int start = this.moveTextLength;
+        while (!isDelimiter(peek())) {
+            appendMoveTextByte(read());
+        }
+        if (this.moveTextLength == start) {
+            read(); //a lone delimiter like ']' outside of a tag
+            return null;
+        }
+        final String result = asResult(start);
+        if (result != null || isEnPassantSuffix(start)) {
+            this.moveTextLength = start;
+            return result;
+        }
+        //move numbers, possibly glued to the move: "12." "12..." "12.Nf3"
+        int sanStart = start;
+        while (sanStart < this.moveTextLength && isDigit(this.moveText[sanStart])) {
+            sanStart++;
+        }
+        if (sanStart == this.moveTextLength || this.moveText[sanStart] == '.') {
+            while (sanStart < this.moveTextLength && this.moveText[sanStart] == '.') {
+                sanStart++;
+            }
+        } else {
+            sanStart = start; //"0-0" castles
+        }
+        if (sanStart == this.moveTextLength) {
+            this.moveTextLength = start;
+            return null;
+        }
+        if (sanStart != start) {
+            System.arraycopy(this.moveText, sanStart, this.moveText, start, this.moveTextLength - sanStart);
+            this.moveTextLength -= sanStart - start;
+        }
+        if (this.moveCount + 1 == this.moveOffsets.length) {
+            this.moveOffsets = Arrays.copyOf(this.moveOffsets, this.moveOffsets.length * 2);
+        }
+        this.moveOffsets[++this.moveCount] = this.moveTextLength;
+        return null;
+    }
+
+    private void appendMoveTextByte(final int c) {
+        if (this.moveTextLength == this.moveText.length) {
+            this.moveText = Arrays.copyOf(this.moveText, this.moveText.length * 2);
+        }
+        this.moveText[this.moveTextLength++] = (byte) c;
+    }
+
+    private String asResult(final int start) {
+        if (tokenEquals(start, "1-0")) {
+            return "1-0";
+        } else if (tokenEquals(start, "0-1")) {
+            return "0-1";
+        } else if (tokenEquals(start, "1/2-1/2")) {
+            return "1/2-1/2";
+        } else if (tokenEquals(start, "*")) {
+            return "*";
+        }
+        return null;
+    }
+
+    private boolean isEnPassantSuffix(final int start) {
+        return tokenEquals(start, "e.p.") || tokenEquals(start, "ep");
+    }
+
+    private boolean tokenEquals(final int start,
+                                final String text) {
+        if (this.moveTextLength - start != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (this.moveText[start + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
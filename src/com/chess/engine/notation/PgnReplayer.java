@@ -0,0 +1,48 @@
+package com.chess.engine.notation;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.player.MoveTransition;
+
+//Replays the main line of a PgnGame move by move. Holds its own parsers, use one per thread.
+public class PgnReplayer {
+
+    //boards are immutable, so every game can start from the same instance
+    private static final Board STANDARD_BOARD = Board.createStandardBoard();
+
+    private final SanParser sanParser;
+    private final FenParser fenParser;
+
+    //ctor
+    public PgnReplayer() {
+        this.sanParser = new SanParser();
+        this.fenParser = new FenParser();
+    }
+
+    public Board createStartBoard(final PgnGame game) {
+        final String fen = game.getTag("FEN");
+        return fen != null ? this.fenParser.parse(fen) : STANDARD_BOARD;
+    }
+
+    //the final board, or null if a move could not be replayed (the handler is told why)
+    public Board replay(final PgnGame game,
+                        final PgnGameHandler handler) {
+        int ply = 0;
+        try {
+            Board board = createStartBoard(game);
+            final byte[] moveText = game.getMoveText();
+            for (; ply < game.getMoveCount(); ply++) {
+                final MoveTransition transition = this.sanParser.resolve(board, moveText, game.getMoveStart(ply), game.getMoveEnd(ply));
+                if (!transition.getMoveStatus().isDone()) {
+                    throw new RuntimeException("Illegal move " + game.getMove(ply) + " at ply " + ply);
+                }
+                handler.handleMove(game, ply, board, transition.getMove());
+                board = transition.getTransitionBoard();
+            }
+            handler.handleGame(game, board);
+            return board;
+        } catch (final RuntimeException e) {
+            handler.handleError(game, ply, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.chess.engine.notation;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Tile;
+import com.chess.engine.pieces.Pawn;
+import com.chess.engine.pieces.Piece;
+
+import java.nio.ByteBuffer;
+
+//Fixed size binary form of a position, 32 bytes:
+//occupancy (8)     bit i set if tile i holds a piece
+//pieces (16)       one nibble per occupied tile in tile order, low nibble first: 1-6 white PNBRQK, 9-14 black
+//flags (1)         bit 0 black to move, bits 1-4 castling rights as in BoardUtils
+//en passant (1)    file of the pawn that can be taken en passant plus one, 0 for none
+//halfmove (2)      halfmove clock
+//fullmove (2)      fullmove number
+//reserved (2)      zero
+//Encoding reads the tiles in place and decoding fills a Board.Builder straight from the buffer, no FEN text in between.
+public class PositionCodec {
+
+    public static final int ENCODED_SIZE = 32;
+
+    private static final int PIECES_OFFSET = 8;
+    private static final int MAX_PIECES = 32;
+    private static final int FLAGS_OFFSET = 24;
+    private static final int EN_PASSANT_OFFSET = 25;
+    private static final int HALFMOVE_OFFSET = 26;
+    private static final int FULLMOVE_OFFSET = 28;
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int BLACK_PIECE = 8;
+    private static final String PIECE_SYMBOLS = "PNBRQK";
+
+    private PositionCodec() {
+        throw new RuntimeException("You cannot instantiate me!");
+    }
+
+    public static byte[] toBytes(final Board board) {
+        final byte[] bytes = new byte[ENCODED_SIZE];
+        encode(board, 0, 1, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    public static Board fromBytes(final byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes), 0);
+    }
+
+    public static void encode(final Board board,
+                              final ByteBuffer buffer) {
+        encode(board, 0, 1, buffer);
+    }
+
+    //relative, the position of the buffer moves on by ENCODED_SIZE
+    public static void encode(final Board board,
+                              final int halfmoveClock,
+                              final int fullmoveNumber,
+                              final ByteBuffer buffer) {
+        encode(board, halfmoveClock, fullmoveNumber, buffer, buffer.position());
+        buffer.position(buffer.position() + ENCODED_SIZE);
+    }
+
+    //absolute, the position of the buffer is not touched
+    public static void encode(final Board board,
+                              final int halfmoveClock,
+                              final int fullmoveNumber,
+                              final ByteBuffer buffer,
+                              final int index) {
+        long occupancy = 0;
+        long lowNibbles = 0;
+        long highNibbles = 0;
+        int numPieces = 0;
+        for (int i = 0; i < BoardUtils.NUM_TILES; i++) {
+            final Tile tile = board.getTile(i);
+            if (!tile.isTileOccupied()) {
+                continue;
+            }
+            if (numPieces == MAX_PIECES) {
+                throw new RuntimeException("More than " + MAX_PIECES + " pieces can't be encoded");
+            }
+            occupancy |= 1L << i;
+            final long code = pieceCode(tile.getPiece());
+            //the first 16 pieces fill one long, the next 16 the other
+            if (numPieces < 16) {
+                lowNibbles |= code << (numPieces * 4);
+            } else {
+                highNibbles |= code << ((numPieces - 16) * 4);
+            }
+            numPieces++;
+        }
+        buffer.putLong(index + PIECES_OFFSET, lowNibbles);
+        buffer.putLong(index + PIECES_OFFSET + 8, highNibbles);
+        buffer.putLong(index, occupancy);
+        final Pawn enPassantPawn = board.getEnPassantPawn();
+        buffer.put(index + FLAGS_OFFSET, (byte) ((board.currentPlayer().getAlliance().isBlack() ? BLACK_TO_MOVE : 0) |
+                                                 (board.getCastlingRights() << 1)));
+        buffer.put(index + EN_PASSANT_OFFSET, (byte) (enPassantPawn == null ? 0 :
+                                                      enPassantPawn.getPiecePosition() % BoardUtils.NUM_TILES_PER_ROW + 1));
+        buffer.putShort(index + HALFMOVE_OFFSET, (short) halfmoveClock);
+        buffer.putShort(index + FULLMOVE_OFFSET, (short) fullmoveNumber);
+        buffer.putShort(index + FULLMOVE_OFFSET + 2, (short) 0);
+    }
+
+    private static int pieceCode(final Piece piece) {
+        return (piece.getPieceType().ordinal() + 1) | (piece.getPieceAlliance().isBlack() ? BLACK_PIECE : 0);
+    }
+
+    //relative, the position of the buffer moves on by ENCODED_SIZE
+    public static Board decode(final ByteBuffer buffer) {
+        final Board board = decode(buffer, buffer.position());
+        buffer.position(buffer.position() + ENCODED_SIZE);
+        return board;
+    }
+
+    //absolute, the position of the buffer is not touched
+    public static Board decode(final ByteBuffer buffer,
+                               final int index) {
+        final long occupancy = buffer.getLong(index);
+        if (Long.bitCount(occupancy) > MAX_PIECES) {
+            throw new RuntimeException("Encoded position has more than " + MAX_PIECES + " pieces");
+        }
+        final int flags = buffer.get(index + FLAGS_OFFSET);
+        final int castlingRights = (flags >>> 1) & 0xF;
+        final Alliance nextMoveMaker = (flags & BLACK_TO_MOVE) != 0 ? Alliance.BLACK : Alliance.WHITE;
+        final Board.Builder builder = new Board.Builder();
+        long remaining = occupancy;
+        int numPieces = 0;
+        while (remaining != 0) {
+            final int coordinate = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            final long nibbles = buffer.getLong(index + PIECES_OFFSET + (numPieces / 16) * 8);
+            final int code = (int) (nibbles >>> ((numPieces % 16) * 4)) & 0xF;
+            final int type = (code & ~BLACK_PIECE) - 1;
+            if (type < 0 || type >= PIECE_SYMBOLS.length()) {
+                throw new RuntimeException("Invalid piece code " + code + " on tile " + coordinate);
+            }
+            final char symbol = PIECE_SYMBOLS.charAt(type);
+            builder.setPiece(FenParser.createPiece((code & BLACK_PIECE) != 0 ? Character.toLowerCase(symbol) : symbol,
+                                                   coordinate, castlingRights));
+            numPieces++;
+        }
+        final int enPassantFile = buffer.get(index + EN_PASSANT_OFFSET) - 1;
+        if (enPassantFile >= 0) {
+            builder.setEnPassantPawn(createEnPassantPawn(occupancy, enPassantFile, nextMoveMaker));
+        }
+        builder.setMoveMaker(nextMoveMaker);
+        return builder.build();
+    }
+
+    //the pawn that just jumped belongs to the side not to move and stands on its fourth rank
+    private static Pawn createEnPassantPawn(final long occupancy,
+                                            final int file,
+                                            final Alliance nextMoveMaker) {
+        if (file >= BoardUtils.NUM_TILES_PER_ROW) {
+            throw new RuntimeException("Invalid en passant file " + file);
+        }
+        final Alliance pawnAlliance = nextMoveMaker.isWhite() ? Alliance.BLACK : Alliance.WHITE;
+        final int coordinate = (pawnAlliance.isBlack() ? 3 : 4) * BoardUtils.NUM_TILES_PER_ROW + file;
+        if ((occupancy & (1L << coordinate)) == 0) {
+            throw new RuntimeException("No pawn can be taken en passant on file " + file);
+        }
+        return new Pawn(pawnAlliance, coordinate, false);
+    }
+
+    //The fields as they are stored, for readers that work on them without building a Board.
+    //Piece n is the n-th set bit of the occupancy, its code 1-6 for white PNBRQK and 8 more for black.
+    public static long getOccupancy(final ByteBuffer buffer,
+                                    final int index) {
+        return buffer.getLong(index);
+    }
+
+    public static int getPieceCode(final ByteBuffer buffer,
+                                   final int index,
+                                   final int pieceNumber) {
+        final long nibbles = buffer.getLong(index + PIECES_OFFSET + (pieceNumber / 16) * 8);
+        return (int) (nibbles >>> ((pieceNumber % 16) * 4)) & 0xF;
+    }
+
+    public static boolean isBlackToMove(final ByteBuffer buffer,
+                                        final int index) {
+        return (buffer.get(index + FLAGS_OFFSET) & BLACK_TO_MOVE) != 0;
+    }
+
+    public static int getCastlingRights(final ByteBuffer buffer,
+                                        final int index) {
+        return (buffer.get(index + FLAGS_OFFSET) >>> 1) & 0xF;
+    }
+
+    //-1 if no pawn can be taken en passant
+    public static int getEnPassantFile(final ByteBuffer buffer,
+                                       final int index) {
+        return buffer.get(index + EN_PASSANT_OFFSET) - 1;
+    }
+
+    public static int getHalfmoveClock(final ByteBuffer buffer,
+                                       final int index) {
+        return buffer.getShort(index + HALFMOVE_OFFSET) & 0xFFFF;
+    }
+
+    public static int getFullmoveNumber(final ByteBuffer buffer,
+                                        final int index) {
+        return buffer.getShort(index + FULLMOVE_OFFSET) & 0xFFFF;
+    }
+}
@@ -0,0 +1,210 @@
+package com.chess.engine.notation;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.board.Move;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.MoveStatus;
+import com.chess.engine.player.MoveTransition;
+
+//Resolves Standard Algebraic Notation (Nf3, exd5, e8=Q, O-O-O, R1a3+ ...) against the legal moves of a board.
+//The token is read in place by index, so SAN stored in a byte[] or a larger CharSequence needs no String per move.
+//An instance keeps the last parsed token, use one per thread.
+public class SanParser {
+
+    private static final int NO_CASTLE = 0;
+    private static final int KING_SIDE_CASTLE = 1;
+    private static final int QUEEN_SIDE_CASTLE = 2;
+
+    private CharSequence chars;
+    private byte[] bytes;
+
+    private int castle;
+    private Piece.PieceType pieceType;
+    private char fromFile;
+    private char fromRank;
+    private int destinationCoordinate;
+    private Piece.PieceType promotionType;
+
+    public MoveTransition resolve(final Board board,
+                                  final CharSequence san) {
+        return resolve(board, san, 0, san.length());
+    }
+
+    public MoveTransition resolve(final Board board,
+                                  final CharSequence san,
+                                  final int start,
+                                  final int end) {
+        this.chars = san;
+        this.bytes = null;
+        return resolve(board, start, end);
+    }
+
+    public MoveTransition resolve(final Board board,
+                                  final byte[] san,
+                                  final int start,
+                                  final int end) {
+        this.chars = null;
+        this.bytes = san;
+        return resolve(board, start, end);
+    }
+
+    //ILLEGAL_MOVE if no legal move of the side to move fits the token
+    private MoveTransition resolve(final Board board,
+                                   final int start,
+                                   final int end) {
+        try {
+            parse(start, end);
+        } finally {
+            this.chars = null;
+            this.bytes = null;
+        }
+        MoveTransition resolved = null;
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            if (matches(move)) {
+                final MoveTransition transition = board.currentPlayer().makeMove(move);
+                if (transition.getMoveStatus().isDone()) {
+                    if (resolved != null) {
+                        throw new RuntimeException("Ambiguous SAN move " + describe());
+                    }
+                    resolved = transition;
+                }
+            }
+        }
+        return resolved != null ? resolved : new MoveTransition(board, Move.NULL_MOVE, MoveStatus.ILLEGAL_MOVE);
+    }
+
+    private char charAt(final int i) {
+        return this.chars != null ? this.chars.charAt(i) : (char) (this.bytes[i] & 0xFF);
+    }
+
+    private void parse(final int start,
+                       int end) {
+        this.castle = NO_CASTLE;
+        this.pieceType = Piece.PieceType.PAWN;
+        this.fromFile = 0;
+        this.fromRank = 0;
+        this.destinationCoordinate = -1;
+        this.promotionType = null;
+        //check, mate and annotation glyphs carry no information about the move
+        while (end > start && isSuffix(charAt(end - 1))) {
+            end--;
+        }
+        if (end - start < 2) {
+            throw malformed(start, end);
+        }
+        final char first = charAt(start);
+        if (first == 'O' || first == '0') {
+            parseCastle(start, end);
+            return;
+        }
+        final Piece.PieceType promotion = pieceType(charAt(end - 1));
+        if (promotion != null) {
+            if (promotion == Piece.PieceType.KING) {
+                throw malformed(start, end);
+            }
+            this.promotionType = promotion;
+            end--;
+            if (end > start && charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+        if (end - start < 2) {
+            throw malformed(start, end);
+        }
+        this.destinationCoordinate = BoardUtils.getCoordinate(charAt(end - 2), charAt(end - 1));
+        if (this.destinationCoordinate == -1) {
+            throw malformed(start, end);
+        }
+        int i = start;
+        final Piece.PieceType moved = pieceType(first);
+        if (moved != null) {
+            this.pieceType = moved;
+            i++;
+        }
+        //what is left are the disambiguation and the capture sign
+        for (; i < end - 2; i++) {
+            final char c = charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                this.fromFile = c;
+            } else if (c >= '1' && c <= '8') {
+                this.fromRank = c;
+            } else if (c != 'x' && c != ':' && c != '-') {
+                throw malformed(start, end);
+            }
+        }
+    }
+
+    private void parseCastle(final int start,
+                             final int end) {
+        final char zero = charAt(start);
+        for (int i = start; i < end; i++) {
+            final char c = charAt(i);
+            if ((i - start) % 2 == 0 ? c != zero : c != '-') {
+                throw malformed(start, end);
+            }
+        }
+        if (end - start == 3) {
+            this.castle = KING_SIDE_CASTLE;
+        } else if (end - start == 5) {
+            this.castle = QUEEN_SIDE_CASTLE;
+        } else {
+            throw malformed(start, end);
+        }
+    }
+
+    private static boolean isSuffix(final char c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+
+    private static Piece.PieceType pieceType(final char c) {
+        switch (c) {
+            case 'N': return Piece.PieceType.KNIGHT;
+            case 'B': return Piece.PieceType.BISHOP;
+            case 'R': return Piece.PieceType.ROOK;
+            case 'Q': return Piece.PieceType.QUEEN;
+            case 'K': return Piece.PieceType.KING;
+            default: return null;
+        }
+    }
+
+    private boolean matches(final Move move) {
+        if (this.castle != NO_CASTLE) {
+            return this.castle == KING_SIDE_CASTLE ? move instanceof Move.KingSideCastleMove :
+                                                     move instanceof Move.QueenSideCastleMove;
+        }
+        if (move.getDestinationCoordinate() != this.destinationCoordinate ||
+                move.getMovedPiece().getPieceType() != this.pieceType ||
+                move instanceof Move.CastleMove) {
+            return false;
+        }
+        final int currentCoordinate = move.getCurrentCoordinate();
+        if ((this.fromFile != 0 && BoardUtils.getFileCharacter(currentCoordinate) != this.fromFile) ||
+                (this.fromRank != 0 && BoardUtils.getRankCharacter(currentCoordinate) != this.fromRank)) {
+            return false;
+        }
+        if (move instanceof Move.PawnPromotion) {
+            //a missing promotion piece is read as a queen
+            final Piece.PieceType promoted = ((Move.PawnPromotion) move).getPromotedPiece().getPieceType();
+            return promoted == (this.promotionType != null ? this.promotionType : Piece.PieceType.QUEEN);
+        }
+        return this.promotionType == null;
+    }
+
+    private RuntimeException malformed(final int start,
+                                       final int end) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            builder.append(charAt(i));
+        }
+        return new RuntimeException("Malformed SAN move: " + builder);
+    }
+
+    private String describe() {
+        if (this.castle != NO_CASTLE) {
+            return this.castle == KING_SIDE_CASTLE ? "O-O" : "O-O-O";
+        }
+        return this.pieceType + " to " + BoardUtils.getFileCharacter(this.destinationCoordinate) +
+               BoardUtils.getRankCharacter(this.destinationCoordinate);
+    }
+}
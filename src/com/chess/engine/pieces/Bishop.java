@@ -63,7 +63,13 @@ public class Bishop extends Piece {
 
     public Bishop(final Alliance pieceAlliance,
                   final int getPiecePosition) {
-        super(PieceType.BISHOP, getPiecePosition, pieceAlliance);
+        this(pieceAlliance, getPiecePosition, true);
+    }
+
+    public Bishop(final Alliance pieceAlliance,
+                  final int getPiecePosition,
+                  final boolean isFirstMove) {
+        super(PieceType.BISHOP, getPiecePosition, pieceAlliance, isFirstMove);
     }
 
     @Override
@@ -99,7 +105,7 @@ public class Bishop extends Piece {
 
     @Override
     public Bishop movePiece(Move move) {
-        return new Bishop(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate());
+        return new Bishop(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate(), false);
     }
 
     @Override
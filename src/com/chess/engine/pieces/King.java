@@ -43,7 +43,13 @@ public class King extends Piece {
 
     public King(final Alliance pieceAlliance,
                 final int getPiecePosition) {
-        super(PieceType.KING, getPiecePosition, pieceAlliance);
+        this(pieceAlliance, getPiecePosition, true);
+    }
+
+    public King(final Alliance pieceAlliance,
+                final int getPiecePosition,
+                final boolean isFirstMove) {
+        super(PieceType.KING, getPiecePosition, pieceAlliance, isFirstMove);
     }
 
     @Override
@@ -74,7 +80,7 @@ public class King extends Piece {
 
     @Override
     public King movePiece(Move move) {
-        return new King(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate());
+        return new King(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate(), false);
     }
 
     @Override
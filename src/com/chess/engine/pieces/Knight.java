@@ -68,7 +68,13 @@ public class Knight extends Piece {
 
     public Knight(final Alliance pieceAlliance,
                   final int getPiecePosition) {
-        super(PieceType.KNIGHT, getPiecePosition, pieceAlliance);
+        this(pieceAlliance, getPiecePosition, true);
+    }
+
+    public Knight(final Alliance pieceAlliance,
+                  final int getPiecePosition,
+                  final boolean isFirstMove) {
+        super(PieceType.KNIGHT, getPiecePosition, pieceAlliance, isFirstMove);
     }
 
     @Override
@@ -101,7 +107,7 @@ public class Knight extends Piece {
 
     @Override
     public Knight movePiece(Move move) {
-        return new Knight(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate());
+        return new Knight(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate(), false);
     }
 
     @Override
@@ -61,7 +61,13 @@ public class Pawn extends Piece {
 
     public Pawn(final Alliance pieceAlliance,
                 final int getPiecePosition) {
-        super(PieceType.PAWN, getPiecePosition, pieceAlliance);
+        this(pieceAlliance, getPiecePosition, true);
+    }
+
+    public Pawn(final Alliance pieceAlliance,
+                final int getPiecePosition,
+                final boolean isFirstMove) {
+        super(PieceType.PAWN, getPiecePosition, pieceAlliance, isFirstMove);
     }
 
     @Override
@@ -75,48 +81,70 @@ public class Pawn extends Piece {
             }
             //Non-Attacking Move
             if (currentCandidateOffset == MOVE_UP && !board.getTile(candidateDestinationCoordinate).isTileOccupied()) {
-                //TODO more work here!!!! deal with promotions
-                legalMoves.add(new MajorMove(board, this, candidateDestinationCoordinate));
+                addPawnMove(legalMoves, new PawnMove(board, this, candidateDestinationCoordinate));
             }//Jump Move
             else if (currentCandidateOffset == MOVE_JUMP && this.isFirstMove() &&
-                    (BoardUtils.SECOND_ROW[this.piecePosition] && this.getPieceAlliance().isBlack()) ||
-                    (BoardUtils.SEVENTH_ROW[this.piecePosition] && this.getPieceAlliance().isWhite())) {
+                    ((BoardUtils.SECOND_ROW[this.piecePosition] && this.getPieceAlliance().isBlack()) ||
+                     (BoardUtils.SEVENTH_ROW[this.piecePosition] && this.getPieceAlliance().isWhite()))) {
                 final int behindCandidateDestinationCoordinate = this.piecePosition + (this.pieceAlliance.getDirection() * 8);
                 if (!board.getTile(behindCandidateDestinationCoordinate).isTileOccupied() &&
                         !board.getTile(candidateDestinationCoordinate).isTileOccupied()) {
-                    legalMoves.add(new MajorMove(board, this, candidateDestinationCoordinate));
+                    legalMoves.add(new PawnJump(board, this, candidateDestinationCoordinate));
                 }
             }//Attack Move one side
             else if (currentCandidateOffset == ATTACK_MOVE_ONE_SIDE &&
                     !((BoardUtils.EIGHTH_COLUMN[this.piecePosition] && this.pieceAlliance.isWhite() ||
                             (BoardUtils.FIRST_COLUMN[this.piecePosition] && this.pieceAlliance.isBlack())))) {
-                if (board.getTile(candidateDestinationCoordinate).isTileOccupied()) {
-                    final Piece pieceOnCandidate = board.getTile(candidateDestinationCoordinate).getPiece();
-                    if (this.pieceAlliance != pieceOnCandidate.getPieceAlliance()) {
-                        //TODO more work here!! deal with promotion
-                        legalMoves.add(new MajorMove(board, this, candidateDestinationCoordinate));
-                    }
-                }
-
+                //the pawn taken en passant stands beside this pawn, on the side it attacks
+                addPawnAttackMove(legalMoves, board, candidateDestinationCoordinate,
+                                  this.piecePosition - this.pieceAlliance.getDirection());
             }//Attack Move another side
             else if (currentCandidateOffset == ATTACK_MOVE_ANOTHER_SIDE &&
                     !((BoardUtils.FIRST_COLUMN[this.piecePosition] && this.pieceAlliance.isWhite() ||
                       (BoardUtils.EIGHTH_COLUMN[this.piecePosition] && this.pieceAlliance.isBlack())))) {
-                if (board.getTile(candidateDestinationCoordinate).isTileOccupied()) {
-                    final Piece pieceOnCandidate = board.getTile(candidateDestinationCoordinate).getPiece();
-                    if (this.pieceAlliance != pieceOnCandidate.getPieceAlliance()) {
-                        //TODO more work here!! deal with promotion
-                        legalMoves.add(new MajorMove(board, this, candidateDestinationCoordinate));
-                    }
-                }
+                addPawnAttackMove(legalMoves, board, candidateDestinationCoordinate,
+                                  this.piecePosition + this.pieceAlliance.getDirection());
             }
         }
         return ImmutableList.copyOf(legalMoves);
     }
 
+    private void addPawnAttackMove(final List<Move> legalMoves,
+                                   final Board board,
+                                   final int candidateDestinationCoordinate,
+                                   final int enPassantCoordinate) {
+        if (board.getTile(candidateDestinationCoordinate).isTileOccupied()) {
+            final Piece pieceOnCandidate = board.getTile(candidateDestinationCoordinate).getPiece();
+            if (this.pieceAlliance != pieceOnCandidate.getPieceAlliance()) {
+                addPawnMove(legalMoves, new PawnAttackMove(board, this, candidateDestinationCoordinate, pieceOnCandidate));
+            }
+        } else {
+            final Pawn enPassantPawn = board.getEnPassantPawn();
+            if (enPassantPawn != null &&
+                    enPassantPawn.getPiecePosition() == enPassantCoordinate &&
+                    enPassantPawn.getPieceAlliance() != this.pieceAlliance) {
+                legalMoves.add(new PawnEnPassantAttackMove(board, this, candidateDestinationCoordinate, enPassantPawn));
+            }
+        }
+    }
+
+    //a pawn reaching the last row is promoted to any of the four pieces
+    private void addPawnMove(final List<Move> legalMoves,
+                             final Move pawnMove) {
+        final int destination = pawnMove.getDestinationCoordinate();
+        if (this.pieceAlliance.isPawnPromotionSquare(destination)) {
+            legalMoves.add(new PawnPromotion(pawnMove, new Queen(this.pieceAlliance, destination, false)));
+            legalMoves.add(new PawnPromotion(pawnMove, new Rook(this.pieceAlliance, destination, false)));
+            legalMoves.add(new PawnPromotion(pawnMove, new Bishop(this.pieceAlliance, destination, false)));
+            legalMoves.add(new PawnPromotion(pawnMove, new Knight(this.pieceAlliance, destination, false)));
+        } else {
+            legalMoves.add(pawnMove);
+        }
+    }
+
     @Override
     public Pawn movePiece(Move move) {
-        return new Pawn(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate());
+        return new Pawn(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate(), false);
     }
 
     @Override
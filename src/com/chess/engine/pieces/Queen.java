@@ -69,7 +69,13 @@ public class Queen extends Piece {
 
     public Queen(final Alliance pieceAlliance,
                  final int getPiecePosition) {
-        super(PieceType.QUEEN, getPiecePosition, pieceAlliance);
+        this(pieceAlliance, getPiecePosition, true);
+    }
+
+    public Queen(final Alliance pieceAlliance,
+                 final int getPiecePosition,
+                 final boolean isFirstMove) {
+        super(PieceType.QUEEN, getPiecePosition, pieceAlliance, isFirstMove);
     }
 
     @Override
@@ -104,7 +110,7 @@ public class Queen extends Piece {
 
     @Override
     public Queen movePiece(Move move) {
-        return new Queen(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate());
+        return new Queen(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate(), false);
     }
 
     @Override
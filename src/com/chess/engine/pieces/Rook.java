@@ -64,7 +64,13 @@ public class Rook extends Piece {
 
     public Rook(final Alliance pieceAlliance,
                 final int getPiecePosition) {
-        super(PieceType.ROOK, getPiecePosition, pieceAlliance);
+        this(pieceAlliance, getPiecePosition, true);
+    }
+
+    public Rook(final Alliance pieceAlliance,
+                final int getPiecePosition,
+                final boolean isFirstMove) {
+        super(PieceType.ROOK, getPiecePosition, pieceAlliance, isFirstMove);
     }
 
     @Override
@@ -100,7 +106,7 @@ public class Rook extends Piece {
 
     @Override
     public Rook movePiece(Move move) {
-        return new Rook(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate());
+        return new Rook(move.getMovedPiece().getPieceAlliance(), move.getDestinationCoordinate(), false);
     }
 
     @Override
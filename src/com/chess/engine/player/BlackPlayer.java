@@ -9,9 +9,13 @@ import java.util.Collection;
 
 public class BlackPlayer extends Player {
     public BlackPlayer(final Board board,
-                       final Collection<Move> whiteStandardLegalMoves,
                        final Collection<Move> blackStandardLegalMoves) {
-        super(board, blackStandardLegalMoves, whiteStandardLegalMoves); //board, legalMoves, opponentMoves
+        super(board, blackStandardLegalMoves);
+    }
+
+    @Override
+    protected int getKingStartCoordinate() {
+        return 4; //e8
     }
 
     @Override
@@ -18,6 +18,14 @@ public class MoveTransition {
         this.moveStatus = moveStatus;
     }
 
+    public Board getTransitionBoard() {
+        return this.transitionBoard;
+    }
+
+    public Move getMove() {
+        return this.move;
+    }
+
     public MoveStatus getMoveStatus() {
         return this.moveStatus;
     }
@@ -2,28 +2,38 @@ package com.chess.engine.player;
 
 import com.chess.engine.Alliance;
 import com.chess.engine.board.Board;
+import com.chess.engine.board.BoardUtils;
 import com.chess.engine.board.Move;
+import com.chess.engine.board.Tile;
+import com.chess.engine.notation.CoordinateNotation;
 import com.chess.engine.pieces.King;
 import com.chess.engine.pieces.Piece;
+import com.chess.engine.pieces.Rook;
+import com.chess.engine.telemetry.EngineTelemetry;
+import com.chess.engine.telemetry.MoveValidationEvent;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 public abstract class Player {
+
+    private static final int[][] KNIGHT_JUMPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    private static final int[][] DIRECTIONS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+
     protected final Board board;
     protected final King playerKing;
     protected final Collection<Move> legalMoves;
     private final boolean isInCheck;
 
     public Player(final Board board,
-                  final Collection<Move> legalMoves,
-                  final Collection<Move> opponentMoves) {
+                  final Collection<Move> legalMoves) {
         this.board = board;
         this.playerKing = establishKing();
-        this.legalMoves = legalMoves;
-        this.isInCheck = !Player.calculateAttacksOnTile(this.playerKing.getPiecePosition(), opponentMoves).isEmpty();
+        this.isInCheck = isTileAttacked(board, this.playerKing.getPiecePosition(), opponentAlliance(getAlliance()));
+        this.legalMoves = ImmutableList.copyOf(Iterables.concat(legalMoves, calculateKingCastles()));
     }
 
     public King getPlayerKing() {
@@ -31,14 +41,70 @@ public abstract class Player {
     }
 
 
-    private static Collection<Move> calculateAttacksOnTile(int piecePosition, Collection<Move> moves) {
-        final List<Move> attackMoves = new ArrayList<>();
-        for (final Move move : moves) {
-            if (piecePosition == move.getDestinationCoordinate()) {
-                attackMoves.add(move);
+    //Whether a piece of the attacker hits the tile, worked out from the board rather than from the attacker's moves:
+    //a pawn attacks the two tiles diagonally ahead of it whether anything stands there or not, and never by a push.
+    public static boolean isTileAttacked(final Board board,
+                                         final int tile,
+                                         final Alliance attacker) {
+        final int row = tile / BoardUtils.NUM_TILES_PER_ROW;
+        final int column = tile % BoardUtils.NUM_TILES_PER_ROW;
+        //the pawn stands one row behind the tile, seen from its own side
+        final int pawnRow = row - attacker.getDirection();
+        if (isPieceAt(board, pawnRow, column - 1, attacker, Piece.PieceType.PAWN) ||
+                isPieceAt(board, pawnRow, column + 1, attacker, Piece.PieceType.PAWN)) {
+            return true;
+        }
+        for (final int[] jump : KNIGHT_JUMPS) {
+            if (isPieceAt(board, row + jump[0], column + jump[1], attacker, Piece.PieceType.KNIGHT)) {
+                return true;
+            }
+        }
+        for (final int[] direction : DIRECTIONS) {
+            if (isPieceAt(board, row + direction[0], column + direction[1], attacker, Piece.PieceType.KING)) {
+                return true;
+            }
+            final boolean diagonal = direction[0] != 0 && direction[1] != 0;
+            int slideRow = row + direction[0];
+            int slideColumn = column + direction[1];
+            while (isOnBoard(slideRow, slideColumn)) {
+                final Tile slideTile = board.getTile(slideRow * BoardUtils.NUM_TILES_PER_ROW + slideColumn);
+                if (slideTile.isTileOccupied()) {
+                    final Piece piece = slideTile.getPiece();
+                    final Piece.PieceType slider = diagonal ? Piece.PieceType.BISHOP : Piece.PieceType.ROOK;
+                    if (piece.getPieceAlliance() == attacker &&
+                            (piece.getPieceType() == slider || piece.getPieceType() == Piece.PieceType.QUEEN)) {
+                        return true;
+                    }
+                    break;
+                }
+                slideRow += direction[0];
+                slideColumn += direction[1];
             }
         }
-        return ImmutableList.copyOf(attackMoves);
+        return false;
+    }
+
+    private static boolean isOnBoard(final int row,
+                                     final int column) {
+        return row >= 0 && row < BoardUtils.NUM_TILES_PER_ROW && column >= 0 && column < BoardUtils.NUM_TILES_PER_ROW;
+    }
+
+    private static boolean isPieceAt(final Board board,
+                                     final int row,
+                                     final int column,
+                                     final Alliance alliance,
+                                     final Piece.PieceType pieceType) {
+        if (!isOnBoard(row, column)) {
+            return false;
+        }
+        final Tile tile = board.getTile(row * BoardUtils.NUM_TILES_PER_ROW + column);
+        return tile.isTileOccupied() &&
+               tile.getPiece().getPieceAlliance() == alliance &&
+               tile.getPiece().getPieceType() == pieceType;
+    }
+
+    private static Alliance opponentAlliance(final Alliance alliance) {
+        return alliance.isWhite() ? Alliance.BLACK : Alliance.WHITE;
     }
 
 
@@ -87,18 +153,81 @@ public abstract class Player {
     }
 
     public MoveTransition makeMove(final Move move) {
+        final MoveValidationEvent event = new MoveValidationEvent();
+        event.begin();
+        final MoveTransition transition = validateMove(move);
+        if (!transition.getMoveStatus().isDone()) {
+            EngineTelemetry.illegalMove();
+        }
+        if (event.shouldCommit()) {
+            event.move = CoordinateNotation.toString(move);
+            event.status = transition.getMoveStatus().name();
+            event.commit();
+        }
+        return transition;
+    }
+
+    private MoveTransition validateMove(final Move move) {
         if (!isMoveLegal(move)) {
             return new MoveTransition(this.board, move, MoveStatus.ILLEGAL_MOVE);
         }
         final Board transitionBoard = move.execute();
-        final Collection<Move> kingAttacks = Player.calculateAttacksOnTile(transitionBoard.currentPlayer().getOpponent().getPlayerKing().getPiecePosition(),
-                transitionBoard.currentPlayer().getLegalMoves());
-        if (!kingAttacks.isEmpty()) {
+        if (isTileAttacked(transitionBoard, transitionBoard.currentPlayer().getOpponent().getPlayerKing().getPiecePosition(),
+                transitionBoard.currentPlayer().getAlliance())) {
             return new MoveTransition(this.board, move, MoveStatus.LEAVES_PLAYER_IN_CHECK);
         }
         return new MoveTransition(transitionBoard, move, MoveStatus.DONE);
     }
 
+    //the king may castle if neither the king nor the rook has moved, the tiles between them are empty,
+    //the king is not in check and doesn't pass through or land on an attacked tile
+    protected Collection<Move> calculateKingCastles() {
+        if (!this.playerKing.isFirstMove() || this.isInCheck ||
+                this.playerKing.getPiecePosition() != getKingStartCoordinate()) {
+            return ImmutableList.of();
+        }
+        final List<Move> kingCastles = new ArrayList<>();
+        final int kingPosition = this.playerKing.getPiecePosition();
+        //king side: the rook is three tiles to the right, the king passes one tile and lands on the next
+        final Rook kingSideRook = getCastleRook(kingPosition + 3);
+        if (kingSideRook != null &&
+                isTileEmpty(kingPosition + 1) && isTileEmpty(kingPosition + 2) &&
+                !isTileAttacked(this.board, kingPosition + 1, opponentAlliance(getAlliance())) &&
+                !isTileAttacked(this.board, kingPosition + 2, opponentAlliance(getAlliance()))) {
+            kingCastles.add(new Move.KingSideCastleMove(this.board, this.playerKing, kingPosition + 2,
+                                                        kingSideRook, kingPosition + 3, kingPosition + 1));
+        }
+        //queen side: the rook is four tiles to the left, the tile next to it only has to be empty
+        final Rook queenSideRook = getCastleRook(kingPosition - 4);
+        if (queenSideRook != null &&
+                isTileEmpty(kingPosition - 1) && isTileEmpty(kingPosition - 2) && isTileEmpty(kingPosition - 3) &&
+                !isTileAttacked(this.board, kingPosition - 1, opponentAlliance(getAlliance())) &&
+                !isTileAttacked(this.board, kingPosition - 2, opponentAlliance(getAlliance()))) {
+            kingCastles.add(new Move.QueenSideCastleMove(this.board, this.playerKing, kingPosition - 2,
+                                                         queenSideRook, kingPosition - 4, kingPosition - 1));
+        }
+        return ImmutableList.copyOf(kingCastles);
+    }
+
+    private boolean isTileEmpty(final int coordinate) {
+        return !this.board.getTile(coordinate).isTileOccupied();
+    }
+
+    private Rook getCastleRook(final int coordinate) {
+        final Tile rookTile = this.board.getTile(coordinate);
+        if (rookTile.isTileOccupied()) {
+            final Piece piece = rookTile.getPiece();
+            if (piece.getPieceType() == Piece.PieceType.ROOK &&
+                    piece.getPieceAlliance() == getAlliance() &&
+                    piece.isFirstMove()) {
+                return (Rook) piece;
+            }
+        }
+        return null;
+    }
+
+    protected abstract int getKingStartCoordinate();
+
     public abstract Collection<Piece> getActivePieces();
 
     public abstract Alliance getAlliance();
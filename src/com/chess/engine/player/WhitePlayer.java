@@ -9,9 +9,13 @@ import java.util.Collection;
 
 public class WhitePlayer extends Player {
     public WhitePlayer(final Board board,
-                       final Collection<Move> whiteStandardLegalMoves,
-                       final Collection<Move> blackStandardLegalMoves) {
-        super(board, whiteStandardLegalMoves, blackStandardLegalMoves); //board, legalMoves, opponentMoves
+                       final Collection<Move> whiteStandardLegalMoves) {
+        super(board, whiteStandardLegalMoves);
+    }
+
+    @Override
+    protected int getKingStartCoordinate() {
+        return 60; //e1
     }
 
     @Override
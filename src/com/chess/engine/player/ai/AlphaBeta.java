@@ -0,0 +1,431 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.notation.CoordinateNotation;
+import com.chess.engine.player.MoveTransition;
+import com.chess.engine.tablebase.Tablebases;
+import com.chess.engine.telemetry.EngineTelemetry;
+import com.chess.engine.telemetry.SearchIterationEvent;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+//Iterative deepening negamax with alpha-beta pruning, a transposition table and a capture only quiescence search.
+//stop() may be called from any thread, the flag is read on every node so the search unwinds right away.
+//The hard deadline and the node limit are only looked at every DEADLINE_CHECK_INTERVAL nodes,
+//a TimeManager decides between iterations whether another one is worth starting.
+//One instance searches one position at a time.
+public class AlphaBeta implements MoveStrategy {
+
+    public static final int MAX_DEPTH = 64;
+    public static final int MATE_SCORE = 100000;
+    public static final int NO_DEADLINE = -1;
+
+    private static final int INFINITY = 1000000;
+    //mates found in the tablebases are further away than the search ever looks
+    private static final int MAX_MATE_PLIES = 512;
+    //a node costs microseconds here, so this is still well under a millisecond of searching
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+    private static final int DEFAULT_HASH_SIZE = 16;
+    private static final int HASH_MOVE_PRIORITY = 1000000;
+    private static final int CAPTURE_PRIORITY = 100000;
+    private static final int PROMOTION_PRIORITY = 90000;
+
+    private final BoardEvaluator evaluator;
+    private final TranspositionTable transpositionTable;
+    private final int searchDepth;
+    private SearchListener listener;
+    private TimeManager timeManager;
+    private Tablebases tablebases;
+
+    private volatile boolean stopRequested;
+    private volatile long deadline;
+    private long maxNodes;
+    private long startTime;
+    private long nodes;
+    //what the telemetry has not been told yet
+    private long publishedNodes;
+    private long tableProbes;
+    private long tableHits;
+    private boolean aborted;
+    private List<Move> principalVariation;
+    private int score;
+    private int completedDepth;
+
+    //ctor
+    public AlphaBeta(final BoardEvaluator evaluator,
+                     final TranspositionTable transpositionTable,
+                     final int searchDepth) {
+        this.evaluator = evaluator;
+        this.transpositionTable = transpositionTable;
+        this.searchDepth = searchDepth;
+        this.principalVariation = ImmutableList.of();
+    }
+
+    public AlphaBeta(final int searchDepth) {
+        this(new StandardBoardEvaluator(), new TranspositionTable(DEFAULT_HASH_SIZE), searchDepth);
+    }
+
+    public void setSearchListener(final SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return this.transpositionTable;
+    }
+
+    //the search stops at its next node, a stop before the search starts is kept until clearStop()
+    public void stop() {
+        this.stopRequested = true;
+    }
+
+    public void clearStop() {
+        this.stopRequested = false;
+    }
+
+    //null to search without, the tables are probed below the root only
+    public void setTablebases(final Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    //null to search until the deadline or the depth is reached
+    public void setTimeManager(final TimeManager timeManager) {
+        this.timeManager = timeManager;
+    }
+
+    //System.nanoTime() based or NO_DEADLINE, may be moved while the search runs
+    public void setDeadline(final long deadline) {
+        this.deadline = deadline;
+    }
+
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    public int getScore() {
+        return this.score;
+    }
+
+    public int getCompletedDepth() {
+        return this.completedDepth;
+    }
+
+    //true if the last search ended on stop(), the deadline or the node limit instead of running out of depth
+    public boolean wasAborted() {
+        return this.aborted;
+    }
+
+    public List<Move> getPrincipalVariation() {
+        return this.principalVariation;
+    }
+
+    @Override
+    public Move execute(final Board board) {
+        clearStop();
+        setDeadline(NO_DEADLINE);
+        setTimeManager(null);
+        return search(board, this.searchDepth, Long.MAX_VALUE);
+    }
+
+    //NULL_MOVE if the side to move has no legal move.
+    //Runs until maxDepth, maxNodes, the deadline, the time manager or stop(),
+    //set those up and clear the stop flag before calling it.
+    public Move search(final Board board,
+                       final int maxDepth,
+                       final long maxNodes) {
+        this.startTime = System.nanoTime();
+        this.maxNodes = maxNodes;
+        this.nodes = 0;
+        this.publishedNodes = 0;
+        this.aborted = false;
+        this.score = 0;
+        this.completedDepth = 0;
+        this.principalVariation = ImmutableList.of();
+        final Move[] rootMoves = legalMoves(board);
+        if (rootMoves.length == 0) {
+            return Move.NULL_MOVE;
+        }
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+            final SearchIterationEvent event = new SearchIterationEvent();
+            event.begin();
+            final int iterationScore = searchRoot(board, rootMoves, depth);
+            publishCounters();
+            if (this.aborted) {
+                break;
+            }
+            if (event.shouldCommit()) {
+                event.depth = depth;
+                event.score = iterationScore;
+                event.nodes = this.nodes;
+                event.bestMove = CoordinateNotation.toString(rootMoves[0]);
+                event.commit();
+            }
+            this.score = iterationScore;
+            this.completedDepth = depth;
+            this.principalVariation = collectPrincipalVariation(board, depth);
+            if (this.listener != null) {
+                this.listener.iterationCompleted(depth, iterationScore, this.nodes,
+                        System.nanoTime() - this.startTime, this.principalVariation);
+            }
+            if (Math.abs(iterationScore) >= MATE_SCORE - depth) {
+                break; //a forced mate within the horizon won't change with more depth
+            }
+            if (this.timeManager != null &&
+                    this.timeManager.shouldStop(depth, Move.MoveFactory.encodeMove(rootMoves[0]), iterationScore)) {
+                break;
+            }
+        }
+        //only fully searched moves ever move to the front, so it is also the best guess after an abort
+        return rootMoves[0];
+    }
+
+    //searches the root moves best first and moves the best one to the front
+    private int searchRoot(final Board board,
+                           final Move[] rootMoves,
+                           final int depth) {
+        int alpha = -INFINITY;
+        for (int i = 0; i < rootMoves.length; i++) {
+            final Move move = rootMoves[i];
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            final int moveScore = -negamax(transition.getTransitionBoard(), depth - 1, -INFINITY, -alpha, 1);
+            if (this.aborted) {
+                break;
+            }
+            if (moveScore > alpha) {
+                alpha = moveScore;
+                System.arraycopy(rootMoves, 0, rootMoves, 1, i);
+                rootMoves[0] = move;
+            }
+        }
+        if (!this.aborted) {
+            this.transpositionTable.store(board.getZobristKey(), Move.MoveFactory.encodeMove(rootMoves[0]),
+                    alpha, depth, TranspositionTable.EXACT);
+        }
+        return alpha;
+    }
+
+    private int negamax(final Board board,
+                        final int depth,
+                        int alpha,
+                        final int beta,
+                        final int ply) {
+        if (isAborted()) {
+            return 0;
+        }
+        if (this.tablebases != null &&
+                board.getWhitePieces().size() + board.getBlackPieces().size() <= this.tablebases.getMaxPieces()) {
+            final int value = this.tablebases.probe(board);
+            if (Tablebases.isWin(value)) {
+                return MATE_SCORE - ply - Tablebases.getPlies(value);
+            } else if (Tablebases.isLoss(value)) {
+                return -MATE_SCORE + ply + Tablebases.getPlies(value);
+            } else if (Tablebases.isDraw(value)) {
+                return 0;
+            }
+        }
+        if (depth <= 0 || ply >= MAX_DEPTH) {
+            return quiesce(board, alpha, beta, ply);
+        }
+        final long key = board.getZobristKey();
+        final long entry = this.transpositionTable.probe(key);
+        int hashMove = 0;
+        this.tableProbes++;
+        if (entry != TranspositionTable.NO_ENTRY) {
+            this.tableHits++;
+            hashMove = TranspositionTable.getMove(entry);
+            if (TranspositionTable.getDepth(entry) >= depth) {
+                final int entryScore = fromTableScore(TranspositionTable.getScore(entry), ply);
+                final int bound = TranspositionTable.getBound(entry);
+                if (bound == TranspositionTable.EXACT ||
+                        (bound == TranspositionTable.LOWER_BOUND && entryScore >= beta) ||
+                        (bound == TranspositionTable.UPPER_BOUND && entryScore <= alpha)) {
+                    return entryScore;
+                }
+            }
+        }
+        final int originalAlpha = alpha;
+        final Move[] moves = orderMoves(board.currentPlayer().getLegalMoves(), hashMove, false);
+        int bestScore = -INFINITY;
+        int bestMove = 0;
+        int legalMoves = 0;
+        for (final Move move : moves) {
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if (!transition.getMoveStatus().isDone()) {
+                continue;
+            }
+            legalMoves++;
+            final int moveScore = -negamax(transition.getTransitionBoard(), depth - 1, -beta, -alpha, ply + 1);
+            if (this.aborted) {
+                return 0;
+            }
+            if (moveScore > bestScore) {
+                bestScore = moveScore;
+                bestMove = Move.MoveFactory.encodeMove(move);
+                if (moveScore > alpha) {
+                    alpha = moveScore;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (legalMoves == 0) {
+            return board.currentPlayer().isInCheck() ? -MATE_SCORE + ply : 0;
+        }
+        final int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND :
+                          bestScore >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        this.transpositionTable.store(key, bestMove, toTableScore(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    private int quiesce(final Board board,
+                        int alpha,
+                        final int beta,
+                        final int ply) {
+        final int standPat = evaluate(board);
+        if (standPat >= beta || ply >= MAX_DEPTH) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+        for (final Move move : orderMoves(board.currentPlayer().getLegalMoves(), 0, true)) {
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if (!transition.getMoveStatus().isDone()) {
+                continue;
+            }
+            if (isAborted()) {
+                return 0;
+            }
+            final int moveScore = -quiesce(transition.getTransitionBoard(), -beta, -alpha, ply + 1);
+            if (this.aborted) {
+                return 0;
+            }
+            if (moveScore > alpha) {
+                alpha = moveScore;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    private int evaluate(final Board board) {
+        final int whiteScore = this.evaluator.evaluate(board, 0);
+        return board.currentPlayer().getAlliance().isWhite() ? whiteScore : -whiteScore;
+    }
+
+    //hands the counts since the last call to the telemetry, once per iteration keeps the shared counters off the hot path
+    private void publishCounters() {
+        EngineTelemetry.addNodes(this.nodes - this.publishedNodes);
+        EngineTelemetry.addCacheLookups(this.tableProbes, this.tableHits);
+        this.publishedNodes = this.nodes;
+        this.tableProbes = 0;
+        this.tableHits = 0;
+    }
+
+    //counts the node and polls the limits
+    private boolean isAborted() {
+        if (this.stopRequested) {
+            this.aborted = true;
+        } else if ((++this.nodes & (DEADLINE_CHECK_INTERVAL - 1)) == 0) {
+            final long currentDeadline = this.deadline;
+            if (this.nodes >= this.maxNodes ||
+                    (currentDeadline != NO_DEADLINE && System.nanoTime() - currentDeadline >= 0)) {
+                this.aborted = true;
+            }
+        }
+        return this.aborted;
+    }
+
+    //mate scores are stored relative to the node, not the root
+    private static int toTableScore(final int score,
+                                    final int ply) {
+        return score >= MATE_SCORE - MAX_MATE_PLIES ? score + ply : score <= -MATE_SCORE + MAX_MATE_PLIES ? score - ply : score;
+    }
+
+    private static int fromTableScore(final int score,
+                                      final int ply) {
+        return score >= MATE_SCORE - MAX_MATE_PLIES ? score - ply : score <= -MATE_SCORE + MAX_MATE_PLIES ? score + ply : score;
+    }
+
+    public static boolean isMateScore(final int score) {
+        return Math.abs(score) >= MATE_SCORE - MAX_MATE_PLIES;
+    }
+
+    //moves to mate, negative when the side to move gets mated
+    public static int movesToMate(final int score) {
+        return score > 0 ? (MATE_SCORE - score + 1) / 2 : -(MATE_SCORE + score) / 2;
+    }
+
+    private Move[] legalMoves(final Board board) {
+        final List<Move> legalMoves = new ArrayList<>();
+        for (final Move move : orderMoves(board.currentPlayer().getLegalMoves(),
+                TranspositionTable.getMove(this.transpositionTable.probe(board.getZobristKey())), false)) {
+            if (board.currentPlayer().makeMove(move).getMoveStatus().isDone()) {
+                legalMoves.add(move);
+            }
+        }
+        return legalMoves.toArray(new Move[0]);
+    }
+
+    //hash move first, then captures by most valuable victim and least valuable attacker, then promotions
+    private static Move[] orderMoves(final Collection<Move> moves,
+                                     final int hashMove,
+                                     final boolean capturesOnly) {
+        final Move[] ordered = new Move[moves.size()];
+        final int[] priorities = new int[ordered.length];
+        int size = 0;
+        for (final Move move : moves) {
+            if (capturesOnly && !move.isAttack()) {
+                continue;
+            }
+            int priority = 0;
+            if (hashMove != 0 && Move.MoveFactory.encodeMove(move) == hashMove) {
+                priority = HASH_MOVE_PRIORITY;
+            } else if (move.isAttack()) {
+                priority = CAPTURE_PRIORITY + 10 * move.getAttackedPiece().getPieceValue() - move.getMovedPiece().getPieceValue() / 100;
+            } else if (move instanceof Move.PawnPromotion) {
+                priority = PROMOTION_PRIORITY;
+            }
+            int i = size++;
+            while (i > 0 && priorities[i - 1] < priority) {
+                ordered[i] = ordered[i - 1];
+                priorities[i] = priorities[i - 1];
+                i--;
+            }
+            ordered[i] = move;
+            priorities[i] = priority;
+        }
+        return size == ordered.length ? ordered : Arrays.copyOf(ordered, size);
+    }
+
+    //follows the hash moves from the root, stops at the first move that is missing or no longer legal
+    private List<Move> collectPrincipalVariation(final Board board,
+                                                 final int depth) {
+        final ImmutableList.Builder<Move> builder = ImmutableList.builder();
+        Board current = board;
+        for (int i = 0; i < depth; i++) {
+            final long entry = this.transpositionTable.probe(current.getZobristKey());
+            if (entry == TranspositionTable.NO_ENTRY) {
+                break;
+            }
+            final Move move = Move.MoveFactory.createMove(current, TranspositionTable.getMove(entry));
+            if (move == Move.NULL_MOVE) {
+                break;
+            }
+            final MoveTransition transition = current.currentPlayer().makeMove(move);
+            if (!transition.getMoveStatus().isDone()) {
+                break;
+            }
+            builder.add(move);
+            current = transition.getTransitionBoard();
+        }
+        return builder.build();
+    }
+}
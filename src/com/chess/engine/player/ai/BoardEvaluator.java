@@ -0,0 +1,9 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+
+public interface BoardEvaluator {
+
+    //positive scores favour white
+    int evaluate(Board board, int depth);
+}
@@ -0,0 +1,70 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.Player;
+
+//The terms StandardBoardEvaluator adds up, each as white's count minus black's, so an evaluation is the sum of
+//feature times weight. With DEFAULT_WEIGHTS that sum is exactly what StandardBoardEvaluator returns.
+//Kings are left out, both sides always have one.
+public final class EvaluationFeatures {
+
+    public static final int PAWNS = 0;
+    public static final int KNIGHTS = 1;
+    public static final int BISHOPS = 2;
+    public static final int ROOKS = 3;
+    public static final int QUEENS = 4;
+    public static final int MOBILITY = 5;
+    public static final int CHECK = 6;
+    public static final int NUM_FEATURES = 7;
+
+    private static final String[] NAMES = {"pawn", "knight", "bishop", "rook", "queen", "mobility", "check"};
+    private static final int[] DEFAULT_WEIGHTS = {
+            Piece.PieceType.PAWN.getPieceValue(),
+            Piece.PieceType.KNIGHT.getPieceValue(),
+            Piece.PieceType.BISHOP.getPieceValue(),
+            Piece.PieceType.ROOK.getPieceValue(),
+            Piece.PieceType.QUEEN.getPieceValue(),
+            StandardBoardEvaluator.MOBILITY_MULTIPLIER,
+            StandardBoardEvaluator.CHECK_BONUS
+    };
+
+    private EvaluationFeatures() {
+        throw new RuntimeException("You cannot instantiate me!");
+    }
+
+    public static int[] getDefaultWeights() {
+        return DEFAULT_WEIGHTS.clone();
+    }
+
+    public static String getName(final int feature) {
+        return NAMES[feature];
+    }
+
+    //writes the NUM_FEATURES values of the board to features, starting at offset
+    public static void extract(final Board board,
+                               final short[] features,
+                               final int offset) {
+        for (int i = 0; i < NUM_FEATURES; i++) {
+            features[offset + i] = 0;
+        }
+        addPlayer(board.whitePlayer(), features, offset, 1);
+        addPlayer(board.blackPlayer(), features, offset, -1);
+    }
+
+    private static void addPlayer(final Player player,
+                                  final short[] features,
+                                  final int offset,
+                                  final int sign) {
+        for (final Piece piece : player.getActivePieces()) {
+            final Piece.PieceType type = piece.getPieceType();
+            if (!type.isKing()) {
+                features[offset + type.ordinal()] = (short) (features[offset + type.ordinal()] + sign);
+            }
+        }
+        features[offset + MOBILITY] = (short) (features[offset + MOBILITY] + sign * player.getLegalMoves().size());
+        if (player.getOpponent().isInCheck()) {
+            features[offset + CHECK] = (short) (features[offset + CHECK] + sign);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+
+//StandardBoardEvaluator with its weights taken from outside, for weights that came out of tuning.
+public final class LinearBoardEvaluator implements BoardEvaluator {
+
+    private final int[] weights;
+
+    //ctor
+    public LinearBoardEvaluator(final int[] weights) {
+        if (weights.length != EvaluationFeatures.NUM_FEATURES) {
+            throw new RuntimeException("Need " + EvaluationFeatures.NUM_FEATURES + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    @Override
+    public int evaluate(final Board board,
+                        final int depth) {
+        final short[] features = new short[EvaluationFeatures.NUM_FEATURES];
+        EvaluationFeatures.extract(board, features, 0);
+        int score = 0;
+        for (int i = 0; i < features.length; i++) {
+            score += features[i] * this.weights[i];
+        }
+        return score;
+    }
+}
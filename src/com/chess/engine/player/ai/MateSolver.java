@@ -0,0 +1,337 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.MoveTransition;
+import com.chess.engine.telemetry.EngineTelemetry;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+import java.util.List;
+
+//Finds forced mates with depth-first proof-number search (df-pn), for puzzles and adjudication where
+//alpha-beta would have to search every defence to the full depth.
+//Every node is kept from the point of view of the side to move: phi is the proof number of it getting its way,
+//delta the disproof number. The attacker gets its way by mating, the defender by holding out until the moves run out.
+//Positions are stored together with the plies left, so the searched graph has no cycles and every proof is exact.
+//The table has a fixed number of entries in buckets of four. Once it is three quarters full the half of the entries
+//that took the least work is thrown away, before that a full bucket only replaces its cheapest entry.
+//stop() may be called from any thread. One instance solves one position at a time.
+public class MateSolver {
+
+    public static final int NO_MATE = 0;
+    public static final int UNKNOWN = -1;
+
+    private static final int INFINITY = 1 << 30;
+    private static final int BYTES_PER_ENTRY = 20;
+    private static final int BUCKET_SIZE = 4;
+    private static final int DEFAULT_HASH_SIZE = 16;
+    private static final int WORK_CLASSES = 32;
+    //a child is searched until its disproof number is a quarter above the second best, not just one above (1+epsilon trick)
+    private static final int EPSILON_DIVISOR = 4;
+    private static final long DEPTH_KEY = 0x9E3779B97F4A7C15L;
+
+    private final long[] keys;
+    private final int[] phis;
+    private final int[] deltas;
+    private final int[] works;
+    private final int mask;
+    private int numEntries;
+
+    private volatile boolean stopRequested;
+    private long maxNodes;
+    private long nodes;
+    private List<Move> mateLine;
+
+    //ctor
+    public MateSolver(final int megabytes) {
+        final long maxEntries = Math.max(BUCKET_SIZE, (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY);
+        final int numEntries = (int) Long.highestOneBit(Math.min(maxEntries, 1 << 28));
+        this.keys = new long[numEntries];
+        this.phis = new int[numEntries];
+        this.deltas = new int[numEntries];
+        this.works = new int[numEntries];
+        this.mask = numEntries - 1;
+        this.mateLine = ImmutableList.of();
+    }
+
+    public MateSolver() {
+        this(DEFAULT_HASH_SIZE);
+    }
+
+    public int size() {
+        return this.keys.length;
+    }
+
+    public void clear() {
+        Arrays.fill(this.keys, 0);
+        this.numEntries = 0;
+    }
+
+    //the search stops at its next node, a stop before the search starts is kept until clearStop()
+    public void stop() {
+        this.stopRequested = true;
+    }
+
+    public void clearStop() {
+        this.stopRequested = false;
+    }
+
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    //the moves of the last mate found, as far as the table still holds them
+    public List<Move> getMateLine() {
+        return this.mateLine;
+    }
+
+    //the number of moves of the shortest mate for the side to move, NO_MATE if there is none within maxMoves,
+    //UNKNOWN if maxNodes or stop() ended the search first
+    public int findMate(final Board board,
+                        final int maxMoves,
+                        final long maxNodes) {
+        this.maxNodes = maxNodes;
+        this.nodes = 0;
+        this.mateLine = ImmutableList.of();
+        try {
+            for (int moves = 1; moves <= maxMoves; moves++) {
+                final int depth = 2 * moves - 1;
+                final long result = search(board, depth, INFINITY, INFINITY);
+                if (isAborted()) {
+                    return UNKNOWN;
+                }
+                if (phi(result) == 0) {
+                    this.mateLine = collectMateLine(board, depth);
+                    return moves;
+                }
+            }
+            return NO_MATE;
+        } finally {
+            EngineTelemetry.addNodes(this.nodes);
+        }
+    }
+
+    //true if the side to move mates within the given number of moves however the other side defends
+    public boolean isMateIn(final Board board,
+                            final int moves,
+                            final long maxNodes) {
+        final int result = findMate(board, moves, maxNodes);
+        return result != NO_MATE && result != UNKNOWN;
+    }
+
+    private boolean isAborted() {
+        return this.stopRequested || this.nodes >= this.maxNodes;
+    }
+
+    //expands the node until its phi or delta reaches the threshold, returns both packed into a long
+    private long search(final Board board,
+                        final int depth,
+                        final int thresholdPhi,
+                        final int thresholdDelta) {
+        final long key = key(board, depth);
+        final long entry = probe(key);
+        if (phi(entry) >= thresholdPhi || delta(entry) >= thresholdDelta) {
+            return entry;
+        }
+        final long startNodes = this.nodes++;
+        if (depth == 0) {
+            //the attacker has made its last move
+            final long value = board.currentPlayer().isInCheckMate() ? pack(INFINITY, 0) : pack(0, INFINITY);
+            store(key, phi(value), delta(value), 1);
+            return value;
+        }
+        //the last move of the attacker only has to look at checks
+        final Board[] children = legalChildren(board, depth == 1);
+        if (children.length == 0) {
+            //mated or stalemated, a stalemate is as good as holding out for the defender
+            final boolean lost = (depth & 1) == 1 || board.currentPlayer().isInCheck();
+            final long value = lost ? pack(INFINITY, 0) : pack(0, INFINITY);
+            store(key, phi(value), delta(value), 1);
+            return value;
+        }
+        final int[] childPhis = new int[children.length];
+        final int[] childDeltas = new int[children.length];
+        for (int i = 0; i < children.length; i++) {
+            final long childEntry = probe(key(children[i], depth - 1));
+            childPhis[i] = phi(childEntry);
+            childDeltas[i] = delta(childEntry);
+        }
+        int phi;
+        int delta;
+        while (true) {
+            phi = INFINITY;
+            long deltaSum = 0;
+            int best = 0;
+            int secondDelta = INFINITY;
+            for (int i = 0; i < children.length; i++) {
+                if (childDeltas[i] < phi) {
+                    secondDelta = phi;
+                    phi = childDeltas[i];
+                    best = i;
+                } else if (childDeltas[i] < secondDelta) {
+                    secondDelta = childDeltas[i];
+                }
+                deltaSum += childPhis[i];
+            }
+            delta = (int) Math.min(deltaSum, INFINITY);
+            if (phi >= thresholdPhi || delta >= thresholdDelta || isAborted()) {
+                break;
+            }
+            final int childThresholdPhi = (int) Math.min((long) thresholdDelta - delta + childPhis[best], INFINITY);
+            final int childThresholdDelta = (int) Math.min(thresholdPhi,
+                    secondDelta + 1L + secondDelta / EPSILON_DIVISOR);
+            final long childValue = search(children[best], depth - 1, childThresholdPhi, childThresholdDelta);
+            childPhis[best] = phi(childValue);
+            childDeltas[best] = delta(childValue);
+        }
+        store(key, phi, delta, this.nodes - startNodes);
+        return pack(phi, delta);
+    }
+
+    private static Board[] legalChildren(final Board board,
+                                         final boolean checksOnly) {
+        final Board[] children = new Board[board.currentPlayer().getLegalMoves().size()];
+        int numChildren = 0;
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if (transition.getMoveStatus().isDone() &&
+                    (!checksOnly || transition.getTransitionBoard().currentPlayer().isInCheck())) {
+                children[numChildren++] = transition.getTransitionBoard();
+            }
+        }
+        return Arrays.copyOf(children, numChildren);
+    }
+
+    private List<Move> collectMateLine(final Board root,
+                                       final int rootDepth) {
+        final ImmutableList.Builder<Move> line = ImmutableList.builder();
+        Board board = root;
+        for (int depth = rootDepth; depth > 0; depth--) {
+            //the attacker plays a move that is proven, the defender the one that took the most work to refute
+            final boolean attacker = (depth & 1) == 1;
+            Move next = null;
+            Board nextBoard = null;
+            int mostWork = -1;
+            for (final Move move : board.currentPlayer().getLegalMoves()) {
+                final MoveTransition transition = board.currentPlayer().makeMove(move);
+                if (!transition.getMoveStatus().isDone()) {
+                    continue;
+                }
+                final long childKey = key(transition.getTransitionBoard(), depth - 1);
+                final int index = find(childKey);
+                if (index == -1) {
+                    continue;
+                }
+                if (attacker ? this.phis[index] == INFINITY : this.phis[index] == 0 && this.works[index] > mostWork) {
+                    next = move;
+                    nextBoard = transition.getTransitionBoard();
+                    mostWork = this.works[index];
+                    if (attacker) {
+                        break;
+                    }
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            line.add(next);
+            board = nextBoard;
+        }
+        return line.build();
+    }
+
+    private static long key(final Board board,
+                            final int depth) {
+        return board.getZobristKey() ^ (depth + 1) * DEPTH_KEY;
+    }
+
+    private static long pack(final int phi,
+                             final int delta) {
+        return ((long) phi << 32) | delta;
+    }
+
+    private static int phi(final long value) {
+        return (int) (value >>> 32);
+    }
+
+    private static int delta(final long value) {
+        return (int) value;
+    }
+
+    private int find(final long key) {
+        final int bucket = (int) key & this.mask & -BUCKET_SIZE;
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            if (this.keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //a node that was never searched counts as one step from being proven and one from being disproven
+    private long probe(final long key) {
+        final int index = find(key);
+        return index == -1 ? pack(1, 1) : pack(this.phis[index], this.deltas[index]);
+    }
+
+    private void store(final long key,
+                       final int phi,
+                       final int delta,
+                       final long work) {
+        long totalWork = work;
+        int index = find(key);
+        if (index != -1) {
+            totalWork += this.works[index];
+        } else {
+            if (this.numEntries >= this.keys.length / 4 * 3) {
+                collectGarbage();
+            }
+            index = freeSlot((int) key & this.mask & -BUCKET_SIZE);
+        }
+        this.keys[index] = key;
+        this.phis[index] = phi;
+        this.deltas[index] = delta;
+        this.works[index] = (int) Math.min(totalWork, Integer.MAX_VALUE);
+    }
+
+    //an empty slot of the bucket or else its cheapest entry
+    private int freeSlot(final int bucket) {
+        int cheapest = bucket;
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            if (this.keys[i] == 0) {
+                this.numEntries++;
+                return i;
+            }
+            if (this.works[i] < this.works[cheapest]) {
+                cheapest = i;
+            }
+        }
+        return cheapest;
+    }
+
+    //removes the entries below the work class that holds the median, at least half of them
+    private void collectGarbage() {
+        final int[] classes = new int[WORK_CLASSES + 1];
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] != 0) {
+                classes[workClass(this.works[i])]++;
+            }
+        }
+        int threshold = 0;
+        int removed = 0;
+        while (removed < this.numEntries / 2 && threshold <= WORK_CLASSES) {
+            removed += classes[threshold++];
+        }
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] != 0 && workClass(this.works[i]) < threshold) {
+                this.keys[i] = 0;
+                this.numEntries--;
+            }
+        }
+    }
+
+    private static int workClass(final int work) {
+        return 32 - Integer.numberOfLeadingZeros(work);
+    }
+}
@@ -0,0 +1,367 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.MoveTransition;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Monte Carlo tree search with PUCT selection, a weaker but more parallel alternative to AlphaBeta.
+//A leaf is scored by the evaluator squashed into -1..1 instead of a random playout,
+//priors favour mates, captures, promotions and checks.
+//The tree lives in an arena of primitive arrays, a node is an index: visits, value sum, the move into it,
+//its prior and the range of its children, which are allocated next to each other when it is expanded.
+//Workers walk the tree at the same time. Every node on the way down gets its visit and a virtual loss at once,
+//so the others spread out over different lines, the loss is turned into the real value on the way back up.
+//Boards are not kept: a walk replays the moves from the root with Move.execute().
+//stop() may be called from any thread. One instance searches one position at a time.
+public class MonteCarloTreeSearch implements MoveStrategy {
+
+    public static final int DEFAULT_NUM_NODES = 1 << 20;
+
+    private static final int ROOT = 0;
+    private static final int UNEXPANDED = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+    private static final int MAX_PLIES = 256;
+    //values are summed as fixed point numbers, one is VALUE_SCALE
+    private static final long VALUE_SCALE = 1 << 16;
+    private static final long VIRTUAL_LOSS = VALUE_SCALE;
+    private static final double EXPLORATION = 1.5;
+    //a move that was never tried is taken to be this much worse than the position
+    private static final double FIRST_PLAY_REDUCTION = 0.2;
+    private static final double MATE_PRIOR_WEIGHT = 1000;
+    //centipawns at which a score is worth about three quarters of a win
+    private static final double EVALUATION_SCALE = 400;
+    private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final BoardEvaluator evaluator;
+    private final int numWorkers;
+    private final int numPlayouts;
+    private final ExecutorService workers;
+    private final AtomicIntegerArray visits;
+    private final AtomicLongArray values;
+    private final AtomicIntegerArray states;
+    private final int[] moves;
+    private final float[] priors;
+    private final int[] firstChildren;
+    private final int[] numChildren;
+    private final AtomicInteger nextNode;
+    private final AtomicLong playouts;
+    private SearchListener listener;
+
+    private volatile boolean stopRequested;
+    private volatile long deadline;
+    private volatile boolean arenaFull;
+    private long maxPlayouts;
+    private long startTime;
+    private Board root;
+    private List<Move> principalVariation;
+    private int score;
+
+    //ctor
+    public MonteCarloTreeSearch(final BoardEvaluator evaluator,
+                                final int numWorkers,
+                                final int numNodes,
+                                final int numPlayouts) {
+        this.evaluator = evaluator;
+        this.numWorkers = numWorkers;
+        this.numPlayouts = numPlayouts;
+        //the calling thread is one of the workers
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = numWorkers > 1 ? Executors.newFixedThreadPool(numWorkers - 1, runnable -> {
+            final Thread thread = new Thread(runnable, "mcts-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        this.visits = new AtomicIntegerArray(numNodes);
+        this.values = new AtomicLongArray(numNodes);
+        this.states = new AtomicIntegerArray(numNodes);
+        this.moves = new int[numNodes];
+        this.priors = new float[numNodes];
+        this.firstChildren = new int[numNodes];
+        this.numChildren = new int[numNodes];
+        this.nextNode = new AtomicInteger();
+        this.playouts = new AtomicLong();
+        this.principalVariation = ImmutableList.of();
+    }
+
+    public MonteCarloTreeSearch(final int numWorkers,
+                                final int numPlayouts) {
+        this(new StandardBoardEvaluator(), numWorkers, DEFAULT_NUM_NODES, numPlayouts);
+    }
+
+    public void setSearchListener(final SearchListener listener) {
+        this.listener = listener;
+    }
+
+    //the search stops after the playouts under way, a stop before the search starts is kept until clearStop()
+    public void stop() {
+        this.stopRequested = true;
+    }
+
+    public void clearStop() {
+        this.stopRequested = false;
+    }
+
+    //System.nanoTime() based or AlphaBeta.NO_DEADLINE, may be moved while the search runs
+    public void setDeadline(final long deadline) {
+        this.deadline = deadline;
+    }
+
+    public int getNumWorkers() {
+        return this.numWorkers;
+    }
+
+    public long getPlayouts() {
+        return this.playouts.get();
+    }
+
+    //centipawns from the point of view of the side to move, like AlphaBeta's
+    public int getScore() {
+        return this.score;
+    }
+
+    public List<Move> getPrincipalVariation() {
+        return this.principalVariation;
+    }
+
+    //stops the worker threads, the instance can't search afterwards
+    public void shutdown() {
+        if (this.workers != null) {
+            this.workers.shutdownNow();
+        }
+    }
+
+    @Override
+    public Move execute(final Board board) {
+        clearStop();
+        setDeadline(AlphaBeta.NO_DEADLINE);
+        return search(board, this.numPlayouts);
+    }
+
+    //NULL_MOVE if the side to move has no legal move, the most visited root move otherwise.
+    //Runs until maxPlayouts, the deadline or stop(), set those up and clear the stop flag before calling it.
+    public Move search(final Board board,
+                       final long maxPlayouts) {
+        this.startTime = System.nanoTime();
+        this.maxPlayouts = maxPlayouts;
+        this.root = board;
+        this.playouts.set(0);
+        this.arenaFull = false;
+        this.nextNode.set(ROOT + 1);
+        this.visits.set(ROOT, 0);
+        this.values.set(ROOT, 0);
+        this.states.set(ROOT, UNEXPANDED);
+        this.principalVariation = ImmutableList.of();
+        this.score = 0;
+        if (!expand(ROOT, board) || this.numChildren[ROOT] == 0) {
+            return Move.NULL_MOVE;
+        }
+        final List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 1; i < this.numWorkers; i++) {
+            tasks.add(this.workers.submit(() -> runPlayouts(false)));
+        }
+        runPlayouts(true);
+        for (final Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final ExecutionException e) {
+                throw new RuntimeException("Search worker failed", e.getCause());
+            }
+        }
+        report();
+        //stopped before the first playout came back
+        return this.principalVariation.isEmpty() ?
+                Move.MoveFactory.createMove(board, this.moves[this.firstChildren[ROOT]]) : this.principalVariation.get(0);
+    }
+
+    private void runPlayouts(final boolean reporter) {
+        final int[] path = new int[MAX_PLIES + 1];
+        long nextReport = System.nanoTime() + REPORT_INTERVAL;
+        while (!this.stopRequested && this.playouts.get() < this.maxPlayouts) {
+            playout(path);
+            this.playouts.incrementAndGet();
+            final long now = System.nanoTime();
+            final long currentDeadline = this.deadline;
+            if (currentDeadline != AlphaBeta.NO_DEADLINE && now - currentDeadline >= 0) {
+                break;
+            }
+            if (reporter && now - nextReport >= 0) {
+                report();
+                nextReport = now + REPORT_INTERVAL;
+            }
+        }
+    }
+
+    private void playout(final int[] path) {
+        int node = ROOT;
+        Board board = this.root;
+        int length = 0;
+        path[length++] = ROOT;
+        this.visits.incrementAndGet(ROOT);
+        while (this.states.get(node) == EXPANDED && this.numChildren[node] > 0 && length <= MAX_PLIES) {
+            node = select(node);
+            this.visits.incrementAndGet(node);
+            this.values.addAndGet(node, -VIRTUAL_LOSS);
+            board = Move.MoveFactory.createMove(board, this.moves[node]).execute();
+            path[length++] = node;
+        }
+        double value;
+        if (this.states.get(node) == EXPANDED || !this.states.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+            //a finished game, the end of the arena or a node another worker is expanding right now
+            value = this.states.get(node) == EXPANDED && this.numChildren[node] == 0 ?
+                    terminalValue(board) : evaluate(board);
+        } else if (expand(node, board)) {
+            value = this.numChildren[node] == 0 ? terminalValue(board) : evaluate(board);
+        } else {
+            value = evaluate(board);
+        }
+        //every node holds the value for the side that moved into it, the root never had a virtual loss
+        for (int i = length - 1; i >= 0; i--) {
+            value = -value;
+            this.values.addAndGet(path[i], Math.round(value * VALUE_SCALE) + (i > 0 ? VIRTUAL_LOSS : 0));
+        }
+    }
+
+    //the child with the best value plus exploration bonus
+    private int select(final int node) {
+        final int first = this.firstChildren[node];
+        final int last = first + this.numChildren[node];
+        final int nodeVisits = this.visits.get(node);
+        final double exploration = EXPLORATION * Math.sqrt(nodeVisits);
+        final double firstPlayValue = (nodeVisits > 0 ? -(double) this.values.get(node) / (nodeVisits * VALUE_SCALE) : 0) -
+                                      FIRST_PLAY_REDUCTION;
+        int best = first;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < last; child++) {
+            final int childVisits = this.visits.get(child);
+            final double value = childVisits > 0 ? (double) this.values.get(child) / (childVisits * VALUE_SCALE) : firstPlayValue;
+            final double childScore = value + exploration * this.priors[child] / (1 + childVisits);
+            if (childScore > bestScore) {
+                bestScore = childScore;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    //allocates and fills in the children, false if the arena has no room left for them
+    private boolean expand(final int node,
+                           final Board board) {
+        if (this.arenaFull) {
+            this.states.set(node, UNEXPANDED);
+            return false;
+        }
+        final List<Move> legalMoves = new ArrayList<>();
+        final List<Double> weights = new ArrayList<>();
+        double priorSum = 0;
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if (transition.getMoveStatus().isDone()) {
+                final double weight = priorWeight(move, transition.getTransitionBoard());
+                legalMoves.add(move);
+                weights.add(weight);
+                priorSum += weight;
+            }
+        }
+        final int first = this.nextNode.getAndAdd(legalMoves.size());
+        if (first + legalMoves.size() > this.moves.length) {
+            this.arenaFull = true;
+            this.states.set(node, UNEXPANDED);
+            return false;
+        }
+        for (int i = 0; i < legalMoves.size(); i++) {
+            final int child = first + i;
+            this.moves[child] = Move.MoveFactory.encodeMove(legalMoves.get(i));
+            this.priors[child] = (float) (weights.get(i) / priorSum);
+            this.visits.set(child, 0);
+            this.values.set(child, 0);
+            this.states.set(child, UNEXPANDED);
+        }
+        this.firstChildren[node] = first;
+        this.numChildren[node] = legalMoves.size();
+        //the volatile write publishes the children to the other workers
+        this.states.set(node, EXPANDED);
+        return true;
+    }
+
+    //the board after the move is there anyway from checking that the move is legal
+    private static double priorWeight(final Move move,
+                                      final Board next) {
+        if (next.currentPlayer().isInCheck()) {
+            return next.currentPlayer().isInCheckMate() ? MATE_PRIOR_WEIGHT : 2;
+        }
+        double weight = 1;
+        if (move.isAttack()) {
+            weight += move.getAttackedPiece().getPieceValue() / 100.0;
+        }
+        if (move instanceof Move.PawnPromotion) {
+            weight += 8;
+        }
+        return weight;
+    }
+
+    //for the side to move, which has no legal move
+    private static double terminalValue(final Board board) {
+        return board.currentPlayer().isInCheck() ? -1 : 0;
+    }
+
+    //for the side to move
+    private double evaluate(final Board board) {
+        final int whiteScore = this.evaluator.evaluate(board, 0);
+        final int score = board.currentPlayer().getAlliance().isWhite() ? whiteScore : -whiteScore;
+        return Math.tanh(score / EVALUATION_SCALE);
+    }
+
+    //follows the most visited children from the root and hands the line to the listener
+    private void report() {
+        final ImmutableList.Builder<Move> builder = ImmutableList.builder();
+        Board board = this.root;
+        int node = ROOT;
+        double value = 0;
+        while (this.states.get(node) == EXPANDED && this.numChildren[node] > 0) {
+            final int first = this.firstChildren[node];
+            int best = first;
+            for (int child = first + 1; child < first + this.numChildren[node]; child++) {
+                if (this.visits.get(child) > this.visits.get(best)) {
+                    best = child;
+                }
+            }
+            if (this.visits.get(best) == 0) {
+                break;
+            }
+            if (node == ROOT) {
+                value = (double) this.values.get(best) / (this.visits.get(best) * VALUE_SCALE);
+            }
+            final Move move = Move.MoveFactory.createMove(board, this.moves[best]);
+            builder.add(move);
+            board = move.execute();
+            node = best;
+        }
+        this.principalVariation = builder.build();
+        //back from -1..1 to centipawns, clamped short of the infinities at a certain result
+        this.score = (int) Math.round(EVALUATION_SCALE * atanh(Math.max(-0.999, Math.min(0.999, value))));
+        if (this.listener != null) {
+            this.listener.iterationCompleted(this.principalVariation.size(), this.score, this.playouts.get(),
+                    System.nanoTime() - this.startTime, this.principalVariation);
+        }
+    }
+
+    private static double atanh(final double x) {
+        return 0.5 * Math.log((1 + x) / (1 - x));
+    }
+}
@@ -0,0 +1,16 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Move;
+
+import java.util.List;
+
+//Called on the search thread after every completed iteration, implementations should hand the data off and return.
+public interface SearchListener {
+
+    //score is from the point of view of the side to move
+    void iterationCompleted(int depth,
+                            int score,
+                            long nodes,
+                            long elapsedNanos,
+                            List<Move> principalVariation);
+}
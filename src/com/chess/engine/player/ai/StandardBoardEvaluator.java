@@ -0,0 +1,37 @@
+package com.chess.engine.player.ai;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.Player;
+
+public final class StandardBoardEvaluator implements BoardEvaluator {
+
+    static final int CHECK_BONUS = 50;
+    static final int MOBILITY_MULTIPLIER = 5;
+
+    @Override
+    public int evaluate(final Board board,
+                        final int depth) {
+        return scorePlayer(board.whitePlayer()) - scorePlayer(board.blackPlayer());
+    }
+
+    private static int scorePlayer(final Player player) {
+        return pieceValue(player) + mobility(player) + check(player);
+    }
+
+    private static int pieceValue(final Player player) {
+        int pieceValueScore = 0;
+        for (final Piece piece : player.getActivePieces()) {
+            pieceValueScore += piece.getPieceValue();
+        }
+        return pieceValueScore;
+    }
+
+    private static int mobility(final Player player) {
+        return MOBILITY_MULTIPLIER * player.getLegalMoves().size();
+    }
+
+    private static int check(final Player player) {
+        return player.getOpponent().isInCheck() ? CHECK_BONUS : 0;
+    }
+}
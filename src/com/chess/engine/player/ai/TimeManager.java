@@ -0,0 +1,115 @@
+package com.chess.engine.player.ai;
+
+import java.util.concurrent.TimeUnit;
+
+//Turns the clock into two limits for one move.
+//The soft limit is a target that is checked between iterations of the iterative deepening:
+//it shrinks while the best move stays the same and grows when the score drops.
+//The hard limit is a deadline the search polls every few nodes and never runs past.
+//The clock starts with start(), a pondering search starts it on ponderhit.
+public class TimeManager {
+
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    private static final int MAX_MOVES_TO_GO = 50;
+    private static final int HARD_LIMIT_FACTOR = 4;
+    //an iteration takes a few times longer than the one before, don't start one that can't finish
+    private static final double NEXT_ITERATION_FACTOR = 0.6;
+    private static final int SMALL_SCORE_DROP = 30;
+    private static final int LARGE_SCORE_DROP = 80;
+
+    private final long softLimit;
+    private final long hardLimit;
+    private volatile long startTime;
+    private volatile boolean started;
+    private int previousBestMove;
+    private int previousScore;
+    private int stableIterations;
+
+    //ctor
+    private TimeManager(final long softLimitMillis,
+                        final long hardLimitMillis) {
+        this.softLimit = TimeUnit.MILLISECONDS.toNanos(softLimitMillis);
+        this.hardLimit = TimeUnit.MILLISECONDS.toNanos(hardLimitMillis);
+    }
+
+    //movesToGo of 0 means the rest of the game
+    public static TimeManager forClock(final long remainingMillis,
+                                       final long incrementMillis,
+                                       final int movesToGo,
+                                       final long moveOverheadMillis) {
+        final long available = Math.max(1, remainingMillis - moveOverheadMillis);
+        final int moves = movesToGo > 0 ? Math.min(movesToGo, MAX_MOVES_TO_GO) : DEFAULT_MOVES_TO_GO;
+        //the last move before the time control may use almost everything, any other never more than a third
+        final long maxShare = moves == 1 ? available * 9 / 10 : available / 3;
+        final long target = available / moves + incrementMillis * 3 / 4;
+        final long hardLimit = Math.max(1, Math.min(target * HARD_LIMIT_FACTOR, maxShare));
+        return new TimeManager(Math.max(1, Math.min(target, hardLimit)), hardLimit);
+    }
+
+    //go movetime, the whole time is used
+    public static TimeManager forMoveTime(final long moveTimeMillis,
+                                          final long moveOverheadMillis) {
+        final long limit = Math.max(1, moveTimeMillis - moveOverheadMillis);
+        return new TimeManager(limit, limit);
+    }
+
+    public void start() {
+        this.startTime = System.nanoTime();
+        this.started = true;
+    }
+
+    public boolean isStarted() {
+        return this.started;
+    }
+
+    //System.nanoTime() based, for AlphaBeta.setDeadline()
+    public long getHardDeadline() {
+        return this.startTime + this.hardLimit;
+    }
+
+    //System.nanoTime() based, for searches without iterations to decide between
+    public long getSoftDeadline() {
+        return this.startTime + this.softLimit;
+    }
+
+    public long getSoftLimitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.softLimit);
+    }
+
+    public long getHardLimitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.hardLimit);
+    }
+
+    //called after every completed iteration, true if the next one should not be started
+    public boolean shouldStop(final int depth,
+                              final int bestMove,
+                              final int score) {
+        if (depth > 1 && bestMove == this.previousBestMove) {
+            this.stableIterations++;
+        } else {
+            this.stableIterations = 0;
+        }
+        final int scoreDrop = depth > 1 ? this.previousScore - score : 0;
+        this.previousBestMove = bestMove;
+        this.previousScore = score;
+        if (!this.started) {
+            return false; //still pondering
+        }
+        double scale = 1.0;
+        if (this.stableIterations >= 4) {
+            scale = 0.4;
+        } else if (this.stableIterations >= 2) {
+            scale = 0.7;
+        } else if (this.stableIterations == 0 && depth > 1) {
+            scale = 1.3;
+        }
+        if (scoreDrop >= LARGE_SCORE_DROP) {
+            scale *= 2.0;
+        } else if (scoreDrop >= SMALL_SCORE_DROP) {
+            scale *= 1.5;
+        }
+        final long target = Math.min((long) (this.softLimit * scale), this.hardLimit);
+        final long elapsed = System.nanoTime() - this.startTime;
+        return elapsed >= target * NEXT_ITERATION_FACTOR;
+    }
+}
@@ -0,0 +1,76 @@
+package com.chess.engine.player.ai;
+
+import java.util.Arrays;
+
+//Fixed size, always replace hash table from Zobrist key to search results, two longs per entry.
+//An entry is packed into one long: move (16 bits), depth (8), bound (2), a used bit and the score in the upper 32 bits.
+//The key is stored xor-ed with the data, a torn write from another thread then just reads as a miss.
+public class TranspositionTable {
+
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+    public static final long NO_ENTRY = 0;
+
+    private static final long USED_BIT = 1L << 26;
+    private static final int BYTES_PER_ENTRY = 16;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+
+    //ctor
+    public TranspositionTable(final int megabytes) {
+        final long maxEntries = Math.max(1, (long) megabytes * 1024 * 1024 / BYTES_PER_ENTRY);
+        final int numEntries = (int) Long.highestOneBit(Math.min(maxEntries, 1 << 30));
+        this.keys = new long[numEntries];
+        this.entries = new long[numEntries];
+        this.mask = numEntries - 1;
+    }
+
+    public int size() {
+        return this.entries.length;
+    }
+
+    public void clear() {
+        Arrays.fill(this.keys, 0);
+        Arrays.fill(this.entries, 0);
+    }
+
+    public long probe(final long key) {
+        final int index = (int) key & this.mask;
+        final long entry = this.entries[index];
+        return (this.keys[index] ^ entry) == key ? entry : NO_ENTRY;
+    }
+
+    public void store(final long key,
+                      final int move,
+                      final int score,
+                      final int depth,
+                      final int bound) {
+        final int index = (int) key & this.mask;
+        final long entry = (move & 0xFFFFL) |
+                           ((long) (depth & 0xFF) << 16) |
+                           ((long) bound << 24) |
+                           USED_BIT |
+                           ((long) score << 32);
+        this.entries[index] = entry;
+        this.keys[index] = key ^ entry;
+    }
+
+    public static int getMove(final long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    public static int getDepth(final long entry) {
+        return (int) ((entry >>> 16) & 0xFF);
+    }
+
+    public static int getBound(final long entry) {
+        return (int) ((entry >>> 24) & 0x3);
+    }
+
+    public static int getScore(final long entry) {
+        return (int) (entry >> 32);
+    }
+}
@@ -0,0 +1,97 @@
+package com.chess.engine.server;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.ai.AlphaBeta;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.engine.player.ai.TimeManager;
+import com.chess.engine.player.ai.TranspositionTable;
+import com.chess.engine.tablebase.Tablebases;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Runs the engine replies of all sessions on a fixed pool of platform threads.
+//Searching is pure CPU work, on a virtual thread it would hold a carrier for the whole search,
+//so sessions hand it off here and park until the move is back.
+//The queue is bounded: a session waits for a slot on a semaphore (parking is cheap on a virtual thread)
+//instead of the executor rejecting the search. Positions in the tablebases are answered from the tables.
+class EngineService {
+
+    private final ThreadPoolExecutor pool;
+    private final Semaphore slots;
+    private final long moveTimeMillis;
+    private final ThreadLocal<AlphaBeta> searches;
+    private final Tablebases tablebases;
+
+    //ctor
+    EngineService(final int numThreads,
+                  final int queueCapacity,
+                  final long moveTimeMillis,
+                  final int hashSize,
+                  final Tablebases tablebases) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(numThreads, numThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    final Thread thread = new Thread(runnable, "engine-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.slots = new Semaphore(numThreads + queueCapacity);
+        this.moveTimeMillis = moveTimeMillis;
+        this.tablebases = tablebases;
+        //one search, with its own transposition table, per pool thread
+        this.searches = ThreadLocal.withInitial(() -> {
+            final AlphaBeta search = new AlphaBeta(new StandardBoardEvaluator(), new TranspositionTable(hashSize), AlphaBeta.MAX_DEPTH);
+            search.setTablebases(tablebases);
+            return search;
+        });
+    }
+
+    //blocks the calling session until the reply is found, NULL_MOVE if there is no legal move
+    Move reply(final Board board) throws InterruptedException {
+        this.slots.acquire();
+        try {
+            final Future<Move> move = this.pool.submit(() -> search(board));
+            return move.get();
+        } catch (final ExecutionException e) {
+            throw new RuntimeException("Engine search failed", e.getCause());
+        } finally {
+            this.slots.release();
+        }
+    }
+
+    private Move search(final Board board) {
+        if (this.tablebases != null) {
+            final Move move = this.tablebases.bestMove(board);
+            if (move != Move.NULL_MOVE) {
+                return move;
+            }
+        }
+        final AlphaBeta search = this.searches.get();
+        final TimeManager timeManager = TimeManager.forMoveTime(this.moveTimeMillis, 0);
+        timeManager.start();
+        search.setTimeManager(timeManager);
+        search.setDeadline(timeManager.getHardDeadline());
+        search.clearStop();
+        return search.search(board, AlphaBeta.MAX_DEPTH, Long.MAX_VALUE);
+    }
+
+    //the result the tablebases know for the board, null without tablebases or if they don't know it
+    String adjudicate(final Board board) {
+        return this.tablebases != null ? this.tablebases.adjudicate(board) : null;
+    }
+
+    int getQueuedSearches() {
+        return this.pool.getQueue().size();
+    }
+
+    void shutdown() {
+        this.pool.shutdownNow();
+    }
+}
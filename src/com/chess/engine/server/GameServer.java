@@ -0,0 +1,107 @@
+package com.chess.engine.server;
+
+import com.chess.engine.journal.GameJournal;
+import com.chess.engine.tablebase.Tablebases;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Hosts any number of simultaneous games over local TCP, one virtual thread per connection.
+//Sessions block freely on their sockets and on engine replies, which run on EngineService's bounded platform pool.
+//With a GameJournal every game is journaled, and the games that were still running when the server went down
+//are rebuilt on startup for their clients to resume. With Tablebases the engine plays endgames perfectly
+//and games are adjudicated as soon as they reach a position the tables know.
+public class GameServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 7777;
+    public static final int DEFAULT_MOVE_TIME = 1000;
+
+    private static final int BACKLOG = 1024;
+    private static final int ENGINE_QUEUE_CAPACITY = 1024;
+    private static final int ENGINE_HASH_SIZE = 16;
+
+    private final ServerSocket serverSocket;
+    private final EngineService engine;
+    private final ExecutorService sessions;
+    private final AtomicInteger activeSessions;
+    private final GameJournal journal;
+    private final Map<Long, GameJournal.RecoveredGame> recoveredGames;
+
+    //ctor
+    public GameServer(final int port,
+                      final int engineThreads,
+                      final long moveTimeMillis,
+                      final GameJournal journal,
+                      final Tablebases tablebases) throws IOException, InterruptedException {
+        this.journal = journal;
+        this.recoveredGames = journal != null ? journal.recover(Runtime.getRuntime().availableProcessors()) : Map.of();
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        this.engine = new EngineService(engineThreads, ENGINE_QUEUE_CAPACITY, moveTimeMillis, ENGINE_HASH_SIZE, tablebases);
+        this.sessions = Executors.newVirtualThreadPerTaskExecutor();
+        this.activeSessions = new AtomicInteger();
+    }
+
+    public GameServer(final int port) throws IOException, InterruptedException {
+        this(port, Runtime.getRuntime().availableProcessors(), DEFAULT_MOVE_TIME, null, null);
+    }
+
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    public int getActiveSessions() {
+        return this.activeSessions.get();
+    }
+
+    //games rebuilt from the journal that no client has resumed yet
+    public int getRecoveredGames() {
+        return this.recoveredGames.size();
+    }
+
+    public int getQueuedSearches() {
+        return this.engine.getQueuedSearches();
+    }
+
+    //accepts connections until close()
+    public void run() throws IOException {
+        while (!this.serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = this.serverSocket.accept();
+            } catch (final SocketException e) {
+                if (this.serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            socket.setTcpNoDelay(true);
+            final GameSession session = new GameSession(socket, this.engine, this.journal, this.recoveredGames);
+            this.activeSessions.incrementAndGet();
+            this.sessions.execute(() -> {
+                try {
+                    session.run();
+                } finally {
+                    this.activeSessions.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.serverSocket.close();
+        this.sessions.shutdownNow();
+        this.engine.shutdown();
+        if (this.journal != null) {
+            this.journal.close();
+        }
+    }
+}
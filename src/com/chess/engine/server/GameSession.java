@@ -0,0 +1,229 @@
+package com.chess.engine.server;
+
+import com.chess.engine.Alliance;
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.game.Game;
+import com.chess.engine.journal.GameJournal;
+import com.chess.engine.notation.CoordinateNotation;
+import com.chess.engine.notation.FenParser;
+import com.chess.engine.notation.FenWriter;
+import com.chess.engine.player.MoveTransition;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//One client connection playing one game at a time against the engine, run on its own virtual thread.
+//All state is confined to that thread and the boards are immutable, so sessions share nothing but the EngineService.
+//
+//new [white|black]   start from the initial position, the client plays the given side (white by default)
+//fen <fen>           start from a position, the client plays the side to move, such games are not journaled
+//resume <id>         continue a journaled game that was running when the server went down
+//move <move>         play a move in coordinate notation (e2e4, e7e8q), the engine answers with its own
+//board               the current position as FEN
+//quit
+//
+//Replies: ok [id], move <move>, illegal <move>, result <1-0|0-1|1/2-1/2> <reason>, fen <fen>, error <message>, bye
+class GameSession implements Runnable {
+
+    private final Socket socket;
+    private final EngineService engine;
+    private final FenParser fenParser;
+    private final GameJournal journal;
+    private final Map<Long, GameJournal.RecoveredGame> recoveredGames;
+    private Game game;
+    private Alliance clientAlliance;
+    private long gameId;
+    private long lastMoveTime;
+    //the tablebases decided the game before the board did
+    private boolean adjudicated;
+
+    //ctor
+    GameSession(final Socket socket,
+                final EngineService engine,
+                final GameJournal journal,
+                final Map<Long, GameJournal.RecoveredGame> recoveredGames) {
+        this.socket = socket;
+        this.engine = engine;
+        this.journal = journal;
+        this.recoveredGames = recoveredGames;
+        this.fenParser = new FenParser();
+        this.game = Game.createStandardGame();
+        this.clientAlliance = Alliance.WHITE;
+        this.gameId = -1;
+    }
+
+    @Override
+    public void run() {
+        try (final Socket connection = this.socket;
+             final BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
+             final Writer out = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                final String command = line.trim();
+                if (command.equals("quit")) {
+                    send(out, "bye");
+                    break;
+                }
+                try {
+                    handleCommand(command, out);
+                } catch (final RuntimeException e) {
+                    send(out, "error " + e.getMessage());
+                }
+            }
+        } catch (final IOException e) {
+            //the client went away, nothing to clean up beyond the socket
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleCommand(final String command,
+                               final Writer out) throws IOException, InterruptedException {
+        final int separator = command.indexOf(' ');
+        final String name = separator == -1 ? command : command.substring(0, separator);
+        final String argument = separator == -1 ? "" : command.substring(separator + 1).trim();
+        switch (name) {
+            case "new":
+                endJournaledGame();
+                this.game = Game.createStandardGame();
+                this.adjudicated = false;
+                this.clientAlliance = argument.equals("black") ? Alliance.BLACK : Alliance.WHITE;
+                this.lastMoveTime = System.nanoTime();
+                if (this.journal != null) {
+                    this.gameId = this.journal.newGameId();
+                    this.journal.startGame(this.gameId, this.clientAlliance, 0);
+                    send(out, "ok " + this.gameId);
+                } else {
+                    send(out, "ok");
+                }
+                playEngineMove(out);
+                break;
+            case "fen":
+                final Board board = this.fenParser.parse(argument);
+                endJournaledGame();
+                this.game = new Game(board, this.fenParser.getHalfmoveClock());
+                this.adjudicated = false;
+                this.clientAlliance = board.currentPlayer().getAlliance();
+                this.lastMoveTime = System.nanoTime();
+                send(out, "ok");
+                break;
+            case "resume":
+                final GameJournal.RecoveredGame recovered = this.recoveredGames.remove(Long.parseLong(argument));
+                if (recovered == null) {
+                    send(out, "error no game " + argument + " to resume");
+                    break;
+                }
+                endJournaledGame();
+                this.game = new Game(recovered.getBoard());
+                this.adjudicated = false;
+                this.clientAlliance = recovered.getPlayerAlliance();
+                this.gameId = recovered.getGameId();
+                this.lastMoveTime = System.nanoTime();
+                send(out, "ok " + this.gameId);
+                playEngineMove(out);
+                break;
+            case "move":
+                playClientMove(argument, out);
+                break;
+            case "board":
+                send(out, "fen " + FenWriter.createFEN(this.game.getCurrentBoard()));
+                break;
+            case "":
+                break;
+            default:
+                send(out, "error unknown command " + name);
+                break;
+        }
+    }
+
+    private void playClientMove(final String argument,
+                                final Writer out) throws IOException, InterruptedException {
+        if (isGameOver()) {
+            send(out, "error the game is over");
+            return;
+        }
+        if (this.game.getCurrentBoard().currentPlayer().getAlliance() != this.clientAlliance) {
+            send(out, "error not your move");
+            return;
+        }
+        final Move move = CoordinateNotation.parse(this.game.getCurrentBoard(), argument);
+        final MoveTransition transition = this.game.makeMove(move);
+        if (!transition.getMoveStatus().isDone()) {
+            send(out, "illegal " + argument);
+            return;
+        }
+        journalMove(move);
+        if (!sendResultIfOver(out)) {
+            playEngineMove(out);
+        }
+    }
+
+    private void playEngineMove(final Writer out) throws IOException, InterruptedException {
+        if (this.game.getCurrentBoard().currentPlayer().getAlliance() == this.clientAlliance || isGameOver()) {
+            return;
+        }
+        final Move reply = this.engine.reply(this.game.getCurrentBoard());
+        this.game.makeMove(reply);
+        journalMove(reply);
+        send(out, "move " + CoordinateNotation.toString(reply));
+        sendResultIfOver(out);
+    }
+
+    private boolean isGameOver() {
+        return this.adjudicated || this.game.isOver();
+    }
+
+    private boolean sendResultIfOver(final Writer out) throws IOException {
+        final Board board = this.game.getCurrentBoard();
+        if (board.currentPlayer().isInCheckMate()) {
+            send(out, board.currentPlayer().getAlliance().isWhite() ? "result 0-1 checkmate" : "result 1-0 checkmate");
+        } else if (board.currentPlayer().isInStaleMate()) {
+            send(out, "result 1/2-1/2 stalemate");
+        } else if (this.game.isThreefoldRepetition()) {
+            send(out, "result 1/2-1/2 repetition");
+        } else if (this.game.isFiftyMoveRule()) {
+            send(out, "result 1/2-1/2 fifty moves");
+        } else {
+            final String adjudication = this.engine.adjudicate(board);
+            if (adjudication == null) {
+                return false;
+            }
+            send(out, "result " + adjudication + " tablebase");
+            this.adjudicated = true;
+        }
+        endJournaledGame();
+        return true;
+    }
+
+    //the clock of a move is the time its side took for it, in milliseconds
+    private void journalMove(final Move move) {
+        final long now = System.nanoTime();
+        if (this.gameId != -1) {
+            this.journal.appendMove(this.gameId, move, (int) Math.min(TimeUnit.NANOSECONDS.toMillis(now - this.lastMoveTime), Integer.MAX_VALUE));
+        }
+        this.lastMoveTime = now;
+    }
+
+    private void endJournaledGame() {
+        if (this.gameId != -1) {
+            this.journal.endGame(this.gameId);
+            this.gameId = -1;
+        }
+    }
+
+    private static void send(final Writer out,
+                             final String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+    }
+}
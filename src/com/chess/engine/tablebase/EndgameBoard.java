@@ -0,0 +1,430 @@
+package com.chess.engine.tablebase;
+
+import java.util.Arrays;
+
+import static com.chess.engine.tablebase.TableLayout.*;
+
+//A mutable board for the handful of pieces of one table, far cheaper to set up and to move on than a Board.
+//Knows the moves of the pieces, which squares are attacked and the moves that lead back to a position.
+//There is no castling and no en passant in the tables. Every worker thread has its own.
+final class EndgameBoard {
+
+    //a move packed into an int: slot (3 bits), from (6), to (6), promotion code (4), captured slot + 1 (3)
+    static final int NO_CAPTURE = -1;
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    //the squares strictly between two squares on a line, -1 if they are not on one
+    private static final long[] ROOK_BETWEEN = new long[64 * 64];
+    private static final long[] BISHOP_BETWEEN = new long[64 * 64];
+    private static final int[][][] ROOK_RAYS = new int[64][][];
+    private static final int[][][] BISHOP_RAYS = new int[64][][];
+    private static final int[] PROMOTIONS = {QUEEN, ROOK, BISHOP, KNIGHT};
+
+    static {
+        final int[][] knightSteps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        final int[][] kingSteps = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+        final int[][] rookSteps = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
+        final int[][] bishopSteps = {{1, 1}, {-1, 1}, {-1, -1}, {1, -1}};
+        Arrays.fill(ROOK_BETWEEN, -1L);
+        Arrays.fill(BISHOP_BETWEEN, -1L);
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = steps(square, knightSteps);
+            KING_ATTACKS[square] = steps(square, kingSteps);
+            final int file = square & 7;
+            final int row = square >>> 3;
+            if (row > 0) {
+                PAWN_ATTACKS[0][square] = (file > 0 ? 1L << (square - 9) : 0) | (file < 7 ? 1L << (square - 7) : 0);
+            }
+            if (row < 7) {
+                PAWN_ATTACKS[1][square] = (file > 0 ? 1L << (square + 7) : 0) | (file < 7 ? 1L << (square + 9) : 0);
+            }
+            ROOK_RAYS[square] = rays(square, rookSteps, ROOK_BETWEEN);
+            BISHOP_RAYS[square] = rays(square, bishopSteps, BISHOP_BETWEEN);
+        }
+    }
+
+    private final TableLayout layout;
+    private final int numPieces;
+    private final int[] codes;
+    private final int[] squares;
+    private final int[] occupants;
+    private long occupied;
+    private boolean whiteToMove;
+
+    //ctor
+    EndgameBoard(final TableLayout layout) {
+        this.layout = layout;
+        this.numPieces = layout.getNumPieces();
+        this.codes = new int[this.numPieces];
+        for (int slot = 0; slot < this.numPieces; slot++) {
+            this.codes[slot] = layout.getCode(slot);
+        }
+        this.squares = new int[this.numPieces];
+        this.occupants = new int[64];
+    }
+
+    //false if two pieces share a square
+    boolean set(final int index,
+                final boolean whiteToMove) {
+        this.whiteToMove = whiteToMove;
+        this.layout.squares(index, this.squares);
+        for (int slot = 0; slot < this.numPieces; slot++) {
+            this.codes[slot] = this.layout.getCode(slot);
+        }
+        Arrays.fill(this.occupants, -1);
+        this.occupied = 0;
+        for (int slot = 0; slot < this.numPieces; slot++) {
+            final int square = this.squares[slot];
+            if (this.occupants[square] != -1) {
+                return false;
+            }
+            this.occupants[square] = slot;
+            this.occupied |= 1L << square;
+        }
+        return true;
+    }
+
+    boolean isWhiteToMove() {
+        return this.whiteToMove;
+    }
+
+    int[] getCodes() {
+        return this.codes;
+    }
+
+    int[] getSquares() {
+        return this.squares;
+    }
+
+    int getNumPieces() {
+        return this.numPieces;
+    }
+
+    //the index of the board as it is now, for moves that neither capture nor promote
+    int index() {
+        return this.layout.index(this.squares);
+    }
+
+    boolean isInCheck(final boolean white) {
+        return isAttacked(this.squares[white ? WHITE_KING_SLOT : BLACK_KING_SLOT], !white);
+    }
+
+    boolean isAttacked(final int square,
+                       final boolean byWhite) {
+        for (int slot = 0; slot < this.numPieces; slot++) {
+            final int from = this.squares[slot];
+            final int code = this.codes[slot];
+            if (from == -1 || ((code & BLACK) == 0) != byWhite) {
+                continue;
+            }
+            final long target = 1L << square;
+            switch (code & 7) {
+                case PAWN:
+                    if ((PAWN_ATTACKS[byWhite ? 0 : 1][from] & target) != 0) {
+                        return true;
+                    }
+                    break;
+                case KNIGHT:
+                    if ((KNIGHT_ATTACKS[from] & target) != 0) {
+                        return true;
+                    }
+                    break;
+                case KING:
+                    if ((KING_ATTACKS[from] & target) != 0) {
+                        return true;
+                    }
+                    break;
+                default:
+                    if ((code & 7) != BISHOP && (ROOK_BETWEEN[from * 64 + square] & this.occupied) == 0) {
+                        return true;
+                    }
+                    if ((code & 7) != ROOK && (BISHOP_BETWEEN[from * 64 + square] & this.occupied) == 0) {
+                        return true;
+                    }
+            }
+        }
+        return false;
+    }
+
+    //the moves of the side to move, some may leave its king in check. Returns the number of moves
+    int generateMoves(final int[] moves) {
+        int numMoves = 0;
+        final int color = this.whiteToMove ? 0 : BLACK;
+        for (int slot = 0; slot < this.numPieces; slot++) {
+            final int from = this.squares[slot];
+            if (from == -1 || (this.codes[slot] & BLACK) != color) {
+                continue;
+            }
+            switch (this.codes[slot] & 7) {
+                case PAWN:
+                    numMoves = generatePawnMoves(slot, from, moves, numMoves);
+                    break;
+                case KNIGHT:
+                    numMoves = generateStepMoves(slot, from, KNIGHT_ATTACKS[from], moves, numMoves);
+                    break;
+                case KING:
+                    numMoves = generateStepMoves(slot, from, KING_ATTACKS[from], moves, numMoves);
+                    break;
+                default:
+                    if ((this.codes[slot] & 7) != BISHOP) {
+                        numMoves = generateSlidingMoves(slot, from, ROOK_RAYS[from], moves, numMoves);
+                    }
+                    if ((this.codes[slot] & 7) != ROOK) {
+                        numMoves = generateSlidingMoves(slot, from, BISHOP_RAYS[from], moves, numMoves);
+                    }
+            }
+        }
+        return numMoves;
+    }
+
+    private int generateStepMoves(final int slot,
+                                  final int from,
+                                  long targets,
+                                  final int[] moves,
+                                  int numMoves) {
+        while (targets != 0) {
+            final int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            numMoves = addMove(slot, from, to, 0, moves, numMoves);
+        }
+        return numMoves;
+    }
+
+    private int generateSlidingMoves(final int slot,
+                                     final int from,
+                                     final int[][] rays,
+                                     final int[] moves,
+                                     int numMoves) {
+        for (final int[] ray : rays) {
+            for (final int to : ray) {
+                numMoves = addMove(slot, from, to, 0, moves, numMoves);
+                if (this.occupants[to] != -1) {
+                    break;
+                }
+            }
+        }
+        return numMoves;
+    }
+
+    private int generatePawnMoves(final int slot,
+                                  final int from,
+                                  final int[] moves,
+                                  int numMoves) {
+        final int direction = this.whiteToMove ? -8 : 8;
+        final int color = this.whiteToMove ? 0 : BLACK;
+        final int to = from + direction;
+        final boolean promotes = (to >>> 3) == (this.whiteToMove ? 0 : 7);
+        if (this.occupants[to] == -1) {
+            numMoves = addPawnMove(slot, from, to, promotes, color, moves, numMoves);
+            final int startRow = this.whiteToMove ? 6 : 1;
+            if ((from >>> 3) == startRow && this.occupants[to + direction] == -1) {
+                numMoves = addMove(slot, from, to + direction, 0, moves, numMoves);
+            }
+        }
+        long captures = PAWN_ATTACKS[this.whiteToMove ? 0 : 1][from] & this.occupied;
+        while (captures != 0) {
+            final int target = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            numMoves = addPawnMove(slot, from, target, promotes, color, moves, numMoves);
+        }
+        return numMoves;
+    }
+
+    private int addPawnMove(final int slot,
+                            final int from,
+                            final int to,
+                            final boolean promotes,
+                            final int color,
+                            final int[] moves,
+                            int numMoves) {
+        if (!promotes) {
+            return addMove(slot, from, to, 0, moves, numMoves);
+        }
+        for (final int promotion : PROMOTIONS) {
+            numMoves = addMove(slot, from, to, promotion | color, moves, numMoves);
+        }
+        return numMoves;
+    }
+
+    //skips own pieces and kings, a king is never captured in a legal position
+    private int addMove(final int slot,
+                        final int from,
+                        final int to,
+                        final int promotion,
+                        final int[] moves,
+                        final int numMoves) {
+        final int occupant = this.occupants[to];
+        if (occupant != -1 && ((this.codes[occupant] & BLACK) == (this.codes[slot] & BLACK) || (this.codes[occupant] & 7) == KING)) {
+            return numMoves;
+        }
+        moves[numMoves] = slot | from << 3 | to << 9 | promotion << 15 | (occupant + 1) << 19;
+        return numMoves + 1;
+    }
+
+    static int getCaptured(final int move) {
+        return (move >>> 19) - 1;
+    }
+
+    static int getPromotion(final int move) {
+        return (move >>> 15) & 15;
+    }
+
+    //true for moves that leave the table: captures and promotions
+    static boolean isConversion(final int move) {
+        return (move >>> 15) != 0;
+    }
+
+    void makeMove(final int move) {
+        final int slot = move & 7;
+        final int from = (move >>> 3) & 63;
+        final int to = (move >>> 9) & 63;
+        final int captured = getCaptured(move);
+        if (captured != NO_CAPTURE) {
+            this.squares[captured] = -1;
+        } else {
+            this.occupied |= 1L << to;
+        }
+        if (getPromotion(move) != 0) {
+            this.codes[slot] = getPromotion(move);
+        }
+        this.squares[slot] = to;
+        this.occupants[to] = slot;
+        this.occupants[from] = -1;
+        this.occupied &= ~(1L << from);
+        this.whiteToMove = !this.whiteToMove;
+    }
+
+    void unmakeMove(final int move) {
+        final int slot = move & 7;
+        final int from = (move >>> 3) & 63;
+        final int to = (move >>> 9) & 63;
+        final int captured = getCaptured(move);
+        this.codes[slot] = this.layout.getCode(slot);
+        this.squares[slot] = from;
+        this.occupants[from] = slot;
+        this.occupied |= 1L << from;
+        if (captured != NO_CAPTURE) {
+            this.squares[captured] = to;
+            this.occupants[to] = captured;
+        } else {
+            this.occupants[to] = -1;
+            this.occupied &= ~(1L << to);
+        }
+        this.whiteToMove = !this.whiteToMove;
+    }
+
+    //the indexes of the boards one quiet move of the side that just moved leads here from,
+    //the side to move there is the other one. Returns how many were written, some may be -1
+    int generatePredecessors(final int[] predecessors) {
+        int numPredecessors = 0;
+        final int color = this.whiteToMove ? BLACK : 0;
+        for (int slot = 0; slot < this.numPieces; slot++) {
+            final int square = this.squares[slot];
+            if ((this.codes[slot] & BLACK) != color) {
+                continue;
+            }
+            switch (this.codes[slot] & 7) {
+                case PAWN:
+                    //pawns come from behind, from their first square by a double step
+                    final int direction = color == 0 ? 8 : -8;
+                    final int from = square + direction;
+                    final int startRow = color == 0 ? 6 : 1;
+                    if (this.occupants[from] == -1 && (from >>> 3) != (color == 0 ? 7 : 0)) {
+                        predecessors[numPredecessors++] = predecessor(slot, from);
+                        if ((from + direction) >>> 3 == startRow && this.occupants[from + direction] == -1) {
+                            predecessors[numPredecessors++] = predecessor(slot, from + direction);
+                        }
+                    }
+                    break;
+                case KNIGHT:
+                    numPredecessors = stepPredecessors(slot, KNIGHT_ATTACKS[square] & ~this.occupied, predecessors, numPredecessors);
+                    break;
+                case KING:
+                    numPredecessors = stepPredecessors(slot, KING_ATTACKS[square] & ~this.occupied, predecessors, numPredecessors);
+                    break;
+                default:
+                    if ((this.codes[slot] & 7) != BISHOP) {
+                        numPredecessors = slidingPredecessors(slot, ROOK_RAYS[square], predecessors, numPredecessors);
+                    }
+                    if ((this.codes[slot] & 7) != ROOK) {
+                        numPredecessors = slidingPredecessors(slot, BISHOP_RAYS[square], predecessors, numPredecessors);
+                    }
+            }
+        }
+        return numPredecessors;
+    }
+
+    private int stepPredecessors(final int slot,
+                                 long origins,
+                                 final int[] predecessors,
+                                 int numPredecessors) {
+        while (origins != 0) {
+            final int from = Long.numberOfTrailingZeros(origins);
+            origins &= origins - 1;
+            predecessors[numPredecessors++] = predecessor(slot, from);
+        }
+        return numPredecessors;
+    }
+
+    private int slidingPredecessors(final int slot,
+                                    final int[][] rays,
+                                    final int[] predecessors,
+                                    int numPredecessors) {
+        for (final int[] ray : rays) {
+            for (final int from : ray) {
+                if (this.occupants[from] != -1) {
+                    break;
+                }
+                predecessors[numPredecessors++] = predecessor(slot, from);
+            }
+        }
+        return numPredecessors;
+    }
+
+    private int predecessor(final int slot,
+                            final int from) {
+        final int square = this.squares[slot];
+        this.squares[slot] = from;
+        final int index = this.layout.index(this.squares);
+        this.squares[slot] = square;
+        return index;
+    }
+
+    private static long steps(final int square,
+                              final int[][] steps) {
+        long targets = 0;
+        for (final int[] step : steps) {
+            final int file = (square & 7) + step[0];
+            final int row = (square >>> 3) + step[1];
+            if (file >= 0 && file < 8 && row >= 0 && row < 8) {
+                targets |= 1L << (row * 8 + file);
+            }
+        }
+        return targets;
+    }
+
+    private static int[][] rays(final int square,
+                                final int[][] steps,
+                                final long[] between) {
+        final int[][] rays = new int[steps.length][];
+        for (int i = 0; i < steps.length; i++) {
+            final int[] ray = new int[7];
+            int length = 0;
+            long passed = 0;
+            int file = (square & 7) + steps[i][0];
+            int row = (square >>> 3) + steps[i][1];
+            while (file >= 0 && file < 8 && row >= 0 && row < 8) {
+                final int target = row * 8 + file;
+                ray[length++] = target;
+                between[square * 64 + target] = passed;
+                passed |= 1L << target;
+                file += steps[i][0];
+                row += steps[i][1];
+            }
+            rays[i] = Arrays.copyOf(ray, length);
+        }
+        return rays;
+    }
+}
@@ -0,0 +1,81 @@
+package com.chess.engine.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//The values of one table, a byte per index and side to move, in the file:
+//magic (4), size (4), 8 reserved bytes, the values with white to move, then the values with black to move.
+//Read with absolute gets, so a table is shared by all threads.
+final class Table {
+
+    static final String FILE_EXTENSION = ".jtb";
+    private static final int MAGIC = 0x4A435442;
+    private static final int HEADER_SIZE = 16;
+
+    private final TableLayout layout;
+    private final ByteBuffer whiteToMove;
+    private final ByteBuffer blackToMove;
+
+    //ctor
+    private Table(final TableLayout layout,
+                  final ByteBuffer whiteToMove,
+                  final ByteBuffer blackToMove) {
+        this.layout = layout;
+        this.whiteToMove = whiteToMove;
+        this.blackToMove = blackToMove;
+    }
+
+    TableLayout getLayout() {
+        return this.layout;
+    }
+
+    //the value with the given side to move, Tablebases.ILLEGAL for a board no game can reach
+    int get(final boolean whiteToMove,
+            final int index) {
+        return (whiteToMove ? this.whiteToMove : this.blackToMove).get(index) & 0xFF;
+    }
+
+    static Path path(final Path directory,
+                     final TableLayout layout) {
+        return directory.resolve(layout.getName() + FILE_EXTENSION);
+    }
+
+    static Table map(final Path path) throws IOException {
+        final String fileName = path.getFileName().toString();
+        final TableLayout layout = TableLayout.parse(fileName.substring(0, fileName.length() - FILE_EXTENSION.length()));
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                //keep reading
+            }
+            if (header.getInt(0) != MAGIC || header.getInt(4) != layout.size() ||
+                    channel.size() != HEADER_SIZE + 2L * layout.size()) {
+                throw new RuntimeException("Not a tablebase file for " + layout.getName() + ": " + path);
+            }
+            return new Table(layout,
+                    channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, layout.size()),
+                    channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + (long) layout.size(), layout.size()));
+        }
+    }
+
+    static Table write(final Path path,
+                       final TableLayout layout,
+                       final byte[] whiteToMove,
+                       final byte[] blackToMove) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(layout.size()).flip();
+            header.limit(HEADER_SIZE);
+            for (final ByteBuffer buffer : new ByteBuffer[]{header, ByteBuffer.wrap(whiteToMove), ByteBuffer.wrap(blackToMove)}) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+        return map(path);
+    }
+}
@@ -0,0 +1,328 @@
+package com.chess.engine.tablebase;
+
+import java.util.Arrays;
+
+//Which pieces a table holds and how a placement of them becomes a table index.
+//Pieces are kept in slots: the white king, the black king, then white's and black's other pieces, queens first.
+//Piece codes are the ones PositionCodec uses, 1-6 for white PNBRQK and 8 more for black.
+//
+//The index is the pair of kings times the squares of every other piece. Boards that only differ by a mirror
+//or a rotation have the same value, so the white king is moved into a1-d1-d4 (a1-d8 with pawns, which can't be
+//turned around) and the black king onto or below the a1-h8 diagonal when the white king is on it.
+//Kings next to each other and pawns on the first or last rank have no index at all.
+final class TableLayout {
+
+    static final int PAWN = 1;
+    static final int KNIGHT = 2;
+    static final int BISHOP = 3;
+    static final int ROOK = 4;
+    static final int QUEEN = 5;
+    static final int KING = 6;
+    static final int BLACK = 8;
+    static final int WHITE_KING_SLOT = 0;
+    static final int BLACK_KING_SLOT = 1;
+    static final int MAX_PIECES = 5;
+
+    private static final String PIECE_LETTERS = " PNBRQK";
+    private static final int[] PIECE_VALUES = {0, 1, 3, 3, 5, 9, 0};
+    private static final int COUNT_BITS = 4;
+    private static final int PAWN_SQUARES = 48;
+    private static final int FIRST_PAWN_SQUARE = 8;
+    private static final int FLIP_FILES = 1;
+    private static final int FLIP_RANKS = 2;
+    //mirror along the a1-h8 diagonal
+    private static final int TRANSPOSE = 4;
+
+    private static final int[] PAWNLESS_KING_PAIRS = new int[64 * 64];
+    private static final int[] PAWNLESS_KINGS;
+    private static final int[] PAWN_KING_PAIRS = new int[64 * 64];
+    private static final int[] PAWN_KINGS;
+
+    static {
+        PAWNLESS_KINGS = kingPairs(PAWNLESS_KING_PAIRS, false);
+        PAWN_KINGS = kingPairs(PAWN_KING_PAIRS, true);
+    }
+
+    private final String name;
+    private final long materialKey;
+    private final int[] codes;
+    private final boolean hasPawns;
+    private final int size;
+
+    //ctor
+    private TableLayout(final long materialKey) {
+        this.materialKey = materialKey;
+        this.name = toName(materialKey);
+        final int[] codes = new int[MAX_PIECES + 1];
+        int numPieces = 0;
+        codes[numPieces++] = KING;
+        codes[numPieces++] = KING | BLACK;
+        boolean hasPawns = false;
+        for (final int color : new int[]{0, BLACK}) {
+            for (int type = QUEEN; type >= PAWN; type--) {
+                for (int i = 0; i < count(materialKey, type | color); i++) {
+                    if (numPieces == MAX_PIECES) {
+                        throw new RuntimeException("Tables hold at most " + MAX_PIECES + " pieces: " + this.name);
+                    }
+                    codes[numPieces++] = type | color;
+                    hasPawns |= type == PAWN;
+                }
+            }
+        }
+        this.codes = Arrays.copyOf(codes, numPieces);
+        this.hasPawns = hasPawns;
+        long size = hasPawns ? PAWN_KINGS.length : PAWNLESS_KINGS.length;
+        for (int slot = 2; slot < numPieces; slot++) {
+            size *= radix(this.codes[slot]);
+        }
+        this.size = (int) size;
+    }
+
+    static TableLayout forMaterial(final long materialKey) {
+        return new TableLayout(materialKey);
+    }
+
+    //KQvKR: white's pieces, 'v', black's pieces, each side starting with its king
+    static TableLayout parse(final String name) {
+        final int v = name.indexOf('v');
+        if (v < 1 || name.charAt(0) != 'K' || v + 1 >= name.length() || name.charAt(v + 1) != 'K') {
+            throw new RuntimeException("Not a table name: " + name);
+        }
+        long materialKey = 0;
+        for (int i = 1; i < name.length(); i++) {
+            if (i == v || i == v + 1) {
+                continue;
+            }
+            final int type = PIECE_LETTERS.indexOf(name.charAt(i));
+            if (type < PAWN || type > QUEEN) {
+                throw new RuntimeException("Unexpected piece '" + name.charAt(i) + "' in table name " + name);
+            }
+            materialKey += 1L << ((type | (i < v ? 0 : BLACK)) * COUNT_BITS);
+        }
+        return new TableLayout(materialKey);
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    long getMaterialKey() {
+        return this.materialKey;
+    }
+
+    int getNumPieces() {
+        return this.codes.length;
+    }
+
+    int getCode(final int slot) {
+        return this.codes[slot];
+    }
+
+    boolean hasPawns() {
+        return this.hasPawns;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    //the count of every piece code but the kings, 4 bits per code
+    static long materialKey(final int[] codes,
+                            final int[] squares,
+                            final int numPieces) {
+        long materialKey = 0;
+        for (int i = 0; i < numPieces; i++) {
+            if (squares[i] != -1 && (codes[i] & 7) != KING) {
+                materialKey += 1L << (codes[i] * COUNT_BITS);
+            }
+        }
+        return materialKey;
+    }
+
+    //the material of every table a capture or a promotion leads to from this one, some more than once
+    long[] getConversions() {
+        final long[] conversions = new long[this.codes.length * (1 + 4 * this.codes.length)];
+        int numConversions = 0;
+        for (int slot = 2; slot < this.codes.length; slot++) {
+            final long captured = this.materialKey - (1L << (this.codes[slot] * COUNT_BITS));
+            conversions[numConversions++] = captured;
+            if ((this.codes[slot] & 7) != PAWN) {
+                continue;
+            }
+            final int color = this.codes[slot] & BLACK;
+            for (int promotion = KNIGHT; promotion <= QUEEN; promotion++) {
+                final long promoted = captured + (1L << ((promotion | color) * COUNT_BITS));
+                conversions[numConversions++] = promoted;
+                for (int other = 2; other < this.codes.length; other++) {
+                    if ((this.codes[other] & BLACK) != color) {
+                        conversions[numConversions++] = promoted - (1L << (this.codes[other] * COUNT_BITS));
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(conversions, numConversions);
+    }
+
+    private static int count(final long materialKey,
+                             final int code) {
+        return (int) (materialKey >>> (code * COUNT_BITS)) & ((1 << COUNT_BITS) - 1);
+    }
+
+    //the same material with the colors swapped
+    static long flip(final long materialKey) {
+        return (materialKey >>> (BLACK * COUNT_BITS)) | (materialKey << (BLACK * COUNT_BITS));
+    }
+
+    //tables are stored with the stronger side as white, equal material is stored as it is
+    static boolean isCanonical(final long materialKey) {
+        return compareSides(materialKey) >= 0;
+    }
+
+    private static int compareSides(final long materialKey) {
+        int whiteValue = 0;
+        int blackValue = 0;
+        for (int type = PAWN; type <= QUEEN; type++) {
+            whiteValue += count(materialKey, type) * PIECE_VALUES[type];
+            blackValue += count(materialKey, type | BLACK) * PIECE_VALUES[type];
+        }
+        if (whiteValue != blackValue) {
+            return Integer.compare(whiteValue, blackValue);
+        }
+        for (int type = QUEEN; type >= PAWN; type--) {
+            final int difference = count(materialKey, type) - count(materialKey, type | BLACK);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    private static String toName(final long materialKey) {
+        final StringBuilder builder = new StringBuilder();
+        for (final int color : new int[]{0, BLACK}) {
+            builder.append(color == 0 ? "K" : "vK");
+            for (int type = QUEEN; type >= PAWN; type--) {
+                for (int i = 0; i < count(materialKey, type | color); i++) {
+                    builder.append(PIECE_LETTERS.charAt(type));
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    private static int radix(final int code) {
+        return (code & 7) == PAWN ? PAWN_SQUARES : 64;
+    }
+
+    //the squares of the slots as the index stores them, -1 if there is no such placement
+    int index(final int[] squares) {
+        final int whiteKing = squares[WHITE_KING_SLOT];
+        int transform = (whiteKing & 7) > 3 ? FLIP_FILES : 0;
+        if (this.hasPawns) {
+            return index(squares, transform);
+        }
+        if ((whiteKing >>> 3) < 4) {
+            transform |= FLIP_RANKS;
+        }
+        final int whiteKingSide = diagonalSide(transform(whiteKing, transform));
+        if (whiteKingSide > 0) {
+            transform |= TRANSPOSE;
+        } else if (whiteKingSide == 0) {
+            final int blackKingSide = diagonalSide(transform(squares[BLACK_KING_SLOT], transform));
+            if (blackKingSide > 0) {
+                transform |= TRANSPOSE;
+            } else if (blackKingSide == 0) {
+                //both kings on the diagonal: the board and its mirror image both have an index, only the smaller is used
+                return Math.min(index(squares, transform), index(squares, transform | TRANSPOSE));
+            }
+        }
+        return index(squares, transform);
+    }
+
+    //0 on the a1-h8 diagonal, positive above it, negative below
+    private static int diagonalSide(final int square) {
+        return (7 - (square >>> 3)) - (square & 7);
+    }
+
+    private int index(final int[] squares,
+                      final int transform) {
+        final int[] kingPairs = this.hasPawns ? PAWN_KING_PAIRS : PAWNLESS_KING_PAIRS;
+        int index = kingPairs[transform(squares[WHITE_KING_SLOT], transform) * 64 + transform(squares[BLACK_KING_SLOT], transform)];
+        if (index == -1) {
+            return -1;
+        }
+        for (int slot = 2; slot < this.codes.length; slot++) {
+            final int square = transform(squares[slot], transform);
+            if ((this.codes[slot] & 7) == PAWN) {
+                if (square < FIRST_PAWN_SQUARE || square >= FIRST_PAWN_SQUARE + PAWN_SQUARES) {
+                    return -1;
+                }
+                index = index * PAWN_SQUARES + square - FIRST_PAWN_SQUARE;
+            } else {
+                index = index * 64 + square;
+            }
+        }
+        return index;
+    }
+
+    //the inverse of index(), squares may overlap
+    void squares(int index,
+                 final int[] squares) {
+        for (int slot = this.codes.length - 1; slot >= 2; slot--) {
+            if ((this.codes[slot] & 7) == PAWN) {
+                squares[slot] = index % PAWN_SQUARES + FIRST_PAWN_SQUARE;
+                index /= PAWN_SQUARES;
+            } else {
+                squares[slot] = index & 63;
+                index >>>= 6;
+            }
+        }
+        final int kings = (this.hasPawns ? PAWN_KINGS : PAWNLESS_KINGS)[index];
+        squares[WHITE_KING_SLOT] = kings >>> 6;
+        squares[BLACK_KING_SLOT] = kings & 63;
+    }
+
+    private static int transform(int square,
+                                 final int transform) {
+        if ((transform & FLIP_FILES) != 0) {
+            square ^= 7;
+        }
+        if ((transform & FLIP_RANKS) != 0) {
+            square ^= 56;
+        }
+        if ((transform & TRANSPOSE) != 0) {
+            final int file = square & 7;
+            final int rank = 7 - (square >>> 3);
+            square = (7 - file) * 8 + rank;
+        }
+        return square;
+    }
+
+    //fills pairIndexes with the index of every valid pair of king squares and returns the squares of every index
+    private static int[] kingPairs(final int[] pairIndexes,
+                                   final boolean pawns) {
+        Arrays.fill(pairIndexes, -1);
+        final int[] kings = new int[64 * 64];
+        int numPairs = 0;
+        for (int whiteKing = 0; whiteKing < 64; whiteKing++) {
+            final int whiteFile = whiteKing & 7;
+            final int whiteRank = 7 - (whiteKing >>> 3);
+            if (whiteFile > 3 || (!pawns && (whiteRank > 3 || whiteRank > whiteFile))) {
+                continue;
+            }
+            for (int blackKing = 0; blackKing < 64; blackKing++) {
+                final int blackFile = blackKing & 7;
+                final int blackRank = 7 - (blackKing >>> 3);
+                if (Math.abs(whiteFile - blackFile) <= 1 && Math.abs(whiteRank - blackRank) <= 1) {
+                    continue; //same square or touching
+                }
+                if (!pawns && whiteRank == whiteFile && blackRank > blackFile) {
+                    continue;
+                }
+                pairIndexes[whiteKing * 64 + blackKing] = numPairs;
+                kings[numPairs++] = whiteKing * 64 + blackKing;
+            }
+        }
+        return Arrays.copyOf(kings, numPairs);
+    }
+}
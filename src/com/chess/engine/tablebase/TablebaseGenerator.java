@@ -0,0 +1,352 @@
+package com.chess.engine.tablebase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.chess.engine.tablebase.Tablebases.*;
+
+//Generates tables by retrograde analysis, every table a capture or promotion leads to first.
+//
+//A first pass over all boards marks the illegal ones, the mates and the stalemates and notes for every other board
+//what its best capture or promotion is worth, from the tables already there. Then pass n finds the boards decided
+//in n half moves: wins one quiet move before a board lost in n - 1, found by walking the moves backwards from the
+//boards the last pass decided, and losses whose every quiet move leads to a win for the opponent, checked by walking
+//forwards. Captures and promotions that decide in n half moves are found by a scan. What is undecided at the end is a draw.
+//Decided boards and the last pass's boards are kept in bit arrays, every pass is split over all workers.
+public class TablebaseGenerator {
+
+    private static final int CHUNKS_PER_WORKER = 16;
+    private static final int MAX_MOVES_PER_BOARD = 256;
+
+    private final int numWorkers;
+
+    //ctor
+    public TablebaseGenerator(final int numWorkers) {
+        if (numWorkers < 1) {
+            throw new RuntimeException("Need at least one worker!");
+        }
+        this.numWorkers = numWorkers;
+    }
+
+    public TablebaseGenerator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    //generates the tables of the materials (KQvKR, KPvK, ...) and all tables they depend on.
+    //Tables already in the directory are used as they are. Returns every table that was needed
+    public Tablebases generate(final Path directory,
+                               final String... materials) throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        final Tablebases tablebases = new Tablebases();
+        final ExecutorService workers = Executors.newFixedThreadPool(this.numWorkers);
+        try {
+            for (final String material : materials) {
+                generate(directory, TableLayout.parse(material).getMaterialKey(), tablebases, workers);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return tablebases;
+    }
+
+    private void generate(final Path directory,
+                          final long materialKey,
+                          final Tablebases tablebases,
+                          final ExecutorService workers) throws IOException, InterruptedException {
+        final long canonicalKey = TableLayout.isCanonical(materialKey) ? materialKey : TableLayout.flip(materialKey);
+        if (tablebases.getTable(canonicalKey) != null) {
+            return;
+        }
+        final TableLayout layout = TableLayout.forMaterial(canonicalKey);
+        final Path path = Table.path(directory, layout);
+        if (Files.exists(path)) {
+            tablebases.add(Table.map(path));
+            return;
+        }
+        for (final long conversion : layout.getConversions()) {
+            generate(directory, conversion, tablebases, workers);
+        }
+        tablebases.add(new Generation(layout, tablebases, workers).run(path));
+    }
+
+    //the state of one table while it is generated
+    private final class Generation {
+
+        private final TableLayout layout;
+        private final Tablebases tablebases;
+        private final ExecutorService workers;
+        //[0] white to move, [1] black to move
+        private final byte[][] values;
+        private final AtomicLongArray[] decided;
+        private AtomicLongArray[] frontier;
+        private AtomicLongArray[] nextFrontier;
+        private final AtomicInteger maxConversionPlies;
+        private final AtomicInteger decidedInPass;
+
+        Generation(final TableLayout layout,
+                   final Tablebases tablebases,
+                   final ExecutorService workers) {
+            this.layout = layout;
+            this.tablebases = tablebases;
+            this.workers = workers;
+            this.values = new byte[2][layout.size()];
+            this.decided = newBitArrays();
+            this.frontier = newBitArrays();
+            this.nextFrontier = newBitArrays();
+            this.maxConversionPlies = new AtomicInteger();
+            this.decidedInPass = new AtomicInteger();
+        }
+
+        private AtomicLongArray[] newBitArrays() {
+            final int words = (this.layout.size() + 63) >>> 6;
+            return new AtomicLongArray[]{new AtomicLongArray(words), new AtomicLongArray(words)};
+        }
+
+        Table run(final Path path) throws IOException, InterruptedException {
+            forEachChunk(this::initialize);
+            //the mates start the first pass
+            this.frontier = this.nextFrontier;
+            this.nextFrontier = newBitArrays();
+            for (int plies = 1; ; plies++) {
+                if (plies > 2 * MAX_MOVES + 1) {
+                    throw new RuntimeException("Mates in " + this.layout.getName() + " are longer than a table can hold");
+                }
+                this.decidedInPass.set(0);
+                final int passPlies = plies;
+                forEachChunk((from, to, scratch) -> decide(from, to, passPlies, scratch));
+                this.frontier = this.nextFrontier;
+                this.nextFrontier = newBitArrays();
+                if (this.decidedInPass.get() == 0 && plies >= this.maxConversionPlies.get()) {
+                    break;
+                }
+            }
+            for (int side = 0; side < 2; side++) {
+                final byte[] sideValues = this.values[side];
+                for (int index = 0; index < sideValues.length; index++) {
+                    if (!isSet(this.decided[side], index)) {
+                        sideValues[index] = DRAW;
+                    }
+                }
+            }
+            return Table.write(path, this.layout, this.values[0], this.values[1]);
+        }
+
+        //illegal boards, mates, stalemates and the best capture or promotion of every other board
+        private void initialize(final int from,
+                                final int to,
+                                final Scratch scratch) {
+            final EndgameBoard board = scratch.board;
+            int maxPlies = 0;
+            for (int side = 0; side < 2; side++) {
+                final boolean white = side == 0;
+                for (int index = from; index < to; index++) {
+                    if (!board.set(index, white) || board.isInCheck(!white)) {
+                        decide(side, index, ILLEGAL, false);
+                        continue;
+                    }
+                    final int numMoves = board.generateMoves(scratch.moves);
+                    int legalMoves = 0;
+                    int conversion = DRAW;
+                    for (int i = 0; i < numMoves; i++) {
+                        final int move = scratch.moves[i];
+                        board.makeMove(move);
+                        if (!board.isInCheck(white)) {
+                            legalMoves++;
+                            if (EndgameBoard.isConversion(move)) {
+                                conversion = betterConversion(conversion, probeConversion(board));
+                            }
+                        }
+                        board.unmakeMove(move);
+                    }
+                    if (legalMoves == 0) {
+                        final boolean mate = board.isInCheck(white);
+                        decide(side, index, mate ? loss(0) : DRAW, mate);
+                    } else {
+                        this.values[side][index] = (byte) conversion;
+                        maxPlies = Math.max(maxPlies, getPlies(conversion));
+                    }
+                }
+            }
+            this.maxConversionPlies.accumulateAndGet(maxPlies, Math::max);
+        }
+
+        //the value of a capture or promotion that was just made, for the side that made it
+        private int probeConversion(final EndgameBoard board) {
+            final int value = this.tablebases.probe(board.getCodes(), board.getSquares(), board.getNumPieces(), board.isWhiteToMove());
+            if (value == UNKNOWN) {
+                throw new RuntimeException("Missing table for a conversion from " + this.layout.getName());
+            }
+            if (isLoss(value) && value - LOSS + 1 > MAX_MOVES) {
+                throw new RuntimeException("Mates in " + this.layout.getName() + " are longer than a table can hold");
+            }
+            return isLoss(value) ? win(value - LOSS + 1) : isWin(value) ? loss(value) : ESCAPE;
+        }
+
+        //wins, the faster the better, then draws, then losses, the slower the better
+        private int betterConversion(final int first,
+                                     final int second) {
+            return conversionRank(first) >= conversionRank(second) ? first : second;
+        }
+
+        private int conversionRank(final int conversion) {
+            return isWin(conversion) ? 1000 - conversion : conversion == ESCAPE ? 500 : isLoss(conversion) ? conversion - LOSS : 0;
+        }
+
+        //pass for the boards decided in plies half moves
+        private void decide(final int from,
+                            final int to,
+                            final int plies,
+                            final Scratch scratch) {
+            final boolean wins = (plies & 1) == 1;
+            final int value = wins ? win((plies + 1) / 2) : loss(plies / 2);
+            for (int side = 0; side < 2; side++) {
+                final int otherSide = 1 - side;
+                final AtomicLongArray frontier = this.frontier[side];
+                for (int word = from >>> 6; word < (to + 63) >>> 6; word++) {
+                    long bits = frontier.get(word);
+                    while (bits != 0) {
+                        final int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        scratch.board.set(index, side == 0);
+                        final int numPredecessors = scratch.board.generatePredecessors(scratch.predecessors);
+                        for (int i = 0; i < numPredecessors; i++) {
+                            final int predecessor = scratch.predecessors[i];
+                            if (predecessor == -1 || isSet(this.decided[otherSide], predecessor)) {
+                                continue;
+                            }
+                            if (wins || isLost(otherSide, predecessor, plies, scratch)) {
+                                decide(otherSide, predecessor, value, true);
+                            }
+                        }
+                    }
+                }
+                if (plies > this.maxConversionPlies.get()) {
+                    continue;
+                }
+                //boards decided by a capture or a promotion
+                final byte[] sideValues = this.values[side];
+                for (int index = from; index < to; index++) {
+                    if ((sideValues[index] & 0xFF) == value && !isSet(this.decided[side], index) &&
+                            (wins || isLost(side, index, plies, scratch))) {
+                        decide(side, index, value, true);
+                    }
+                }
+            }
+        }
+
+        //true if every move of the undecided board loses within plies half moves
+        private boolean isLost(final int side,
+                               final int index,
+                               final int plies,
+                               final Scratch scratch) {
+            final int conversion = this.values[side][index] & 0xFF;
+            if (conversion == ESCAPE || isWin(conversion) || (isLoss(conversion) && getPlies(conversion) > plies)) {
+                return false;
+            }
+            final EndgameBoard board = scratch.verifier;
+            board.set(index, side == 0);
+            final int numMoves = board.generateMoves(scratch.moves);
+            final int otherSide = 1 - side;
+            for (int i = 0; i < numMoves; i++) {
+                final int move = scratch.moves[i];
+                if (EndgameBoard.isConversion(move)) {
+                    continue;
+                }
+                board.makeMove(move);
+                final int next = board.index();
+                board.unmakeMove(move);
+                if (next == -1) {
+                    continue; //the kings would touch
+                }
+                //a board the mover is in check on was marked illegal by the first pass
+                final int nextValue = this.values[otherSide][next] & 0xFF;
+                if (nextValue == ILLEGAL) {
+                    continue;
+                }
+                if (!isSet(this.decided[otherSide], next) || !isWin(nextValue) || getPlies(nextValue) > plies - 1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        //the first thread to decide a board writes its value
+        private void decide(final int side,
+                            final int index,
+                            final int value,
+                            final boolean frontier) {
+            if (!set(this.decided[side], index)) {
+                return;
+            }
+            this.values[side][index] = (byte) value;
+            if (frontier) {
+                set(this.nextFrontier[side], index);
+                this.decidedInPass.incrementAndGet();
+            }
+        }
+
+        private void forEachChunk(final ChunkTask task) throws InterruptedException {
+            final int size = this.layout.size();
+            //chunks start on a word of the bit arrays
+            final int chunkSize = Math.max(64, ((size / (TablebaseGenerator.this.numWorkers * CHUNKS_PER_WORKER)) + 63) & ~63);
+            final List<Callable<Void>> chunks = new ArrayList<>();
+            for (int start = 0; start < size; start += chunkSize) {
+                final int from = start;
+                final int to = Math.min(size, start + chunkSize);
+                chunks.add(() -> {
+                    task.run(from, to, new Scratch(this.layout));
+                    return null;
+                });
+            }
+            try {
+                for (final Future<Void> chunk : this.workers.invokeAll(chunks)) {
+                    chunk.get();
+                }
+            } catch (final ExecutionException e) {
+                throw new RuntimeException("Tablebase worker failed on " + this.layout.getName(), e.getCause());
+            }
+        }
+    }
+
+    private interface ChunkTask {
+        void run(int from, int to, Scratch scratch);
+    }
+
+    //what a worker needs for one chunk
+    private static final class Scratch {
+
+        private final EndgameBoard board;
+        private final EndgameBoard verifier;
+        private final int[] moves;
+        private final int[] predecessors;
+
+        Scratch(final TableLayout layout) {
+            this.board = new EndgameBoard(layout);
+            this.verifier = new EndgameBoard(layout);
+            this.moves = new int[MAX_MOVES_PER_BOARD];
+            this.predecessors = new int[MAX_MOVES_PER_BOARD];
+        }
+    }
+
+    private static boolean isSet(final AtomicLongArray bits,
+                                 final int index) {
+        return (bits.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    //false if the bit was set already
+    private static boolean set(final AtomicLongArray bits,
+                               final int index) {
+        final long bit = 1L << index;
+        return (bits.getAndAccumulate(index >>> 6, bit, (word, mask) -> word | mask) & bit) == 0;
+    }
+}
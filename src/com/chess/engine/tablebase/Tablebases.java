@@ -0,0 +1,218 @@
+package com.chess.engine.tablebase;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.pieces.Piece;
+import com.chess.engine.player.MoveTransition;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.chess.engine.tablebase.TableLayout.*;
+
+//Exact values of endgames from the tables TablebaseGenerator writes, for the search and for adjudicating games.
+//A value is the distance to mate for the side to move: WIN(n) mates in n moves, LOSS(n) is mated after n moves.
+//Boards with castling rights or a possible en passant capture are not in the tables and probe as UNKNOWN,
+//as is everything with more pieces than the largest table. The fifty move rule is not taken into account.
+//Safe to share between threads.
+public class Tablebases {
+
+    public static final int UNKNOWN = -1;
+    public static final int DRAW = 0;
+    static final int MAX_MOVES = 126;
+    //only while a table is generated: a capture or promotion that draws
+    static final int ESCAPE = 127;
+    static final int LOSS = 128;
+    static final int ILLEGAL = 255;
+
+    private final Map<Long, Table> tables;
+    private volatile int maxPieces;
+
+    //ctor
+    Tablebases() {
+        this.tables = new ConcurrentHashMap<>();
+    }
+
+    //maps every table in the directory
+    public static Tablebases open(final Path directory) throws IOException {
+        final Tablebases tablebases = new Tablebases();
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + Table.FILE_EXTENSION)) {
+            for (final Path file : files) {
+                tablebases.add(Table.map(file));
+            }
+        }
+        return tablebases;
+    }
+
+    void add(final Table table) {
+        this.tables.put(table.getLayout().getMaterialKey(), table);
+        this.maxPieces = Math.max(this.maxPieces, table.getLayout().getNumPieces());
+    }
+
+    Table getTable(final long materialKey) {
+        return this.tables.get(materialKey);
+    }
+
+    public int getMaxPieces() {
+        return this.maxPieces;
+    }
+
+    public int size() {
+        return this.tables.size();
+    }
+
+    static int win(final int moves) {
+        return moves;
+    }
+
+    static int loss(final int moves) {
+        return LOSS + moves;
+    }
+
+    public static boolean isWin(final int value) {
+        return value >= 1 && value <= MAX_MOVES;
+    }
+
+    public static boolean isLoss(final int value) {
+        return value >= LOSS && value <= LOSS + MAX_MOVES;
+    }
+
+    public static boolean isDraw(final int value) {
+        return value == DRAW;
+    }
+
+    //half moves until mate, 0 for draws
+    public static int getPlies(final int value) {
+        return isWin(value) ? 2 * value - 1 : isLoss(value) ? 2 * (value - LOSS) : 0;
+    }
+
+    //the value for the side to move or UNKNOWN
+    public int probe(final Board board) {
+        final Collection<Piece> whitePieces = board.getWhitePieces();
+        final Collection<Piece> blackPieces = board.getBlackPieces();
+        final int numPieces = whitePieces.size() + blackPieces.size();
+        if (numPieces > this.maxPieces || board.getCastlingRights() != 0 || canCaptureEnPassant(board)) {
+            return UNKNOWN;
+        }
+        final int[] codes = new int[numPieces];
+        final int[] squares = new int[numPieces];
+        int i = 0;
+        for (final Piece piece : whitePieces) {
+            codes[i] = code(piece);
+            squares[i++] = piece.getPiecePosition();
+        }
+        for (final Piece piece : blackPieces) {
+            codes[i] = code(piece) | BLACK;
+            squares[i++] = piece.getPiecePosition();
+        }
+        return probe(codes, squares, numPieces, board.currentPlayer().getAlliance().isWhite());
+    }
+
+    //pieces with a square of -1 are ignored. UNKNOWN if there is no table for the material
+    int probe(final int[] codes,
+              final int[] squares,
+              final int numPieces,
+              final boolean whiteToMove) {
+        final long materialKey = TableLayout.materialKey(codes, squares, numPieces);
+        final boolean flip = !TableLayout.isCanonical(materialKey);
+        final Table table = this.tables.get(flip ? TableLayout.flip(materialKey) : materialKey);
+        if (table == null) {
+            return UNKNOWN;
+        }
+        //the stronger side is white in the table, so the board is turned around for black
+        final TableLayout layout = table.getLayout();
+        final int[] slotSquares = new int[layout.getNumPieces()];
+        int used = 0;
+        for (int slot = 0; slot < slotSquares.length; slot++) {
+            for (int i = 0; i < numPieces; i++) {
+                final int code = flip ? codes[i] ^ BLACK : codes[i];
+                if ((used & (1 << i)) == 0 && squares[i] != -1 && code == layout.getCode(slot)) {
+                    slotSquares[slot] = flip ? squares[i] ^ 56 : squares[i];
+                    used |= 1 << i;
+                    break;
+                }
+            }
+        }
+        final int index = layout.index(slotSquares);
+        return index == -1 ? ILLEGAL : table.get(whiteToMove != flip, index);
+    }
+
+    private static int code(final Piece piece) {
+        switch (piece.getPieceType()) {
+            case PAWN:
+                return PAWN;
+            case KNIGHT:
+                return KNIGHT;
+            case BISHOP:
+                return BISHOP;
+            case ROOK:
+                return ROOK;
+            case QUEEN:
+                return QUEEN;
+            default:
+                return KING;
+        }
+    }
+
+    private static boolean canCaptureEnPassant(final Board board) {
+        if (board.getEnPassantPawn() == null) {
+            return false;
+        }
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            if (move instanceof Move.PawnEnPassantAttackMove) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //the move that wins fastest, loses slowest or keeps the draw, NULL_MOVE if the board is UNKNOWN or over
+    public Move bestMove(final Board board) {
+        final int value = probe(board);
+        if (value == UNKNOWN) {
+            return Move.NULL_MOVE;
+        }
+        Move bestMove = Move.NULL_MOVE;
+        int bestRank = Integer.MIN_VALUE;
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            final MoveTransition transition = board.currentPlayer().makeMove(move);
+            if (!transition.getMoveStatus().isDone()) {
+                continue;
+            }
+            final Board next = transition.getTransitionBoard();
+            final int nextValue = probe(next);
+            final int rank;
+            if (nextValue == UNKNOWN) {
+                continue;
+            } else if (isLoss(nextValue)) {
+                rank = 1000 - getPlies(nextValue);
+            } else if (isDraw(nextValue)) {
+                rank = 0;
+            } else {
+                rank = -1000 + getPlies(nextValue);
+            }
+            if (rank > bestRank) {
+                bestRank = rank;
+                bestMove = move;
+            }
+        }
+        return bestMove;
+    }
+
+    //the result of the game with perfect play from here, null if the board is UNKNOWN
+    public String adjudicate(final Board board) {
+        final int value = probe(board);
+        if (value == UNKNOWN || value == ILLEGAL) {
+            return null;
+        }
+        if (isDraw(value)) {
+            return "1/2-1/2";
+        }
+        return isWin(value) == board.currentPlayer().getAlliance().isWhite() ? "1-0" : "0-1";
+    }
+}
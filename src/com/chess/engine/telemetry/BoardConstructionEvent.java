@@ -0,0 +1,27 @@
+package com.chess.engine.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//A Board built, with the move generation for both sides. Off by default, a search builds one per node.
+@Name("com.chess.engine.BoardConstruction")
+@Label("Board Construction")
+@Category({"JChess", "Board"})
+@Description("Construction of a board and the pseudo legal moves of both sides")
+@Enabled(false)
+@StackTrace(false)
+public class BoardConstructionEvent extends jdk.jfr.Event {
+
+    @Label("Pieces")
+    public int pieces;
+
+    @Label("White Moves")
+    public int whiteMoves;
+
+    @Label("Black Moves")
+    public int blackMoves;
+}
@@ -0,0 +1,90 @@
+package com.chess.engine.telemetry;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+//Engine wide counters, striped so threads counting at the same time don't fight over one cache line.
+//Boards and illegal moves are counted where they happen, a search adds its nodes and cache lookups in batches.
+//register() publishes them as the MBean com.chess.engine:type=EngineTelemetry.
+public final class EngineTelemetry implements EngineTelemetryMBean {
+
+    public static final String OBJECT_NAME = "com.chess.engine:type=EngineTelemetry";
+
+    private static final LongAdder NODES = new LongAdder();
+    private static final LongAdder BOARDS_BUILT = new LongAdder();
+    private static final LongAdder CACHE_PROBES = new LongAdder();
+    private static final LongAdder CACHE_HITS = new LongAdder();
+    private static final LongAdder ILLEGAL_MOVES = new LongAdder();
+
+    //ctor
+    private EngineTelemetry() {
+    }
+
+    //registers the MBean with the platform MBean server, once
+    public static void register() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new EngineTelemetry(), new ObjectName(OBJECT_NAME));
+        } catch (final InstanceAlreadyExistsException e) {
+            //registered before
+        } catch (final JMException e) {
+            throw new RuntimeException("Cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    public static void addNodes(final long nodes) {
+        NODES.add(nodes);
+    }
+
+    public static void boardBuilt() {
+        BOARDS_BUILT.increment();
+    }
+
+    public static void addCacheLookups(final long probes,
+                                       final long hits) {
+        CACHE_PROBES.add(probes);
+        CACHE_HITS.add(hits);
+    }
+
+    public static void illegalMove() {
+        ILLEGAL_MOVES.increment();
+    }
+
+    @Override
+    public long getNodes() {
+        return NODES.sum();
+    }
+
+    @Override
+    public long getBoardsBuilt() {
+        return BOARDS_BUILT.sum();
+    }
+
+    @Override
+    public long getCacheProbes() {
+        return CACHE_PROBES.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return CACHE_HITS.sum();
+    }
+
+    @Override
+    public long getIllegalMoves() {
+        return ILLEGAL_MOVES.sum();
+    }
+
+    @Override
+    public void reset() {
+        NODES.reset();
+        BOARDS_BUILT.reset();
+        CACHE_PROBES.reset();
+        CACHE_HITS.reset();
+        ILLEGAL_MOVES.reset();
+    }
+}
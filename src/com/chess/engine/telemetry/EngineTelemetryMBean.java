@@ -0,0 +1,17 @@
+package com.chess.engine.telemetry;
+
+//The counters EngineTelemetry publishes over JMX, totals since the start or the last reset.
+public interface EngineTelemetryMBean {
+
+    long getNodes();
+
+    long getBoardsBuilt();
+
+    long getCacheProbes();
+
+    long getCacheHits();
+
+    long getIllegalMoves();
+
+    void reset();
+}
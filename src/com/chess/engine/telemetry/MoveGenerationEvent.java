@@ -0,0 +1,24 @@
+package com.chess.engine.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//The moves of one piece. Off by default, there are a few dozen for every board.
+@Name("com.chess.engine.MoveGeneration")
+@Label("Move Generation")
+@Category({"JChess", "Board"})
+@Description("Generation of the pseudo legal moves of one piece")
+@Enabled(false)
+@StackTrace(false)
+public class MoveGenerationEvent extends jdk.jfr.Event {
+
+    @Label("Piece Type")
+    public String pieceType;
+
+    @Label("Moves")
+    public int moves;
+}
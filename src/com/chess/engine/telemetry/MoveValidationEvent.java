@@ -0,0 +1,25 @@
+package com.chess.engine.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//One Player.makeMove(), which builds the board after the move to see if the king is left in check.
+//Off by default, a search makes one per move it looks at.
+@Name("com.chess.engine.MoveValidation")
+@Label("Move Validation")
+@Category({"JChess", "Player"})
+@Description("A move made and checked for legality")
+@Enabled(false)
+@StackTrace(false)
+public class MoveValidationEvent extends jdk.jfr.Event {
+
+    @Label("Move")
+    public String move;
+
+    @Label("Status")
+    public String status;
+}
@@ -0,0 +1,28 @@
+package com.chess.engine.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//One completed iteration of AlphaBeta's iterative deepening.
+@Name("com.chess.engine.SearchIteration")
+@Label("Search Iteration")
+@Category({"JChess", "Search"})
+@Description("An iteration of the iterative deepening search")
+@StackTrace(false)
+public class SearchIterationEvent extends jdk.jfr.Event {
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Score")
+    public int score;
+
+    @Label("Nodes")
+    public long nodes;
+
+    @Label("Best Move")
+    public String bestMove;
+}
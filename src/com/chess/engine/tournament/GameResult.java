@@ -0,0 +1,19 @@
+package com.chess.engine.tournament;
+
+public enum GameResult {
+
+    WHITE_WINS("1-0"),
+    BLACK_WINS("0-1"),
+    DRAW("1/2-1/2");
+
+    private final String notation;
+
+    GameResult(final String notation) {
+        this.notation = notation;
+    }
+
+    @Override
+    public String toString() {
+        return this.notation;
+    }
+}
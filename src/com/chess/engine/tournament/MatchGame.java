@@ -0,0 +1,39 @@
+package com.chess.engine.tournament;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.game.Game;
+import com.chess.engine.player.ai.MoveStrategy;
+
+//Plays one engine game to the end. Mate and stalemate are read off the board, repetitions and the fifty move
+//rule off the game, and a game that is still going after maxPlies is a draw.
+//A move that is not legal on the board loses, so a broken engine can't hang a tournament.
+public final class MatchGame {
+
+    public static final int DEFAULT_MAX_PLIES = 400;
+
+    private MatchGame() {
+        throw new RuntimeException("You cannot instantiate me!");
+    }
+
+    public static GameResult play(final Board opening,
+                                  final MoveStrategy white,
+                                  final MoveStrategy black,
+                                  final int maxPlies) {
+        final Game game = new Game(opening);
+        while (true) {
+            final Board board = game.getCurrentBoard();
+            final boolean whiteToMove = board.currentPlayer().getAlliance().isWhite();
+            if (board.currentPlayer().isInCheckMate()) {
+                return whiteToMove ? GameResult.BLACK_WINS : GameResult.WHITE_WINS;
+            }
+            if (game.isDraw() || game.getPly() >= maxPlies) {
+                return GameResult.DRAW;
+            }
+            final Move move = (whiteToMove ? white : black).execute(board);
+            if (move == Move.NULL_MOVE || !game.makeMove(move).getMoveStatus().isDone()) {
+                return whiteToMove ? GameResult.BLACK_WINS : GameResult.WHITE_WINS;
+            }
+        }
+    }
+}
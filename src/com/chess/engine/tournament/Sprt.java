@@ -0,0 +1,99 @@
+package com.chess.engine.tournament;
+
+//Sequential probability ratio test between two Elo differences, elo0 (H0) and elo1 (H1), on a running
+//win/draw/loss count. The log-likelihood ratio is the generalized SPRT approximation on the mean and variance
+//of the game scores, so draws are weighed by how often they actually happen instead of by a draw model.
+//A test can stop after any game: once the ratio leaves the bounds the error rates alpha and beta still hold.
+public final class Sprt {
+
+    private static final double PSEUDO_GAMES = 0.5;
+
+    private final double elo0;
+    private final double elo1;
+    private final double lowerBound;
+    private final double upperBound;
+
+    //ctor
+    public Sprt(final double elo0,
+                final double elo1,
+                final double alpha,
+                final double beta) {
+        if (elo0 >= elo1 || alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) {
+            throw new RuntimeException("Need elo0 < elo1 and error rates between 0 and 1!");
+        }
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    public double getElo0() {
+        return this.elo0;
+    }
+
+    public double getElo1() {
+        return this.elo1;
+    }
+
+    public double getLowerBound() {
+        return this.lowerBound;
+    }
+
+    public double getUpperBound() {
+        return this.upperBound;
+    }
+
+    //0 before the first game. Every outcome gets PSEUDO_GAMES on top of its count, so a run without a loss, or
+    //without a win, still has a variance and can reach a decision; over a real test the extra games vanish.
+    public double logLikelihoodRatio(final long wins,
+                                     final long draws,
+                                     final long losses) {
+        if (wins + draws + losses == 0) {
+            return 0;
+        }
+        final double regularizedWins = wins + PSEUDO_GAMES;
+        final double regularizedDraws = draws + PSEUDO_GAMES;
+        final double regularizedLosses = losses + PSEUDO_GAMES;
+        final double games = regularizedWins + regularizedDraws + regularizedLosses;
+        final double score = (regularizedWins + regularizedDraws / 2) / games;
+        final double variance = (regularizedWins * square(1 - score) + regularizedDraws * square(0.5 - score) +
+                                 regularizedLosses * square(score)) / games;
+        final double score0 = expectedScore(this.elo0);
+        final double score1 = expectedScore(this.elo1);
+        return games * (score1 - score0) * (2 * score - score0 - score1) / (2 * variance);
+    }
+
+    public Decision decide(final long wins,
+                           final long draws,
+                           final long losses) {
+        final double llr = logLikelihoodRatio(wins, draws, losses);
+        if (llr >= this.upperBound) {
+            return Decision.ACCEPT_H1;
+        }
+        if (llr <= this.lowerBound) {
+            return Decision.ACCEPT_H0;
+        }
+        return Decision.CONTINUE;
+    }
+
+    public static double expectedScore(final double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    //the Elo difference that gives the score, infinite for 0 or 1
+    public static double elo(final double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static double square(final double value) {
+        return value * value;
+    }
+
+    public enum Decision {
+        //the candidate is at least elo1 stronger
+        ACCEPT_H1,
+        //the candidate is not more than elo0 stronger
+        ACCEPT_H0,
+        CONTINUE
+    }
+}
@@ -0,0 +1,214 @@
+package com.chess.engine.tournament;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.player.MoveTransition;
+import com.chess.engine.player.ai.MoveStrategy;
+import com.google.common.collect.ImmutableList;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+//Plays a candidate engine against a baseline until the SPRT decides or maxGames are played.
+//Every opening is played twice, once with each engine as white. Fixed depth engines play the same game every
+//time from the same position, so once the book has been played through every later pair of games starts with
+//RANDOM_PLIES random moves from its opening, drawn from the seed and the pair number. Game n of the tournament
+//always starts from the same position with the same colors, so only the order in which the games finish depends
+//on the workers.
+//A game gets fresh engines from the suppliers and runs on one worker from start to end, so games share nothing but
+//the game counter and the queue their results go back on. Results are counted on the calling thread.
+public class Tournament {
+
+    public static final double DEFAULT_ELO0 = 0;
+    public static final double DEFAULT_ELO1 = 5;
+    public static final double DEFAULT_ERROR_RATE = 0.05;
+    public static final int RANDOM_PLIES = 4;
+
+    private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+    private final Supplier<? extends MoveStrategy> candidate;
+    private final Supplier<? extends MoveStrategy> baseline;
+    private final List<Board> openings;
+    private final Sprt sprt;
+    private final int numWorkers;
+    private final long maxGames;
+    private final int maxPlies;
+    private final long seed;
+
+    private long wins;
+    private long draws;
+    private long losses;
+
+    //ctor
+    public Tournament(final Supplier<? extends MoveStrategy> candidate,
+                      final Supplier<? extends MoveStrategy> baseline,
+                      final List<Board> openings,
+                      final Sprt sprt,
+                      final int numWorkers,
+                      final long maxGames,
+                      final int maxPlies,
+                      final long seed) {
+        if (openings.isEmpty() || numWorkers < 1) {
+            throw new RuntimeException("Need at least one opening and one worker!");
+        }
+        this.candidate = candidate;
+        this.baseline = baseline;
+        this.openings = ImmutableList.copyOf(openings);
+        this.sprt = sprt;
+        this.numWorkers = numWorkers;
+        this.maxGames = maxGames;
+        this.maxPlies = maxPlies;
+        this.seed = seed;
+    }
+
+    //wins, draws and losses are the candidate's
+    public long getWins() {
+        return this.wins;
+    }
+
+    public long getDraws() {
+        return this.draws;
+    }
+
+    public long getLosses() {
+        return this.losses;
+    }
+
+    public long getGames() {
+        return this.wins + this.draws + this.losses;
+    }
+
+    //Plays until the test decides, CONTINUE if maxGames ran out first. Prints a line every reportInterval games.
+    //Games still running when the test decides are abandoned.
+    public Sprt.Decision run(final PrintStream out,
+                             final int reportInterval) throws InterruptedException {
+        this.wins = 0;
+        this.draws = 0;
+        this.losses = 0;
+        final AtomicLong nextGame = new AtomicLong();
+        final AtomicBoolean finished = new AtomicBoolean();
+        //never full, a worker is never held up by the counting
+        final BlockingQueue<GameScore> scores = new LinkedBlockingQueue<>();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ExecutorService workers = Executors.newFixedThreadPool(this.numWorkers, runnable -> {
+            final Thread thread = new Thread(runnable, "tournament-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < this.numWorkers; i++) {
+                workers.execute(() -> playGames(nextGame, finished, scores));
+            }
+            Sprt.Decision decision = Sprt.Decision.CONTINUE;
+            int doneWorkers = 0;
+            while (decision == Sprt.Decision.CONTINUE && doneWorkers < this.numWorkers) {
+                final GameScore score = scores.take();
+                if (score == GameScore.END_OF_GAMES) {
+                    doneWorkers++;
+                    continue;
+                }
+                count(score);
+                decision = this.sprt.decide(this.wins, this.draws, this.losses);
+                if (getGames() % reportInterval == 0 || decision != Sprt.Decision.CONTINUE) {
+                    report(out);
+                }
+            }
+            return decision;
+        } finally {
+            finished.set(true);
+            workers.shutdownNow();
+        }
+    }
+
+    private void playGames(final AtomicLong nextGame,
+                           final AtomicBoolean finished,
+                           final BlockingQueue<GameScore> scores) {
+        try {
+            long game;
+            while (!finished.get() && (game = nextGame.getAndIncrement()) < this.maxGames) {
+                scores.add(play(game));
+            }
+        } finally {
+            scores.add(GameScore.END_OF_GAMES);
+        }
+    }
+
+    private GameScore play(final long game) {
+        final long pair = game / 2;
+        final Board bookOpening = this.openings.get((int) (pair % this.openings.size()));
+        final Board opening = pair < this.openings.size() ? bookOpening : randomize(bookOpening, pair);
+        final boolean candidateWhite = (game & 1) == 0;
+        final MoveStrategy candidate = this.candidate.get();
+        final MoveStrategy baseline = this.baseline.get();
+        final GameResult result = candidateWhite ? MatchGame.play(opening, candidate, baseline, this.maxPlies) :
+                MatchGame.play(opening, baseline, candidate, this.maxPlies);
+        if (result == GameResult.DRAW) {
+            return GameScore.DRAW;
+        }
+        return (result == GameResult.WHITE_WINS) == candidateWhite ? GameScore.WIN : GameScore.LOSS;
+    }
+
+    //the opening after RANDOM_PLIES random legal moves, fewer if the game would be over
+    private Board randomize(final Board opening,
+                            final long pair) {
+        final SplittableRandom random = new SplittableRandom(this.seed + pair * SEED_INCREMENT);
+        Board board = opening;
+        for (int ply = 0; ply < RANDOM_PLIES; ply++) {
+            final List<Board> successors = new ArrayList<>();
+            for (final Move move : board.currentPlayer().getLegalMoves()) {
+                final MoveTransition transition = board.currentPlayer().makeMove(move);
+                if (transition.getMoveStatus().isDone()) {
+                    successors.add(transition.getTransitionBoard());
+                }
+            }
+            if (successors.isEmpty()) {
+                break;
+            }
+            final Board next = successors.get(random.nextInt(successors.size()));
+            if (next.currentPlayer().isInCheckMate() || next.currentPlayer().isInStaleMate()) {
+                break;
+            }
+            board = next;
+        }
+        return board;
+    }
+
+    private void count(final GameScore score) {
+        switch (score) {
+            case WIN:
+                this.wins++;
+                break;
+            case DRAW:
+                this.draws++;
+                break;
+            default:
+                this.losses++;
+        }
+    }
+
+    private void report(final PrintStream out) {
+        final double score = (this.wins + this.draws / 2.0) / getGames();
+        out.println(String.format("games %d  +%d =%d -%d  score %.3f  elo %+.1f  llr %.2f (%.2f, %.2f) [%.1f, %.1f]",
+                getGames(), this.wins, this.draws, this.losses, score, Sprt.elo(score),
+                this.sprt.logLikelihoodRatio(this.wins, this.draws, this.losses), this.sprt.getLowerBound(),
+                this.sprt.getUpperBound(), this.sprt.getElo0(), this.sprt.getElo1()));
+    }
+
+    //the candidate's side of a game, END_OF_GAMES tells the counting thread that a worker is done
+    private enum GameScore {
+        WIN,
+        DRAW,
+        LOSS,
+        END_OF_GAMES
+    }
+}
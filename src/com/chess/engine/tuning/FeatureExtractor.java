@@ -0,0 +1,396 @@
+package com.chess.engine.tuning;
+
+import com.chess.engine.board.BoardUtils;
+import com.chess.engine.notation.PositionCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+//Turns TrainingData records into dense feature rows for trainers, straight from the PositionCodec bytes:
+//the pieces become twelve bitboards and everything else is worked out on those, no Board, Tile or Piece is made.
+//Bit i of a bitboard is tile i, a8 first, as in the occupancy of PositionCodec. Sliding attacks use rays:
+//the ray from a square, cut at the first blocker by taking away the ray from that blocker.
+//A row is FEATURE_SIZE bytes, written at an absolute index in the byte order of the buffer:
+//planes (768)      a byte per square for each of white PNBRQK, then black PNBRQK, 1 if the piece stands there
+//attacks (128)     a byte per square for white, then black, the number of pieces attacking it
+//mobility (24)     a short per piece type for white, then black, the pseudo-legal destinations of those pieces
+//legal moves (512) bit from * 64 + to, lowest bit of each byte first, set for every legal move; a promotion is
+//                  one bit whatever it promotes to, castling is the king's move
+//side to move (1)  0 white, 1 black
+//castling (1)      as in BoardUtils
+//result (1)        TrainingData result for the side to move
+//reserved (1)      zero
+//score (2)         TrainingData score for the side to move
+//reserved (2)      zero
+//One instance keeps its scratch state between rows, use one per thread.
+public final class FeatureExtractor {
+
+    public static final int FEATURE_SIZE = 1440;
+    public static final int PLANES_OFFSET = 0;
+    public static final int ATTACKS_OFFSET = 768;
+    public static final int MOBILITY_OFFSET = 896;
+    public static final int LEGAL_MOVES_OFFSET = 920;
+    public static final int SIDE_TO_MOVE_OFFSET = 1432;
+    public static final int CASTLING_OFFSET = 1433;
+    public static final int RESULT_OFFSET = 1434;
+    public static final int SCORE_OFFSET = 1436;
+
+    private static final int WHITE = 0;
+    private static final int BLACK = 1;
+    private static final int PAWN = 0;
+    private static final int KNIGHT = 1;
+    private static final int BISHOP = 2;
+    private static final int ROOK = 3;
+    private static final int QUEEN = 4;
+    private static final int KING = 5;
+    private static final int NUM_PIECE_TYPES = 6;
+    private static final int BLACK_PIECE = 8;
+    private static final int LEGAL_MOVES_SIZE = 512;
+
+    //tile steps of the eight directions, the first four lead to higher tiles
+    private static final int[] DIRECTION_ROWS = {1, 0, 1, 1, -1, 0, -1, -1};
+    private static final int[] DIRECTION_FILES = {0, 1, 1, -1, 0, -1, -1, 1};
+    private static final int SOUTH = 0;
+    private static final int EAST = 1;
+    private static final int SOUTH_EAST = 2;
+    private static final int SOUTH_WEST = 3;
+    private static final int NORTH = 4;
+    private static final int WEST = 5;
+    private static final int NORTH_WEST = 6;
+    private static final int NORTH_EAST = 7;
+    private static final int[] ROOK_DIRECTIONS = {SOUTH, EAST, NORTH, WEST};
+    private static final int[] BISHOP_DIRECTIONS = {SOUTH_EAST, SOUTH_WEST, NORTH_WEST, NORTH_EAST};
+
+    private static final long[][] RAYS = new long[8][BoardUtils.NUM_TILES];
+    private static final long[] KNIGHT_ATTACKS = new long[BoardUtils.NUM_TILES];
+    private static final long[] KING_ATTACKS = new long[BoardUtils.NUM_TILES];
+    //by color: the squares a pawn on the tile attacks
+    private static final long[][] PAWN_ATTACKS = new long[2][BoardUtils.NUM_TILES];
+    //a byte per bit of the index, 0 or 1
+    private static final long[] SPREAD_BITS = new long[256];
+
+    private static final int WHITE_KING_START = 60;
+    private static final int BLACK_KING_START = 4;
+
+    static {
+        for (int tile = 0; tile < BoardUtils.NUM_TILES; tile++) {
+            final int row = tile >>> 3;
+            final int file = tile & 7;
+            for (int direction = 0; direction < 8; direction++) {
+                for (int step = 1; step < 8; step++) {
+                    final long bit = bit(row + step * DIRECTION_ROWS[direction], file + step * DIRECTION_FILES[direction]);
+                    if (bit == 0) {
+                        break;
+                    }
+                    RAYS[direction][tile] |= bit;
+                }
+            }
+            for (final int[] jump : new int[][]{{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}}) {
+                KNIGHT_ATTACKS[tile] |= bit(row + jump[0], file + jump[1]);
+            }
+            for (int rowStep = -1; rowStep <= 1; rowStep++) {
+                for (int fileStep = -1; fileStep <= 1; fileStep++) {
+                    if (rowStep != 0 || fileStep != 0) {
+                        KING_ATTACKS[tile] |= bit(row + rowStep, file + fileStep);
+                    }
+                }
+            }
+            //white pawns move to lower rows
+            PAWN_ATTACKS[WHITE][tile] = bit(row - 1, file - 1) | bit(row - 1, file + 1);
+            PAWN_ATTACKS[BLACK][tile] = bit(row + 1, file - 1) | bit(row + 1, file + 1);
+        }
+        for (int bits = 0; bits < SPREAD_BITS.length; bits++) {
+            for (int i = 0; i < 8; i++) {
+                SPREAD_BITS[bits] |= (long) ((bits >>> i) & 1) << (i * 8);
+            }
+        }
+    }
+
+    //by color and piece type
+    private final long[][] pieces;
+    private final long[] colors;
+    private final short[] mobility;
+    private final byte[] attackCounts;
+    private final byte[] legalMoves;
+    private long occupancy;
+    private int sideToMove;
+    private int castlingRights;
+    private int enPassantFile;
+
+    //ctor
+    public FeatureExtractor() {
+        this.pieces = new long[2][NUM_PIECE_TYPES];
+        this.colors = new long[2];
+        this.mobility = new short[2 * NUM_PIECE_TYPES];
+        this.attackCounts = new byte[2 * BoardUtils.NUM_TILES];
+        this.legalMoves = new byte[LEGAL_MOVES_SIZE];
+    }
+
+    private static long bit(final int row,
+                            final int file) {
+        return row < 0 || row > 7 || file < 0 || file > 7 ? 0 : 1L << (row * 8 + file);
+    }
+
+    //the record at recordIndex of records becomes the row at rowIndex of rows
+    public void extract(final ByteBuffer records,
+                        final int recordIndex,
+                        final ByteBuffer rows,
+                        final int rowIndex) {
+        load(records, recordIndex);
+        writePlanes(rows, rowIndex + PLANES_OFFSET);
+        countAttacks();
+        rows.put(rowIndex + ATTACKS_OFFSET, this.attackCounts, 0, this.attackCounts.length);
+        countMobility();
+        for (int i = 0; i < this.mobility.length; i++) {
+            rows.putShort(rowIndex + MOBILITY_OFFSET + 2 * i, this.mobility[i]);
+        }
+        findLegalMoves();
+        rows.put(rowIndex + LEGAL_MOVES_OFFSET, this.legalMoves, 0, this.legalMoves.length);
+        rows.put(rowIndex + SIDE_TO_MOVE_OFFSET, (byte) this.sideToMove);
+        rows.put(rowIndex + CASTLING_OFFSET, (byte) this.castlingRights);
+        rows.put(rowIndex + RESULT_OFFSET, (byte) TrainingData.getResult(records, recordIndex));
+        rows.put(rowIndex + RESULT_OFFSET + 1, (byte) 0);
+        rows.putShort(rowIndex + SCORE_OFFSET, (short) TrainingData.getScore(records, recordIndex));
+        rows.putShort(rowIndex + SCORE_OFFSET + 2, (short) 0);
+    }
+
+    private void load(final ByteBuffer records,
+                      final int index) {
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int type = 0; type < NUM_PIECE_TYPES; type++) {
+                this.pieces[color][type] = 0;
+            }
+        }
+        this.occupancy = PositionCodec.getOccupancy(records, index);
+        long remaining = this.occupancy;
+        int pieceNumber = 0;
+        while (remaining != 0) {
+            final int tile = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            final int code = PositionCodec.getPieceCode(records, index, pieceNumber++);
+            final int type = (code & ~BLACK_PIECE) - 1;
+            if (type < 0 || type >= NUM_PIECE_TYPES) {
+                throw new RuntimeException("Invalid piece code " + code + " on tile " + tile);
+            }
+            this.pieces[(code & BLACK_PIECE) != 0 ? BLACK : WHITE][type] |= 1L << tile;
+        }
+        for (int color = WHITE; color <= BLACK; color++) {
+            long all = 0;
+            for (int type = 0; type < NUM_PIECE_TYPES; type++) {
+                all |= this.pieces[color][type];
+            }
+            this.colors[color] = all;
+        }
+        this.sideToMove = PositionCodec.isBlackToMove(records, index) ? BLACK : WHITE;
+        this.castlingRights = PositionCodec.getCastlingRights(records, index);
+        this.enPassantFile = PositionCodec.getEnPassantFile(records, index);
+    }
+
+    private void writePlanes(final ByteBuffer rows,
+                             final int index) {
+        int offset = index;
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int type = 0; type < NUM_PIECE_TYPES; type++) {
+                final long board = this.pieces[color][type];
+                for (int row = 0; row < 8; row++) {
+                    long spread = SPREAD_BITS[(int) (board >>> (row * 8)) & 0xFF];
+                    if (rows.order() == ByteOrder.BIG_ENDIAN) {
+                        spread = Long.reverseBytes(spread);
+                    }
+                    rows.putLong(offset, spread);
+                    offset += 8;
+                }
+            }
+        }
+    }
+
+    private static long slidingAttacks(final int tile,
+                                       final long occupancy,
+                                       final int[] directions) {
+        long attacks = 0;
+        for (final int direction : directions) {
+            final long ray = RAYS[direction][tile];
+            final long blockers = ray & occupancy;
+            if (blockers == 0) {
+                attacks |= ray;
+            } else {
+                final int blocker = direction < NORTH ? Long.numberOfTrailingZeros(blockers) :
+                        63 - Long.numberOfLeadingZeros(blockers);
+                attacks |= ray ^ RAYS[direction][blocker];
+            }
+        }
+        return attacks;
+    }
+
+    //the squares the piece of the given type on the tile attacks
+    private static long attacks(final int color,
+                                final int type,
+                                final int tile,
+                                final long occupancy) {
+        switch (type) {
+            case PAWN:
+                return PAWN_ATTACKS[color][tile];
+            case KNIGHT:
+                return KNIGHT_ATTACKS[tile];
+            case BISHOP:
+                return slidingAttacks(tile, occupancy, BISHOP_DIRECTIONS);
+            case ROOK:
+                return slidingAttacks(tile, occupancy, ROOK_DIRECTIONS);
+            case QUEEN:
+                return slidingAttacks(tile, occupancy, BISHOP_DIRECTIONS) | slidingAttacks(tile, occupancy, ROOK_DIRECTIONS);
+            default:
+                return KING_ATTACKS[tile];
+        }
+    }
+
+    private void countAttacks() {
+        for (int i = 0; i < this.attackCounts.length; i++) {
+            this.attackCounts[i] = 0;
+        }
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int type = 0; type < NUM_PIECE_TYPES; type++) {
+                long remaining = this.pieces[color][type];
+                while (remaining != 0) {
+                    final int tile = Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    long attacked = attacks(color, type, tile, this.occupancy);
+                    while (attacked != 0) {
+                        this.attackCounts[color * BoardUtils.NUM_TILES + Long.numberOfTrailingZeros(attacked)]++;
+                        attacked &= attacked - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    private void countMobility() {
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int type = 0; type < NUM_PIECE_TYPES; type++) {
+                int count = 0;
+                long remaining = this.pieces[color][type];
+                while (remaining != 0) {
+                    final int tile = Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    count += Long.bitCount(destinations(color, type, tile));
+                }
+                this.mobility[color * NUM_PIECE_TYPES + type] = (short) count;
+            }
+        }
+    }
+
+    //pseudo-legal destinations, en passant and castling left out
+    private long destinations(final int color,
+                              final int type,
+                              final int tile) {
+        if (type != PAWN) {
+            return attacks(color, type, tile, this.occupancy) & ~this.colors[color];
+        }
+        final long empty = ~this.occupancy;
+        final long single = (color == WHITE ? (1L << tile) >>> 8 : (1L << tile) << 8) & empty;
+        final int startRow = color == WHITE ? 6 : 1;
+        long pushes = single;
+        if ((tile >>> 3) == startRow && single != 0) {
+            pushes |= (color == WHITE ? single >>> 8 : single << 8) & empty;
+        }
+        return pushes | (PAWN_ATTACKS[color][tile] & this.colors[color ^ 1]);
+    }
+
+    //true if a piece of the attacker stands on attackers and hits the tile, with occupancy as given
+    private boolean isAttacked(final int tile,
+                               final int attacker,
+                               final long occupancy,
+                               final long removed) {
+        final long[] theirs = this.pieces[attacker];
+        final long queens = theirs[QUEEN];
+        final long attackers = (KNIGHT_ATTACKS[tile] & theirs[KNIGHT]) |
+                (KING_ATTACKS[tile] & theirs[KING]) |
+                (PAWN_ATTACKS[attacker ^ 1][tile] & theirs[PAWN]) |
+                (slidingAttacks(tile, occupancy, BISHOP_DIRECTIONS) & (theirs[BISHOP] | queens)) |
+                (slidingAttacks(tile, occupancy, ROOK_DIRECTIONS) & (theirs[ROOK] | queens));
+        return (attackers & ~removed) != 0;
+    }
+
+    private void findLegalMoves() {
+        for (int i = 0; i < this.legalMoves.length; i++) {
+            this.legalMoves[i] = 0;
+        }
+        final int us = this.sideToMove;
+        final int them = us ^ 1;
+        final long kingBoard = this.pieces[us][KING];
+        if (kingBoard == 0) {
+            return;
+        }
+        final int king = Long.numberOfTrailingZeros(kingBoard);
+        for (int type = 0; type < NUM_PIECE_TYPES; type++) {
+            long remaining = this.pieces[us][type];
+            while (remaining != 0) {
+                final int from = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                long targets = destinations(us, type, from);
+                while (targets != 0) {
+                    final int to = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    final long toBit = 1L << to;
+                    final long after = (this.occupancy & ~(1L << from)) | toBit;
+                    if (!isAttacked(type == KING ? to : king, them, after, toBit)) {
+                        addMove(from, to);
+                    }
+                }
+            }
+        }
+        addEnPassant(us, them, king);
+        addCastling(us, them, king);
+    }
+
+    private void addEnPassant(final int us,
+                              final int them,
+                              final int king) {
+        if (this.enPassantFile < 0) {
+            return;
+        }
+        //the pawn that jumped stands next to the target, on the side of its own start
+        final int target = (us == WHITE ? 2 : 5) * 8 + this.enPassantFile;
+        final int jumped = us == WHITE ? target + 8 : target - 8;
+        final long jumpedBit = 1L << jumped;
+        if ((this.pieces[them][PAWN] & jumpedBit) == 0 || (this.occupancy & (1L << target)) != 0) {
+            return;
+        }
+        long capturers = PAWN_ATTACKS[them][target] & this.pieces[us][PAWN];
+        while (capturers != 0) {
+            final int from = Long.numberOfTrailingZeros(capturers);
+            capturers &= capturers - 1;
+            final long after = (this.occupancy & ~(1L << from) & ~jumpedBit) | (1L << target);
+            if (!isAttacked(king, them, after, jumpedBit)) {
+                addMove(from, target);
+            }
+        }
+    }
+
+    private void addCastling(final int us,
+                             final int them,
+                             final int king) {
+        final int start = us == WHITE ? WHITE_KING_START : BLACK_KING_START;
+        if (king != start || isAttacked(king, them, this.occupancy, 0)) {
+            return;
+        }
+        final int kingSide = us == WHITE ? BoardUtils.WHITE_KING_SIDE_CASTLE : BoardUtils.BLACK_KING_SIDE_CASTLE;
+        final int queenSide = us == WHITE ? BoardUtils.WHITE_QUEEN_SIDE_CASTLE : BoardUtils.BLACK_QUEEN_SIDE_CASTLE;
+        final long rooks = this.pieces[us][ROOK];
+        if ((this.castlingRights & kingSide) != 0 && (rooks & (1L << (start + 3))) != 0 &&
+                (this.occupancy & ((1L << (start + 1)) | (1L << (start + 2)))) == 0 &&
+                !isAttacked(start + 1, them, this.occupancy, 0) && !isAttacked(start + 2, them, this.occupancy, 0)) {
+            addMove(start, start + 2);
+        }
+        if ((this.castlingRights & queenSide) != 0 && (rooks & (1L << (start - 4))) != 0 &&
+                (this.occupancy & ((1L << (start - 1)) | (1L << (start - 2)) | (1L << (start - 3)))) == 0 &&
+                !isAttacked(start - 1, them, this.occupancy, 0) && !isAttacked(start - 2, them, this.occupancy, 0)) {
+            addMove(start, start - 2);
+        }
+    }
+
+    private void addMove(final int from,
+                         final int to) {
+        final int index = from * BoardUtils.NUM_TILES + to;
+        this.legalMoves[index >>> 3] |= (byte) (1 << (index & 7));
+    }
+}
@@ -0,0 +1,119 @@
+package com.chess.engine.tuning;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+//Turns TrainingData shards into one file of FeatureExtractor rows for trainers outside the engine.
+//The file is a HEADER_SIZE header followed by the rows, all little endian, so a trainer can map it as it is,
+//e.g. numpy.memmap(path, dtype=numpy.uint8, offset=64).reshape(-1, 1440). The header holds MAGIC, the row size
+//as an int at 8 and the number of rows as a long at 16; the count is written last, a file cut short says 0.
+//Records are read a batch at a time into a direct buffer, the batch is extracted in parallel into a second one,
+//and that is written out whole. Both buffers and one extractor per thread live as long as the pipeline,
+//so a batch costs nothing but the reading, the bit work of the extractors and the writing.
+public class FeaturePipeline implements Closeable {
+
+    public static final int HEADER_SIZE = 64;
+    public static final int ROW_SIZE_OFFSET = 8;
+    public static final int COUNT_OFFSET = 16;
+    public static final byte[] MAGIC = "JFEAT001".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int BATCH_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+    private final ByteBuffer records;
+    private final ByteBuffer rows;
+    private final ThreadLocal<FeatureExtractor> extractors;
+
+    //ctor
+    public FeaturePipeline(final int numThreads) {
+        this.pool = new ForkJoinPool(numThreads);
+        this.records = ByteBuffer.allocateDirect(BATCH_SIZE * TrainingData.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.rows = ByteBuffer.allocateDirect(BATCH_SIZE * FeatureExtractor.FEATURE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.extractors = ThreadLocal.withInitial(FeatureExtractor::new);
+    }
+
+    //writes the rows of every record in the inputs to output, replacing it, and returns the number of rows
+    public long run(final List<Path> inputs,
+                    final Path output) throws IOException {
+        long count = 0;
+        try (final FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).putInt(ROW_SIZE_OFFSET, FeatureExtractor.FEATURE_SIZE).putLong(COUNT_OFFSET, 0).clear();
+            write(out, header);
+            for (final Path input : inputs) {
+                count += convert(input, out);
+            }
+            //the rows are on disk before the count that vouches for them
+            out.force(false);
+            header.clear();
+            header.putLong(COUNT_OFFSET, count).position(COUNT_OFFSET).limit(COUNT_OFFSET + Long.BYTES);
+            while (header.hasRemaining()) {
+                out.write(header, header.position());
+            }
+            out.force(false);
+        }
+        return count;
+    }
+
+    private long convert(final Path input,
+                         final FileChannel out) throws IOException {
+        long count = 0;
+        try (final FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            while (true) {
+                this.records.clear();
+                boolean endOfFile = false;
+                while (this.records.hasRemaining() && !endOfFile) {
+                    endOfFile = in.read(this.records) == -1;
+                }
+                //a torn record at the end of the file is left out
+                final int numRecords = this.records.position() / TrainingData.RECORD_SIZE;
+                if (numRecords > 0) {
+                    this.rows.clear();
+                    extractBatch(numRecords);
+                    this.rows.position(0).limit(numRecords * FeatureExtractor.FEATURE_SIZE);
+                    write(out, this.rows);
+                    count += numRecords;
+                }
+                if (endOfFile) {
+                    return count;
+                }
+            }
+        }
+    }
+
+    private void extractBatch(final int numRecords) throws IOException {
+        try {
+            this.pool.submit(() -> IntStream.range(0, numRecords).parallel().forEach(i ->
+                    this.extractors.get().extract(this.records, i * TrainingData.RECORD_SIZE,
+                            this.rows, i * FeatureExtractor.FEATURE_SIZE))).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting features", e);
+        } catch (final ExecutionException e) {
+            throw new RuntimeException("Failed to extract features", e.getCause());
+        }
+    }
+
+    private static void write(final FileChannel channel,
+                              final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.pool.shutdown();
+    }
+}
@@ -0,0 +1,236 @@
+package com.chess.engine.tuning;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.game.Game;
+import com.chess.engine.player.ai.AlphaBeta;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.engine.player.ai.TranspositionTable;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Plays shallow self-play games on a fixed pool of workers and writes TrainingData records of their positions.
+//Every worker plays its own games with its own search and random generator and appends to its own shard,
+//selfplay-<worker>.bin, so workers share nothing but the count of positions still to write.
+//A game starts with a few random moves, after that both sides play the search's move. Positions in check and
+//positions whose best move is a capture or a promotion are not sampled, their static value says little.
+//Records are written into a buffer for the whole game, which gets the result once the game is over, then copied
+//into the shard's write buffer. Both are direct buffers allocated once per worker, so the output side makes
+//no garbage at all; what is left is the boards and moves of the game itself.
+//A worker's games only depend on the seed and the worker number, so a shard can be made again.
+public class SelfPlayGenerator {
+
+    public static final int DEFAULT_DEPTH = 3;
+    public static final int MAX_PLIES = 400;
+
+    private static final String SHARD_PREFIX = "selfplay-";
+    private static final String SHARD_SUFFIX = ".bin";
+    private static final int HASH_SIZE = 4;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int MIN_RANDOM_PLIES = 6;
+    private static final int EXTRA_RANDOM_PLIES = 4;
+    private static final int MAX_LEGAL_MOVES = 256;
+    private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+    private static final int REPORT_INTERVAL_SECONDS = 10;
+
+    private final Path directory;
+    private final int numWorkers;
+    private final int depth;
+    private final long seed;
+
+    //ctor
+    public SelfPlayGenerator(final Path directory,
+                             final int numWorkers,
+                             final int depth,
+                             final long seed) {
+        if (numWorkers < 1 || depth < 1) {
+            throw new RuntimeException("Need at least one worker and a depth of one!");
+        }
+        this.directory = directory;
+        this.numWorkers = numWorkers;
+        this.depth = depth;
+        this.seed = seed;
+    }
+
+    public static Path shardPath(final Path directory,
+                                 final int worker) {
+        return directory.resolve(SHARD_PREFIX + worker + SHARD_SUFFIX);
+    }
+
+    //Appends maxPositions records across the shards and returns how many were written.
+    //Prints the progress every few seconds.
+    public long generate(final long maxPositions,
+                         final PrintStream out) throws IOException, InterruptedException {
+        Files.createDirectories(this.directory);
+        final AtomicLong remaining = new AtomicLong(maxPositions);
+        final AtomicLong written = new AtomicLong();
+        final AtomicLong games = new AtomicLong();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ExecutorService workers = Executors.newFixedThreadPool(this.numWorkers, runnable -> {
+            final Thread thread = new Thread(runnable, "selfplay-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long startTime = System.nanoTime();
+        try {
+            final List<Future<?>> results = new ArrayList<>(this.numWorkers);
+            for (int i = 0; i < this.numWorkers; i++) {
+                final int worker = i;
+                results.add(workers.submit(() -> {
+                    runWorker(worker, remaining, written, games);
+                    return null;
+                }));
+            }
+            for (final Future<?> result : results) {
+                while (true) {
+                    try {
+                        result.get(REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                        break;
+                    } catch (final TimeoutException e) {
+                        report(out, written.get(), games.get(), startTime);
+                    }
+                }
+            }
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException("Self-play worker failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        report(out, written.get(), games.get(), startTime);
+        return written.get();
+    }
+
+    private static void report(final PrintStream out,
+                               final long written,
+                               final long games,
+                               final long startTime) {
+        final long elapsedNanos = System.nanoTime() - startTime;
+        out.println("positions " + written + " games " + games + " positions/second " +
+                    (elapsedNanos > 0 ? written * 1000000000L / elapsedNanos : 0));
+    }
+
+    private void runWorker(final int worker,
+                           final AtomicLong remaining,
+                           final AtomicLong written,
+                           final AtomicLong games) throws IOException {
+        final SplittableRandom random = new SplittableRandom(this.seed + worker * SEED_INCREMENT);
+        final AlphaBeta search = new AlphaBeta(new StandardBoardEvaluator(), new TranspositionTable(HASH_SIZE), this.depth);
+        final ByteBuffer gameRecords = ByteBuffer.allocateDirect(MAX_PLIES * TrainingData.RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        final Move[] legalMoves = new Move[MAX_LEGAL_MOVES];
+        try (final FileChannel channel = FileChannel.open(shardPath(this.directory, worker), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (remaining.get() > 0 && !Thread.currentThread().isInterrupted()) {
+                final int numRecords = playGame(search, random, gameRecords, legalMoves);
+                games.incrementAndGet();
+                //only as many as are still wanted, the total comes out exact
+                final long before = remaining.getAndAdd(-numRecords);
+                final int kept = (int) Math.max(0, Math.min(numRecords, before));
+                if (kept == 0) {
+                    continue;
+                }
+                gameRecords.limit(kept * TrainingData.RECORD_SIZE).position(0);
+                if (writeBuffer.remaining() < gameRecords.remaining()) {
+                    flush(channel, writeBuffer);
+                }
+                writeBuffer.put(gameRecords);
+                gameRecords.clear();
+                written.addAndGet(kept);
+            }
+            flush(channel, writeBuffer);
+            channel.force(false);
+        }
+    }
+
+    private static void flush(final FileChannel channel,
+                              final ByteBuffer writeBuffer) throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    //plays a game from the standard position, returns the number of records it left in gameRecords
+    private int playGame(final AlphaBeta search,
+                         final SplittableRandom random,
+                         final ByteBuffer gameRecords,
+                         final Move[] legalMoves) {
+        final Game game = new Game(Board.createStandardBoard());
+        final int randomPlies = MIN_RANDOM_PLIES + random.nextInt(EXTRA_RANDOM_PLIES + 1);
+        int numRecords = 0;
+        while (true) {
+            final Board board = game.getCurrentBoard();
+            if (board.currentPlayer().isInCheckMate()) {
+                //the side to move lost, and so did every position with the same side to move
+                setResults(gameRecords, numRecords, game.getPly() & 1, TrainingData.RESULT_LOSS);
+                return numRecords;
+            }
+            if (game.isDraw() || game.getPly() >= MAX_PLIES) {
+                return numRecords;
+            }
+            final Move move;
+            if (game.getPly() < randomPlies) {
+                move = randomMove(board, random, legalMoves);
+            } else {
+                search.clearStop();
+                search.setDeadline(AlphaBeta.NO_DEADLINE);
+                search.setTimeManager(null);
+                move = search.search(board, this.depth, Long.MAX_VALUE);
+                if (!board.currentPlayer().isInCheck() && !move.isAttack() && !(move instanceof Move.PawnPromotion)) {
+                    TrainingData.write(gameRecords, numRecords * TrainingData.RECORD_SIZE, board, game.getHalfmoveClock(),
+                            game.getPly(), search.getScore(), Move.MoveFactory.encodeMove(move), search.getCompletedDepth());
+                    numRecords++;
+                }
+            }
+            game.makeMove(move);
+        }
+    }
+
+    //records whose ply has the given parity get the result, the others the opposite one, draws are already there
+    private static void setResults(final ByteBuffer gameRecords,
+                                   final int numRecords,
+                                   final int parity,
+                                   final int result) {
+        for (int i = 0; i < numRecords; i++) {
+            final int index = i * TrainingData.RECORD_SIZE;
+            final boolean sameSide = (TrainingData.getPly(gameRecords, index) & 1) == parity;
+            TrainingData.setResult(gameRecords, index, sameSide ? result : TrainingData.RESULT_WIN - result);
+        }
+    }
+
+    //a uniformly random legal move, the board always has one when this is called
+    private static Move randomMove(final Board board,
+                                   final SplittableRandom random,
+                                   final Move[] legalMoves) {
+        int numMoves = 0;
+        for (final Move move : board.currentPlayer().getLegalMoves()) {
+            if (numMoves < legalMoves.length && board.currentPlayer().makeMove(move).getMoveStatus().isDone()) {
+                legalMoves[numMoves++] = move;
+            }
+        }
+        return legalMoves[random.nextInt(numMoves)];
+    }
+}
@@ -0,0 +1,198 @@
+package com.chess.engine.tuning;
+
+import com.chess.engine.player.ai.EvaluationFeatures;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//Tunes the evaluation weights on a TrainingSet the way Texel did: the evaluation of a position, put through
+//a sigmoid with scaling constant k, should predict the game result. The loss is the mean squared error of
+//that prediction over every position. The evaluation is linear in the weights, so the gradient is exact,
+//and the weights follow it with Adam, one step per pass over the whole set.
+//A pass is split into ranges of positions on a fork/join pool, each range sums its loss and gradient.
+public class TexelTuner implements Closeable {
+
+    public static final double DEFAULT_LEARNING_RATE = 0.5;
+
+    private static final int SPLIT_THRESHOLD = 8192;
+    private static final double CENTIPAWNS_TO_LOG = Math.log(10) / 400;
+    private static final double MIN_K = 0.05;
+    private static final double MAX_K = 5;
+    private static final int K_ITERATIONS = 40;
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+
+    private final TrainingSet trainingSet;
+    private final ForkJoinPool pool;
+
+    //ctor
+    public TexelTuner(final TrainingSet trainingSet,
+                      final int numThreads) {
+        if (trainingSet.size() == 0) {
+            throw new RuntimeException("There are no positions to tune on!");
+        }
+        this.trainingSet = trainingSet;
+        this.pool = new ForkJoinPool(numThreads);
+    }
+
+    public double loss(final double[] weights,
+                       final double k) {
+        return pass(weights, k, false)[EvaluationFeatures.NUM_FEATURES];
+    }
+
+    //the k with the lowest loss for the given weights, by golden section search
+    public double findScalingConstant(final double[] weights) {
+        final double ratio = (Math.sqrt(5) - 1) / 2;
+        double low = MIN_K;
+        double high = MAX_K;
+        double left = high - ratio * (high - low);
+        double right = low + ratio * (high - low);
+        double leftLoss = loss(weights, left);
+        double rightLoss = loss(weights, right);
+        for (int i = 0; i < K_ITERATIONS; i++) {
+            if (leftLoss < rightLoss) {
+                high = right;
+                right = left;
+                rightLoss = leftLoss;
+                left = high - ratio * (high - low);
+                leftLoss = loss(weights, left);
+            } else {
+                low = left;
+                left = right;
+                leftLoss = rightLoss;
+                right = low + ratio * (high - low);
+                rightLoss = loss(weights, right);
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    //returns the tuned weights, prints the loss every reportInterval iterations
+    public double[] tune(final double[] initialWeights,
+                         final double k,
+                         final int iterations,
+                         final double learningRate,
+                         final PrintStream out,
+                         final int reportInterval) {
+        final double[] weights = initialWeights.clone();
+        final double[] firstMoments = new double[weights.length];
+        final double[] secondMoments = new double[weights.length];
+        for (int iteration = 1; iteration <= iterations; iteration++) {
+            final double[] gradient = pass(weights, k, true);
+            for (int i = 0; i < weights.length; i++) {
+                firstMoments[i] = BETA1 * firstMoments[i] + (1 - BETA1) * gradient[i];
+                secondMoments[i] = BETA2 * secondMoments[i] + (1 - BETA2) * gradient[i] * gradient[i];
+                final double firstEstimate = firstMoments[i] / (1 - Math.pow(BETA1, iteration));
+                final double secondEstimate = secondMoments[i] / (1 - Math.pow(BETA2, iteration));
+                weights[i] -= learningRate * firstEstimate / (Math.sqrt(secondEstimate) + EPSILON);
+            }
+            if (iteration % reportInterval == 0 || iteration == iterations) {
+                out.println(String.format("iteration %d loss %.7f", iteration, gradient[EvaluationFeatures.NUM_FEATURES]));
+            }
+        }
+        return weights;
+    }
+
+    //the gradient of the mean loss, if asked for, followed by the mean loss
+    private double[] pass(final double[] weights,
+                          final double k,
+                          final boolean withGradient) {
+        final double[] sums = this.pool.invoke(new PassTask(this.trainingSet.getFeatures(), this.trainingSet.getResults(),
+                weights, k * CENTIPAWNS_TO_LOG, withGradient, 0, this.trainingSet.size()));
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] /= this.trainingSet.size();
+        }
+        return sums;
+    }
+
+    public static int[] round(final double[] weights) {
+        final int[] rounded = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            rounded[i] = (int) Math.round(weights[i]);
+        }
+        return rounded;
+    }
+
+    public static double[] toDouble(final int[] weights) {
+        final double[] converted = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            converted[i] = weights[i];
+        }
+        return converted;
+    }
+
+    @Override
+    public void close() {
+        this.pool.shutdown();
+    }
+
+    //sums the loss, and the gradient, of the positions from start to end
+    private static final class PassTask extends RecursiveTask<double[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final short[] features;
+        private final byte[] results;
+        private final double[] weights;
+        private final double scale;
+        private final boolean withGradient;
+        private final int start;
+        private final int end;
+
+        //ctor
+        private PassTask(final short[] features,
+                         final byte[] results,
+                         final double[] weights,
+                         final double scale,
+                         final boolean withGradient,
+                         final int start,
+                         final int end) {
+            this.features = features;
+            this.results = results;
+            this.weights = weights;
+            this.scale = scale;
+            this.withGradient = withGradient;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (this.end - this.start > SPLIT_THRESHOLD) {
+                final int middle = (this.start + this.end) >>> 1;
+                final PassTask left = new PassTask(this.features, this.results, this.weights, this.scale,
+                        this.withGradient, this.start, middle);
+                left.fork();
+                final double[] sums = new PassTask(this.features, this.results, this.weights, this.scale,
+                        this.withGradient, middle, this.end).compute();
+                final double[] leftSums = left.join();
+                for (int i = 0; i < sums.length; i++) {
+                    sums[i] += leftSums[i];
+                }
+                return sums;
+            }
+            final int numFeatures = EvaluationFeatures.NUM_FEATURES;
+            final double[] sums = new double[numFeatures + 1];
+            for (int position = this.start; position < this.end; position++) {
+                final int offset = position * numFeatures;
+                double evaluation = 0;
+                for (int i = 0; i < numFeatures; i++) {
+                    evaluation += this.weights[i] * this.features[offset + i];
+                }
+                final double prediction = 1 / (1 + Math.exp(-this.scale * evaluation));
+                final double error = this.results[position] / 2.0 - prediction;
+                sums[numFeatures] += error * error;
+                if (this.withGradient) {
+                    final double slope = -2 * error * prediction * (1 - prediction) * this.scale;
+                    for (int i = 0; i < numFeatures; i++) {
+                        sums[i] += slope * this.features[offset + i];
+                    }
+                }
+            }
+            return sums;
+        }
+    }
+}
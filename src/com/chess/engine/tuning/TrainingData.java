@@ -0,0 +1,95 @@
+package com.chess.engine.tuning;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.notation.PositionCodec;
+import com.chess.engine.player.ai.AlphaBeta;
+
+import java.nio.ByteBuffer;
+
+//Fixed size records of SelfPlayGenerator, 40 bytes in the byte order of the buffer (the generator writes little endian):
+//position (32)     PositionCodec
+//score (2)         search score in centipawns for the side to move, mates at plus or minus MATE_SCORE
+//best move (2)     Move.MoveFactory.encodeMove
+//result (1)        the game result for the side to move: RESULT_WIN, RESULT_DRAW or RESULT_LOSS
+//depth (1)         depth of the search that gave the score
+//ply (2)           ply of the game the position came up at
+//Every method reads or writes at an absolute index, the position of the buffer is not touched.
+public final class TrainingData {
+
+    public static final int RECORD_SIZE = 40;
+    public static final int MATE_SCORE = 32000;
+    public static final int RESULT_LOSS = 0;
+    public static final int RESULT_DRAW = 1;
+    public static final int RESULT_WIN = 2;
+
+    private static final int SCORE_OFFSET = PositionCodec.ENCODED_SIZE;
+    private static final int MOVE_OFFSET = SCORE_OFFSET + 2;
+    private static final int RESULT_OFFSET = MOVE_OFFSET + 2;
+    private static final int DEPTH_OFFSET = RESULT_OFFSET + 1;
+    private static final int PLY_OFFSET = DEPTH_OFFSET + 1;
+
+    private TrainingData() {
+        throw new RuntimeException("You cannot instantiate me!");
+    }
+
+    //everything but the result, which is only known once the game is over
+    public static void write(final ByteBuffer buffer,
+                             final int index,
+                             final Board board,
+                             final int halfmoveClock,
+                             final int ply,
+                             final int score,
+                             final int encodedMove,
+                             final int depth) {
+        PositionCodec.encode(board, halfmoveClock, ply / 2 + 1, buffer, index);
+        buffer.putShort(index + SCORE_OFFSET, (short) toRecordScore(score));
+        buffer.putShort(index + MOVE_OFFSET, (short) encodedMove);
+        buffer.put(index + RESULT_OFFSET, (byte) RESULT_DRAW);
+        buffer.put(index + DEPTH_OFFSET, (byte) depth);
+        buffer.putShort(index + PLY_OFFSET, (short) Math.min(ply, 0xFFFF));
+    }
+
+    public static void setResult(final ByteBuffer buffer,
+                                 final int index,
+                                 final int result) {
+        buffer.put(index + RESULT_OFFSET, (byte) result);
+    }
+
+    public static Board getBoard(final ByteBuffer buffer,
+                                 final int index) {
+        return PositionCodec.decode(buffer, index);
+    }
+
+    public static int getScore(final ByteBuffer buffer,
+                               final int index) {
+        return buffer.getShort(index + SCORE_OFFSET);
+    }
+
+    public static int getEncodedMove(final ByteBuffer buffer,
+                                     final int index) {
+        return buffer.getShort(index + MOVE_OFFSET) & 0xFFFF;
+    }
+
+    public static int getResult(final ByteBuffer buffer,
+                                final int index) {
+        return buffer.get(index + RESULT_OFFSET);
+    }
+
+    public static int getDepth(final ByteBuffer buffer,
+                               final int index) {
+        return buffer.get(index + DEPTH_OFFSET);
+    }
+
+    public static int getPly(final ByteBuffer buffer,
+                             final int index) {
+        return buffer.getShort(index + PLY_OFFSET) & 0xFFFF;
+    }
+
+    //search scores are far below MATE_SCORE, mates keep their sign
+    private static int toRecordScore(final int score) {
+        if (AlphaBeta.isMateScore(score)) {
+            return score > 0 ? MATE_SCORE : -MATE_SCORE;
+        }
+        return Math.max(-MATE_SCORE + 1, Math.min(MATE_SCORE - 1, score));
+    }
+}
@@ -0,0 +1,254 @@
+package com.chess.engine.tuning;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.notation.FenParser;
+import com.chess.engine.player.ai.EvaluationFeatures;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+//Labeled positions for tuning, kept as nothing but their evaluation features and the game result:
+//NUM_FEATURES shorts and a byte a position, so millions of them fit where the boards never would.
+//Lines are EPD or FEN records with the result somewhere after the position, as "1-0", "0-1" or "1/2-1/2"
+//(c9 "1-0"; and similar opcodes included) or as [1.0], [0.5], [0.0]. Lines without one are skipped.
+//Files ending in .bin are read as the TrainingData records of SelfPlayGenerator instead.
+//Files are read in batches, every batch is parsed in parallel and only its features are kept.
+public final class TrainingSet {
+
+    public static final int WHITE_WINS = 2;
+    public static final int DRAW = 1;
+    public static final int BLACK_WINS = 0;
+
+    private static final int BATCH_SIZE = 16384;
+    private static final int NO_RESULT = -1;
+    private static final String RECORD_FILE_SUFFIX = ".bin";
+
+    private short[] features;
+    private byte[] results;
+    private int size;
+    private long skipped;
+
+    //ctor
+    private TrainingSet() {
+        this.features = new short[BATCH_SIZE * EvaluationFeatures.NUM_FEATURES];
+        this.results = new byte[BATCH_SIZE];
+    }
+
+    public static TrainingSet load(final List<Path> paths,
+                                   final int numThreads) throws IOException {
+        final TrainingSet trainingSet = new TrainingSet();
+        final ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            for (final Path path : paths) {
+                if (path.getFileName().toString().endsWith(RECORD_FILE_SUFFIX)) {
+                    trainingSet.loadRecords(pool, path);
+                } else {
+                    trainingSet.loadLines(pool, path);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return trainingSet;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    //lines that had no position or no result
+    public long getSkipped() {
+        return this.skipped;
+    }
+
+    //NUM_FEATURES values per position, positions one after the other
+    short[] getFeatures() {
+        return this.features;
+    }
+
+    //WHITE_WINS, DRAW or BLACK_WINS per position
+    byte[] getResults() {
+        return this.results;
+    }
+
+    private void loadLines(final ForkJoinPool pool,
+                           final Path path) throws IOException {
+        final String[] lines = new String[BATCH_SIZE];
+        final ThreadLocal<FenParser> fenParsers = ThreadLocal.withInitial(FenParser::new);
+        try (final BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            int numLines;
+            do {
+                numLines = 0;
+                String line;
+                while (numLines < BATCH_SIZE && (line = reader.readLine()) != null) {
+                    lines[numLines++] = line;
+                }
+                addBatch(pool, numLines, (i, features, offset) -> parse(lines[i], fenParsers.get(), features, offset));
+            } while (numLines == BATCH_SIZE);
+        }
+    }
+
+    private void loadRecords(final ForkJoinPool pool,
+                             final Path path) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(BATCH_SIZE * TrainingData.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (true) {
+                final boolean endOfFile = channel.read(buffer) == -1;
+                if (buffer.hasRemaining() && !endOfFile) {
+                    continue;
+                }
+                //a torn record at the end of the file is left out
+                final int numRecords = buffer.position() / TrainingData.RECORD_SIZE;
+                if (numRecords > 0) {
+                    addBatch(pool, numRecords, (i, features, offset) ->
+                            parseRecord(buffer, i * TrainingData.RECORD_SIZE, features, offset));
+                }
+                if (endOfFile) {
+                    return;
+                }
+                buffer.clear();
+            }
+        }
+    }
+
+    private void addBatch(final ForkJoinPool pool,
+                          final int numPositions,
+                          final PositionParser parser) throws IOException {
+        final short[] batchFeatures = new short[numPositions * EvaluationFeatures.NUM_FEATURES];
+        final byte[] batchResults = new byte[numPositions];
+        try {
+            pool.submit(() -> IntStream.range(0, numPositions).parallel().forEach(i ->
+                    batchResults[i] = (byte) parser.parse(i, batchFeatures, i * EvaluationFeatures.NUM_FEATURES))).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading positions", e);
+        } catch (final ExecutionException e) {
+            throw new RuntimeException("Failed to load positions", e.getCause());
+        }
+        ensureCapacity(this.size + numPositions);
+        for (int i = 0; i < numPositions; i++) {
+            if (batchResults[i] == NO_RESULT) {
+                this.skipped++;
+                continue;
+            }
+            System.arraycopy(batchFeatures, i * EvaluationFeatures.NUM_FEATURES, this.features,
+                    this.size * EvaluationFeatures.NUM_FEATURES, EvaluationFeatures.NUM_FEATURES);
+            this.results[this.size++] = batchResults[i];
+        }
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity > this.results.length) {
+            final int newCapacity = Math.max(capacity, this.results.length + (this.results.length >> 1));
+            this.results = Arrays.copyOf(this.results, newCapacity);
+            this.features = Arrays.copyOf(this.features, newCapacity * EvaluationFeatures.NUM_FEATURES);
+        }
+    }
+
+    //the result of the line, its features written at offset, NO_RESULT if the line doesn't hold both
+    private static int parse(final String line,
+                             final FenParser fenParser,
+                             final short[] features,
+                             final int offset) {
+        final int fenEnd = fenEnd(line);
+        if (fenEnd == -1) {
+            return NO_RESULT;
+        }
+        final int result = parseResult(line, fenEnd);
+        if (result == NO_RESULT) {
+            return NO_RESULT;
+        }
+        final Board board;
+        try {
+            board = fenParser.parse(line, 0, fenEnd);
+        } catch (final RuntimeException e) {
+            return NO_RESULT;
+        }
+        EvaluationFeatures.extract(board, features, offset);
+        return result;
+    }
+
+    //the result from white's point of view like every other
+    private static int parseRecord(final ByteBuffer buffer,
+                                   final int index,
+                                   final short[] features,
+                                   final int offset) {
+        final Board board;
+        try {
+            board = TrainingData.getBoard(buffer, index);
+        } catch (final RuntimeException e) {
+            return NO_RESULT;
+        }
+        EvaluationFeatures.extract(board, features, offset);
+        final int result = TrainingData.getResult(buffer, index);
+        return board.currentPlayer().getAlliance().isWhite() ? result : TrainingData.RESULT_WIN - result;
+    }
+
+    //the end of the four position fields, and of the two counters if they follow, -1 if there are fewer fields
+    private static int fenEnd(final String line) {
+        int index = 0;
+        int fields = 0;
+        int end = -1;
+        while (fields < 6) {
+            while (index < line.length() && Character.isWhitespace(line.charAt(index))) {
+                index++;
+            }
+            final int start = index;
+            while (index < line.length() && !Character.isWhitespace(line.charAt(index))) {
+                index++;
+            }
+            if (index == start || (fields >= 4 && !isNumber(line, start, index))) {
+                break;
+            }
+            fields++;
+            if (fields >= 4) {
+                end = index;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isNumber(final String line,
+                                    final int start,
+                                    final int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isDigit(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int parseResult(final String line,
+                                   final int from) {
+        final String rest = line.substring(from);
+        if (rest.contains("1/2-1/2") || rest.contains("[0.5]")) {
+            return DRAW;
+        }
+        if (rest.contains("1-0") || rest.contains("[1.0]") || rest.contains("[1]")) {
+            return WHITE_WINS;
+        }
+        if (rest.contains("0-1") || rest.contains("[0.0]") || rest.contains("[0]")) {
+            return BLACK_WINS;
+        }
+        return NO_RESULT;
+    }
+
+    //the result of position index of a batch, its features written at offset
+    private interface PositionParser {
+
+        int parse(int index, short[] features, int offset);
+    }
+}
@@ -0,0 +1,439 @@
+package com.chess.engine.uci;
+
+import com.chess.engine.board.Board;
+import com.chess.engine.board.Move;
+import com.chess.engine.notation.CoordinateNotation;
+import com.chess.engine.notation.FenParser;
+import com.chess.engine.player.MoveTransition;
+import com.chess.engine.player.ai.AlphaBeta;
+import com.chess.engine.player.ai.MonteCarloTreeSearch;
+import com.chess.engine.player.ai.StandardBoardEvaluator;
+import com.chess.engine.player.ai.TimeManager;
+import com.chess.engine.player.ai.TranspositionTable;
+import com.chess.engine.tablebase.Tablebases;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+//Universal Chess Interface front-end.
+//Three threads: the caller reads and handles the commands, searches run on a dedicated search thread
+//and everything sent to the GUI goes through UciOutput's writer thread.
+//No command waits for a running search, except the ones that have to replace it
+//(go, ucinewgame, Hash, TablebasePath, UseMCTS, Threads, quit), and those stop it first.
+//A search started with go ponder or go infinite holds its bestmove until ponderhit or stop.
+//With UseMCTS the moves come from MonteCarloTreeSearch on Threads workers, go nodes then counts playouts and go depth is ignored.
+public class UciEngine {
+
+    private static final String ENGINE_NAME = "JChess";
+    private static final String ENGINE_AUTHOR = "the JChess authors";
+    private static final int DEFAULT_HASH_SIZE = 16;
+    private static final int MAX_HASH_SIZE = 1024;
+    private static final int DEFAULT_MOVE_OVERHEAD = 50;
+    private static final int MAX_MOVE_OVERHEAD = 5000;
+    private static final int MAX_THREADS = 64;
+
+    private final BufferedReader input;
+    private final UciOutput output;
+    private final ExecutorService searchThread;
+    private final FenParser fenParser;
+    private final Object bestMoveLock;
+    private AlphaBeta search;
+    private Board board;
+    private Future<?> searchTask;
+    private volatile boolean holdBestMove;
+    private volatile boolean pondering;
+    private volatile boolean infinite;
+    private volatile TimeManager timeManager;
+    private long moveOverhead;
+    private Tablebases tablebases;
+    //null unless UseMCTS is on
+    private MonteCarloTreeSearch monteCarlo;
+    private int threads;
+
+    //ctor
+    public UciEngine(final InputStream in,
+                     final PrintStream out) {
+        this.input = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        this.output = new UciOutput(out);
+        this.searchThread = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "uci-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.fenParser = new FenParser();
+        this.bestMoveLock = new Object();
+        this.search = createSearch(DEFAULT_HASH_SIZE);
+        this.moveOverhead = DEFAULT_MOVE_OVERHEAD;
+        this.threads = 1;
+        this.board = Board.createStandardBoard();
+    }
+
+    private AlphaBeta createSearch(final int hashSize) {
+        final AlphaBeta alphaBeta = new AlphaBeta(new StandardBoardEvaluator(), new TranspositionTable(hashSize), AlphaBeta.MAX_DEPTH);
+        alphaBeta.setSearchListener(this::sendInfo);
+        alphaBeta.setTablebases(this.tablebases);
+        return alphaBeta;
+    }
+
+    private MonteCarloTreeSearch createMonteCarlo() {
+        final MonteCarloTreeSearch monteCarloTreeSearch = new MonteCarloTreeSearch(new StandardBoardEvaluator(), this.threads,
+                MonteCarloTreeSearch.DEFAULT_NUM_NODES, Integer.MAX_VALUE);
+        monteCarloTreeSearch.setSearchListener(this::sendInfo);
+        return monteCarloTreeSearch;
+    }
+
+    //returns once quit is received or the input ends
+    public void run() throws IOException, InterruptedException {
+        String line;
+        while ((line = this.input.readLine()) != null) {
+            final String command = line.trim();
+            if (command.equals("quit")) {
+                break;
+            }
+            try {
+                handleCommand(command);
+            } catch (final RuntimeException e) {
+                this.output.println("info string " + e.getMessage());
+            }
+        }
+        stopSearch();
+        if (this.monteCarlo != null) {
+            this.monteCarlo.shutdown();
+        }
+        this.searchThread.shutdown();
+        this.searchThread.awaitTermination(1, TimeUnit.MINUTES);
+        this.output.close();
+    }
+
+    private void handleCommand(final String command) {
+        final String[] tokens = command.split("\\s+");
+        switch (tokens[0]) {
+            case "uci":
+                this.output.println("id name " + ENGINE_NAME);
+                this.output.println("id author " + ENGINE_AUTHOR);
+                this.output.println("option name Hash type spin default " + DEFAULT_HASH_SIZE + " min 1 max " + MAX_HASH_SIZE);
+                this.output.println("option name Clear Hash type button");
+                this.output.println("option name Ponder type check default false");
+                this.output.println("option name Move Overhead type spin default " + DEFAULT_MOVE_OVERHEAD + " min 0 max " + MAX_MOVE_OVERHEAD);
+                this.output.println("option name TablebasePath type string default <empty>");
+                this.output.println("option name UseMCTS type check default false");
+                this.output.println("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                this.output.println("uciok");
+                break;
+            case "isready":
+                this.output.println("readyok");
+                break;
+            case "ucinewgame":
+                stopSearch();
+                this.search.getTranspositionTable().clear();
+                this.board = Board.createStandardBoard();
+                break;
+            case "position":
+                position(command);
+                break;
+            case "go":
+                go(tokens);
+                break;
+            case "stop":
+                this.search.stop();
+                if (this.monteCarlo != null) {
+                    this.monteCarlo.stop();
+                }
+                releaseBestMove();
+                break;
+            case "ponderhit":
+                ponderHit();
+                break;
+            case "setoption":
+                setOption(command);
+                break;
+            default:
+                //unknown commands are ignored, as the protocol asks
+                break;
+        }
+    }
+
+    //position [startpos | fen <fen>] [moves <move> ...]
+    private void position(final String command) {
+        final int movesIndex = command.indexOf(" moves");
+        final int end = movesIndex == -1 ? command.length() : movesIndex;
+        final int fenIndex = command.indexOf(" fen ");
+        Board position;
+        if (fenIndex != -1 && fenIndex < end) {
+            position = this.fenParser.parse(command, fenIndex + 5, end);
+        } else if (command.startsWith("startpos", "position ".length())) {
+            position = Board.createStandardBoard();
+        } else {
+            throw new RuntimeException("Invalid position command: " + command);
+        }
+        if (movesIndex != -1) {
+            int index = movesIndex + " moves".length();
+            while (index < command.length()) {
+                while (index < command.length() && command.charAt(index) == ' ') {
+                    index++;
+                }
+                final int moveStart = index;
+                while (index < command.length() && command.charAt(index) != ' ') {
+                    index++;
+                }
+                if (moveStart == index) {
+                    break;
+                }
+                final Move move = CoordinateNotation.parse(position, command, moveStart, index);
+                final MoveTransition transition = position.currentPlayer().makeMove(move);
+                if (!transition.getMoveStatus().isDone()) {
+                    throw new RuntimeException("Illegal move: " + command.substring(moveStart, index));
+                }
+                position = transition.getTransitionBoard();
+            }
+        }
+        this.board = position;
+    }
+
+    private void go(final String[] tokens) {
+        stopSearch();
+        int maxDepth = AlphaBeta.MAX_DEPTH;
+        long maxNodes = Long.MAX_VALUE;
+        long moveTime = -1;
+        long whiteTime = -1;
+        long blackTime = -1;
+        long whiteIncrement = 0;
+        long blackIncrement = 0;
+        int movesToGo = 0;
+        boolean ponder = false;
+        boolean infinite = false;
+        for (int i = 1; i < tokens.length; i++) {
+            switch (tokens[i]) {
+                case "depth": maxDepth = Integer.parseInt(tokens[++i]); break;
+                case "nodes": maxNodes = Long.parseLong(tokens[++i]); break;
+                case "mate": maxDepth = 2 * Integer.parseInt(tokens[++i]) - 1; break;
+                case "movetime": moveTime = Long.parseLong(tokens[++i]); break;
+                case "wtime": whiteTime = Long.parseLong(tokens[++i]); break;
+                case "btime": blackTime = Long.parseLong(tokens[++i]); break;
+                case "winc": whiteIncrement = Long.parseLong(tokens[++i]); break;
+                case "binc": blackIncrement = Long.parseLong(tokens[++i]); break;
+                case "movestogo": movesToGo = Integer.parseInt(tokens[++i]); break;
+                case "ponder": ponder = true; break;
+                case "infinite": infinite = true; break;
+                default: break;
+            }
+        }
+        final boolean whiteToMove = this.board.currentPlayer().getAlliance().isWhite();
+        final long remaining = whiteToMove ? whiteTime : blackTime;
+        final TimeManager timeManager;
+        if (infinite) {
+            timeManager = null;
+        } else if (moveTime >= 0) {
+            timeManager = TimeManager.forMoveTime(moveTime, this.moveOverhead);
+        } else if (remaining >= 0) {
+            timeManager = TimeManager.forClock(remaining, whiteToMove ? whiteIncrement : blackIncrement, movesToGo, this.moveOverhead);
+        } else {
+            timeManager = null;
+        }
+        this.pondering = ponder;
+        this.infinite = infinite;
+        this.holdBestMove = ponder || infinite;
+        this.timeManager = timeManager;
+        //the limits and the stop flag are set here, before the search thread picks the search up, so no stop or ponderhit is lost.
+        //A pondering search runs without a clock until ponderhit starts it.
+        if (timeManager != null && !ponder) {
+            timeManager.start();
+        }
+        final Board position = this.board;
+        final long nodes = maxNodes;
+        if (this.monteCarlo != null) {
+            //no iterations to decide on, the tree search stops at the soft limit
+            this.monteCarlo.setDeadline(timeManager != null && timeManager.isStarted() ? timeManager.getSoftDeadline() : AlphaBeta.NO_DEADLINE);
+            this.monteCarlo.clearStop();
+            final MonteCarloTreeSearch monteCarloTreeSearch = this.monteCarlo;
+            this.searchTask = this.searchThread.submit(() -> search(monteCarloTreeSearch, position, nodes));
+            return;
+        }
+        this.search.setTimeManager(timeManager);
+        this.search.setDeadline(timeManager != null && timeManager.isStarted() ? timeManager.getHardDeadline() : AlphaBeta.NO_DEADLINE);
+        this.search.clearStop();
+        final AlphaBeta alphaBeta = this.search;
+        final int depth = maxDepth;
+        this.searchTask = this.searchThread.submit(() -> search(alphaBeta, position, depth, nodes));
+    }
+
+    //runs on the search thread
+    private void search(final AlphaBeta alphaBeta,
+                        final Board position,
+                        final int maxDepth,
+                        final long maxNodes) {
+        sendBestMove(alphaBeta.search(position, maxDepth, maxNodes), alphaBeta.getPrincipalVariation());
+    }
+
+    //runs on the search thread
+    private void search(final MonteCarloTreeSearch monteCarloTreeSearch,
+                        final Board position,
+                        final long maxPlayouts) {
+        sendBestMove(monteCarloTreeSearch.search(position, maxPlayouts), monteCarloTreeSearch.getPrincipalVariation());
+    }
+
+    private void sendBestMove(final Move bestMove,
+                              final List<Move> principalVariation) {
+        synchronized (this.bestMoveLock) {
+            while (this.holdBestMove) {
+                try {
+                    this.bestMoveLock.wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        final StringBuilder builder = new StringBuilder(32).append("bestmove ");
+        CoordinateNotation.write(bestMove, builder);
+        if (principalVariation.size() > 1 && principalVariation.get(0) == bestMove) {
+            CoordinateNotation.write(principalVariation.get(1), builder.append(" ponder "));
+        }
+        this.output.println(builder.toString());
+    }
+
+    //runs on the search thread, once per completed iteration
+    private void sendInfo(final int depth,
+                          final int score,
+                          final long nodes,
+                          final long elapsedNanos,
+                          final List<Move> principalVariation) {
+        final StringBuilder builder = new StringBuilder(128);
+        builder.append("info depth ").append(depth);
+        if (AlphaBeta.isMateScore(score)) {
+            builder.append(" score mate ").append(AlphaBeta.movesToMate(score));
+        } else {
+            builder.append(" score cp ").append(score);
+        }
+        builder.append(" nodes ").append(nodes);
+        builder.append(" nps ").append(elapsedNanos > 0 ? nodes * 1000000000L / elapsedNanos : 0);
+        builder.append(" time ").append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        builder.append(" pv");
+        for (final Move move : principalVariation) {
+            CoordinateNotation.write(move, builder.append(' '));
+        }
+        this.output.println(builder.toString());
+    }
+
+    //the opponent played the expected move, the ponder search goes on as a normal one on the clock of the go command
+    private void ponderHit() {
+        if (!this.pondering) {
+            return;
+        }
+        this.pondering = false;
+        final TimeManager timeManager = this.timeManager;
+        if (timeManager != null) {
+            timeManager.start();
+            this.search.setDeadline(timeManager.getHardDeadline());
+            if (this.monteCarlo != null) {
+                this.monteCarlo.setDeadline(timeManager.getSoftDeadline());
+            }
+        }
+        if (!this.infinite) {
+            releaseBestMove();
+        }
+    }
+
+    private void releaseBestMove() {
+        synchronized (this.bestMoveLock) {
+            this.holdBestMove = false;
+            this.bestMoveLock.notifyAll();
+        }
+    }
+
+    //stops a running search and waits until it has sent its bestmove
+    private void stopSearch() {
+        if (this.searchTask == null) {
+            return;
+        }
+        this.search.stop();
+        if (this.monteCarlo != null) {
+            this.monteCarlo.stop();
+        }
+        releaseBestMove();
+        try {
+            this.searchTask.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            this.output.println("info string search failed: " + e.getCause());
+        }
+        this.searchTask = null;
+    }
+
+    //setoption name <id> [value <x>]
+    private void setOption(final String command) {
+        final int nameIndex = command.indexOf(" name ");
+        if (nameIndex == -1) {
+            throw new RuntimeException("Invalid setoption command: " + command);
+        }
+        final int valueIndex = command.indexOf(" value ");
+        final String name = command.substring(nameIndex + " name ".length(), valueIndex == -1 ? command.length() : valueIndex).trim();
+        final String value = valueIndex == -1 ? "" : command.substring(valueIndex + " value ".length()).trim();
+        switch (name.toLowerCase()) {
+            case "hash":
+                final int hashSize = Integer.parseInt(value);
+                if (hashSize < 1 || hashSize > MAX_HASH_SIZE) {
+                    throw new RuntimeException("Hash must be between 1 and " + MAX_HASH_SIZE);
+                }
+                stopSearch();
+                this.search = createSearch(hashSize);
+                break;
+            case "clear hash":
+                stopSearch();
+                this.search.getTranspositionTable().clear();
+                break;
+            case "move overhead":
+                final int overhead = Integer.parseInt(value);
+                if (overhead < 0 || overhead > MAX_MOVE_OVERHEAD) {
+                    throw new RuntimeException("Move Overhead must be between 0 and " + MAX_MOVE_OVERHEAD);
+                }
+                this.moveOverhead = overhead;
+                break;
+            case "tablebasepath":
+                stopSearch();
+                try {
+                    this.tablebases = value.isEmpty() || value.equals("<empty>") ? null : Tablebases.open(Paths.get(value));
+                } catch (final IOException e) {
+                    throw new RuntimeException("Cannot open tablebases in " + value + ": " + e.getMessage());
+                }
+                this.search.setTablebases(this.tablebases);
+                break;
+            case "usemcts":
+                stopSearch();
+                if (this.monteCarlo != null) {
+                    this.monteCarlo.shutdown();
+                }
+                this.monteCarlo = Boolean.parseBoolean(value) ? createMonteCarlo() : null;
+                break;
+            case "threads":
+                final int numThreads = Integer.parseInt(value);
+                if (numThreads < 1 || numThreads > MAX_THREADS) {
+                    throw new RuntimeException("Threads must be between 1 and " + MAX_THREADS);
+                }
+                stopSearch();
+                this.threads = numThreads;
+                if (this.monteCarlo != null) {
+                    this.monteCarlo.shutdown();
+                    this.monteCarlo = createMonteCarlo();
+                }
+                break;
+            case "ponder":
+                //nothing to set up, the GUI decides when to ponder
+                break;
+            default:
+                throw new RuntimeException("No such option: " + name);
+        }
+    }
+}
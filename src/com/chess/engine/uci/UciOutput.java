@@ -0,0 +1,53 @@
+package com.chess.engine.uci;
+
+import java.io.PrintStream;
+import java.util.concurrent.LinkedTransferQueue;
+
+//Writes lines to the GUI from its own thread. println() only appends to a lock free queue,
+//so the search thread never waits on a slow pipe or on the console lock.
+class UciOutput {
+
+    private static final String END_OF_OUTPUT = new String("end of output");
+
+    private final PrintStream out;
+    private final LinkedTransferQueue<String> lines;
+    private final Thread writer;
+
+    //ctor
+    UciOutput(final PrintStream out) {
+        this.out = out;
+        this.lines = new LinkedTransferQueue<>();
+        this.writer = new Thread(this::write, "uci-output");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    void println(final String line) {
+        this.lines.offer(line);
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                final String line = this.lines.take();
+                if (line == END_OF_OUTPUT) {
+                    this.out.flush();
+                    return;
+                }
+                this.out.println(line);
+                //flush once per burst, not once per line
+                if (this.lines.isEmpty()) {
+                    this.out.flush();
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //writes what is queued and stops the writer
+    void close() throws InterruptedException {
+        this.lines.offer(END_OF_OUTPUT);
+        this.writer.join();
+    }
+}